@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.benchmarks;
+
+import com.dnastack.beacon.core.adapter.impl.SampleBeaconAdapterImpl;
+import com.dnastack.beacon.exceptions.BeaconException;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allele lookups of {@link SampleBeaconAdapterImpl} over memory mapped indexes of growing size: a present allele in
+ * one dataset, an absent allele in one dataset (mostly answered by the Bloom filter) and a present allele queried in
+ * all datasets with dataset responses.
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdapterBenchmark {
+
+    private static final int REQUESTS = 1 << 12;
+
+    /**
+     * Variants in all datasets together.
+     */
+    @Param({"10000", "1000000", "10000000"})
+    public int variants;
+
+    private SampleBeaconAdapterImpl adapter;
+    private BeaconAlleleRequest[] hits;
+    private BeaconAlleleRequest[] misses;
+    private BeaconAlleleRequest[] multiDataset;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            return next++ & (REQUESTS - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty(SampleBeaconAdapterImpl.INDEX_PATH_PROPERTY, SyntheticDatasets.write(variants).toString());
+        adapter = new SampleBeaconAdapterImpl();
+        adapter.init();
+        hits = SyntheticDatasets.requests(REQUESTS, variants, true, false);
+        misses = SyntheticDatasets.requests(REQUESTS, variants, false, false);
+        multiDataset = SyntheticDatasets.requests(REQUESTS, variants, true, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        adapter.destroy();
+        System.clearProperty(SampleBeaconAdapterImpl.INDEX_PATH_PROPERTY);
+    }
+
+    @Benchmark
+    public BeaconAlleleResponse hit(Cursor cursor) throws BeaconException {
+        return adapter.getBeaconAlleleResponse(hits[cursor.next()]);
+    }
+
+    @Benchmark
+    public BeaconAlleleResponse miss(Cursor cursor) throws BeaconException {
+        return adapter.getBeaconAlleleResponse(misses[cursor.next()]);
+    }
+
+    @Benchmark
+    public BeaconAlleleResponse multiDataset(Cursor cursor) throws BeaconException {
+        return adapter.getBeaconAlleleResponse(multiDataset[cursor.next()]);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.benchmarks;
+
+import com.dnastack.beacon.rest.provider.AvroMessageBodyHandler;
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.rest.provider.GsonMessageBodyHandler;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.google.gson.Gson;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of a typical allele request and writing of a typical allele response by {@link GsonMessageBodyHandler} and
+ * {@link AvroMessageBodyHandler}, the response with a growing number of dataset responses.
+ *
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String REQUEST = "{\"referenceName\":\"1\",\"start\":1000000,\"referenceBases\":\"A\","
+            + "\"alternateBases\":\"C\",\"assemblyId\":\"GRCh37\",\"datasetIds\":[\"bench-0\",\"bench-1\"],"
+            + "\"includeDatasetResponses\":true}";
+
+    @Param({"0", "4", "32"})
+    public int datasetResponses;
+
+    private static final MediaType AVRO = MediaType.valueOf(BeaconAvroCodec.APPLICATION_AVRO);
+
+    private GsonMessageBodyHandler handler;
+    private AvroMessageBodyHandler avroHandler;
+    private byte[] request;
+    private byte[] avroRequest;
+    private BeaconAlleleResponse response;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() {
+        handler = Beans.inject(new GsonMessageBodyHandler(), "metrics", new BeaconMetrics());
+        avroHandler = Beans.inject(new AvroMessageBodyHandler(), "metrics", new BeaconMetrics());
+        request = REQUEST.getBytes(StandardCharsets.UTF_8);
+        avroRequest = BeaconAvroCodec.encode(new Gson().fromJson(REQUEST, BeaconAlleleRequest.class));
+        response = new BeaconAlleleResponse();
+        response.setBeaconId("bench");
+        response.setExists(true);
+        response.setAlleleRequest(SyntheticDatasets.requests(1, 1, true, false)[0]);
+        if (datasetResponses > 0) {
+            List<BeaconDatasetAlleleResponse> responses = new ArrayList<>(datasetResponses);
+            for (int i = 0; i < datasetResponses; i++) {
+                BeaconDatasetAlleleResponse dataset = new BeaconDatasetAlleleResponse();
+                dataset.setDatasetId(SyntheticDatasets.datasetId(i));
+                dataset.setExists(i % 2 == 0);
+                dataset.setFrequency(0.125);
+                dataset.setVariantCount(1L);
+                dataset.setCallCount(2504L);
+                dataset.setSampleCount(1252L);
+                responses.add(dataset);
+            }
+            response.setDatasetAlleleResponses(responses);
+        }
+        output = new ByteArrayOutputStream(16384);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object readRequest() throws IOException {
+        Class<Object> type = (Class<Object>) (Class<?>) BeaconAlleleRequest.class;
+        return handler.readFrom(type, type, null, MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(request));
+    }
+
+    @Benchmark
+    public int writeResponse() throws IOException {
+        output.reset();
+        handler.writeTo(response, BeaconAlleleResponse.class, BeaconAlleleResponse.class, null, MediaType.APPLICATION_JSON_TYPE, null, output);
+        return output.size();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object readRequestAvro() throws IOException {
+        Class<Object> type = (Class<Object>) (Class<?>) BeaconAlleleRequest.class;
+        return avroHandler.readFrom(type, type, null, AVRO, null, new ByteArrayInputStream(avroRequest));
+    }
+
+    @Benchmark
+    public int writeResponseAvro() throws IOException {
+        output.reset();
+        avroHandler.writeTo(response, BeaconAlleleResponse.class, BeaconAlleleResponse.class, null, AVRO, null, output);
+        return output.size();
+    }
+}
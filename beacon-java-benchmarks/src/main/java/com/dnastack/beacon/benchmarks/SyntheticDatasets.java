@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.benchmarks;
+
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexWriter;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic datasets for the benchmarks. Variant i is a SNV at position {@code i * STEP} and belongs to dataset
+ * {@code i % DATASET_COUNT}, so every dataset covers the whole contig and half way between two variants there is
+ * never a variant. Index files are written once per size and reused by later runs and forks.
+ *
+ * @version 1.0
+ */
+final class SyntheticDatasets {
+
+    static final String ASSEMBLY_ID = "GRCh37";
+    static final String REFERENCE_NAME = "1";
+    static final int DATASET_COUNT = 4;
+    static final int STEP = 10;
+
+    private static final String BASES = "ACGT";
+
+    private SyntheticDatasets() {
+    }
+
+    static String datasetId(int dataset) {
+        return "bench-" + dataset;
+    }
+
+    /**
+     * @param variants number of variants in all datasets together
+     * @return directory containing the index files
+     * @throws IOException if the files cannot be written
+     */
+    static Path write(int variants) throws IOException {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "beacon-benchmarks", Integer.toString(variants));
+        Files.createDirectories(directory);
+        for (int dataset = 0; dataset < DATASET_COUNT; dataset++) {
+            Path file = directory.resolve(datasetId(dataset) + IndexFormat.FILE_EXTENSION);
+            if (Files.exists(file)) {
+                continue;
+            }
+            Path partial = directory.resolve(datasetId(dataset) + ".partial");
+            try (IndexWriter writer = new IndexWriter(partial, datasetId(dataset))) {
+                writer.startContig(ASSEMBLY_ID, REFERENCE_NAME);
+                for (long i = dataset; i < variants; i += DATASET_COUNT) {
+                    writer.add(i * STEP, referenceBases(i), alternateBases(i));
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return directory;
+    }
+
+    static String referenceBases(long variant) {
+        return String.valueOf(BASES.charAt((int) (variant & 3)));
+    }
+
+    static String alternateBases(long variant) {
+        return String.valueOf(BASES.charAt((int) ((variant + 1) & 3)));
+    }
+
+    /**
+     * @param count    number of requests, a power of two
+     * @param variants number of variants in all datasets together
+     * @param present  whether the requested alleles exist
+     * @param all      whether to query all datasets with dataset responses instead of the dataset of the variant only
+     * @return requests for randomly chosen variants
+     */
+    static BeaconAlleleRequest[] requests(int count, int variants, boolean present, boolean all) {
+        Random random = new Random(42);
+        BeaconAlleleRequest[] requests = new BeaconAlleleRequest[count];
+        for (int i = 0; i < count; i++) {
+            long variant = random.nextInt(variants);
+            BeaconAlleleRequest request = new BeaconAlleleRequest();
+            request.setAssemblyId(ASSEMBLY_ID);
+            request.setReferenceName(REFERENCE_NAME);
+            request.setStart(variant * STEP + (present ? 0 : STEP / 2));
+            request.setReferenceBases(referenceBases(variant));
+            request.setAlternateBases(alternateBases(variant));
+            request.setDatasetIds(all ? allDatasetIds() : Collections.singletonList(datasetId((int) (variant % DATASET_COUNT))));
+            request.setIncludeDatasetResponses(all);
+            requests[i] = request;
+        }
+        return requests;
+    }
+
+    private static List<String> allDatasetIds() {
+        String[] ids = new String[DATASET_COUNT];
+        for (int dataset = 0; dataset < DATASET_COUNT; dataset++) {
+            ids[dataset] = datasetId(dataset);
+        }
+        return Arrays.asList(ids);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.benchmarks;
+
+import com.dnastack.beacon.adapter.api.BeaconAdapter;
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.api.AlleleRequestError;
+import com.dnastack.beacon.service.impl.BeaconServiceImpl;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.dnastack.beacon.utils.AdapterConfig;
+import org.ga4gh.beacon.Beacon;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request validation of {@link BeaconServiceImpl}, on its own and as part of a query answered by an adapter returning
+ * a constant response, for a valid request and for one with an invalid assembly id.
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private BeaconServiceImpl service;
+    private BeaconAlleleRequest valid;
+    private BeaconAlleleRequest invalid;
+
+    @Setup
+    public void setUp() {
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId("bench");
+        response.setExists(true);
+        service = new BeaconServiceImpl();
+        Beans.inject(service, "adapter", new ConstantAdapter(response));
+        Beans.inject(service, "metrics", new BeaconMetrics());
+        valid = SyntheticDatasets.requests(1, 1, true, false)[0];
+        invalid = SyntheticDatasets.requests(1, 1, true, false)[0];
+        invalid.setAssemblyId("hg19");
+    }
+
+    @Benchmark
+    public AlleleRequestError validateValid() {
+        return service.validateAllele(valid.getReferenceName(), valid.getStart(), valid.getReferenceBases(), valid.getAlternateBases(), valid.getAssemblyId());
+    }
+
+    @Benchmark
+    public AlleleRequestError validateInvalid() {
+        return service.validateAllele(invalid.getReferenceName(), invalid.getStart(), invalid.getReferenceBases(), invalid.getAlternateBases(), invalid.getAssemblyId());
+    }
+
+    @Benchmark
+    public BeaconAlleleResponse queryValid() throws BeaconException {
+        return service.queryAllele(valid);
+    }
+
+    /**
+     * Invalid queries are rejected with an exception, this measures its cost.
+     */
+    @Benchmark
+    public Object queryInvalid() {
+        try {
+            return service.queryAllele(invalid);
+        } catch (BeaconException e) {
+            return e;
+        }
+    }
+
+    private static final class ConstantAdapter implements BeaconAdapter {
+
+        private final BeaconAlleleResponse response;
+
+        ConstantAdapter(BeaconAlleleResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void initAdapter(AdapterConfig adapterConfig) {
+        }
+
+        @Override
+        public BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request) {
+            return response;
+        }
+
+        @Override
+        public BeaconAlleleResponse getBeaconAlleleResponse(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses) {
+            return response;
+        }
+
+        @Override
+        public Beacon getBeacon() {
+            return null;
+        }
+    }
+}
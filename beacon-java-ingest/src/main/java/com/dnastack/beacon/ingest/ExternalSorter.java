@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * External merge sort of variants by (contig, start). Contigs keep the order in which they first appear in the input.
+ * At most {@code maxRecordsInMemory} records are buffered; full buffers are sorted and spilled to temporary run files
+ * which are k-way merged at the end, in several passes if there are more runs than {@link #MAX_FAN_IN}.
+ *
+ * @version 1.0
+ */
+public class ExternalSorter implements VariantSink, Closeable {
+
+    static final int MAX_FAN_IN = 128;
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final Path temporaryDirectory;
+    private final int maxRecordsInMemory;
+    private final Map<String, Integer> contigOrder = new HashMap<>();
+    private final List<String> contigs = new ArrayList<>();
+    private final List<VariantRecord> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final Comparator<VariantRecord> order = Comparator.<VariantRecord>comparingInt(r -> contigOrder.get(r.getReferenceName()))
+                                                              .thenComparingLong(VariantRecord::getStart);
+
+    public ExternalSorter(Path temporaryDirectory, int maxRecordsInMemory) {
+        this.temporaryDirectory = temporaryDirectory;
+        this.maxRecordsInMemory = maxRecordsInMemory;
+    }
+
+    @Override
+    public boolean accept(VariantRecord record) throws IOException {
+        if (!contigOrder.containsKey(record.getReferenceName())) {
+            contigOrder.put(record.getReferenceName(), contigs.size());
+            contigs.add(record.getReferenceName());
+        }
+        buffer.add(record);
+        if (buffer.size() >= maxRecordsInMemory) {
+            spill();
+        }
+        return true;
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Emits all records in sorted order.
+     *
+     * @param sink receiver of the sorted records
+     * @throws IOException if a run file cannot be read
+     */
+    public void finish(VariantSink sink) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            for (VariantRecord record : buffer) {
+                if (!sink.accept(record)) {
+                    return;
+                }
+            }
+            buffer.clear();
+            return;
+        }
+        spill();
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            Path merged = newRun();
+            try (RunWriter writer = new RunWriter(merged)) {
+                merge(group, writer::write);
+            }
+            runs.add(merged);
+        }
+        merge(new ArrayList<>(runs), sink);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        buffer.sort(order);
+        Path run = newRun();
+        try (RunWriter writer = new RunWriter(run)) {
+            for (VariantRecord record : buffer) {
+                writer.write(record);
+            }
+        }
+        runs.add(run);
+        buffer.clear();
+    }
+
+    private Path newRun() throws IOException {
+        Path run = Files.createTempFile(temporaryDirectory, "beacon-sort", ".run");
+        run.toFile().deleteOnExit();
+        return run;
+    }
+
+    private void merge(List<Path> inputs, VariantSink sink) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(inputs.size(), (a, b) -> order.compare(a.current, b.current));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (Path input : inputs) {
+                RunReader reader = new RunReader(input);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (!sink.accept(reader.current)) {
+                    return;
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            for (Path input : inputs) {
+                Files.deleteIfExists(input);
+                runs.remove(input);
+            }
+        }
+    }
+
+    private final class RunWriter implements Closeable {
+
+        private final DataOutputStream out;
+
+        private RunWriter(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_SIZE));
+        }
+
+        private boolean write(VariantRecord record) throws IOException {
+            out.writeInt(contigOrder.get(record.getReferenceName()));
+            out.writeLong(record.getStart());
+            out.writeLong(record.getEnd());
+            writeString(record.getReferenceBases());
+            writeString(record.getAlternateBases());
+            out.writeInt(record.getAlleleCount());
+            out.writeInt(record.getAlleleNumber());
+            out.writeInt(record.getSampleCount());
+            SampleBitmap carriers = record.getCarriers();
+            if (carriers == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = carriers.toBytes();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            return true;
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private final class RunReader implements Closeable {
+
+        private final DataInputStream in;
+        private VariantRecord current;
+
+        private RunReader(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_SIZE));
+        }
+
+        private boolean next() throws IOException {
+            int contig;
+            try {
+                contig = in.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            long start = in.readLong();
+            long end = in.readLong();
+            String referenceBases = readString();
+            String alternateBases = readString();
+            int alleleCount = in.readInt();
+            int alleleNumber = in.readInt();
+            int sampleCount = in.readInt();
+            int carriersLength = in.readInt();
+            SampleBitmap carriers = null;
+            if (carriersLength >= 0) {
+                byte[] bytes = new byte[carriersLength];
+                in.readFully(bytes);
+                carriers = SampleBitmap.fromBytes(bytes);
+            }
+            current = new VariantRecord(contigs.get(contig), start, end, referenceBases, alternateBases, alleleCount, alleleNumber, sampleCount, carriers);
+            return true;
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.ContigIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads VCF lines in batches on the calling thread and parses the batches on an executor. Parsed batches are delivered
+ * to the sink in input order, and at most {@code maxPendingBatches} batches are in flight, so memory use stays
+ * bounded regardless of the input size. The number of samples is taken from the {@code #CHROM} header line.
+ *
+ * @version 1.0
+ */
+public class ParallelVcfReader {
+
+    private final ExecutorService executor;
+    private final int batchLines;
+    private final int maxPendingBatches;
+    private final IngestProgress progress;
+    private int sampleCount = ContigIndex.UNKNOWN;
+    private List<String> sampleNames = Collections.emptyList();
+
+    public ParallelVcfReader(ExecutorService executor, int batchLines, int maxPendingBatches, IngestProgress progress) {
+        this.executor = executor;
+        this.batchLines = batchLines;
+        this.maxPendingBatches = maxPendingBatches;
+        this.progress = progress;
+    }
+
+    /**
+     * Parses the whole input.
+     *
+     * @param reader VCF text
+     * @param sink   receiver of the variants
+     * @return false if the sink stopped the reader before the end of the input
+     * @throws IOException if the input cannot be read or parsed
+     */
+    public boolean read(BufferedReader reader, VariantSink sink) throws IOException {
+        Deque<Future<List<VariantRecord>>> pending = new ArrayDeque<>();
+        try {
+            boolean more = true;
+            while (more || !pending.isEmpty()) {
+                while (more && pending.size() < maxPendingBatches) {
+                    List<String> lines = new ArrayList<>(batchLines);
+                    for (String line; lines.size() < batchLines && (line = reader.readLine()) != null; ) {
+                        if (line.startsWith(VcfParser.HEADER_PREFIX)) {
+                            sampleCount = VcfParser.sampleCount(line);
+                            sampleNames = VcfParser.sampleNames(line);
+                        }
+                        lines.add(line);
+                    }
+                    more = lines.size() == batchLines;
+                    if (!lines.isEmpty()) {
+                        pending.add(executor.submit(() -> parse(lines)));
+                    }
+                }
+                Future<List<VariantRecord>> next = pending.poll();
+                if (next != null) {
+                    List<VariantRecord> records = get(next);
+                    for (VariantRecord record : records) {
+                        if (!sink.accept(record)) {
+                            return false;
+                        }
+                    }
+                    progress.recordsRead(records.size());
+                }
+            }
+            return true;
+        } finally {
+            for (Future<List<VariantRecord>> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return number of samples in the header of the last input read, {@link ContigIndex#UNKNOWN} if it had no header
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return names of the samples in the header of the last input read, in column order
+     */
+    public List<String> getSampleNames() {
+        return sampleNames;
+    }
+
+    private static List<VariantRecord> parse(List<String> lines) {
+        List<VariantRecord> records = new ArrayList<>(lines.size() + (lines.size() >> 3));
+        for (String line : lines) {
+            VcfParser.parse(line, records);
+        }
+        return records;
+    }
+
+    private static List<VariantRecord> get(Future<List<VariantRecord>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+}
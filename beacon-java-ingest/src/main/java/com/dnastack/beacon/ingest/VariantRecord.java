@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.ContigIndex;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+
+/**
+ * A single biallelic variant parsed from a VCF record, with its allele count, allele number and carrier samples where
+ * the record allows computing them.
+ *
+ * @version 1.0
+ */
+public final class VariantRecord {
+
+    private final String referenceName;
+    private final long start;
+    private final long end;
+    private final String referenceBases;
+    private final String alternateBases;
+    private final int alleleCount;
+    private final int alleleNumber;
+    private final int sampleCount;
+    private final SampleBitmap carriers;
+
+    public VariantRecord(String referenceName, long start, String referenceBases, String alternateBases) {
+        this(referenceName, start, ContigIndex.end(start, referenceBases), referenceBases, alternateBases);
+    }
+
+    public VariantRecord(String referenceName, long start, long end, String referenceBases, String alternateBases) {
+        this(referenceName, start, end, referenceBases, alternateBases, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN);
+    }
+
+    public VariantRecord(String referenceName, long start, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, int sampleCount) {
+        this(referenceName, start, end, referenceBases, alternateBases, alleleCount, alleleNumber, sampleCount, null);
+    }
+
+    public VariantRecord(String referenceName, long start, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, int sampleCount, SampleBitmap carriers) {
+        this.referenceName = referenceName;
+        this.start = start;
+        this.end = end;
+        this.referenceBases = referenceBases;
+        this.alternateBases = alternateBases;
+        this.alleleCount = alleleCount;
+        this.alleleNumber = alleleNumber;
+        this.sampleCount = sampleCount;
+        this.carriers = carriers;
+    }
+
+    public String getReferenceName() {
+        return referenceName;
+    }
+
+    /**
+     * @return 0-based start position
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return 0-based exclusive end position
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    public String getReferenceBases() {
+        return referenceBases;
+    }
+
+    public String getAlternateBases() {
+        return alternateBases;
+    }
+
+    /**
+     * @return number of alternate alleles among the called genotypes (AC), or {@link ContigIndex#UNKNOWN}
+     */
+    public int getAlleleCount() {
+        return alleleCount;
+    }
+
+    /**
+     * @return number of called alleles at the site (AN), or {@link ContigIndex#UNKNOWN}
+     */
+    public int getAlleleNumber() {
+        return alleleNumber;
+    }
+
+    /**
+     * @return number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return indexes of the samples carrying the alternate allele, or null if the record has no genotypes
+     */
+    public SampleBitmap getCarriers() {
+        return carriers;
+    }
+
+    @Override
+    public String toString() {
+        return referenceName + ":" + start + " " + referenceBases + ">" + alternateBases;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexWriter;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Builds a beacon index file from a plain, gzip or bgzip compressed VCF.
+ * <p>
+ * Sorted input (the usual case) is streamed straight into the {@link IndexWriter}. If the input turns out not to be
+ * sorted, the partial index is discarded and the input is read again through an {@link ExternalSorter}, so memory use
+ * is bounded by the sort buffer either way. Cohorts are read from a tab separated file of cohort id and sample name
+ * lines and stored as sets of the samples' columns.
+ * <pre>
+ * java -jar beacon-java-ingest.jar --dataset ID --assembly GRCh37 --output ID.bidx [--threads N]
+ *      [--sort-buffer RECORDS] [--tmp DIR] [--cohorts FILE] input.vcf[.gz]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class VcfIngest {
+
+    private static final Logger LOGGER = Logger.getLogger(VcfIngest.class.getName());
+    private static final int BATCH_LINES = 4096;
+
+    private final Path input;
+    private final Path output;
+    private final String datasetId;
+    private final String assemblyId;
+    private final int threads;
+    private final int sortBufferRecords;
+    private final Path temporaryDirectory;
+    private final Path cohorts;
+
+    /**
+     * @param input              VCF file
+     * @param output             index file to create
+     * @param datasetId          dataset id stored in the index
+     * @param assemblyId         assembly of the VCF coordinates, e.g. GRCh37
+     * @param threads            number of decompression and parsing threads
+     * @param sortBufferRecords  records held in memory per sort run if the input is not sorted
+     * @param temporaryDirectory directory for sort runs
+     */
+    public VcfIngest(Path input, Path output, String datasetId, String assemblyId, int threads, int sortBufferRecords, Path temporaryDirectory) {
+        this(input, output, datasetId, assemblyId, threads, sortBufferRecords, temporaryDirectory, null);
+    }
+
+    /**
+     * @param input              VCF file
+     * @param output             index file to create
+     * @param datasetId          dataset id stored in the index
+     * @param assemblyId         assembly of the VCF coordinates, e.g. GRCh37
+     * @param threads            number of decompression and parsing threads
+     * @param sortBufferRecords  records held in memory per sort run if the input is not sorted
+     * @param temporaryDirectory directory for sort runs
+     * @param cohorts            tab separated cohort id and sample name lines, or null
+     */
+    public VcfIngest(Path input, Path output, String datasetId, String assemblyId, int threads, int sortBufferRecords, Path temporaryDirectory, Path cohorts) {
+        this.input = input;
+        this.output = output;
+        this.datasetId = datasetId;
+        this.assemblyId = assemblyId;
+        this.threads = threads;
+        this.sortBufferRecords = sortBufferRecords;
+        this.temporaryDirectory = temporaryDirectory;
+        this.cohorts = cohorts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        Path output = null;
+        String datasetId = null;
+        String assemblyId = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int sortBuffer = 2_000_000;
+        Path temporaryDirectory = null;
+        Path cohorts = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                input = Paths.get(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--dataset":
+                    datasetId = value;
+                    break;
+                case "--assembly":
+                    assemblyId = value;
+                    break;
+                case "--output":
+                    output = Paths.get(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--sort-buffer":
+                    sortBuffer = Integer.parseInt(value);
+                    break;
+                case "--tmp":
+                    temporaryDirectory = Paths.get(value);
+                    break;
+                case "--cohorts":
+                    cohorts = Paths.get(value);
+                    break;
+                default:
+                    usage("Unknown option " + arg);
+            }
+        }
+        if (input == null || datasetId == null || assemblyId == null) {
+            usage("Input, --dataset and --assembly are required");
+        }
+        if (output == null) {
+            output = Paths.get(datasetId + IndexFormat.FILE_EXTENSION);
+        }
+        if (temporaryDirectory == null) {
+            temporaryDirectory = output.toAbsolutePath().getParent();
+        }
+        new VcfIngest(input, output, datasetId, assemblyId, threads, sortBuffer, temporaryDirectory, cohorts).run();
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: VcfIngest --dataset ID --assembly GRCh37 [--output FILE" + IndexFormat.FILE_EXTENSION + "] [--threads N] [--sort-buffer RECORDS] [--tmp DIR] [--cohorts FILE] input.vcf[.gz]");
+        System.exit(1);
+    }
+
+    /**
+     * Runs the ingest.
+     *
+     * @return progress of the pass that produced the index
+     * @throws IOException if the input cannot be read or the index cannot be written
+     */
+    public IngestProgress run() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new IngestThreadFactory());
+        try {
+            IngestProgress progress = new IngestProgress();
+            if (!ingestSorted(executor, progress)) {
+                LOGGER.info("Input is not sorted by position, re-reading it through an external sort");
+                progress = new IngestProgress();
+                ingestUnsorted(executor, progress);
+            }
+            LOGGER.info(String.format("Indexed %,d records from %s into %s in %.1fs (%,.0f records/s)",
+                                      progress.getRecords(),
+                                      input,
+                                      output,
+                                      progress.getElapsedSeconds(),
+                                      progress.recordsPerSecond()));
+            return progress;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean ingestSorted(ExecutorService executor, IngestProgress progress) throws IOException {
+        IndexSink sink;
+        boolean complete;
+        try (BufferedReader reader = VcfInputs.open(input, executor, 2 * threads);
+             IndexWriter writer = new IndexWriter(output, datasetId)) {
+            sink = new IndexSink(writer, true);
+            ParallelVcfReader vcf = reader(executor, progress);
+            complete = vcf.read(reader, sink);
+            writer.setSampleCount(vcf.getSampleCount());
+            if (complete) {
+                addCohorts(writer, vcf.getSampleNames());
+            }
+        }
+        if (!complete) {
+            Files.deleteIfExists(output);
+        }
+        return complete;
+    }
+
+    private void ingestUnsorted(ExecutorService executor, IngestProgress progress) throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(temporaryDirectory, sortBufferRecords)) {
+            ParallelVcfReader vcf = reader(executor, progress);
+            try (BufferedReader reader = VcfInputs.open(input, executor, 2 * threads)) {
+                vcf.read(reader, sorter);
+            }
+            LOGGER.info(String.format("Sorted input into %d runs, merging", Math.max(1, sorter.getRunCount())));
+            try (IndexWriter writer = new IndexWriter(output, datasetId)) {
+                writer.setSampleCount(vcf.getSampleCount());
+                sorter.finish(new IndexSink(writer, false));
+                addCohorts(writer, vcf.getSampleNames());
+            }
+        }
+    }
+
+    /**
+     * Reads the cohorts file and adds every cohort as the set of its samples' columns. Samples that are not in the VCF
+     * are skipped with a warning.
+     */
+    private void addCohorts(IndexWriter writer, List<String> sampleNames) throws IOException {
+        if (cohorts == null) {
+            return;
+        }
+        Map<String, Integer> samples = new HashMap<>();
+        for (int i = 0; i < sampleNames.size(); i++) {
+            samples.put(sampleNames.get(i), i);
+        }
+        Map<String, List<Integer>> members = new TreeMap<>();
+        int unknown = 0;
+        for (String line : Files.readAllLines(cohorts, StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 2) {
+                throw new IOException("Expected cohort id and sample name in " + cohorts + ": " + line);
+            }
+            Integer sample = samples.get(fields[1]);
+            if (sample == null) {
+                unknown++;
+            } else {
+                members.computeIfAbsent(fields[0], k -> new ArrayList<>()).add(sample);
+            }
+        }
+        if (unknown > 0) {
+            LOGGER.warning(String.format("Skipped %,d cohort samples not found in %s", unknown, input));
+        }
+        for (Map.Entry<String, List<Integer>> cohort : members.entrySet()) {
+            writer.addCohort(cohort.getKey(), SampleBitmap.of(cohort.getValue().stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    private ParallelVcfReader reader(ExecutorService executor, IngestProgress progress) {
+        return new ParallelVcfReader(executor, BATCH_LINES, 2 * threads, progress);
+    }
+
+    /**
+     * Feeds position sorted records into the index writer, starting a new contig whenever the contig changes. In
+     * checking mode it stops as soon as the input is found not to be sorted.
+     */
+    private final class IndexSink implements VariantSink {
+
+        private final IndexWriter writer;
+        private final boolean checkOrder;
+        private final Set<String> finishedContigs = new HashSet<>();
+        private String contig;
+        private long lastStart = Long.MIN_VALUE;
+
+        private IndexSink(IndexWriter writer, boolean checkOrder) {
+            this.writer = writer;
+            this.checkOrder = checkOrder;
+        }
+
+        @Override
+        public boolean accept(VariantRecord record) throws IOException {
+            if (!record.getReferenceName().equals(contig)) {
+                if (contig != null) {
+                    finishedContigs.add(contig);
+                }
+                if (checkOrder && finishedContigs.contains(record.getReferenceName())) {
+                    return false;
+                }
+                contig = record.getReferenceName();
+                lastStart = Long.MIN_VALUE;
+                writer.startContig(assemblyId, contig);
+            } else if (checkOrder && record.getStart() < lastStart) {
+                return false;
+            }
+            lastStart = record.getStart();
+            writer.add(record.getStart(),
+                       record.getEnd(),
+                       record.getReferenceBases(),
+                       record.getAlternateBases(),
+                       record.getAlleleCount(),
+                       record.getAlleleNumber(),
+                       record.getSampleCount(),
+                       record.getCarriers());
+            return true;
+        }
+    }
+
+    private static final class IngestThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "beacon-ingest-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens plain, gzip or bgzip compressed VCF files. BGZF input is decompressed in parallel on the given executor; plain
+ * gzip streams cannot be split and are decompressed on the reading thread.
+ *
+ * @version 1.0
+ */
+public final class VcfInputs {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private VcfInputs() {
+    }
+
+    /**
+     * @param path             VCF file
+     * @param executor         executor for parallel BGZF decompression
+     * @param maxPendingBlocks maximum number of BGZF blocks decompressed ahead of the reader
+     * @return reader of the decompressed VCF text
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedReader open(Path path, ExecutorService executor, int maxPendingBlocks) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        try {
+            byte[] header = new byte[16];
+            in.mark(header.length);
+            int length = 0;
+            for (int n; length < header.length && (n = in.read(header, length, header.length - length)) > 0; ) {
+                length += n;
+            }
+            in.reset();
+
+            InputStream data;
+            if (BgzfInputStream.isBgzf(header, length)) {
+                data = new BgzfInputStream(in, executor, maxPendingBlocks);
+            } else if (length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b) {
+                data = new GZIPInputStream(in, BUFFER_SIZE);
+            } else {
+                data = in;
+            }
+            return new BufferedReader(new InputStreamReader(data, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.ContigIndex;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses VCF data lines into biallelic {@link VariantRecord}s. Multi-allelic records are split into one record per
+ * alternate allele; missing ({@code .}) and overlapping-deletion ({@code *}) alleles are skipped. VCF positions are
+ * 1-based, the records use the 0-based beacon coordinates. Symbolic alleles such as {@code <DEL>} end at the
+ * {@code END} given in the INFO column, all other alleles end after their reference bases.
+ * <p>
+ * The allele count, allele number and carrier samples of every record are counted from the {@code GT} of the samples.
+ * Records without genotypes take AC and AN from the INFO column instead and leave the carriers unknown.
+ *
+ * @version 1.0
+ */
+public final class VcfParser {
+
+    /**
+     * Start of the header line naming the columns.
+     */
+    public static final String HEADER_PREFIX = "#CHROM";
+
+    private static final int FIRST_SAMPLE_COLUMN = 9;
+    private static final int[] NO_SAMPLES = new int[0];
+
+    private VcfParser() {
+    }
+
+    /**
+     * @param header {@code #CHROM} header line
+     * @return number of sample columns, {@link ContigIndex#UNKNOWN} if the file has no genotypes
+     */
+    public static int sampleCount(String header) {
+        int columns = 1;
+        for (int i = header.indexOf('\t'); i >= 0; i = header.indexOf('\t', i + 1)) {
+            columns++;
+        }
+        return columns > FIRST_SAMPLE_COLUMN ? columns - FIRST_SAMPLE_COLUMN : ContigIndex.UNKNOWN;
+    }
+
+    /**
+     * @param header {@code #CHROM} header line
+     * @return names of the samples in column order
+     */
+    public static List<String> sampleNames(String header) {
+        String[] columns = header.split("\t");
+        return columns.length > FIRST_SAMPLE_COLUMN
+                ? Arrays.asList(Arrays.copyOfRange(columns, FIRST_SAMPLE_COLUMN, columns.length))
+                : Collections.emptyList();
+    }
+
+    /**
+     * Parses one line and appends its variants.
+     *
+     * @param line    VCF line, header lines are ignored
+     * @param records list to add the variants to
+     * @throws IllegalArgumentException if the line is not a valid VCF data line
+     */
+    public static void parse(String line, List<VariantRecord> records) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return;
+        }
+        int chromEnd = line.indexOf('\t');
+        int posEnd = chromEnd < 0 ? -1 : line.indexOf('\t', chromEnd + 1);
+        int idEnd = posEnd < 0 ? -1 : line.indexOf('\t', posEnd + 1);
+        int refEnd = idEnd < 0 ? -1 : line.indexOf('\t', idEnd + 1);
+        if (refEnd < 0) {
+            throw new IllegalArgumentException("Not a VCF data line: " + abbreviate(line));
+        }
+        int altEnd = line.indexOf('\t', refEnd + 1);
+        if (altEnd < 0) {
+            altEnd = line.length();
+        }
+        int qualEnd = altEnd < line.length() ? line.indexOf('\t', altEnd + 1) : -1;
+        int filterEnd = qualEnd < 0 ? -1 : line.indexOf('\t', qualEnd + 1);
+        int infoEnd = filterEnd < 0 ? -1 : columnEnd(line, filterEnd + 1);
+
+        String referenceName = line.substring(0, chromEnd);
+        long start;
+        try {
+            start = Long.parseLong(line.substring(chromEnd + 1, posEnd)) - 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid position in VCF line: " + abbreviate(line), e);
+        }
+        String referenceBases = line.substring(idEnd + 1, refEnd).toUpperCase();
+        long sequenceEnd = ContigIndex.end(start, referenceBases);
+        long symbolicEnd = -1;
+        int alleles = 1;
+        for (int i = line.indexOf(',', refEnd + 1); i >= 0 && i < altEnd; i = line.indexOf(',', i + 1)) {
+            alleles++;
+        }
+        int[] counts = null;
+        int[][] carriers = null;
+
+        int allele = 0;
+        int alleleStart = refEnd + 1;
+        while (alleleStart <= altEnd) {
+            int alleleEnd = line.indexOf(',', alleleStart);
+            if (alleleEnd < 0 || alleleEnd > altEnd) {
+                alleleEnd = altEnd;
+            }
+            allele++;
+            String alternateBases = line.substring(alleleStart, alleleEnd);
+            if (!alternateBases.isEmpty() && !".".equals(alternateBases) && !"*".equals(alternateBases)) {
+                boolean symbolic = alternateBases.charAt(0) == '<';
+                if (symbolic && symbolicEnd < 0) {
+                    String end = infoEnd < 0 ? null : infoValue(line, filterEnd + 1, infoEnd, "END");
+                    symbolicEnd = Math.max(end == null ? -1 : parseLong(end, "END", line), sequenceEnd);
+                }
+                if (counts == null) {
+                    carriers = new int[alleles + 1][];
+                    counts = counts(line, filterEnd, infoEnd, alleles, carriers);
+                }
+                records.add(new VariantRecord(referenceName,
+                                              start,
+                                              symbolic ? symbolicEnd : sequenceEnd,
+                                              referenceBases,
+                                              symbolic ? alternateBases : alternateBases.toUpperCase(),
+                                              counts[allele],
+                                              counts[0],
+                                              counts[alleles + allele],
+                                              carriers[allele] == null
+                                                      ? null
+                                                      : SampleBitmap.of(Arrays.copyOf(carriers[allele], counts[alleles + allele]))));
+            }
+            alleleStart = alleleEnd + 1;
+        }
+    }
+
+    /**
+     * Counts the alleles of a record with {@code n} alternate alleles.
+     *
+     * @param carriers filled with the samples carrying every alternate allele, left null without genotypes
+     * @return AN, then AC of every alternate allele, then the number of samples carrying every alternate allele, each
+     * {@link ContigIndex#UNKNOWN} if it cannot be counted
+     */
+    private static int[] counts(String line, int filterEnd, int infoEnd, int n, int[][] carriers) {
+        int[] counts = new int[2 * n + 1];
+        int formatEnd = infoEnd < line.length() ? line.indexOf('\t', infoEnd + 1) : -1;
+        if (formatEnd >= 0 && line.startsWith("GT", infoEnd + 1) && (infoEnd + 3 == formatEnd || line.charAt(infoEnd + 3) == ':')) {
+            countGenotypes(line, formatEnd + 1, n, counts, carriers);
+            return counts;
+        }
+        Arrays.fill(counts, ContigIndex.UNKNOWN);
+        String alleleNumber = infoEnd < 0 ? null : infoValue(line, filterEnd + 1, infoEnd, "AN");
+        String alleleCounts = infoEnd < 0 ? null : infoValue(line, filterEnd + 1, infoEnd, "AC");
+        if (alleleNumber != null && alleleCounts != null) {
+            String[] values = alleleCounts.split(",");
+            if (values.length == n) {
+                counts[0] = parseCount(alleleNumber, "AN", line);
+                for (int i = 0; i < n; i++) {
+                    counts[1 + i] = parseCount(values[i], "AC", line);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the alleles in the {@code GT} of every sample, the first field of the sample columns.
+     */
+    private static void countGenotypes(String line, int from, int n, int[] counts, int[][] carriers) {
+        for (int allele = 1; allele <= n; allele++) {
+            carriers[allele] = NO_SAMPLES;
+        }
+        int[] lastSample = new int[n + 1];
+        Arrays.fill(lastSample, -1);
+        int sample = 0;
+        int position = from;
+        while (position < line.length()) {
+            int sampleEnd = columnEnd(line, position);
+            int allele = -1;
+            for (; position <= sampleEnd; position++) {
+                char c = position < sampleEnd ? line.charAt(position) : ':';
+                if (c >= '0' && c <= '9') {
+                    allele = (allele < 0 ? 0 : allele * 10) + (c - '0');
+                    if (allele > n) {
+                        throw new IllegalArgumentException("Invalid genotype in VCF line: " + abbreviate(line));
+                    }
+                } else if (c == '/' || c == '|' || c == ':') {
+                    if (allele >= 0) {
+                        counts[0]++;
+                        if (allele > 0) {
+                            counts[allele]++;
+                            if (lastSample[allele] != sample) {
+                                lastSample[allele] = sample;
+                                int carrier = counts[n + allele]++;
+                                if (carrier == carriers[allele].length) {
+                                    carriers[allele] = Arrays.copyOf(carriers[allele], Math.max(16, 2 * carrier));
+                                }
+                                carriers[allele][carrier] = sample;
+                            }
+                        }
+                        allele = -1;
+                    }
+                    if (c == ':') {
+                        break;
+                    }
+                } else if (c != '.') {
+                    throw new IllegalArgumentException("Invalid genotype in VCF line: " + abbreviate(line));
+                }
+            }
+            position = sampleEnd + 1;
+            sample++;
+        }
+    }
+
+    /**
+     * @return value of an INFO field, or null if the field is not present
+     */
+    private static String infoValue(String line, int infoStart, int infoEnd, String key) {
+        int field = infoStart;
+        while (field < infoEnd) {
+            int fieldEnd = line.indexOf(';', field);
+            if (fieldEnd < 0 || fieldEnd > infoEnd) {
+                fieldEnd = infoEnd;
+            }
+            if (line.startsWith(key, field) && field + key.length() < fieldEnd && line.charAt(field + key.length()) == '=') {
+                return line.substring(field + key.length() + 1, fieldEnd);
+            }
+            field = fieldEnd + 1;
+        }
+        return null;
+    }
+
+    private static int columnEnd(String line, int from) {
+        int end = line.indexOf('\t', from);
+        return end < 0 ? line.length() : end;
+    }
+
+    /**
+     * END as a 1-based inclusive position equals the 0-based exclusive end.
+     */
+    private static long parseLong(String value, String field, String line) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + " in VCF line: " + abbreviate(line), e);
+        }
+    }
+
+    private static int parseCount(String value, String field, String line) {
+        return ".".equals(value) ? ContigIndex.UNKNOWN : (int) parseLong(value, field, line);
+    }
+
+    private static String abbreviate(String line) {
+        return line.length() > 80 ? line.substring(0, 80) + "..." : line;
+    }
+}
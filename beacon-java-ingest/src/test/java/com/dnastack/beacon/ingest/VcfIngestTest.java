@@ -0,0 +1,263 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.ingest;
+
+import com.dnastack.beacon.core.adapter.index.AlleleDictionary;
+import com.dnastack.beacon.core.adapter.index.ContigIndex;
+import com.dnastack.beacon.core.adapter.index.DatasetIndex;
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ingests generated VCFs and checks the resulting index.
+ */
+public class VcfIngestTest {
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+    private static final int VARIANTS = 20000;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("beacon-ingest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Object file : files.toArray()) {
+                Files.delete((Path) file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSortedInput() throws IOException {
+        List<String> lines = variantLines(false);
+        Path vcf = directory.resolve("sorted.vcf");
+        Files.write(vcf, vcf(lines).getBytes(StandardCharsets.UTF_8));
+
+        DatasetIndex index = ingest(vcf, 1000);
+
+        assertContains(index, lines);
+    }
+
+    @Test
+    public void testUnsortedInputIsSortedExternally() throws IOException {
+        List<String> lines = variantLines(true);
+        Path vcf = directory.resolve("unsorted.vcf");
+        Files.write(vcf, vcf(lines).getBytes(StandardCharsets.UTF_8));
+
+        // a small sort buffer forces several spilled runs
+        DatasetIndex index = ingest(vcf, 1000);
+
+        assertContains(index, lines);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testBgzfInputWithMultiAllelicRecords() throws IOException {
+        List<String> lines = variantLines(false);
+        lines.add("2\t100\t.\tA\tC,G,*\t.\tPASS\t.");
+        lines.add("2\t200\t.\tAT\t.\t.\tPASS\t.");
+        Path vcf = directory.resolve("input.vcf.gz");
+        Files.write(vcf, bgzf(vcf(lines).getBytes(StandardCharsets.UTF_8)));
+
+        DatasetIndex index = ingest(vcf, 1000);
+
+        assertContains(index, lines.subList(0, VARIANTS));
+        assertThat(exists(index, "2", 99, "A", "C")).isTrue();
+        assertThat(exists(index, "2", 99, "A", "G")).isTrue();
+        assertThat(exists(index, "2", 99, "A", "*")).isFalse();
+        assertThat(exists(index, "2", 199, "AT", ".")).isFalse();
+    }
+
+    @Test
+    public void testAlleleStatistics() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("1\t100\t.\tA\tC,G\t.\tPASS\t.\tGT:DP\t0/1:10\t1|1:12\t./.:0\t0/2:8");
+        lines.add("1\t200\t.\tA\tT\t.\tPASS\tAC=3;AN=6\tDP\t10\t12\t0\t8");
+        lines.add("1\t300\t.\tA\tT\t.\tPASS\tAC=3;AN=6\tGT\t0\t1\t.\t1");
+        Path vcf = directory.resolve("genotypes.vcf");
+        Files.write(vcf, ("##fileformat=VCFv4.2\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\ts1\ts2\ts3\ts4\n"
+                + String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        Path cohorts = directory.resolve("cohorts.tsv");
+        Files.write(cohorts, "EUR\ts1\nEUR\ts2\nAFR\ts3\nAFR\ts4\nAFR\tmissing\n".getBytes(StandardCharsets.UTF_8));
+
+        Path output = directory.resolve("dataset" + IndexFormat.FILE_EXTENSION);
+        new VcfIngest(vcf, output, "dataset", "GRCh37", 4, 1000, directory, cohorts).run();
+        DatasetIndex index = IndexReader.open(output);
+
+        assertThat(index.getSampleCount()).isEqualTo(4);
+        assertThat(index.getCallCount()).isEqualTo(6 + 6 + 6 + 3);
+        assertThat(statistics(index, 99, "A", "C")).isEqualTo("3/6 in 2");
+        assertThat(statistics(index, 99, "A", "G")).isEqualTo("1/6 in 1");
+        assertThat(statistics(index, 199, "A", "T")).isEqualTo("3/6 in -1");
+        assertThat(statistics(index, 299, "A", "T")).isEqualTo("2/3 in 2");
+        assertThat(index.getCohorts().keySet()).containsOnly("EUR", "AFR");
+        assertThat(index.getCohort("AFR").getCardinality()).isEqualTo(2);
+        ContigIndex contig = index.getAssembly("GRCh37").get("1");
+        int row = contig.indexOf(99, index.getAlleles().lookup("A"), index.getAlleles().lookup("C"));
+        assertThat(contig.getCarriers(row).andCardinality(index.getCohort("EUR"))).isEqualTo(2);
+        assertThat(contig.getCarriers(row).andCardinality(index.getCohort("AFR"))).isEqualTo(0);
+        row = contig.indexOf(199, index.getAlleles().lookup("A"), index.getAlleles().lookup("T"));
+        assertThat(contig.getCarriers(row)).isNull();
+    }
+
+    @Test
+    public void testAlleleStatisticsOfSitesOnlyInput() throws IOException {
+        List<String> lines = variantLines(false);
+        lines.add("2\t100\t.\tA\tC,G\t.\tPASS\tDP=4;AC=5,1;AN=20");
+        Path vcf = directory.resolve("sites.vcf");
+        Files.write(vcf, vcf(lines).getBytes(StandardCharsets.UTF_8));
+
+        DatasetIndex index = ingest(vcf, 1000);
+
+        assertThat(index.getSampleCount()).isEqualTo(ContigIndex.UNKNOWN);
+        assertThat(index.getCallCount()).isEqualTo(40);
+        ContigIndex contig = index.getAssembly("GRCh37").get("2");
+        int row = contig.indexOf(99, index.getAlleles().lookup("A"), index.getAlleles().lookup("G"));
+        assertThat(contig.getAlleleCount(row)).isEqualTo(1);
+        assertThat(contig.getAlleleNumber(row)).isEqualTo(20);
+        assertThat(contig.getSampleCount(row)).isEqualTo(ContigIndex.UNKNOWN);
+    }
+
+    private DatasetIndex ingest(Path vcf, int sortBuffer) throws IOException {
+        Path output = directory.resolve("dataset" + IndexFormat.FILE_EXTENSION);
+        new VcfIngest(vcf, output, "dataset", "GRCh37", 4, sortBuffer, directory).run();
+        DatasetIndex index = IndexReader.open(output);
+        assertThat(index.getId()).isEqualTo("dataset");
+        return index;
+    }
+
+    private static List<String> variantLines(boolean shuffled) {
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>();
+        int position = 1;
+        for (int i = 0; i < VARIANTS; i++) {
+            position += random.nextInt(3);
+            String reference = BASES[random.nextInt(BASES.length)];
+            String alternate = BASES[random.nextInt(BASES.length)] + (random.nextBoolean() ? "" : "T");
+            lines.add("1\t" + position + "\t.\t" + reference + "\t" + alternate + "\t.\tPASS\t.");
+        }
+        if (shuffled) {
+            Collections.shuffle(lines, random);
+        }
+        return lines;
+    }
+
+    private static String vcf(List<String> lines) {
+        StringBuilder vcf = new StringBuilder("##fileformat=VCFv4.2\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+        for (String line : lines) {
+            vcf.append(line).append('\n');
+        }
+        return vcf.toString();
+    }
+
+    private static void assertContains(DatasetIndex index, List<String> lines) {
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            assertThat(exists(index, fields[0], Long.parseLong(fields[1]) - 1, fields[3], fields[4])).isTrue();
+        }
+        assertThat(exists(index, "1", 0, "A", "A")).isFalse();
+        assertThat(exists(index, "3", 10, "A", "C")).isFalse();
+    }
+
+    private static boolean exists(DatasetIndex index, String referenceName, long start, String referenceBases, String alternateBases) {
+        ContigIndex contig = index.getAssembly("GRCh37").get(referenceName);
+        int referenceId = index.getAlleles().lookup(referenceBases);
+        int alternateId = index.getAlleles().lookup(alternateBases);
+        return contig != null
+                && referenceId != AlleleDictionary.NOT_FOUND
+                && alternateId != AlleleDictionary.NOT_FOUND
+                && contig.indexOf(start, referenceId, alternateId) != ContigIndex.NOT_FOUND;
+    }
+
+    private static String statistics(DatasetIndex index, long start, String referenceBases, String alternateBases) {
+        ContigIndex contig = index.getAssembly("GRCh37").get("1");
+        int row = contig.indexOf(start, index.getAlleles().lookup(referenceBases), index.getAlleles().lookup(alternateBases));
+        return contig.getAlleleCount(row) + "/" + contig.getAlleleNumber(row) + " in " + contig.getSampleCount(row);
+    }
+
+    /**
+     * Compresses data into BGZF blocks of at most 16KB of input each, followed by the empty end-of-file block.
+     */
+    private static byte[] bgzf(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += 16384) {
+            writeBlock(out, data, offset, Math.min(16384, data.length - offset));
+        }
+        writeBlock(out, data, 0, 0);
+        return out.toByteArray();
+    }
+
+    private static void writeBlock(OutputStream out, byte[] data, int offset, int length) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = deflater.deflate(compressed);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+
+        int blockSize = 18 + compressedLength + 8;
+        out.write(new byte[]{0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                             (byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8)});
+        out.write(compressed, 0, compressedLength);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, length);
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+}
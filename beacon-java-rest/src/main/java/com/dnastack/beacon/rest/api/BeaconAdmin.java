@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.api;
+
+import com.dnastack.beacon.service.cache.CacheStatistics;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Beacon administration REST resource. All of its requests need the admin token.
+ *
+ * @version 1.0
+ */
+public interface BeaconAdmin {
+
+    /**
+     * Gets the counters of the allele response cache, for sizing it.
+     *
+     * @return cache statistics
+     */
+    CacheStatistics cache();
+
+    /**
+     * Reloads the data of the beacon without interrupting queries.
+     *
+     * @param wait whether to respond once the new data is published instead of right away
+     * @return 200 with the new data version if waited for, 202 with the current data version otherwise
+     */
+    Response reload(boolean wait);
+}
@@ -23,8 +23,9 @@
  */
 package com.dnastack.beacon.rest.api;
 
-import com.dnastack.beacon.exceptions.BeaconException;
-import org.ga4gh.beacon.Beacon;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 
 /**
  * Beacon REST resource.
@@ -36,10 +37,12 @@ import org.ga4gh.beacon.Beacon;
 public interface BeaconInfo {
 
     /**
-     * Gets Information on the beacon
+     * Gets Information on the beacon. The Beacon representation is served with a strong ETag and gzip compressed if
+     * the client accepts it; a request with a matching If-None-Match header gets 304 Not Modified.
      *
-     * @return Beacon represenation
-     * @throws BeaconException
+     * @param request  request used to evaluate preconditions
+     * @param headers  request headers
+     * @param response suspended response, resumed with the Beacon represenation
      */
-    Beacon info() throws BeaconException;
+    void info(Request request, HttpHeaders headers, AsyncResponse response);
 }
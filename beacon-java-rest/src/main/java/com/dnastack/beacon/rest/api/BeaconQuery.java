@@ -23,10 +23,11 @@
  */
 package com.dnastack.beacon.rest.api;
 
-import com.dnastack.beacon.exceptions.BeaconException;
 import org.ga4gh.beacon.BeaconAlleleRequest;
-import org.ga4gh.beacon.BeaconAlleleResponse;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -50,20 +51,44 @@ public interface BeaconQuery {
      * @param assemblyId              String of assembly build version
      * @param datasetIds              List of dataset Ids
      * @param includeDatasetResponses Boolean value to include Dataset responses
-     * @return Completed Beacon response object
-     * @throws BeaconException
+     * @param end                     0-based exclusive end, for a query of all variants overlapping [start, end)
+     * @param startMin                smallest 0-based start, for a bracket query
+     * @param startMax                largest 0-based start, for a bracket query
+     * @param endMin                  smallest 0-based end, for a bracket query
+     * @param endMax                  largest 0-based end, for a bracket query
+     * @param variantType             type of structural variant, e.g. DEL, DUP or CNV, instead of alternate bases
+     * @param cohortId                cohort of samples to restrict the query and its sample counts to
+     * @param response                suspended response, resumed with the completed Beacon response object
      */
-    BeaconAlleleResponse query(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses) throws BeaconException;
+    void query(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses, Long end, Long startMin, Long startMax, Long endMin, Long endMax, String variantType, String cohortId, AsyncResponse response);
 
     /**
      * Query a beacon resource for information on whether an allele exists or not. Optionally includes the datasets.
      * Returns the completed BeaconAlleleResponse, Or a BeaconAlleleResponse with a BeaconError object if an error
      * was encountered.
      *
-     * @param request Completed Beacon response object
-     * @return
-     * @throws BeaconException
+     * @param request  Completed Beacon response object
+     * @param response suspended response, resumed with the completed Beacon response object
      */
-    BeaconAlleleResponse query(BeaconAlleleRequest request) throws BeaconException;
+    void query(BeaconAlleleRequest request, AsyncResponse response);
+
+    /**
+     * Query a beacon resource for many alleles at once. Reads newline delimited BeaconAlleleRequest JSON objects and
+     * streams back one BeaconAlleleResponse per line, in the order of the requests, as soon as each is answered. An
+     * invalid request yields a BeaconAlleleResponse with a BeaconError and does not stop the batch.
+     *
+     * @param requests newline delimited JSON requests
+     * @return newline delimited JSON responses
+     */
+    StreamingOutput queryBatch(InputStream requests);
+
+    /**
+     * Same as {@link #queryBatch(InputStream)}, but with Avro binary encoded BeaconAlleleRequest and
+     * BeaconAlleleResponse records one after another instead of lines of JSON. A malformed request ends the batch.
+     *
+     * @param requests Avro binary encoded requests
+     * @return Avro binary encoded responses
+     */
+    StreamingOutput queryAvroBatch(InputStream requests);
 
 }
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.impl;
+
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.google.gson.Gson;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/**
+ * Answers a stream of Avro binary encoded allele requests with a stream of Avro binary encoded responses, one per
+ * request and in the same order. Unlike a line of JSON, a malformed record cannot be skipped, so it is answered with a
+ * BeaconError and ends the batch.
+ *
+ * @version 1.0
+ */
+class AvroBatchQueryOutput extends BatchQueryOutput {
+
+    AvroBatchQueryOutput(BeaconService service, BeaconMetrics metrics, Gson gson, InputStream requests, Supplier<String> beaconId) {
+        super(service, metrics, gson, requests, beaconId);
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(requests, null);
+        OutputStream out = new BufferedOutputStream(output, BUFFER_SIZE);
+        int pending = 0;
+        while (!decoder.isEnd()) {
+            BeaconAlleleResponse response;
+            boolean malformed = false;
+            try {
+                response = answer(BeaconAvroCodec.read(BeaconAlleleRequest.class, decoder));
+            } catch (IllegalArgumentException | IOException e) {
+                response = errorResponse(Response.Status.BAD_REQUEST.getStatusCode(), "Malformed request: " + e.getMessage(), null);
+                malformed = true;
+            }
+            metrics.recordOutcome(response);
+            long started = System.nanoTime();
+            byte[] encoded = BeaconAvroCodec.encode(response);
+            metrics.recordSince(BeaconMetrics.Stage.SERIALIZATION, started);
+            out.write(encoded);
+            if (malformed) {
+                break;
+            }
+            // the decoder reads ahead, but blocks only once the request stream has nothing left to read
+            if (++pending == FLUSH_INTERVAL || requests.available() == 0) {
+                out.flush();
+                pending = 0;
+            }
+        }
+        out.flush();
+    }
+}
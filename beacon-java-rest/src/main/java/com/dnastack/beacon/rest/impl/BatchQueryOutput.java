@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.impl;
+
+import com.dnastack.beacon.exceptions.BeaconAlleleRequestException;
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.rest.provider.BeaconExceptionHandler;
+import com.dnastack.beacon.rest.provider.BeaconJsonCodec;
+import com.dnastack.beacon.rest.provider.BeaconJsonWriter;
+import com.dnastack.beacon.service.api.AlleleRequestError;
+import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconError;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Answers a newline delimited stream of allele requests. Requests are read one line at a time and every response is
+ * written before the next request is read, so a batch of any size needs memory for a single request only and a slow
+ * client slows down reading of the request body instead of buffering responses.
+ *
+ * @version 1.0
+ */
+class BatchQueryOutput implements StreamingOutput {
+
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int FLUSH_INTERVAL = 256;
+
+    final BeaconMetrics metrics;
+    final InputStream requests;
+    private final BeaconService service;
+    private final Gson gson;
+    private final Supplier<String> beaconId;
+
+    /**
+     * @param beaconId id of the beacon, looked up only for error responses
+     */
+    BatchQueryOutput(BeaconService service, BeaconMetrics metrics, Gson gson, InputStream requests, Supplier<String> beaconId) {
+        this.service = service;
+        this.metrics = metrics;
+        this.gson = gson;
+        this.requests = requests;
+        this.beaconId = beaconId;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(requests, StandardCharsets.UTF_8), BUFFER_SIZE);
+        OutputStream out = new BufferedOutputStream(output, BUFFER_SIZE);
+        int pending = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            BeaconAlleleResponse response = answer(line);
+            metrics.recordOutcome(response);
+            long started = System.nanoTime();
+            BeaconJsonWriter json = BeaconJsonWriter.get();
+            BeaconJsonCodec.write(response, json);
+            metrics.recordSince(BeaconMetrics.Stage.SERIALIZATION, started);
+            json.writeTo(out);
+            out.write('\n');
+            if (++pending == FLUSH_INTERVAL || !reader.ready()) {
+                out.flush();
+                pending = 0;
+            }
+        }
+        out.flush();
+    }
+
+    private BeaconAlleleResponse answer(String line) {
+        BeaconAlleleRequest request;
+        try {
+            request = gson.fromJson(line, BeaconAlleleRequest.class);
+        } catch (JsonParseException e) {
+            return errorResponse(Response.Status.BAD_REQUEST.getStatusCode(), "Malformed request: " + e.getMessage(), null);
+        }
+        if (request == null) {
+            return errorResponse(Response.Status.BAD_REQUEST.getStatusCode(), "Malformed request: " + line, null);
+        }
+        return answer(request);
+    }
+
+    /**
+     * @param request allele request
+     * @return response to the request, with a BeaconError if it is invalid or cannot be answered
+     */
+    BeaconAlleleResponse answer(BeaconAlleleRequest request) {
+        long started = System.nanoTime();
+        AlleleRequestError invalid = service.validateAllele(request.getReferenceName(),
+                                                            request.getStart(),
+                                                            request.getReferenceBases(),
+                                                            request.getAlternateBases(),
+                                                            request.getAssemblyId());
+        metrics.recordSince(BeaconMetrics.Stage.VALIDATION, started);
+        if (invalid != null) {
+            return errorResponse(BeaconExceptionHandler.getStatusCode(invalid.getReason()), invalid.getMessage(), request);
+        }
+        try {
+            return service.queryAllele(request);
+        } catch (BeaconAlleleRequestException e) {
+            BeaconError error = BeaconExceptionHandler.toBeaconError(e);
+            return errorResponse(error.getErrorCode(), error.getMessage(), e.getRequest() != null ? e.getRequest() : request);
+        } catch (BeaconException e) {
+            BeaconError error = BeaconExceptionHandler.toBeaconError(e);
+            return errorResponse(error.getErrorCode(), error.getMessage(), request);
+        } catch (RuntimeException e) {
+            return errorResponse(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), e.getMessage(), request);
+        }
+    }
+
+    BeaconAlleleResponse errorResponse(int errorCode, String message, BeaconAlleleRequest request) {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(errorCode);
+        error.setMessage(message);
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setExists(null);
+        response.setError(error);
+        response.setAlleleRequest(request);
+        response.setBeaconId(beaconId.get());
+        return response;
+    }
+}
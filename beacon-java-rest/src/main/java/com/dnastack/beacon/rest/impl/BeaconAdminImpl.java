@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.impl;
+
+import com.dnastack.beacon.rest.api.BeaconAdmin;
+import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.cache.AlleleResponseCache;
+import com.dnastack.beacon.service.cache.CacheStatistics;
+import org.ga4gh.beacon.BeaconError;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Beacon administration implementation. Requests reach it only with the admin token, see
+ * {@link com.dnastack.beacon.rest.util.AdminAuthenticationFilter}.
+ *
+ * @version 1.0
+ */
+@Path("/admin")
+@Produces({MediaType.APPLICATION_JSON})
+public class BeaconAdminImpl implements BeaconAdmin {
+
+    @Inject
+    private AlleleResponseCache cache;
+
+    @Inject
+    private BeaconService service;
+
+    @GET
+    @Path("/cache")
+    @Override
+    public CacheStatistics cache() {
+        return cache.getStatistics();
+    }
+
+    @POST
+    @Path("/reload")
+    @Override
+    public Response reload(@QueryParam("wait") boolean wait) {
+        CompletableFuture<Long> reload = service.reload();
+        if (!wait && !reload.isDone()) {
+            return Response.accepted(Collections.singletonMap("dataVersion", service.getDataVersion())).build();
+        }
+        try {
+            return Response.ok(Collections.singletonMap("dataVersion", reload.get())).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(Response.Status.SERVICE_UNAVAILABLE, "Interrupted while waiting for the reload");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return error(Response.Status.NOT_IMPLEMENTED, e.getCause().getMessage());
+            }
+            return error(Response.Status.INTERNAL_SERVER_ERROR, "Reload failed: " + e.getCause().getMessage());
+        }
+    }
+
+    private static Response error(Response.Status status, String message) {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(status.getStatusCode());
+        error.setMessage(message);
+        return Response.status(status).entity(error).build();
+    }
+}
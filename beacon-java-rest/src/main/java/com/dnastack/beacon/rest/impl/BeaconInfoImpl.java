@@ -23,17 +23,23 @@
  */
 package com.dnastack.beacon.rest.impl;
 
-import com.dnastack.beacon.exceptions.BeaconException;
 import com.dnastack.beacon.rest.api.BeaconInfo;
-import com.dnastack.beacon.service.api.BeaconService;
-import org.ga4gh.beacon.Beacon;
+import com.dnastack.beacon.rest.provider.AvroMessageBodyHandler;
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.rest.provider.CompressionInterceptor;
+import com.dnastack.beacon.rest.util.AsyncResponses;
+import com.dnastack.beacon.rest.util.BeaconInfoCache;
+import com.dnastack.beacon.service.adapter.AdapterExecutor;
+import org.ga4gh.beacon.BeaconError;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.*;
 
 /**
  * Beacon info implementation
@@ -42,15 +48,58 @@ import javax.ws.rs.core.MediaType;
  */
 @Path("/")
 @Consumes({MediaType.APPLICATION_JSON})
-@Produces({MediaType.APPLICATION_JSON})
+@Produces({MediaType.APPLICATION_JSON, BeaconAvroCodec.APPLICATION_AVRO + ";qs=0.5"})
 public class BeaconInfoImpl implements BeaconInfo {
 
+    private static final String GZIP = "gzip";
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("no-cache");
+
+    @Inject
+    private BeaconInfoCache cache;
+
     @Inject
-    private BeaconService service;
+    private AdapterExecutor executor;
 
     @GET
     @Override
-    public Beacon info() throws BeaconException {
-        return service.queryBeacon();
+    public void info(@Context Request request, @Context HttpHeaders headers, @Suspended AsyncResponse response) {
+        boolean gzip = CompressionInterceptor.acceptsGzip(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        boolean avro = AvroMessageBodyHandler.isPreferred(headers);
+        AsyncResponses.resume(response,
+                              cache.getAsync(),
+                              executor.getTimeoutMillis(),
+                              beacon -> avro ? respondAvro(request, beacon) : respond(request, beacon, gzip),
+                              BeaconInfoImpl::unavailable);
+    }
+
+    private static Response respond(Request request, BeaconInfoCache.EncodedBeacon beacon, boolean gzip) {
+        EntityTag tag = beacon.getEntityTag(gzip);
+
+        Response.ResponseBuilder response = request.evaluatePreconditions(tag);
+        if (response == null) {
+            response = Response.ok(gzip ? beacon.getGzip() : beacon.getJson(), MediaType.APPLICATION_JSON_TYPE);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+        return response.tag(tag).cacheControl(REVALIDATE).header(HttpHeaders.VARY, VARY).build();
+    }
+
+    private static Response respondAvro(Request request, BeaconInfoCache.EncodedBeacon beacon) {
+        EntityTag tag = beacon.getAvroEntityTag();
+
+        Response.ResponseBuilder response = request.evaluatePreconditions(tag);
+        if (response == null) {
+            response = Response.ok(beacon.getAvro(), BeaconAvroCodec.APPLICATION_AVRO);
+        }
+        return response.tag(tag).cacheControl(REVALIDATE).header(HttpHeaders.VARY, VARY).build();
+    }
+
+    private static Response unavailable(String message) {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        error.setMessage(message);
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(error).build();
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.impl;
+
+import com.dnastack.beacon.rest.api.BeaconMetricsResource;
+import com.dnastack.beacon.rest.util.PrometheusFormat;
+import com.dnastack.beacon.service.cache.AlleleResponseCache;
+import com.dnastack.beacon.service.limit.OverloadProtection;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Beacon metrics implementation
+ *
+ * @version 1.0
+ */
+@Path("/metrics")
+public class BeaconMetricsResourceImpl implements BeaconMetricsResource {
+
+    @Inject
+    private BeaconMetrics metrics;
+
+    @Inject
+    private AlleleResponseCache cache;
+
+    @Inject
+    private OverloadProtection protection;
+
+    @GET
+    @Produces(PrometheusFormat.CONTENT_TYPE)
+    @Override
+    public String metrics() {
+        return PrometheusFormat.format(metrics, cache.getStatistics(), protection);
+    }
+}
@@ -23,45 +23,166 @@
  */
 package com.dnastack.beacon.rest.impl;
 
-import com.dnastack.beacon.exceptions.BeaconException;
 import com.dnastack.beacon.rest.api.BeaconQuery;
+import com.dnastack.beacon.rest.provider.AvroMessageBodyHandler;
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.rest.util.AlleleErrorResponses;
+import com.dnastack.beacon.rest.util.AsyncResponses;
+import com.dnastack.beacon.rest.util.BeaconInfoCache;
+import com.dnastack.beacon.service.adapter.AdapterExecutor;
+import com.dnastack.beacon.service.api.AlleleRequestError;
 import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.api.VariantRange;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.ga4gh.beacon.BeaconAlleleRequest;
 import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconError;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Beacon query implementation.
+ * Beacon query implementation. Allele queries are answered asynchronously, so a slow adapter does not hold on to a
+ * container thread. Requests and responses are JSON, or Avro binary for clients that ask for it.
  *
  * @author Miroslav Cupak (mirocupak@gmail.com)
  */
 @Path("/query")
-@Consumes({MediaType.APPLICATION_JSON})
-@Produces({MediaType.APPLICATION_JSON})
+@Consumes({MediaType.APPLICATION_JSON, BeaconAvroCodec.APPLICATION_AVRO})
+@Produces({MediaType.APPLICATION_JSON, BeaconAvroCodec.APPLICATION_AVRO + ";qs=0.5"})
 public class BeaconQueryImpl implements BeaconQuery {
 
+    /**
+     * Newline delimited JSON, one document per line.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final Gson GSON = new GsonBuilder().create();
+
     @Inject
     private BeaconService service;
 
+    @Inject
+    private BeaconInfoCache infoCache;
+
+    @Inject
+    private AlleleErrorResponses errorResponses;
+
+    @Inject
+    private BeaconMetrics metrics;
+
+    @Inject
+    private AdapterExecutor executor;
+
+    @Context
+    private HttpHeaders headers;
+
     @GET
     @Override
-    public BeaconAlleleResponse query(@QueryParam("referenceName") String referenceName, @QueryParam("start") Long start, @QueryParam("referenceBases") String referenceBases, @QueryParam("alternateBases") String alternateBases, @QueryParam("assemblyId") String assemblyId, @QueryParam("datasetIds") List<String> datasetIds, @QueryParam("includeDatasetResponses") Boolean includeDatasetResponses) throws BeaconException {
-        return service.queryAllele(referenceName,
-                                   start,
-                                   referenceBases,
-                                   alternateBases,
-                                   assemblyId,
-                                   datasetIds,
-                                   includeDatasetResponses);
+    public void query(@QueryParam("referenceName") String referenceName, @QueryParam("start") Long start, @QueryParam("referenceBases") String referenceBases, @QueryParam("alternateBases") String alternateBases, @QueryParam("assemblyId") String assemblyId, @QueryParam("datasetIds") List<String> datasetIds, @QueryParam("includeDatasetResponses") Boolean includeDatasetResponses, @QueryParam("end") Long end, @QueryParam("startMin") Long startMin, @QueryParam("startMax") Long startMax, @QueryParam("endMin") Long endMin, @QueryParam("endMax") Long endMax, @QueryParam("variantType") String variantType, @QueryParam("cohortId") String cohortId, @Suspended AsyncResponse response) {
+        VariantRange range = new VariantRange(end, startMin, startMax, endMin, endMax, variantType, cohortId);
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName(referenceName);
+        request.setStart(start != null || range.isEmpty() ? start : startMin);
+        request.setReferenceBases(referenceBases);
+        request.setAlternateBases(alternateBases);
+        request.setAssemblyId(assemblyId);
+        request.setDatasetIds(datasetIds);
+        request.setIncludeDatasetResponses(includeDatasetResponses);
+        if (!range.isEmpty()) {
+            long started = System.nanoTime();
+            AlleleRequestError error = service.validateVariants(request, range);
+            metrics.recordSince(BeaconMetrics.Stage.VALIDATION, started);
+            if (error != null) {
+                response.resume(invalid(error));
+                return;
+            }
+            answer(response, request, service.queryVariantsAsync(request, range));
+            return;
+        }
+        long started = System.nanoTime();
+        AlleleRequestError error = service.validateAllele(referenceName, start, referenceBases, alternateBases, assemblyId);
+        metrics.recordSince(BeaconMetrics.Stage.VALIDATION, started);
+        if (error != null) {
+            response.resume(invalid(error));
+            return;
+        }
+        answer(response, request, service.queryAlleleAsync(request));
+    }
+
+    @POST
+    @Override
+    public void query(BeaconAlleleRequest request, @Suspended AsyncResponse response) {
+        if (request != null) {
+            long started = System.nanoTime();
+            AlleleRequestError error = service.validateAllele(request.getReferenceName(),
+                                                              request.getStart(),
+                                                              request.getReferenceBases(),
+                                                              request.getAlternateBases(),
+                                                              request.getAssemblyId());
+            metrics.recordSince(BeaconMetrics.Stage.VALIDATION, started);
+            if (error != null) {
+                response.resume(invalid(error));
+                return;
+            }
+        }
+        answer(response, request, service.queryAlleleAsync(request));
     }
 
     @POST
+    @Path("/batch")
+    @Consumes({APPLICATION_NDJSON})
+    @Produces({APPLICATION_NDJSON})
     @Override
-    public BeaconAlleleResponse query(BeaconAlleleRequest request) throws BeaconException {
-        return service.queryAllele(request);
+    public StreamingOutput queryBatch(InputStream requests) {
+        return new BatchQueryOutput(service, metrics, GSON, requests, infoCache::getBeaconId);
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes({BeaconAvroCodec.APPLICATION_AVRO})
+    @Produces({BeaconAvroCodec.APPLICATION_AVRO})
+    @Override
+    public StreamingOutput queryAvroBatch(InputStream requests) {
+        return new AvroBatchQueryOutput(service, metrics, GSON, requests, infoCache::getBeaconId);
+    }
+
+    private void answer(AsyncResponse async, BeaconAlleleRequest request, CompletableFuture<BeaconAlleleResponse> response) {
+        AsyncResponses.resume(async, response, executor.getTimeoutMillis(), this::answer, message -> unavailable(request, message));
     }
+
+    private Response answer(BeaconAlleleResponse response) {
+        metrics.recordOutcome(response);
+        return Response.ok(response).build();
+    }
+
+    private Response unavailable(BeaconAlleleRequest request, String message) {
+        metrics.recordError();
+        BeaconError error = new BeaconError();
+        error.setErrorCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        error.setMessage(message);
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId(infoCache.getBeaconId());
+        response.setAlleleRequest(request);
+        response.setError(error);
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(response).build();
+    }
+
+    private Response invalid(AlleleRequestError error) {
+        metrics.recordError();
+        return errorResponses.toResponse(error, AvroMessageBodyHandler.isPreferred(headers));
+    }
+
 }
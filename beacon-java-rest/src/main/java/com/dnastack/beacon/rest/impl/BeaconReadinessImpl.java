@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.impl;
+
+import com.dnastack.beacon.rest.api.BeaconReadiness;
+import com.dnastack.beacon.rest.util.BeaconWarmup;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+/**
+ * Beacon readiness implementation
+ *
+ * @version 1.0
+ */
+@Path("/ready")
+@Produces({MediaType.APPLICATION_JSON})
+public class BeaconReadinessImpl implements BeaconReadiness {
+
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    @Inject
+    private BeaconWarmup warmup;
+
+    @GET
+    @Override
+    public Response ready() {
+        BeaconWarmup.Phase phase = warmup.getPhase();
+        if (phase == BeaconWarmup.Phase.READY) {
+            return Response.ok(Collections.singletonMap("phase", phase)).build();
+        }
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                       .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                       .entity(Collections.singletonMap("phase", phase))
+                       .build();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Avro binary encoding of the beacon model, which is generated from the GA4GH Avro schemas. Records are written
+ * without a schema or framing, so both sides have to use the same version of the schemas; a stream of records is
+ * simply their encodings one after another. Datum readers and writers are created once per class, and every thread
+ * encodes into a reused buffer, so a record that cannot be encoded leaves the output untouched.
+ * <p>
+ * Records are read from untrusted requests, so a decoded string or bytes value may be at most
+ * {@code beacon.avro.maxLength} bytes long (default 65536) and an array or map block may have at most as many items;
+ * longer ones are rejected before they are allocated.
+ *
+ * @version 1.0
+ */
+public final class BeaconAvroCodec {
+
+    /**
+     * Avro binary encoding of a single record, or of a stream of records for batch queries.
+     */
+    public static final String APPLICATION_AVRO = "application/avro";
+
+    public static final String MAX_LENGTH_PROPERTY = "beacon.avro.maxLength";
+
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    private static final int MAX_LENGTH = Integer.getInteger(MAX_LENGTH_PROPERTY, 1 << 16);
+
+    private static final ClassValue<SpecificDatumWriter<Object>> WRITERS = new ClassValue<SpecificDatumWriter<Object>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected SpecificDatumWriter<Object> computeValue(Class<?> type) {
+            return new SpecificDatumWriter<>((Class<Object>) type);
+        }
+    };
+
+    private static final ClassValue<SpecificDatumReader<?>> READERS = new ClassValue<SpecificDatumReader<?>>() {
+        @Override
+        protected SpecificDatumReader<?> computeValue(Class<?> type) {
+            return new SpecificDatumReader<>(type);
+        }
+    };
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private BeaconAvroCodec() {
+    }
+
+    /**
+     * @param type class of an object
+     * @return true if objects of the class are Avro generated records
+     */
+    public static boolean supports(Class<?> type) {
+        return SpecificRecord.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @param record Avro generated record
+     * @return Avro binary encoding of the record
+     */
+    public static byte[] encode(Object record) {
+        return encodeToBuffer(record).toByteArray();
+    }
+
+    /**
+     * Encodes a record and writes it to a stream. Nothing is written if the record cannot be encoded.
+     *
+     * @param record Avro generated record
+     * @param out    stream to write to
+     * @throws IOException if writing fails
+     */
+    public static void write(Object record, OutputStream out) throws IOException {
+        Buffer buffer = encodeToBuffer(record);
+        buffer.writeTo(out);
+        buffer.release();
+    }
+
+    /**
+     * @param type class of the record
+     * @param in   stream holding a single Avro binary encoded record
+     * @param <T>  type of the record
+     * @return decoded record
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the stream does not hold a record of the type, or the record exceeds the
+     *                                  length limits
+     */
+    public static <T> T read(Class<T> type, InputStream in) throws IOException {
+        return read(type, DecoderFactory.get().binaryDecoder(in, null));
+    }
+
+    /**
+     * @param type    class of the record
+     * @param decoder decoder positioned at the start of a record
+     * @param <T>     type of the record
+     * @return decoded record
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if the decoder is not positioned at a record of the type, or the record exceeds
+     *                                  the length limits
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T read(Class<T> type, BinaryDecoder decoder) throws IOException {
+        try {
+            return ((SpecificDatumReader<T>) READERS.get(type)).read(null, new BoundedDecoder(decoder, MAX_LENGTH));
+        } catch (AvroRuntimeException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Malformed Avro " + type.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Buffer encodeToBuffer(Object record) {
+        Buffer buffer = BUFFERS.get();
+        buffer.reset();
+        try {
+            buffer.encoder = EncoderFactory.get().directBinaryEncoder(buffer, buffer.encoder);
+            WRITERS.get(record.getClass()).write(record, buffer.encoder);
+        } catch (IOException | AvroRuntimeException | NullPointerException e) {
+            throw new IllegalStateException("Cannot encode " + record.getClass().getSimpleName() + " as Avro: " + e.getMessage(), e);
+        }
+        return buffer;
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private BinaryEncoder encoder;
+
+        Buffer() {
+            super(4096);
+        }
+
+        /**
+         * Drops the array after an unusually large record instead of keeping it for the lifetime of the thread.
+         */
+        void release() {
+            if (buf.length > MAX_RETAINED_BUFFER) {
+                buf = new byte[4096];
+            }
+            reset();
+        }
+    }
+}
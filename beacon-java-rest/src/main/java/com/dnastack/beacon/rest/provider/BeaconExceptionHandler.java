@@ -25,8 +25,9 @@ package com.dnastack.beacon.rest.provider;
 
 import com.dnastack.beacon.exceptions.BeaconAlleleRequestException;
 import com.dnastack.beacon.exceptions.BeaconException;
-import com.dnastack.beacon.service.api.BeaconService;
-import org.ga4gh.beacon.Beacon;
+import com.dnastack.beacon.rest.util.BeaconInfoCache;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.dnastack.beacon.utils.Reason;
 import org.ga4gh.beacon.BeaconAlleleResponse;
 import org.ga4gh.beacon.BeaconError;
 
@@ -44,24 +45,46 @@ import javax.ws.rs.ext.Provider;
 public class BeaconExceptionHandler implements ExceptionMapper<BeaconException> {
 
     @Inject
-    BeaconService service;
+    BeaconInfoCache infoCache;
 
-    @Override
-    public Response toResponse(BeaconException exception) {
+    @Inject
+    BeaconMetrics metrics;
 
-        BeaconError error = new BeaconError();
-        error.setMessage(exception.getMessage());
-        switch (exception.getReason()) {
+    /**
+     * @param reason reason of a beacon exception
+     * @return HTTP status code reported for the reason
+     */
+    public static int getStatusCode(Reason reason) {
+        switch (reason) {
             case INVALID_REQUEST:
-                error.setErrorCode(Response.Status.BAD_REQUEST.getStatusCode());
-                break;
+                return Response.Status.BAD_REQUEST.getStatusCode();
             default:
-                error.setErrorCode(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+                return Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
         }
+    }
+
+    /**
+     * Maps an exception to the beacon error reported to the client.
+     *
+     * @param exception beacon exception
+     * @return error with the HTTP status code matching the reason of the exception
+     */
+    public static BeaconError toBeaconError(BeaconException exception) {
+        BeaconError error = new BeaconError();
+        error.setMessage(exception.getMessage());
+        error.setErrorCode(getStatusCode(exception.getReason()));
+        return error;
+    }
+
+    @Override
+    public Response toResponse(BeaconException exception) {
+
+        BeaconError error = toBeaconError(exception);
 
         //If this is an alleleRequest then return a BeaconAlleleResponse with the error fields set appropriately
-        if (exception.getClass().getCanonicalName().equals(BeaconAlleleRequestException.class.getCanonicalName())) {
+        if (exception instanceof BeaconAlleleRequestException) {
             BeaconAlleleRequestException e = (BeaconAlleleRequestException) exception;
+            metrics.recordError();
             BeaconAlleleResponse response = new BeaconAlleleResponse();
             response.setExists(null);
             response.setError(error);
@@ -70,12 +93,7 @@ public class BeaconExceptionHandler implements ExceptionMapper<BeaconException>
                 response.setAlleleRequest(e.getRequest());
             }
 
-            try {
-                Beacon beacon = service.queryBeacon();
-                response.setBeaconId(beacon.getId());
-            } catch (BeaconException ex) {
-                response.setBeaconId(null);
-            }
+            response.setBeaconId(infoCache.getBeaconId());
 
             return Response.status(error.getErrorCode()).entity(response).build();
 
@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import org.ga4gh.beacon.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hand-written JSON encoders for the beacon model, replacing Gson's reflective serialization on the response path. The
+ * output is byte for byte what {@code new GsonBuilder().create()} produces: fields in schema order, null fields
+ * omitted. Field names are pre-encoded, and encoded unmodifiable {@code info} maps are cached by identity, so the
+ * constant maps of an adapter are encoded only once.
+ *
+ * @version 1.0
+ */
+public final class BeaconJsonCodec {
+
+    private static final int INFO_CACHE_SIZE = 64;
+    private static final Class<?> UNMODIFIABLE_MAP = Collections.unmodifiableMap(new HashMap<>()).getClass();
+    private static final AtomicReferenceArray<EncodedMap> INFO_CACHE = new AtomicReferenceArray<>(INFO_CACHE_SIZE);
+
+    private static final byte[] ADDRESS = BeaconJsonWriter.fieldName("address");
+    private static final byte[] ALLELE_REQUEST = BeaconJsonWriter.fieldName("alleleRequest");
+    private static final byte[] ALTERNATE_BASES = BeaconJsonWriter.fieldName("alternateBases");
+    private static final byte[] ALTERNATIVE_URL = BeaconJsonWriter.fieldName("alternativeUrl");
+    private static final byte[] API_VERSION = BeaconJsonWriter.fieldName("apiVersion");
+    private static final byte[] ASSEMBLY_ID = BeaconJsonWriter.fieldName("assemblyId");
+    private static final byte[] BEACON_ID = BeaconJsonWriter.fieldName("beaconId");
+    private static final byte[] CALL_COUNT = BeaconJsonWriter.fieldName("callCount");
+    private static final byte[] CONTACT_URL = BeaconJsonWriter.fieldName("contactUrl");
+    private static final byte[] CREATE_DATE_TIME = BeaconJsonWriter.fieldName("createDateTime");
+    private static final byte[] DATASET_ALLELE_RESPONSES = BeaconJsonWriter.fieldName("datasetAlleleResponses");
+    private static final byte[] DATASET_ID = BeaconJsonWriter.fieldName("datasetId");
+    private static final byte[] DATASET_IDS = BeaconJsonWriter.fieldName("datasetIds");
+    private static final byte[] DATASETS = BeaconJsonWriter.fieldName("datasets");
+    private static final byte[] DESCRIPTION = BeaconJsonWriter.fieldName("description");
+    private static final byte[] ERROR = BeaconJsonWriter.fieldName("error");
+    private static final byte[] ERROR_CODE = BeaconJsonWriter.fieldName("errorCode");
+    private static final byte[] EXISTS = BeaconJsonWriter.fieldName("exists");
+    private static final byte[] EXTERNAL_URL = BeaconJsonWriter.fieldName("externalUrl");
+    private static final byte[] FREQUENCY = BeaconJsonWriter.fieldName("frequency");
+    private static final byte[] ID = BeaconJsonWriter.fieldName("id");
+    private static final byte[] INCLUDE_DATASET_RESPONSES = BeaconJsonWriter.fieldName("includeDatasetResponses");
+    private static final byte[] INFO = BeaconJsonWriter.fieldName("info");
+    private static final byte[] LOGO_URL = BeaconJsonWriter.fieldName("logoUrl");
+    private static final byte[] MESSAGE = BeaconJsonWriter.fieldName("message");
+    private static final byte[] NAME = BeaconJsonWriter.fieldName("name");
+    private static final byte[] NOTE = BeaconJsonWriter.fieldName("note");
+    private static final byte[] ORGANIZATION = BeaconJsonWriter.fieldName("organization");
+    private static final byte[] REFERENCE_BASES = BeaconJsonWriter.fieldName("referenceBases");
+    private static final byte[] REFERENCE_NAME = BeaconJsonWriter.fieldName("referenceName");
+    private static final byte[] SAMPLE_ALLELE_REQUESTS = BeaconJsonWriter.fieldName("sampleAlleleRequests");
+    private static final byte[] SAMPLE_COUNT = BeaconJsonWriter.fieldName("sampleCount");
+    private static final byte[] START = BeaconJsonWriter.fieldName("start");
+    private static final byte[] UPDATE_DATE_TIME = BeaconJsonWriter.fieldName("updateDateTime");
+    private static final byte[] VARIANT_COUNT = BeaconJsonWriter.fieldName("variantCount");
+    private static final byte[] VERSION = BeaconJsonWriter.fieldName("version");
+    private static final byte[] WELCOME_URL = BeaconJsonWriter.fieldName("welcomeUrl");
+
+    private BeaconJsonCodec() {
+    }
+
+    /**
+     * @param type entity class
+     * @return true if instances of the class can be written by {@link #write(Object, BeaconJsonWriter)}
+     */
+    public static boolean supports(Class<?> type) {
+        return type == BeaconAlleleResponse.class
+                || type == Beacon.class
+                || type == BeaconError.class
+                || type == BeaconDatasetAlleleResponse.class
+                || type == BeaconAlleleRequest.class
+                || type == BeaconDataset.class
+                || type == BeaconOrganization.class;
+    }
+
+    /**
+     * Encodes a supported model object into a new byte array.
+     *
+     * @param value model object
+     * @return UTF-8 JSON
+     */
+    public static byte[] encode(Object value) {
+        BeaconJsonWriter writer = BeaconJsonWriter.get();
+        write(value, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Appends a supported model object to the writer.
+     *
+     * @param value  model object
+     * @param writer target writer
+     */
+    public static void write(Object value, BeaconJsonWriter writer) {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof BeaconAlleleResponse) {
+            write((BeaconAlleleResponse) value, writer);
+        } else if (value instanceof Beacon) {
+            write((Beacon) value, writer);
+        } else if (value instanceof BeaconError) {
+            write((BeaconError) value, writer);
+        } else if (value instanceof BeaconDatasetAlleleResponse) {
+            write((BeaconDatasetAlleleResponse) value, writer);
+        } else if (value instanceof BeaconAlleleRequest) {
+            write((BeaconAlleleRequest) value, writer);
+        } else if (value instanceof BeaconDataset) {
+            write((BeaconDataset) value, writer);
+        } else if (value instanceof BeaconOrganization) {
+            write((BeaconOrganization) value, writer);
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + value.getClass().getName());
+        }
+    }
+
+    public static void write(BeaconAlleleResponse response, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, BEACON_ID, response.getBeaconId());
+        bool(writer, EXISTS, response.getExists());
+        if (response.getError() != null) {
+            write(response.getError(), writer.name(ERROR));
+        }
+        if (response.getAlleleRequest() != null) {
+            write(response.getAlleleRequest(), writer.name(ALLELE_REQUEST));
+        }
+        List<BeaconDatasetAlleleResponse> datasetResponses = response.getDatasetAlleleResponses();
+        if (datasetResponses != null) {
+            writer.name(DATASET_ALLELE_RESPONSES).beginArray();
+            for (BeaconDatasetAlleleResponse datasetResponse : datasetResponses) {
+                writer.element();
+                if (datasetResponse == null) {
+                    writer.nullValue();
+                } else {
+                    write(datasetResponse, writer);
+                }
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    public static void write(BeaconDatasetAlleleResponse response, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, DATASET_ID, response.getDatasetId());
+        bool(writer, EXISTS, response.getExists());
+        if (response.getError() != null) {
+            write(response.getError(), writer.name(ERROR));
+        }
+        if (response.getFrequency() != null) {
+            writer.name(FREQUENCY).value(response.getFrequency());
+        }
+        number(writer, VARIANT_COUNT, response.getVariantCount());
+        number(writer, CALL_COUNT, response.getCallCount());
+        number(writer, SAMPLE_COUNT, response.getSampleCount());
+        string(writer, NOTE, response.getNote());
+        string(writer, EXTERNAL_URL, response.getExternalUrl());
+        info(writer, response.getInfo());
+        writer.endObject();
+    }
+
+    public static void write(BeaconError error, BeaconJsonWriter writer) {
+        writer.beginObject();
+        if (error.getErrorCode() != null) {
+            writer.name(ERROR_CODE).value(error.getErrorCode());
+        }
+        string(writer, MESSAGE, error.getMessage());
+        writer.endObject();
+    }
+
+    public static void write(BeaconAlleleRequest request, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, REFERENCE_NAME, request.getReferenceName());
+        number(writer, START, request.getStart());
+        string(writer, REFERENCE_BASES, request.getReferenceBases());
+        string(writer, ALTERNATE_BASES, request.getAlternateBases());
+        string(writer, ASSEMBLY_ID, request.getAssemblyId());
+        List<String> datasetIds = request.getDatasetIds();
+        if (datasetIds != null) {
+            writer.name(DATASET_IDS).beginArray();
+            for (String datasetId : datasetIds) {
+                writer.element().value(datasetId);
+            }
+            writer.endArray();
+        }
+        bool(writer, INCLUDE_DATASET_RESPONSES, request.getIncludeDatasetResponses());
+        writer.endObject();
+    }
+
+    public static void write(Beacon beacon, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, ID, beacon.getId());
+        string(writer, NAME, beacon.getName());
+        string(writer, API_VERSION, beacon.getApiVersion());
+        if (beacon.getOrganization() != null) {
+            write(beacon.getOrganization(), writer.name(ORGANIZATION));
+        }
+        string(writer, DESCRIPTION, beacon.getDescription());
+        string(writer, VERSION, beacon.getVersion());
+        string(writer, WELCOME_URL, beacon.getWelcomeUrl());
+        string(writer, ALTERNATIVE_URL, beacon.getAlternativeUrl());
+        string(writer, CREATE_DATE_TIME, beacon.getCreateDateTime());
+        string(writer, UPDATE_DATE_TIME, beacon.getUpdateDateTime());
+        if (beacon.getDatasets() != null) {
+            writer.name(DATASETS).beginArray();
+            for (BeaconDataset dataset : beacon.getDatasets()) {
+                writer.element();
+                if (dataset == null) {
+                    writer.nullValue();
+                } else {
+                    write(dataset, writer);
+                }
+            }
+            writer.endArray();
+        }
+        if (beacon.getSampleAlleleRequests() != null) {
+            writer.name(SAMPLE_ALLELE_REQUESTS).beginArray();
+            for (BeaconAlleleRequest request : beacon.getSampleAlleleRequests()) {
+                writer.element();
+                if (request == null) {
+                    writer.nullValue();
+                } else {
+                    write(request, writer);
+                }
+            }
+            writer.endArray();
+        }
+        info(writer, beacon.getInfo());
+        writer.endObject();
+    }
+
+    public static void write(BeaconOrganization organization, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, ID, organization.getId());
+        string(writer, NAME, organization.getName());
+        string(writer, DESCRIPTION, organization.getDescription());
+        string(writer, ADDRESS, organization.getAddress());
+        string(writer, WELCOME_URL, organization.getWelcomeUrl());
+        string(writer, CONTACT_URL, organization.getContactUrl());
+        string(writer, LOGO_URL, organization.getLogoUrl());
+        info(writer, organization.getInfo());
+        writer.endObject();
+    }
+
+    public static void write(BeaconDataset dataset, BeaconJsonWriter writer) {
+        writer.beginObject();
+        string(writer, ID, dataset.getId());
+        string(writer, NAME, dataset.getName());
+        string(writer, DESCRIPTION, dataset.getDescription());
+        string(writer, ASSEMBLY_ID, dataset.getAssemblyId());
+        string(writer, CREATE_DATE_TIME, dataset.getCreateDateTime());
+        string(writer, UPDATE_DATE_TIME, dataset.getUpdateDateTime());
+        string(writer, VERSION, dataset.getVersion());
+        number(writer, VARIANT_COUNT, dataset.getVariantCount());
+        number(writer, CALL_COUNT, dataset.getCallCount());
+        number(writer, SAMPLE_COUNT, dataset.getSampleCount());
+        string(writer, EXTERNAL_URL, dataset.getExternalUrl());
+        info(writer, dataset.getInfo());
+        writer.endObject();
+    }
+
+    private static void string(BeaconJsonWriter writer, byte[] name, String value) {
+        if (value != null) {
+            writer.name(name).value(value);
+        }
+    }
+
+    private static void number(BeaconJsonWriter writer, byte[] name, Long value) {
+        if (value != null) {
+            writer.name(name).value(value.longValue());
+        }
+    }
+
+    private static void bool(BeaconJsonWriter writer, byte[] name, Boolean value) {
+        if (value != null) {
+            writer.name(name).value(value.booleanValue());
+        }
+    }
+
+    private static void info(BeaconJsonWriter writer, Map<String, String> info) {
+        if (info == null) {
+            return;
+        }
+        writer.name(INFO);
+        if (info.getClass() != UNMODIFIABLE_MAP) {
+            map(writer, info);
+            return;
+        }
+        int slot = System.identityHashCode(info) & (INFO_CACHE_SIZE - 1);
+        EncodedMap cached = INFO_CACHE.get(slot);
+        if (cached == null || cached.map != info) {
+            int start = writer.size();
+            map(writer, info);
+            INFO_CACHE.set(slot, new EncodedMap(info, writer.toByteArray(start)));
+            return;
+        }
+        writer.raw(cached.json);
+    }
+
+    private static void map(BeaconJsonWriter writer, Map<String, String> map) {
+        writer.beginObject();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writer.name(String.valueOf(entry.getKey())).value(entry.getValue());
+            }
+        }
+        writer.endObject();
+    }
+
+    private static final class EncodedMap {
+
+        private final Map<String, String> map;
+        private final byte[] json;
+
+        private EncodedMap(Map<String, String> map, byte[] json) {
+            this.map = map;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal JSON writer into a reusable byte buffer, producing the same output as the default Gson configuration:
+ * HTML-safe string escaping, no whitespace and numbers written with their {@code toString()} form. Instances are
+ * pooled per thread, see {@link #get()}.
+ *
+ * @version 1.0
+ */
+public final class BeaconJsonWriter {
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    /**
+     * Characters written as is, everything else in the ASCII range is escaped.
+     */
+    private static final boolean[] PLAIN = new boolean[128];
+
+    private static final ThreadLocal<BeaconJsonWriter> POOL = ThreadLocal.withInitial(BeaconJsonWriter::new);
+
+    static {
+        for (char c = 0x20; c < 128; c++) {
+            PLAIN[c] = true;
+        }
+        for (char c : new char[]{'"', '\\', '<', '>', '&', '=', '\''}) {
+            PLAIN[c] = false;
+        }
+    }
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+
+    private BeaconJsonWriter() {
+    }
+
+    /**
+     * @return empty writer owned by the current thread
+     */
+    public static BeaconJsonWriter get() {
+        BeaconJsonWriter writer = POOL.get();
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Encodes a JSON object field name together with the separator preceding it and the colon following it.
+     *
+     * @param name field name, must not need escaping
+     * @return pre-encoded fragment for {@link #name(byte[])}
+     */
+    public static byte[] fieldName(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void reset() {
+        count = 0;
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * @param start offset of the first byte to copy
+     * @return bytes written since the given offset
+     */
+    public byte[] toByteArray(int start) {
+        return Arrays.copyOfRange(buffer, start, count);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, count);
+    }
+
+    public BeaconJsonWriter beginObject() {
+        return write('{');
+    }
+
+    public BeaconJsonWriter endObject() {
+        return write('}');
+    }
+
+    public BeaconJsonWriter beginArray() {
+        return write('[');
+    }
+
+    public BeaconJsonWriter endArray() {
+        return write(']');
+    }
+
+    /**
+     * Writes a pre-encoded field name, preceded by a comma unless it is the first field of the object.
+     */
+    public BeaconJsonWriter name(byte[] fieldName) {
+        separate();
+        return raw(fieldName);
+    }
+
+    public BeaconJsonWriter name(String name) {
+        separate();
+        string(name);
+        return write(':');
+    }
+
+    /**
+     * Starts an array element, preceded by a comma unless it is the first element of the array.
+     */
+    public BeaconJsonWriter element() {
+        separate();
+        return this;
+    }
+
+    /**
+     * Appends pre-encoded JSON as is.
+     */
+    public BeaconJsonWriter raw(byte[] json) {
+        ensure(json.length);
+        System.arraycopy(json, 0, buffer, count, json.length);
+        count += json.length;
+        return this;
+    }
+
+    public BeaconJsonWriter nullValue() {
+        return raw(NULL);
+    }
+
+    public BeaconJsonWriter value(boolean value) {
+        return raw(value ? TRUE : FALSE);
+    }
+
+    public BeaconJsonWriter value(long value) {
+        if (value == Long.MIN_VALUE) {
+            return ascii(Long.toString(value));
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = count + digits;
+        for (int i = end - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count = end;
+        return this;
+    }
+
+    public BeaconJsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification.");
+        }
+        return ascii(Double.toString(value));
+    }
+
+    public BeaconJsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        string(value);
+        return this;
+    }
+
+    private void string(String value) {
+        int length = value.length();
+        ensure(length + 2);
+        buffer[count++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && PLAIN[c]) {
+                ensure(1);
+                buffer[count++] = (byte) c;
+            } else {
+                escape(c, value, i);
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        ensure(1);
+        buffer[count++] = '"';
+    }
+
+    private void escape(char c, String value, int index) {
+        ensure(12);
+        switch (c) {
+            case '"':
+                shortEscape('"');
+                return;
+            case '\\':
+                shortEscape('\\');
+                return;
+            case '\t':
+                shortEscape('t');
+                return;
+            case '\b':
+                shortEscape('b');
+                return;
+            case '\n':
+                shortEscape('n');
+                return;
+            case '\r':
+                shortEscape('r');
+                return;
+            case '\f':
+                shortEscape('f');
+                return;
+            default:
+        }
+        if (c < 128 || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+            unicodeEscape(c);
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xc0 | c >> 6);
+            buffer[count++] = (byte) (0x80 | c & 0x3f);
+        } else if (Character.isSurrogate(c)) {
+            int codePoint = value.codePointAt(index);
+            if (codePoint == c) {
+                // unpaired surrogate, encoded like String.getBytes does
+                buffer[count++] = '?';
+                return;
+            }
+            buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+        } else {
+            buffer[count++] = (byte) (0xe0 | c >> 12);
+            buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+            buffer[count++] = (byte) (0x80 | c & 0x3f);
+        }
+    }
+
+    private void shortEscape(char c) {
+        buffer[count++] = '\\';
+        buffer[count++] = (byte) c;
+    }
+
+    private void unicodeEscape(char c) {
+        buffer[count++] = '\\';
+        buffer[count++] = 'u';
+        buffer[count++] = HEX[c >> 12 & 0xf];
+        buffer[count++] = HEX[c >> 8 & 0xf];
+        buffer[count++] = HEX[c >> 4 & 0xf];
+        buffer[count++] = HEX[c & 0xf];
+    }
+
+    private BeaconJsonWriter ascii(String value) {
+        int length = value.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    private void separate() {
+        if (count > 0) {
+            byte last = buffer[count - 1];
+            if (last != '{' && last != '[') {
+                write(',');
+            }
+        }
+    }
+
+    private BeaconJsonWriter write(char c) {
+        ensure(1);
+        buffer[count++] = (byte) c;
+        return this;
+    }
+
+    private void ensure(int bytes) {
+        if (count + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + bytes));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary decoder refusing strings and bytes longer than a limit, and array and map blocks with more items, before
+ * anything is allocated for them. The Avro reader allocates whatever length a record claims up front, so without the
+ * limit a few forged bytes in a request could make it allocate gigabytes.
+ *
+ * @version 1.0
+ */
+final class BoundedDecoder extends Decoder {
+
+    private final BinaryDecoder in;
+    private final int maxLength;
+
+    /**
+     * @param in        decoder of the binary encoding
+     * @param maxLength longest string or bytes value and most items in an array or map block
+     */
+    BoundedDecoder(BinaryDecoder in, int maxLength) {
+        this.in = in;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void readNull() throws IOException {
+        in.readNull();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return in.readFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return in.readDouble();
+    }
+
+    @Override
+    public Utf8 readString(Utf8 old) throws IOException {
+        return new Utf8(readLengthPrefixed());
+    }
+
+    @Override
+    public String readString() throws IOException {
+        return new String(readLengthPrefixed(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void skipString() throws IOException {
+        in.skipString();
+    }
+
+    @Override
+    public ByteBuffer readBytes(ByteBuffer old) throws IOException {
+        return ByteBuffer.wrap(readLengthPrefixed());
+    }
+
+    @Override
+    public void skipBytes() throws IOException {
+        in.skipBytes();
+    }
+
+    @Override
+    public void readFixed(byte[] bytes, int start, int length) throws IOException {
+        in.readFixed(bytes, start, length);
+    }
+
+    @Override
+    public void skipFixed(int length) throws IOException {
+        in.skipFixed(length);
+    }
+
+    @Override
+    public int readEnum() throws IOException {
+        return in.readEnum();
+    }
+
+    @Override
+    public long readArrayStart() throws IOException {
+        return check(in.readArrayStart());
+    }
+
+    @Override
+    public long arrayNext() throws IOException {
+        return check(in.arrayNext());
+    }
+
+    @Override
+    public long skipArray() throws IOException {
+        return in.skipArray();
+    }
+
+    @Override
+    public long readMapStart() throws IOException {
+        return check(in.readMapStart());
+    }
+
+    @Override
+    public long mapNext() throws IOException {
+        return check(in.mapNext());
+    }
+
+    @Override
+    public long skipMap() throws IOException {
+        return in.skipMap();
+    }
+
+    @Override
+    public int readIndex() throws IOException {
+        return in.readIndex();
+    }
+
+    private byte[] readLengthPrefixed() throws IOException {
+        byte[] bytes = new byte[check(in.readLong())];
+        in.readFixed(bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private int check(long length) {
+        if (length < 0 || length > maxLength) {
+            throw new AvroRuntimeException("Length " + length + " exceeds the limit of " + maxLength);
+        }
+        return (int) length;
+    }
+}
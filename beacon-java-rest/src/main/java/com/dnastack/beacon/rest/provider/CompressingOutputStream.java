@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a response body with gzip or deflate once it has grown past a threshold. Until then the body is held
+ * back, so that a small body is written as is and the decision, announced through {@link Listener#compressing}, is
+ * taken before the first byte reaches the container. Flushes before the threshold are ignored unless the stream is
+ * created for streaming output, which is compressed from the first byte and flushed with {@link Deflater#SYNC_FLUSH}
+ * so that every flush reaches the client.
+ * <p>
+ * Deflaters hold a few hundred kilobytes of native memory each and are expensive to set up, so they are pooled and
+ * reset instead of being created per response. The gzip framing is written here for the same reason, since
+ * {@link java.util.zip.GZIPOutputStream} always creates its own deflater.
+ *
+ * @version 1.0
+ */
+final class CompressingOutputStream extends FilterOutputStream {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final int POOL_SIZE = 64;
+    private static final int CHUNK_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final BlockingQueue<Deflater> GZIP_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Deflater> DEFLATE_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Told about the decision to compress, before anything is written.
+     */
+    interface Listener {
+
+        /**
+         * @param coding content coding the body is compressed with
+         */
+        void compressing(String coding);
+    }
+
+    private final String coding;
+    private final int level;
+    private final boolean streaming;
+    private final Listener listener;
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private byte[] pending;
+    private int pendingCount;
+    private Deflater deflater;
+    private boolean finished;
+
+    /**
+     * @param out       stream of the container
+     * @param coding    {@link #GZIP} or {@link #DEFLATE}
+     * @param level     compression level from 1 (fastest) to 9 (smallest)
+     * @param minBytes  smallest body to compress, ignored for streaming output
+     * @param streaming true to compress from the first byte and to pass flushes on
+     * @param listener  told about the decision to compress
+     */
+    CompressingOutputStream(OutputStream out, String coding, int level, int minBytes, boolean streaming, Listener listener) {
+        super(out);
+        this.coding = coding;
+        this.level = level;
+        this.streaming = streaming;
+        this.listener = listener;
+        this.pending = streaming || minBytes <= 0 ? null : new byte[minBytes];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+        if (pending != null) {
+            if (pendingCount + len <= pending.length) {
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+                return;
+            }
+            start();
+        } else if (deflater == null) {
+            start();
+        }
+        deflate(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (finished || !streaming) {
+            return;
+        }
+        if (deflater == null) {
+            start();
+        }
+        drain(Deflater.SYNC_FLUSH);
+        out.flush();
+    }
+
+    /**
+     * Writes what is held back, or completes the compressed body, without closing the container's stream.
+     *
+     * @throws IOException if writing fails
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (pending != null) {
+            out.write(pending, 0, pendingCount);
+            pending = null;
+            return;
+        }
+        if (deflater == null) {
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk, 0, chunk.length);
+                out.write(chunk, 0, n);
+            }
+            if (GZIP.equals(coding)) {
+                writeTrailer();
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Returns the deflater to the pool if the body was never finished, e.g. because writing it failed.
+     */
+    void abort() {
+        finished = true;
+        release();
+    }
+
+    private void start() throws IOException {
+        listener.compressing(coding);
+        boolean gzip = GZIP.equals(coding);
+        deflater = (gzip ? GZIP_DEFLATERS : DEFLATE_DEFLATERS).poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, gzip);
+        } else {
+            deflater.setLevel(level);
+        }
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+        if (pending != null) {
+            byte[] held = pending;
+            pending = null;
+            deflate(held, 0, pendingCount);
+        }
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            int n = deflater.deflate(chunk, 0, chunk.length, Deflater.NO_FLUSH);
+            if (n > 0) {
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    private void drain(int flush) throws IOException {
+        int n;
+        do {
+            n = deflater.deflate(chunk, 0, chunk.length, flush);
+            out.write(chunk, 0, n);
+        } while (n == chunk.length);
+    }
+
+    private void writeTrailer() throws IOException {
+        long value = crc.getValue();
+        long size = deflater.getBytesRead();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (value >>> (8 * i));
+            trailer[4 + i] = (byte) (size >>> (8 * i));
+        }
+        out.write(trailer);
+    }
+
+    private void release() {
+        if (deflater == null) {
+            return;
+        }
+        Deflater released = deflater;
+        deflater = null;
+        released.reset();
+        if (!(GZIP.equals(coding) ? GZIP_DEFLATERS : DEFLATE_DEFLATERS).offer(released)) {
+            released.end();
+        }
+    }
+}
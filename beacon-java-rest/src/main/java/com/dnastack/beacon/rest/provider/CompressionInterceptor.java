@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import com.dnastack.beacon.rest.impl.BeaconQueryImpl;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses JSON and newline delimited JSON responses with gzip or deflate, whichever the client prefers in its
+ * {@code Accept-Encoding}, at the level set with {@code beacon.compression.level} (default 1, the fastest). Bodies
+ * smaller than {@code beacon.compression.minBytes} bytes (default 1024) are sent as they are, since compressing a
+ * single allele response costs more than it saves; streamed batch responses are always compressed.
+ * <p>
+ * Responses that already have a {@code Content-Encoding} or an entity tag, which would no longer match the compressed
+ * body, are left alone. The beacon information is one of them: it is compressed once when it is built and served
+ * pre-compressed to clients accepting gzip. {@code beacon.compression.enabled=false} turns compression off.
+ *
+ * @version 1.0
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor {
+
+    public static final String ENABLED_PROPERTY = "beacon.compression.enabled";
+    public static final String MIN_BYTES_PROPERTY = "beacon.compression.minBytes";
+    public static final String LEVEL_PROPERTY = "beacon.compression.level";
+
+    private static final MediaType NDJSON = MediaType.valueOf(BeaconQueryImpl.APPLICATION_NDJSON);
+
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+    private final int minBytes = Integer.getInteger(MIN_BYTES_PROPERTY, 1024);
+    private final int level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, Integer.getInteger(LEVEL_PROPERTY, Deflater.BEST_SPEED)));
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (!enabled || headers.containsKey(HttpHeaders.CONTENT_ENCODING) || headers.containsKey(HttpHeaders.ETAG)
+                || !compressible(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+        if (!varies(headers.get(HttpHeaders.VARY))) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        String coding = negotiate(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (coding == null) {
+            context.proceed();
+            return;
+        }
+        OutputStream original = context.getOutputStream();
+        CompressingOutputStream compressing = new CompressingOutputStream(original, coding, level, minBytes,
+                                                                          context.getEntity() instanceof StreamingOutput,
+                                                                          c -> {
+                                                                              headers.remove(HttpHeaders.CONTENT_LENGTH);
+                                                                              headers.putSingle(HttpHeaders.CONTENT_ENCODING, c);
+                                                                          });
+        context.setOutputStream(compressing);
+        boolean completed = false;
+        try {
+            context.proceed();
+            compressing.finish();
+            completed = true;
+        } finally {
+            if (!completed) {
+                compressing.abort();
+            }
+            context.setOutputStream(original);
+        }
+    }
+
+    private static boolean compressible(MediaType type) {
+        return type != null && (MediaType.APPLICATION_JSON_TYPE.isCompatible(type) || NDJSON.isCompatible(type))
+                && !type.isWildcardType() && !type.isWildcardSubtype();
+    }
+
+    private static boolean varies(List<Object> vary) {
+        if (vary != null) {
+            for (Object value : vary) {
+                if (String.valueOf(value).toLowerCase().contains(HttpHeaders.ACCEPT_ENCODING.toLowerCase())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the content coding to compress with from the values of {@code Accept-Encoding}: gzip or deflate, whichever
+     * has the higher quality, gzip on a tie. A wildcard stands for both; a quality of 0 rules a coding out.
+     *
+     * @param acceptEncoding values of the header, may be null
+     * @return {@code gzip}, {@code deflate} or null if the client accepts neither
+     */
+    static String negotiate(List<String> acceptEncoding) {
+        double[] qualities = qualities(acceptEncoding);
+        double gzip = qualities[0];
+        double deflate = qualities[1];
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? CompressingOutputStream.GZIP : CompressingOutputStream.DEFLATE;
+    }
+
+    /**
+     * Tells whether a client accepts gzip, for responses that are only available gzip compressed or not at all. Follows
+     * the same rules as the negotiation of the coding to compress with.
+     *
+     * @param acceptEncoding values of the header, may be null
+     * @return true if the client accepts gzip, even if it would prefer deflate
+     */
+    public static boolean acceptsGzip(List<String> acceptEncoding) {
+        return qualities(acceptEncoding)[0] > 0;
+    }
+
+    /**
+     * @return qualities of gzip and deflate, negative if the header does not mention them
+     */
+    private static double[] qualities(List<String> acceptEncoding) {
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String header : acceptEncoding != null ? acceptEncoding : Collections.<String>emptyList()) {
+            for (String element : header.split(",")) {
+                String[] parameters = element.split(";");
+                String name = parameters[0].trim().toLowerCase();
+                double quality = quality(parameters);
+                if (CompressingOutputStream.GZIP.equals(name) || "x-gzip".equals(name)) {
+                    gzip = Math.max(gzip, quality);
+                } else if (CompressingOutputStream.DEFLATE.equals(name)) {
+                    deflate = Math.max(deflate, quality);
+                } else if ("*".equals(name)) {
+                    wildcard = quality;
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        return new double[]{gzip, deflate};
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
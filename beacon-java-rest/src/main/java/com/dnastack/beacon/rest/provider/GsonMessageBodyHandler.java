@@ -23,14 +23,17 @@
  */
 package com.dnastack.beacon.rest.provider;
 
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
@@ -39,7 +42,8 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 
 /**
- * Gson Message Body Handler for serializing JSON data to and from auto generated Java classes
+ * Gson Message Body Handler for serializing JSON data to and from auto generated Java classes. Beacon model responses
+ * are written by {@link BeaconJsonCodec}, other types fall back to Gson.
  *
  * @author patmagee
  * @version 1.0
@@ -53,6 +57,9 @@ public class GsonMessageBodyHandler implements MessageBodyReader<Object>, Messag
 
     private Gson gson;
 
+    @Inject
+    private BeaconMetrics metrics;
+
     private Gson getGson() {
         if (gson == null) {
             gson = new GsonBuilder().create();
@@ -85,7 +92,9 @@ public class GsonMessageBodyHandler implements MessageBodyReader<Object>, Messag
 
     @Override
     public boolean isWriteable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType) {
-        return true;
+        return !byte[].class.equals(aClass)
+                && !InputStream.class.isAssignableFrom(aClass)
+                && !StreamingOutput.class.isAssignableFrom(aClass);
     }
 
     @Override
@@ -95,7 +104,16 @@ public class GsonMessageBodyHandler implements MessageBodyReader<Object>, Messag
 
     @Override
     public void writeTo(Object o, Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> multivaluedMap, OutputStream outputStream) throws IOException, WebApplicationException {
-        OutputStreamWriter writer = new OutputStreamWriter(outputStream, UTF_8);
+        long started = System.nanoTime();
+        if (BeaconJsonCodec.supports(aClass)) {
+            BeaconJsonWriter json = BeaconJsonWriter.get();
+            BeaconJsonCodec.write(o, json);
+            metrics.recordSince(BeaconMetrics.Stage.SERIALIZATION, started);
+            json.writeTo(outputStream);
+            outputStream.flush();
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
         try {
             Type jsonType;
             if (type == null) {
@@ -108,6 +126,7 @@ public class GsonMessageBodyHandler implements MessageBodyReader<Object>, Messag
             getGson().toJson(o, jsonType, writer);
         } finally {
             writer.close();
+            metrics.recordSince(BeaconMetrics.Stage.SERIALIZATION, started);
         }
     }
 }
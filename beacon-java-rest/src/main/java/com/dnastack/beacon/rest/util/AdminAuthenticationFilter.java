@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Admits admin requests only with the token configured in {@value #TOKEN_PROPERTY}, sent as
+ * {@code Authorization: Bearer <token>}. Without a configured token the admin endpoints are disabled and answer 403;
+ * requests without the right token get a 401. Tokens are compared in constant time.
+ *
+ * @version 1.0
+ */
+@WebFilter(urlPatterns = "/admin/*", asyncSupported = true)
+public class AdminAuthenticationFilter implements Filter {
+
+    public static final String TOKEN_PROPERTY = "beacon.admin.token";
+
+    private static final String BEARER = "Bearer ";
+    private static final int UNAUTHORIZED = 401;
+    private static final int FORBIDDEN = 403;
+
+    private byte[] token;
+
+    public AdminAuthenticationFilter() {
+    }
+
+    AdminAuthenticationFilter(String token) {
+        this.token = toBytes(token);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        token = toBytes(System.getProperty(TOKEN_PROPERTY));
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (token == null) {
+            reject(httpResponse, FORBIDDEN, "Admin endpoints are disabled, set " + TOKEN_PROPERTY + " to enable them");
+            return;
+        }
+        String authorization = ((HttpServletRequest) request).getHeader("Authorization");
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())
+                || !MessageDigest.isEqual(token, authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+            httpResponse.setHeader("WWW-Authenticate", "Bearer realm=\"beacon-admin\"");
+            reject(httpResponse, UNAUTHORIZED, "Admin requests need a valid bearer token");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static byte[] toBytes(String token) {
+        return token == null || token.trim().isEmpty() ? null : token.trim().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getOutputStream().write(("{\"errorCode\":" + status + ",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.rest.provider.BeaconExceptionHandler;
+import com.dnastack.beacon.rest.provider.BeaconJsonCodec;
+import com.dnastack.beacon.service.api.AlleleRequestError;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconError;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-encoded responses to invalid allele requests. The body of such a response only depends on the validation error
+ * and the beacon id, so each one is encoded once per beacon id and then served as is.
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class AlleleErrorResponses {
+
+    @Inject
+    private BeaconInfoCache infoCache;
+
+    private volatile EncodedErrors encoded;
+
+    /**
+     * @param error validation error
+     * @return JSON error response, same as the one produced by {@link BeaconExceptionHandler} for the error
+     */
+    public Response toResponse(AlleleRequestError error) {
+        return toResponse(error, false);
+    }
+
+    /**
+     * @param error validation error
+     * @param avro  true for an Avro binary encoded response, false for JSON
+     * @return error response, same as the one produced by {@link BeaconExceptionHandler} for the error
+     */
+    public Response toResponse(AlleleRequestError error, boolean avro) {
+        return Response.status(BeaconExceptionHandler.getStatusCode(error.getReason()))
+                       .entity(encode(error, avro))
+                       .type(avro ? MediaType.valueOf(BeaconAvroCodec.APPLICATION_AVRO) : MediaType.APPLICATION_JSON_TYPE)
+                       .build();
+    }
+
+    /**
+     * @param error validation error
+     * @return JSON encoded BeaconAlleleResponse reporting the error
+     */
+    public byte[] encode(AlleleRequestError error) {
+        return encode(error, false);
+    }
+
+    /**
+     * @param error validation error
+     * @param avro  true for the Avro binary encoding, false for JSON
+     * @return encoded BeaconAlleleResponse reporting the error
+     */
+    public byte[] encode(AlleleRequestError error, boolean avro) {
+        String beaconId = infoCache.getBeaconId();
+        EncodedErrors current = encoded;
+        if (current == null || !Objects.equals(current.beaconId, beaconId)) {
+            current = new EncodedErrors(beaconId);
+            encoded = current;
+        }
+        AtomicReferenceArray<byte[]> responses = avro ? current.avroResponses : current.responses;
+        byte[] body = responses.get(error.ordinal());
+        if (body == null) {
+            BeaconAlleleResponse response = createResponse(error, beaconId);
+            body = avro ? BeaconAvroCodec.encode(response) : BeaconJsonCodec.encode(response);
+            responses.set(error.ordinal(), body);
+        }
+        return body;
+    }
+
+    private static BeaconAlleleResponse createResponse(AlleleRequestError error, String beaconId) {
+        BeaconError beaconError = new BeaconError();
+        beaconError.setErrorCode(BeaconExceptionHandler.getStatusCode(error.getReason()));
+        beaconError.setMessage(error.getMessage());
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setExists(null);
+        response.setError(beaconError);
+        response.setBeaconId(beaconId);
+        return response;
+    }
+
+    private static final class EncodedErrors {
+
+        private final String beaconId;
+        private final AtomicReferenceArray<byte[]> responses = new AtomicReferenceArray<>(AlleleRequestError.values().length);
+        private final AtomicReferenceArray<byte[]> avroResponses = new AtomicReferenceArray<>(AlleleRequestError.values().length);
+
+        private EncodedErrors(String beaconId) {
+            this.beaconId = beaconId;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Completes suspended requests with the outcome of asynchronous service calls.
+ *
+ * @version 1.0
+ */
+public final class AsyncResponses {
+
+    private AsyncResponses() {
+    }
+
+    /**
+     * Resumes the request once the future completes, or with a 503 response once the timeout passes or if the call was
+     * rejected because the adapter executor is saturated. Other failures are passed to the exception mappers.
+     *
+     * @param async         suspended request
+     * @param future        result of the service call
+     * @param timeoutMillis time to wait for the result
+     * @param onSuccess     builds the response from the result
+     * @param onUnavailable builds the 503 response from an error message
+     * @param <T>           result type
+     */
+    public static <T> void resume(AsyncResponse async, CompletableFuture<T> future, long timeoutMillis, Function<T, Response> onSuccess, Function<String, Response> onUnavailable) {
+        if (!future.isDone()) {
+            async.setTimeoutHandler(timedOut -> {
+                future.cancel(false);
+                timedOut.resume(onUnavailable.apply("No response within " + timeoutMillis + " ms"));
+            });
+            async.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((result, failure) -> {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof CancellationException) {
+                // timed out, already answered
+                return;
+            }
+            if (cause instanceof RejectedExecutionException) {
+                async.resume(onUnavailable.apply("Too many requests in progress"));
+            } else if (cause != null) {
+                async.resume(cause);
+            } else {
+                try {
+                    async.resume(onSuccess.apply(result));
+                } catch (RuntimeException e) {
+                    async.resume(e);
+                }
+            }
+        });
+    }
+}
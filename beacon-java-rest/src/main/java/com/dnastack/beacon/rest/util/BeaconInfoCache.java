@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.dnastack.beacon.rest.provider.BeaconJsonCodec;
+import com.dnastack.beacon.service.api.BeaconService;
+import org.ga4gh.beacon.Beacon;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.EntityTag;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the encoded beacon information document. The document is rebuilt only when the data version reported by the
+ * service changes; adapters that do not report a data version get a freshly built document on every call. The beacon
+ * id does not change with the data and is remembered from the last document, so responses that report it never
+ * query the beacon once the information was served.
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class BeaconInfoCache {
+
+    @Inject
+    private BeaconService service;
+
+    private volatile EncodedBeacon cached;
+    private volatile String beaconId;
+
+    /**
+     * @return encoded beacon information for the current data version
+     * @throws BeaconException if the beacon cannot be queried
+     */
+    public EncodedBeacon get() throws BeaconException {
+        long version = service.getDataVersion();
+        EncodedBeacon current = cached;
+        if (current != null && version >= 0 && current.getVersion() == version) {
+            return current;
+        }
+        return update(new EncodedBeacon(service.queryBeacon(), version));
+    }
+
+    /**
+     * Same as {@link #get()}, but without blocking the calling thread on the adapter when the document has to be
+     * rebuilt.
+     *
+     * @return future completed with the encoded beacon information for the current data version
+     */
+    public CompletableFuture<EncodedBeacon> getAsync() {
+        long version = service.getDataVersion();
+        EncodedBeacon current = cached;
+        if (current != null && version >= 0 && current.getVersion() == version) {
+            return CompletableFuture.completedFuture(current);
+        }
+        return service.queryBeaconAsync().thenApply(beacon -> update(new EncodedBeacon(beacon, version)));
+    }
+
+    private EncodedBeacon update(EncodedBeacon encoded) {
+        if (encoded.getVersion() >= 0) {
+            cached = encoded;
+        }
+        beaconId = encoded.getBeaconId();
+        return encoded;
+    }
+
+    /**
+     * @return id of the beacon, queried only if no beacon information was built yet, or null if the beacon cannot be
+     * queried
+     */
+    public String getBeaconId() {
+        String id = beaconId;
+        if (id != null) {
+            return id;
+        }
+        try {
+            return get().getBeaconId();
+        } catch (BeaconException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Beacon information encoded as JSON, plain and gzip compressed, with strong entity tags of both. The Avro binary
+     * encoding is added on first use.
+     */
+    public static final class EncodedBeacon {
+
+        private final long version;
+        private final String beaconId;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final EntityTag entityTag;
+        private final EntityTag gzipEntityTag;
+        private final Beacon beacon;
+        private volatile byte[] avro;
+        private volatile EntityTag avroEntityTag;
+
+        private EncodedBeacon(Beacon beacon, long version) {
+            this.beacon = beacon;
+            this.version = version;
+            this.beaconId = beacon.getId();
+            this.json = BeaconJsonCodec.encode(beacon);
+            this.gzip = gzip(json);
+            String digest = digest(json);
+            this.entityTag = new EntityTag(digest);
+            this.gzipEntityTag = new EntityTag(digest + "-gzip");
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getBeaconId() {
+            return beaconId;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public EntityTag getEntityTag(boolean gzipped) {
+            return gzipped ? gzipEntityTag : entityTag;
+        }
+
+        public byte[] getAvro() {
+            byte[] encoded = avro;
+            if (encoded == null) {
+                encoded = BeaconAvroCodec.encode(beacon);
+                avroEntityTag = new EntityTag(digest(encoded) + "-avro");
+                avro = encoded;
+            }
+            return encoded;
+        }
+
+        public EntityTag getAvroEntityTag() {
+            getAvro();
+            return avroEntityTag;
+        }
+
+        private static byte[] gzip(byte[] data) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        private static String digest(byte[] data) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+                StringBuilder hex = new StringBuilder(32);
+                for (int i = 0; i < 16; i++) {
+                    hex.append(Character.forDigit(hash[i] >> 4 & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
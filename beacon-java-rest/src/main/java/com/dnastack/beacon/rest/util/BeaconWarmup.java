@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.rest.provider.BeaconJsonCodec;
+import com.dnastack.beacon.rest.provider.BeaconJsonWriter;
+import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.cache.AlleleResponseCache;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.ga4gh.beacon.Beacon;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDataset;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the beacon data and warms it up when the application is deployed, instead of on the first request. An
+ * asynchronous invocation of this bean, which the container runs on its own thread with an active request context,
+ * queries the beacon information until the adapter has loaded its datasets, then replays rounds of allele queries
+ * through {@link BeaconService} and the JSON writer until a round spends less than 5% of its time in the JIT compiler,
+ * i.e. the query path runs compiled, or {@code beacon.warmup.maxSeconds} (default 60) have passed. The beacon is
+ * reported ready only afterwards.
+ * <p>
+ * Every round queries {@code beacon.warmup.queriesPerRound} (default 1000) random SNPs of the served datasets and the
+ * newline delimited JSON allele requests of the file named by {@code beacon.warmup.queries}, if set, which should be
+ * representative of real traffic. {@code beacon.warmup.enabled=false} skips the queries but still loads the data
+ * before reporting ready. Responses cached during the warm-up are dropped at its end.
+ *
+ * @version 1.0
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BeaconWarmup {
+
+    public static final String ENABLED_PROPERTY = "beacon.warmup.enabled";
+    public static final String QUERIES_PROPERTY = "beacon.warmup.queries";
+    public static final String QUERIES_PER_ROUND_PROPERTY = "beacon.warmup.queriesPerRound";
+    public static final String MAX_SECONDS_PROPERTY = "beacon.warmup.maxSeconds";
+
+    private static final Logger LOGGER = Logger.getLogger(BeaconWarmup.class.getName());
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final int MIN_ROUNDS = 3;
+    private static final int ROUNDS_WITHOUT_COMPILATION_TIME = 10;
+    private static final double MAX_COMPILATION_SHARE = 0.05;
+    private static final long LOAD_RETRY_MILLIS = 1000;
+    private static final String[] REFERENCE_NAMES = {"1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13",
+            "14", "15", "16", "17", "18", "19", "20", "21", "22", "X", "Y"};
+    private static final String[] BASES = {"A", "C", "G", "T"};
+    private static final String DEFAULT_ASSEMBLY = "GRCh37";
+
+    /**
+     * Startup phases, in order.
+     */
+    public enum Phase {
+        LOADING, WARMING_UP, READY
+    }
+
+    @Inject
+    private BeaconService service;
+
+    @Inject
+    private BeaconInfoCache infoCache;
+
+    @Inject
+    private AlleleResponseCache cache;
+
+    @Resource
+    private SessionContext context;
+
+    private volatile Phase phase = Phase.LOADING;
+    private volatile boolean stopped;
+
+    @PostConstruct
+    public void start() {
+        context.getBusinessObject(BeaconWarmup.class).run();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    /**
+     * Loads and warms up the beacon. Called once, asynchronously, when the bean starts.
+     */
+    @Asynchronous
+    public void run() {
+        try {
+            Beacon beacon = load();
+            if (Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+                phase = Phase.WARMING_UP;
+                warmUp(beacon);
+                cache.clear();
+            }
+            phase = Phase.READY;
+            LOGGER.info("Beacon is ready");
+        } catch (InterruptedException e) {
+            if (!stopped) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queries the beacon information, which makes the adapter load its data, until it succeeds.
+     *
+     * @throws InterruptedException if the bean is stopped first
+     */
+    private Beacon load() throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            checkStopped();
+            try {
+                Beacon beacon = service.queryBeacon();
+                infoCache.get();
+                return beacon;
+            } catch (BeaconException | RuntimeException e) {
+                if (attempt == 1) {
+                    LOGGER.log(Level.WARNING, "Beacon data could not be loaded, retrying", e);
+                }
+                TimeUnit.MILLISECONDS.sleep(LOAD_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private void warmUp(Beacon beacon) throws InterruptedException {
+        List<String> queries = readQueries();
+        int queriesPerRound = Integer.getInteger(QUERIES_PER_ROUND_PROPERTY, 1000);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.getLong(MAX_SECONDS_PROPERTY, 60));
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean timed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+
+        long started = System.nanoTime();
+        int rounds = 0;
+        while (System.nanoTime() - deadline < 0) {
+            checkStopped();
+            long roundStarted = System.nanoTime();
+            long compilationStarted = timed ? compiler.getTotalCompilationTime() : 0;
+            for (String query : queries) {
+                replay(query);
+            }
+            for (int i = 0; i < queriesPerRound; i++) {
+                replay(randomRequest(beacon.getDatasets()));
+            }
+            rounds++;
+            long roundMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - roundStarted);
+            if (timed) {
+                long compilationMillis = compiler.getTotalCompilationTime() - compilationStarted;
+                if (rounds >= MIN_ROUNDS && compilationMillis <= roundMillis * MAX_COMPILATION_SHARE) {
+                    break;
+                }
+            } else if (rounds >= ROUNDS_WITHOUT_COMPILATION_TIME) {
+                break;
+            }
+        }
+        LOGGER.info(String.format("Warm-up ran %d rounds in %d ms",
+                                  rounds,
+                                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)));
+    }
+
+    private void checkStopped() throws InterruptedException {
+        if (stopped) {
+            throw new InterruptedException();
+        }
+    }
+
+    private static List<String> readQueries() {
+        String file = System.getProperty(QUERIES_PROPERTY);
+        if (file == null) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> queries = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    queries.add(line);
+                }
+            }
+            return queries;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Warm-up queries could not be read from " + file, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void replay(String query) {
+        BeaconAlleleRequest request;
+        try {
+            request = GSON.fromJson(query, BeaconAlleleRequest.class);
+        } catch (JsonParseException e) {
+            return;
+        }
+        if (request != null) {
+            replay(request);
+        }
+    }
+
+    /**
+     * Answers a request the way the query resource does. Failures are of no interest here and are ignored.
+     */
+    private void replay(BeaconAlleleRequest request) {
+        if (service.validateAllele(request.getReferenceName(),
+                                   request.getStart(),
+                                   request.getReferenceBases(),
+                                   request.getAlternateBases(),
+                                   request.getAssemblyId()) != null) {
+            return;
+        }
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+        try {
+            BeaconAlleleResponse response = service.queryAlleleAsync(request).join();
+            BeaconJsonCodec.write(response, BeaconJsonWriter.get());
+        } catch (RuntimeException e) {
+            // the next query may succeed
+        }
+    }
+
+    private static BeaconAlleleRequest randomRequest(List<BeaconDataset> datasets) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName(REFERENCE_NAMES[random.nextInt(REFERENCE_NAMES.length)]);
+        request.setStart((long) random.nextInt(250000000));
+        int reference = random.nextInt(BASES.length);
+        request.setReferenceBases(BASES[reference]);
+        request.setAlternateBases(BASES[(reference + 1 + random.nextInt(BASES.length - 1)) % BASES.length]);
+        request.setIncludeDatasetResponses(random.nextBoolean());
+        if (datasets == null || datasets.isEmpty()) {
+            request.setAssemblyId(DEFAULT_ASSEMBLY);
+            return request;
+        }
+        BeaconDataset dataset = datasets.get(random.nextInt(datasets.size()));
+        request.setAssemblyId(dataset.getAssemblyId());
+        if (random.nextBoolean()) {
+            request.setDatasetIds(Collections.singletonList(dataset.getId()));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.service.limit.OverloadProtection;
+
+import javax.inject.Inject;
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds requests beyond the client quotas with a 429 and queries beyond the concurrency limit with a 503, both with a
+ * {@code Retry-After} header, before the request is parsed or reaches the adapter. Metrics, admin and readiness requests
+ * are never shed. The concurrency permit of a query is released once its response is complete, or for asynchronous ones
+ * once they complete, time out or fail.
+ *
+ * @version 1.0
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class OverloadProtectionFilter implements Filter {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final long CONCURRENCY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Inject
+    private OverloadProtection protection;
+
+    public OverloadProtectionFilter() {
+    }
+
+    OverloadProtectionFilter(OverloadProtection protection) {
+        this.protection = protection;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String path = httpRequest.getServletPath() + (httpRequest.getPathInfo() != null ? httpRequest.getPathInfo() : "");
+        if (path.startsWith("/metrics") || path.startsWith("/admin") || path.startsWith("/ready")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long wait = protection.tryAcquireQuota(clientKey(httpRequest));
+        if (wait > 0) {
+            reject(httpResponse, TOO_MANY_REQUESTS, wait, "Too many requests, retry later");
+            return;
+        }
+        if (!path.startsWith("/query")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!protection.tryAcquireConcurrency()) {
+            reject(httpResponse, SERVICE_UNAVAILABLE, CONCURRENCY_RETRY_NANOS, "Beacon is overloaded, retry later");
+            return;
+        }
+        Permit permit = new Permit(protection.nanoTime(), httpResponse);
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            permit.failed = true;
+            throw e;
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String header = protection.getApiKeyHeader();
+        String apiKey = header != null ? request.getHeader(header) : null;
+        return apiKey != null && !apiKey.isEmpty() ? "key:" + apiKey : "address:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryNanos, String message) throws IOException {
+        response.setStatus(status);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (retryNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getOutputStream().write(("{\"errorCode\":" + status + ",\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Concurrency permit of one query, released exactly once. Only queries answered without a server error adjust the
+     * limit, since the latency of a failure says little about the load.
+     */
+    private final class Permit implements AsyncListener {
+
+        private final long started;
+        private final HttpServletResponse response;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean failed;
+
+        Permit(long started, HttpServletResponse response) {
+            this.started = started;
+            this.response = response;
+        }
+
+        void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (failed || response.getStatus() >= 500) {
+                protection.releaseUnmeasured();
+            } else {
+                protection.release(started);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.service.cache.CacheStatistics;
+import com.dnastack.beacon.service.limit.OverloadProtection;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.dnastack.beacon.service.metrics.DatasetMemory;
+import com.dnastack.beacon.service.metrics.LatencyHistogram;
+import com.dnastack.beacon.service.metrics.UpstreamMetrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the beacon metrics in the Prometheus text exposition format (version 0.0.4).
+ *
+ * @version 1.0
+ */
+public final class PrometheusFormat {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Upper bounds of the exported histogram buckets, in seconds.
+     */
+    private static final String[] BUCKETS = {"0.00001", "0.000025", "0.00005", "0.0001", "0.00025", "0.0005", "0.001",
+                                             "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5",
+                                             "5", "10"};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private PrometheusFormat() {
+    }
+
+    /**
+     * @param metrics    request metrics
+     * @param cache      allele response cache statistics
+     * @param protection overload protection
+     * @return metrics in the text exposition format
+     */
+    public static String format(BeaconMetrics metrics, CacheStatistics cache, OverloadProtection protection) {
+        StringBuilder out = new StringBuilder(8192);
+
+        header(out, "beacon_stage_duration_seconds", "histogram", "Time spent in each stage of an allele request.");
+        for (BeaconMetrics.Stage stage : BeaconMetrics.Stage.values()) {
+            histogram(out, "beacon_stage_duration_seconds", "stage", stage.name().toLowerCase(Locale.ROOT), metrics.getStage(stage));
+        }
+
+        header(out, "beacon_dataset_lookup_duration_seconds", "histogram", "Time spent looking up an allele in a dataset.");
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(metrics.getDatasetLookups()).entrySet()) {
+            histogram(out, "beacon_dataset_lookup_duration_seconds", "dataset", e.getKey(), e.getValue());
+        }
+
+        Map<String, DatasetMemory> memory = new TreeMap<>(metrics.getDatasetMemory());
+        if (!memory.isEmpty()) {
+            header(out, "beacon_dataset_memory_bytes", "gauge", "Memory held by a dataset outside the heap, by kind.");
+            for (Map.Entry<String, DatasetMemory> e : memory.entrySet()) {
+                out.append("beacon_dataset_memory_bytes{dataset=\"").append(escape(e.getKey()))
+                   .append("\",kind=\"mapped\"} ").append(e.getValue().getMappedBytes()).append('\n');
+                out.append("beacon_dataset_memory_bytes{dataset=\"").append(escape(e.getKey()))
+                   .append("\",kind=\"direct\"} ").append(e.getValue().getDirectBytes()).append('\n');
+            }
+        }
+
+        Map<String, UpstreamMetrics> upstreams = new TreeMap<>(metrics.getUpstreams());
+        if (!upstreams.isEmpty()) {
+            header(out, "beacon_upstream_duration_seconds", "histogram", "Time spent waiting for an upstream beacon.");
+            for (Map.Entry<String, UpstreamMetrics> e : upstreams.entrySet()) {
+                histogram(out, "beacon_upstream_duration_seconds", "upstream", e.getKey(), e.getValue().getLatency());
+            }
+            header(out, "beacon_upstream_events_total", "counter", "Queries to upstream beacons by event.");
+            for (Map.Entry<String, UpstreamMetrics> e : upstreams.entrySet()) {
+                for (UpstreamMetrics.Event event : UpstreamMetrics.Event.values()) {
+                    out.append("beacon_upstream_events_total{upstream=\"").append(escape(e.getKey()))
+                       .append("\",event=\"").append(event.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                       .append(e.getValue().getCount(event)).append('\n');
+                }
+            }
+        }
+
+        header(out, "beacon_allele_responses_total", "counter", "Allele responses by outcome.");
+        for (BeaconMetrics.Outcome outcome : BeaconMetrics.Outcome.values()) {
+            sample(out, "beacon_allele_responses_total", "outcome", outcome.name().toLowerCase(Locale.ROOT), null, metrics.getOutcomeCount(outcome));
+        }
+
+        counter(out, "beacon_cache_hits_total", "Allele response cache hits.", cache.getHitCount());
+        counter(out, "beacon_cache_misses_total", "Allele response cache misses.", cache.getMissCount());
+        counter(out, "beacon_cache_evictions_total", "Allele responses evicted from the cache to make room.", cache.getEvictionCount());
+        counter(out, "beacon_cache_expirations_total", "Allele responses dropped from the cache when their TTL passed.", cache.getExpirationCount());
+        counter(out, "beacon_cache_invalidations_total", "Allele responses dropped from the cache on data reload.", cache.getInvalidationCount());
+        header(out, "beacon_cache_size", "gauge", "Allele responses held by the cache.");
+        sample(out, "beacon_cache_size", null, null, null, cache.getSize());
+        header(out, "beacon_data_version", "gauge", "Version of the data served by the adapter.");
+        sample(out, "beacon_data_version", null, null, null, cache.getDataVersion());
+        header(out, "beacon_shed_requests_total", "counter", "Requests rejected by the overload protection.");
+        for (OverloadProtection.Shed reason : OverloadProtection.Shed.values()) {
+            sample(out, "beacon_shed_requests_total", "reason", reason.name().toLowerCase(Locale.ROOT), null, protection.getShedCount(reason));
+        }
+        header(out, "beacon_concurrency_limit", "gauge", "Current adaptive limit of concurrent queries, 0 if off.");
+        sample(out, "beacon_concurrency_limit", null, null, null, protection.getConcurrencyLimit());
+        header(out, "beacon_queries_in_flight", "gauge", "Queries holding a concurrency permit.");
+        sample(out, "beacon_queries_in_flight", null, null, null, protection.getInFlight());
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String label, String value, LatencyHistogram histogram) {
+        // the count is read first so the buckets, recorded concurrently, are never above it
+        long count = histogram.getCount();
+        for (String bound : BUCKETS) {
+            long bucket = Math.min(histogram.getCountAtOrBelow((long) (Double.parseDouble(bound) * NANOS_PER_SECOND)), count);
+            sample(out, name + "_bucket", label, value, bound, bucket);
+        }
+        sample(out, name + "_bucket", label, value, "+Inf", count);
+        out.append(name).append("_sum{").append(label).append("=\"").append(escape(value)).append("\"} ")
+           .append(histogram.getSum() / NANOS_PER_SECOND).append('\n');
+        sample(out, name + "_count", label, value, null, count);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        sample(out, name, null, null, null, value);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, String le, long sample) {
+        out.append(name);
+        if (label != null || le != null) {
+            out.append('{');
+            if (label != null) {
+                out.append(label).append("=\"").append(escape(value)).append('"');
+            }
+            if (le != null) {
+                out.append(label != null ? "," : "").append("le=\"").append(le).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(sample).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
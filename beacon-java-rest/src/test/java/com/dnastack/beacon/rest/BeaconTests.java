@@ -23,6 +23,8 @@
  */
 package com.dnastack.beacon.rest;
 
+import com.dnastack.beacon.rest.provider.BeaconAvroCodec;
+import com.google.gson.Gson;
 import com.jayway.restassured.http.ContentType;
 import com.jayway.restassured.internal.mapper.ObjectMapperType;
 import org.ga4gh.beacon.Beacon;
@@ -42,10 +44,14 @@ import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 import static com.jayway.restassured.RestAssured.given;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 
 /**
@@ -58,6 +64,7 @@ import static org.hamcrest.Matchers.not;
 public class BeaconTests {
 
     private static final String API_VERSION = "0.3.0";
+    private static final long READY_TIMEOUT_SECONDS = 120;
 
     @ArquillianResource
     public URL baseUrl;
@@ -100,6 +107,28 @@ public class BeaconTests {
         assertThat(beacon.getDatasets().size()).isGreaterThanOrEqualTo(1);
     }
 
+    /**
+     * Test that the beacon is served with an ETag and that a conditional request with it is answered with 304
+     */
+    @Test
+    public void testGetBeaconNotModified() {
+        String etag = given().accept(ContentType.JSON)
+                             .get(baseUrl)
+                             .then()
+                             .assertThat()
+                             .statusCode(200)
+                             .extract()
+                             .header("ETag");
+
+        assertThat(etag).isNotEmpty();
+        given().accept(ContentType.JSON)
+               .header("If-None-Match", etag)
+               .get(baseUrl)
+               .then()
+               .assertThat()
+               .statusCode(304);
+    }
+
     /**
      * Ensure that posts to the beacon endpoint are not supported
      */
@@ -358,4 +387,120 @@ public class BeaconTests {
         assertThat(out.getDatasetAlleleResponses()).isNullOrEmpty();
     }
 
+    /**
+     * Test to ensure that a batch of requests is answered line by line, in order, with errors reported per request
+     */
+    @Test
+    public void testBatchQuery() {
+        Beacon beacon = given().accept(ContentType.JSON)
+                               .get(baseUrl)
+                               .then()
+                               .extract()
+                               .as(Beacon.class, ObjectMapperType.GSON);
+        BeaconAlleleRequest request = beacon.getSampleAlleleRequests().get(0);
+        Gson gson = new Gson();
+        BeaconAlleleRequest invalid = gson.fromJson(gson.toJson(request), BeaconAlleleRequest.class);
+        invalid.setReferenceName(null);
+
+        String body = gson.toJson(request) + "\n" + gson.toJson(invalid) + "\n\n" + gson.toJson(request) + "\n";
+        String out = given().contentType("application/x-ndjson")
+                            .accept("application/x-ndjson")
+                            .body(body)
+                            .post(baseUrl + "query/batch")
+                            .then()
+                            .assertThat()
+                            .statusCode(200)
+                            .extract()
+                            .asString();
+
+        String[] lines = out.split("\n");
+        assertThat(lines).hasSize(3);
+        BeaconAlleleResponse first = gson.fromJson(lines[0], BeaconAlleleResponse.class);
+        BeaconAlleleResponse second = gson.fromJson(lines[1], BeaconAlleleResponse.class);
+        BeaconAlleleResponse third = gson.fromJson(lines[2], BeaconAlleleResponse.class);
+        assertThat(first.getExists()).isTrue();
+        assertThat(first.getBeaconId()).isEqualTo(beacon.getId());
+        assertThat(second.getExists()).isNull();
+        assertThat(second.getError().getErrorCode()).isEqualTo(400);
+        assertThat(second.getBeaconId()).isEqualTo(beacon.getId());
+        assertThat(third.getExists()).isTrue();
+    }
+
+    /**
+     * Test that an allele request and its response can be exchanged in the Avro binary encoding
+     */
+    @Test
+    public void testPostAlleleAvro() throws IOException {
+        Beacon beacon = given().accept(ContentType.JSON)
+                               .get(baseUrl)
+                               .then()
+                               .extract()
+                               .as(Beacon.class, ObjectMapperType.GSON);
+        BeaconAlleleRequest request = beacon.getSampleAlleleRequests().get(0);
+
+        byte[] out = given().contentType(BeaconAvroCodec.APPLICATION_AVRO)
+                            .accept(BeaconAvroCodec.APPLICATION_AVRO)
+                            .body(BeaconAvroCodec.encode(request))
+                            .post(baseUrl + "query")
+                            .then()
+                            .assertThat()
+                            .statusCode(200)
+                            .contentType(BeaconAvroCodec.APPLICATION_AVRO)
+                            .extract()
+                            .asByteArray();
+        BeaconAlleleResponse response = BeaconAvroCodec.read(BeaconAlleleResponse.class, new ByteArrayInputStream(out));
+
+        assertThat(response.getAlleleRequest()).isEqualByComparingTo(request);
+        assertThat(response.getExists()).isTrue();
+        assertThat(response.getBeaconId()).isEqualTo(beacon.getId());
+    }
+
+    /**
+     * Test that a streamed batch is compressed for a client accepting gzip
+     */
+    @Test
+    public void testBatchQueryGzip() {
+        Beacon beacon = given().accept(ContentType.JSON)
+                               .get(baseUrl)
+                               .then()
+                               .extract()
+                               .as(Beacon.class, ObjectMapperType.GSON);
+        Gson gson = new Gson();
+        String line = gson.toJson(beacon.getSampleAlleleRequests().get(0)) + "\n";
+
+        String out = given().contentType("application/x-ndjson")
+                            .accept("application/x-ndjson")
+                            .header("Accept-Encoding", "gzip")
+                            .body(line + line)
+                            .post(baseUrl + "query/batch")
+                            .then()
+                            .assertThat()
+                            .statusCode(200)
+                            .header("Content-Encoding", "gzip")
+                            .extract()
+                            .asString();
+
+        assertThat(out.split("\n")).hasSize(2);
+    }
+
+    /**
+     * Test that the beacon reports itself ready once the deployment has loaded and warmed up its data
+     */
+    @Test
+    public void testReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(READY_TIMEOUT_SECONDS);
+        int status;
+        while ((status = given().accept(ContentType.JSON).get(baseUrl + "ready").statusCode()) != 200
+                && System.nanoTime() - deadline < 0) {
+            assertThat(status).isEqualTo(503);
+            TimeUnit.MILLISECONDS.sleep(250);
+        }
+
+        given().accept(ContentType.JSON)
+               .get(baseUrl + "ready")
+               .then()
+               .assertThat()
+               .statusCode(200)
+               .body("phase", equalTo("READY"));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.perf;
+
+import com.google.gson.GsonBuilder;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.archive.importer.MavenImporter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and latency of the deployed beacon under a closed and an open loop workload, run with the test-perf
+ * profile. The datasets are written to beacon.load.dataDir before the deployment, the container is expected to serve
+ * them through beacon.sample.indexPath. Results are printed and written as JSON to beacon.load.report. Setting
+ * beacon.load.maxP99Millis fails the test when the corrected p99 latency of a run exceeds it.
+ *
+ * @version 1.0
+ */
+@RunWith(Arquillian.class)
+@RunAsClient
+public class BeaconLoadTest {
+
+    private static final Workload WORKLOAD = new Workload();
+
+    @ArquillianResource
+    public URL baseUrl;
+
+    @Deployment(testable = false)
+    public static WebArchive createDeployment() {
+        // the adapter reads its indexes when the deployment starts, so they have to be in place before
+        try {
+            WORKLOAD.writeDatasets(Paths.get(System.getProperty("beacon.load.dataDir", "target/load-test-data")));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ShrinkWrap.create(MavenImporter.class).loadPomFromFile("pom.xml").importBuildOutput().as(WebArchive.class);
+    }
+
+    @Test
+    public void testThroughputAndLatency() throws Exception {
+        long warmup = TimeUnit.SECONDS.toNanos(Integer.getInteger("beacon.load.warmupSeconds", 10));
+        long duration = TimeUnit.SECONDS.toNanos(Integer.getInteger("beacon.load.durationSeconds", 30));
+        int clients = Integer.getInteger("beacon.load.clients", 16);
+        double rate = Double.parseDouble(System.getProperty("beacon.load.rate", "1000"));
+        int connections = Integer.getInteger("beacon.load.connections", 64);
+
+        LoadGenerator generator = new LoadGenerator(baseUrl, WORKLOAD);
+        List<LoadResult> results = new ArrayList<>();
+        results.add(generator.closedLoop(clients, warmup, duration));
+        results.add(generator.openLoop(rate, connections, warmup, duration));
+
+        System.out.println("Workload: " + WORKLOAD);
+        for (LoadResult result : results) {
+            System.out.println(result);
+        }
+        writeReport(Paths.get(System.getProperty("beacon.load.report", "target/load-test-results.json")), results);
+
+        String maxP99 = System.getProperty("beacon.load.maxP99Millis");
+        for (LoadResult result : results) {
+            assertThat(result.getRequests()).as(result.getName() + " requests").isPositive();
+            assertThat(result.getFailures()).as(result.getName() + " failures").isZero();
+            assertThat(result.getWrongAnswers()).as(result.getName() + " wrong answers").isZero();
+            if (maxP99 != null) {
+                assertThat(result.getLatencyMillis(0.99)).as(result.getName() + " p99")
+                                                         .isLessThanOrEqualTo(Double.parseDouble(maxP99));
+            }
+        }
+    }
+
+    private static void writeReport(Path path, List<LoadResult> results) throws IOException {
+        Map<String, Object> workload = new LinkedHashMap<>();
+        workload.put("datasets", WORKLOAD.datasets);
+        workload.put("variants", WORKLOAD.variants);
+        workload.put("hitRatio", WORKLOAD.hitRatio);
+        workload.put("malformedRatio", WORKLOAD.malformedRatio);
+        workload.put("getQueryWeight", WORKLOAD.getQueryWeight);
+        workload.put("postQueryWeight", WORKLOAD.postQueryWeight);
+        workload.put("infoWeight", WORKLOAD.infoWeight);
+        List<Object> runs = new ArrayList<>();
+        for (LoadResult result : results) {
+            runs.add(result.toMap());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("workload", workload);
+        report.put("runs", runs);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create().toJson(report, writer);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of a {@link Workload} to a running beacon, either from a fixed number of clients sending their
+ * next request as soon as the previous one is answered (closed loop), or at a fixed rate regardless of how fast the
+ * beacon answers (open loop). Connections are kept alive, so http.maxConnections should be at least the number of
+ * clients.
+ *
+ * @version 1.0
+ */
+final class LoadGenerator {
+
+    private static final byte[] EXISTS = "\"exists\":true".getBytes(StandardCharsets.UTF_8);
+
+    private final URL baseUrl;
+    private final Workload workload;
+
+    LoadGenerator(URL baseUrl, Workload workload) {
+        this.baseUrl = baseUrl;
+        this.workload = workload;
+    }
+
+    /**
+     * Runs a closed loop. The warm-up also measures the mean service time, which is used as the expected interval for
+     * the coordinated omission correction.
+     *
+     * @param clients       number of concurrent clients
+     * @param warmupNanos   warm-up time, not recorded
+     * @param durationNanos measured time
+     * @return result of the measured time
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    LoadResult closedLoop(int clients, long warmupNanos, long durationNanos) throws InterruptedException {
+        LoadResult warmup = new LoadResult("warmup", 0);
+        runClosed(warmup, clients, warmupNanos);
+        long expectedInterval = warmup.getRequests() == 0 ? 0 : warmupNanos * clients / warmup.getRequests();
+        LoadResult result = new LoadResult("closed-" + clients, expectedInterval);
+        runClosed(result, clients, durationNanos);
+        return result;
+    }
+
+    private void runClosed(LoadResult result, int clients, long durationNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Random random = new Random(i);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    send(workload.next(random), System.nanoTime(), result);
+                }
+            }, "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs an open loop. Latency is measured from the time each request was due, so time spent queued behind slow
+     * responses counts against the beacon.
+     *
+     * @param rate          requests per second
+     * @param connections   maximum number of requests in flight
+     * @param warmupNanos   warm-up time, not recorded
+     * @param durationNanos measured time
+     * @return result of the measured time
+     * @throws InterruptedException if interrupted while scheduling or waiting for the requests
+     */
+    LoadResult openLoop(double rate, int connections, long warmupNanos, long durationNanos) throws InterruptedException {
+        runOpen(new LoadResult("warmup", 0), rate, connections, warmupNanos);
+        LoadResult result = new LoadResult("open-" + (long) rate + "/s", 0);
+        runOpen(result, rate, connections, durationNanos);
+        return result;
+    }
+
+    private void runOpen(LoadResult result, double rate, int connections, long durationNanos) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        Random random = new Random(-1);
+        double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * interval);
+                if (intended - start >= durationNanos) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Request request = workload.next(random);
+                executor.execute(() -> send(request, intended, result));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        result.setElapsedNanos(System.nanoTime() - start);
+    }
+
+    private void send(Workload.Request request, long intendedNanos, LoadResult result) {
+        long sent = System.nanoTime();
+        int status = -1;
+        boolean exists = false;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl, request.path).openConnection();
+            connection.setRequestProperty("Accept", "application/json");
+            if (request.body != null) {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(request.body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.body);
+                }
+            }
+            status = connection.getResponseCode();
+            // the body is read to the end so the connection can be reused
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    exists = contains(readFully(body), EXISTS);
+                }
+            }
+        } catch (IOException e) {
+            status = -1;
+        }
+        result.record(request, intendedNanos, sent, System.nanoTime(), status, exists);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean contains(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
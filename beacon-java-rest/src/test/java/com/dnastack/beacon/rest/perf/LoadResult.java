@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.perf;
+
+import com.dnastack.beacon.service.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures of one load test run. Latency is corrected for coordinated omission: in an open loop it is
+ * measured from the time the request was scheduled to be sent, in a closed loop requests which took longer than the
+ * expected interval are back-filled with the samples a steady client would have seen while waiting, as HdrHistogram
+ * does. Service time is the uncorrected time between sending the request and reading the whole response.
+ *
+ * @version 1.0
+ */
+final class LoadResult {
+
+    private final String name;
+    private final long expectedIntervalNanos;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final Map<Workload.Endpoint, LatencyHistogram> endpoints = new EnumMap<>(Workload.Endpoint.class);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder wrongAnswers = new LongAdder();
+    private volatile long elapsedNanos;
+
+    /**
+     * @param name                  name of the run
+     * @param expectedIntervalNanos expected time between the requests of one closed loop client, 0 in an open loop
+     */
+    LoadResult(String name, long expectedIntervalNanos) {
+        this.name = name;
+        this.expectedIntervalNanos = expectedIntervalNanos;
+        for (Workload.Endpoint endpoint : Workload.Endpoint.values()) {
+            endpoints.put(endpoint, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * @param request        request sent
+     * @param intendedNanos  time the request was scheduled to be sent, same as sentNanos in a closed loop
+     * @param sentNanos      time the request was sent
+     * @param completedNanos time the response was read
+     * @param status         HTTP status of the response, -1 if the request failed
+     * @param exists         whether the response reported the allele to exist
+     */
+    void record(Workload.Request request, long intendedNanos, long sentNanos, long completedNanos, int status, boolean exists) {
+        long value = completedNanos - intendedNanos;
+        LatencyHistogram endpoint = endpoints.get(request.endpoint);
+        latency.record(value);
+        endpoint.record(value);
+        if (expectedIntervalNanos > 0) {
+            for (long missing = value - expectedIntervalNanos; missing >= expectedIntervalNanos; missing -= expectedIntervalNanos) {
+                latency.record(missing);
+                endpoint.record(missing);
+            }
+        }
+        serviceTime.record(completedNanos - sentNanos);
+        if (status != request.expectedStatus) {
+            failures.increment();
+        } else if (status == 200 && request.endpoint != Workload.Endpoint.INFO && exists != request.expectedExists) {
+            wrongAnswers.increment();
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getRequests() {
+        return serviceTime.getCount();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getWrongAnswers() {
+        return wrongAnswers.sum();
+    }
+
+    double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getRequests() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @param quantile quantile between 0 and 1
+     * @return corrected latency at the quantile in milliseconds
+     */
+    double getLatencyMillis(double quantile) {
+        return millis(latency.getValueAtQuantile(quantile));
+    }
+
+    /**
+     * @return summary of the run, for the JSON report
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", name);
+        map.put("requests", getRequests());
+        map.put("durationSeconds", elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+        map.put("throughput", getThroughput());
+        map.put("failures", getFailures());
+        map.put("wrongAnswers", getWrongAnswers());
+        map.put("expectedIntervalMillis", millis(expectedIntervalNanos));
+        map.put("latencyMillis", quantiles(latency));
+        map.put("serviceTimeMillis", quantiles(serviceTime));
+        Map<String, Object> byEndpoint = new LinkedHashMap<>();
+        for (Map.Entry<Workload.Endpoint, LatencyHistogram> e : endpoints.entrySet()) {
+            byEndpoint.put(e.getKey().name(), quantiles(e.getValue()));
+        }
+        map.put("latencyMillisByEndpoint", byEndpoint);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-12s %9d req %9.1f req/s  p50 %8.3f  p99 %8.3f  p99.9 %8.3f  max %8.3f ms  (service p99 %8.3f ms)  failures %d  wrong %d",
+                             name,
+                             getRequests(),
+                             getThroughput(),
+                             getLatencyMillis(0.5),
+                             getLatencyMillis(0.99),
+                             getLatencyMillis(0.999),
+                             getLatencyMillis(1),
+                             millis(serviceTime.getValueAtQuantile(0.99)),
+                             getFailures(),
+                             getWrongAnswers());
+    }
+
+    private static Map<String, Object> quantiles(LatencyHistogram histogram) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", histogram.getCount());
+        map.put("p50", millis(histogram.getValueAtQuantile(0.5)));
+        map.put("p99", millis(histogram.getValueAtQuantile(0.99)));
+        map.put("p99.9", millis(histogram.getValueAtQuantile(0.999)));
+        map.put("max", millis(histogram.getValueAtQuantile(1)));
+        return map;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.perf;
+
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Request mix of the load test and the datasets it runs against. All settings are read from system properties so
+ * the same suite covers different workloads:
+ * <ul>
+ * <li>beacon.load.datasets - number of datasets (4)</li>
+ * <li>beacon.load.variants - variants per dataset (100000)</li>
+ * <li>beacon.load.hitRatio - share of allele queries for present alleles (0.5)</li>
+ * <li>beacon.load.malformedRatio - share of requests that are invalid (0.05)</li>
+ * <li>beacon.load.getQueryWeight, beacon.load.postQueryWeight, beacon.load.infoWeight - relative shares of
+ * GET /query, POST /query and GET / (70, 20, 10)</li>
+ * </ul>
+ * Every dataset holds a SNV at each multiple of {@link #STEP}, so present and absent alleles are computed rather than
+ * sampled from the data.
+ *
+ * @version 1.0
+ */
+final class Workload {
+
+    static final String ASSEMBLY_ID = "GRCh37";
+    static final String REFERENCE_NAME = "1";
+    static final int STEP = 10;
+
+    private static final String BASES = "ACGT";
+
+    /**
+     * Kind of request sent to the beacon.
+     */
+    enum Endpoint {
+        GET_QUERY, POST_QUERY, INFO
+    }
+
+    /**
+     * One request of the workload.
+     */
+    static final class Request {
+        final Endpoint endpoint;
+        final String path;
+        final byte[] body;
+        final int expectedStatus;
+        final boolean expectedExists;
+
+        Request(Endpoint endpoint, String path, byte[] body, int expectedStatus, boolean expectedExists) {
+            this.endpoint = endpoint;
+            this.path = path;
+            this.body = body;
+            this.expectedStatus = expectedStatus;
+            this.expectedExists = expectedExists;
+        }
+    }
+
+    final int datasets;
+    final int variants;
+    final double hitRatio;
+    final double malformedRatio;
+    final int getQueryWeight;
+    final int postQueryWeight;
+    final int infoWeight;
+
+    private final String datasetIds;
+
+    Workload() {
+        datasets = Integer.getInteger("beacon.load.datasets", 4);
+        variants = Integer.getInteger("beacon.load.variants", 100000);
+        hitRatio = Double.parseDouble(System.getProperty("beacon.load.hitRatio", "0.5"));
+        malformedRatio = Double.parseDouble(System.getProperty("beacon.load.malformedRatio", "0.05"));
+        getQueryWeight = Integer.getInteger("beacon.load.getQueryWeight", 70);
+        postQueryWeight = Integer.getInteger("beacon.load.postQueryWeight", 20);
+        infoWeight = Integer.getInteger("beacon.load.infoWeight", 10);
+        StringBuilder ids = new StringBuilder();
+        for (int dataset = 0; dataset < datasets; dataset++) {
+            ids.append(ids.length() == 0 ? "" : ",").append(datasetId(dataset));
+        }
+        datasetIds = ids.toString();
+    }
+
+    static String datasetId(int dataset) {
+        return "load-" + dataset;
+    }
+
+    /**
+     * Writes the datasets of the workload, replacing the index files in the directory.
+     *
+     * @param directory directory the beacon loads its indexes from
+     * @throws IOException if an index cannot be written
+     */
+    void writeDatasets(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        for (int dataset = 0; dataset < datasets; dataset++) {
+            try (IndexWriter writer = new IndexWriter(directory.resolve(datasetId(dataset) + IndexFormat.FILE_EXTENSION), datasetId(dataset))) {
+                writer.startContig(ASSEMBLY_ID, REFERENCE_NAME);
+                for (long i = 0; i < variants; i++) {
+                    writer.add(i * STEP, referenceBases(i), alternateBases(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param random source of randomness, one per thread
+     * @return next request of the mix
+     */
+    Request next(Random random) {
+        int pick = random.nextInt(getQueryWeight + postQueryWeight + infoWeight);
+        if (pick >= getQueryWeight + postQueryWeight) {
+            return new Request(Endpoint.INFO, "", null, 200, false);
+        }
+        Endpoint endpoint = pick < getQueryWeight ? Endpoint.GET_QUERY : Endpoint.POST_QUERY;
+        boolean malformed = random.nextDouble() < malformedRatio;
+        boolean hit = !malformed && random.nextDouble() < hitRatio;
+        long variant = random.nextInt(variants);
+        long start = variant * STEP + (hit ? 0 : STEP / 2);
+        String referenceBases = referenceBases(variant);
+        String alternateBases = alternateBases(variant);
+        // a malformed query lacks its reference name
+        if (endpoint == Endpoint.GET_QUERY) {
+            String path = "query?" + (malformed ? "" : "referenceName=" + REFERENCE_NAME + "&") + "start=" + start
+                    + "&referenceBases=" + referenceBases + "&alternateBases=" + alternateBases + "&assemblyId="
+                    + ASSEMBLY_ID + "&datasetIds=" + datasetIds;
+            return new Request(endpoint, path, null, malformed ? 400 : 200, hit);
+        }
+        String json = "{" + (malformed ? "" : "\"referenceName\":\"" + REFERENCE_NAME + "\",") + "\"start\":" + start
+                + ",\"referenceBases\":\"" + referenceBases + "\",\"alternateBases\":\"" + alternateBases
+                + "\",\"assemblyId\":\"" + ASSEMBLY_ID + "\",\"datasetIds\":[\"" + datasetIds.replace(",", "\",\"") + "\"]}";
+        return new Request(endpoint, "query", json.getBytes(StandardCharsets.UTF_8), malformed ? 400 : 200, hit);
+    }
+
+    private static String referenceBases(long variant) {
+        return String.valueOf(BASES.charAt((int) (variant & 3)));
+    }
+
+    private static String alternateBases(long variant) {
+        return String.valueOf(BASES.charAt((int) ((variant + 1) & 3)));
+    }
+
+    @Override
+    public String toString() {
+        return "datasets=" + datasets + " variants=" + variants + " hitRatio=" + hitRatio + " malformedRatio="
+                + malformedRatio + " mix(GET /query, POST /query, GET /)=" + getQueryWeight + "/" + postQueryWeight
+                + "/" + infoWeight;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import com.google.gson.Gson;
+import org.ga4gh.beacon.*;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the output of the hand-written codecs with Gson's reflective serialization.
+ */
+public class BeaconJsonCodecTest {
+
+    private static final String AWKWARD = "quote\" backslash\\ <tag> a&b=c 'x' \t\n\r\b\f \u0001 \u2028\u2029 é 漢 🧬";
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void testAlleleResponseMatchesGson() {
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId(AWKWARD);
+        response.setExists(true);
+        response.setAlleleRequest(request());
+        BeaconDatasetAlleleResponse full = new BeaconDatasetAlleleResponse();
+        full.setDatasetId("dataset");
+        full.setExists(false);
+        full.setError(error());
+        full.setFrequency(0.221);
+        full.setVariantCount(Long.MAX_VALUE);
+        full.setCallCount(-1L);
+        full.setSampleCount(0L);
+        full.setNote(AWKWARD);
+        full.setExternalUrl("http://example.org/?a=1&b=2");
+        full.setInfo(info());
+        response.setDatasetAlleleResponses(Arrays.asList(full, new BeaconDatasetAlleleResponse(), null));
+
+        assertMatchesGson(response);
+        assertMatchesGson(new BeaconAlleleResponse());
+    }
+
+    @Test
+    public void testErrorResponseMatchesGson() {
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setError(error());
+        assertMatchesGson(response);
+        assertMatchesGson(error());
+    }
+
+    @Test
+    public void testBeaconMatchesGson() {
+        BeaconOrganization organization = new BeaconOrganization();
+        organization.setId("org");
+        organization.setName(AWKWARD);
+        organization.setAddress("1 Street");
+        organization.setLogoUrl("http://example.org/logo.png");
+        organization.setInfo(Collections.unmodifiableMap(info()));
+
+        BeaconDataset dataset = new BeaconDataset();
+        dataset.setId("dataset");
+        dataset.setAssemblyId("GRCh37");
+        dataset.setVariantCount(12L);
+        dataset.setSampleCount(3L);
+        dataset.setInfo(new HashMap<>());
+
+        Beacon beacon = new Beacon();
+        beacon.setId("beacon");
+        beacon.setName("Beacon");
+        beacon.setApiVersion("0.3.0");
+        beacon.setOrganization(organization);
+        beacon.setCreateDateTime(new Date().toString());
+        beacon.setDatasets(Arrays.asList(dataset, dataset));
+        beacon.setSampleAlleleRequests(Collections.singletonList(request()));
+        beacon.setInfo(organization.getInfo());
+
+        // twice, the second time with the cached info map
+        assertMatchesGson(beacon);
+        assertMatchesGson(beacon);
+    }
+
+    private void assertMatchesGson(Object value) {
+        String expected = gson.toJson(value);
+        assertThat(new String(BeaconJsonCodec.encode(value), StandardCharsets.UTF_8)).isEqualTo(expected);
+    }
+
+    private static BeaconAlleleRequest request() {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName("X");
+        request.setStart(0L);
+        request.setReferenceBases("ACGT");
+        request.setAlternateBases("<DEL>");
+        request.setAssemblyId("GRCh37");
+        request.setDatasetIds(Arrays.asList("a", null, AWKWARD));
+        request.setIncludeDatasetResponses(false);
+        return request;
+    }
+
+    private static BeaconError error() {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(400);
+        error.setMessage(AWKWARD);
+        return error;
+    }
+
+    private static Map<String, String> info() {
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("note", AWKWARD);
+        info.put("missing", null);
+        info.put(AWKWARD, "value");
+        return info;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that lengths and block counts over the limit are refused before anything is allocated for them.
+ */
+public class BoundedDecoderTest {
+
+    private static final int LIMIT = 16;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    public void testStringWithinLimitIsRead() throws IOException {
+        byte[] value = "GRCh37".getBytes(StandardCharsets.UTF_8);
+        writeLong(value.length);
+        out.write(value);
+
+        assertThat(decoder().readString()).isEqualTo("GRCh37");
+    }
+
+    @Test(expected = AvroRuntimeException.class)
+    public void testForgedStringLengthIsRefused() throws IOException {
+        writeLong(Integer.MAX_VALUE);
+
+        decoder().readString();
+    }
+
+    @Test(expected = AvroRuntimeException.class)
+    public void testForgedBytesLengthIsRefused() throws IOException {
+        writeLong(LIMIT + 1);
+
+        decoder().readBytes(null);
+    }
+
+    @Test(expected = AvroRuntimeException.class)
+    public void testNegativeLengthIsRefused() throws IOException {
+        writeLong(-1);
+
+        decoder().readString(null);
+    }
+
+    @Test(expected = AvroRuntimeException.class)
+    public void testForgedArrayBlockIsRefused() throws IOException {
+        writeLong(1L << 40);
+
+        decoder().readArrayStart();
+    }
+
+    @Test(expected = AvroRuntimeException.class)
+    public void testForgedLaterMapBlockIsRefused() throws IOException {
+        writeLong(0);
+        writeLong(LIMIT * 2);
+
+        BoundedDecoder decoder = decoder();
+        assertThat(decoder.readMapStart()).isZero();
+        decoder.mapNext();
+    }
+
+    private BoundedDecoder decoder() {
+        return new BoundedDecoder(DecoderFactory.get().binaryDecoder(new ByteArrayInputStream(out.toByteArray()), null), LIMIT);
+    }
+
+    /**
+     * Writes a long in the zig-zag variable length encoding of Avro.
+     */
+    private void writeLong(long value) {
+        long n = (value << 1) ^ (value >> 63);
+        while ((n & ~0x7FL) != 0) {
+            out.write((int) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        out.write((int) n);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.provider;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that compressed bodies decode with the JDK's own streams and that small bodies are left alone.
+ */
+public class CompressingOutputStreamTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final List<String> codings = new ArrayList<>();
+
+    @Test
+    public void testSmallBodyIsNotCompressed() throws IOException {
+        byte[] body = "{\"exists\":true}".getBytes(StandardCharsets.UTF_8);
+        CompressingOutputStream stream = stream(CompressingOutputStream.GZIP, false);
+        stream.write(body);
+        stream.flush();
+        stream.finish();
+
+        assertThat(codings).isEmpty();
+        assertThat(out.toString("UTF-8")).isEqualTo("{\"exists\":true}");
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        byte[] body = body(100000);
+        CompressingOutputStream stream = stream(CompressingOutputStream.GZIP, false);
+        stream.write(body, 0, 10);
+        stream.write(body, 10, body.length - 10);
+        stream.finish();
+
+        assertThat(codings).containsExactly(CompressingOutputStream.GZIP);
+        assertThat(out.size()).isLessThan(body.length / 4);
+        assertThat(Arrays.equals(read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))), body)).isTrue();
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws IOException {
+        byte[] body = body(5000);
+        CompressingOutputStream stream = stream(CompressingOutputStream.DEFLATE, false);
+        stream.write(body);
+        stream.finish();
+
+        assertThat(codings).containsExactly(CompressingOutputStream.DEFLATE);
+        assertThat(Arrays.equals(read(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))), body)).isTrue();
+    }
+
+    @Test
+    public void testStreamingFlushesEveryLine() throws IOException {
+        CompressingOutputStream stream = stream(CompressingOutputStream.GZIP, true);
+        stream.write("{\"exists\":false}\n".getBytes(StandardCharsets.UTF_8));
+        stream.flush();
+        int flushed = out.size();
+        stream.finish();
+
+        assertThat(codings).containsExactly(CompressingOutputStream.GZIP);
+        assertThat(flushed).isGreaterThan(10);
+        assertThat(new String(read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))), StandardCharsets.UTF_8))
+                .isEqualTo("{\"exists\":false}\n");
+    }
+
+    @Test
+    public void testNegotiation() {
+        assertThat(CompressionInterceptor.negotiate(null)).isNull();
+        assertThat(CompressionInterceptor.negotiate(Collections.singletonList("identity"))).isNull();
+        assertThat(CompressionInterceptor.negotiate(Collections.singletonList("gzip, deflate, br"))).isEqualTo("gzip");
+        assertThat(CompressionInterceptor.negotiate(Collections.singletonList("gzip;q=0.5, deflate"))).isEqualTo("deflate");
+        assertThat(CompressionInterceptor.negotiate(Arrays.asList("deflate", "gzip; q=0"))).isEqualTo("deflate");
+        assertThat(CompressionInterceptor.negotiate(Collections.singletonList("*"))).isEqualTo("gzip");
+        assertThat(CompressionInterceptor.negotiate(Collections.singletonList("*;q=0"))).isNull();
+    }
+
+    private CompressingOutputStream stream(String coding, boolean streaming) {
+        return new CompressingOutputStream(out, coding, 1, 1024, streaming, codings::add);
+    }
+
+    private static byte[] body(int datasets) {
+        StringBuilder json = new StringBuilder("{\"beaconId\":\"beacon\",\"exists\":true,\"datasetAlleleResponses\":[");
+        for (int i = 0; i < datasets; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"datasetId\":\"dataset-").append(i).append("\",\"exists\":").append(i % 3 == 0).append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that admin requests pass only with the configured bearer token.
+ */
+public class AdminAuthenticationFilterTest {
+
+    private final Map<String, String> headers = new HashMap<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status = 200;
+    private boolean chained;
+
+    @Test
+    public void testValidTokenPasses() throws Exception {
+        filter(new AdminAuthenticationFilter("s3cret"), "Bearer s3cret");
+
+        assertThat(chained).isTrue();
+        assertThat(status).isEqualTo(200);
+    }
+
+    @Test
+    public void testSchemeIsCaseInsensitive() throws Exception {
+        filter(new AdminAuthenticationFilter("s3cret"), "bearer s3cret");
+
+        assertThat(chained).isTrue();
+    }
+
+    @Test
+    public void testWrongTokenGets401() throws Exception {
+        filter(new AdminAuthenticationFilter("s3cret"), "Bearer s3cre");
+
+        assertThat(chained).isFalse();
+        assertThat(status).isEqualTo(401);
+        assertThat(headers).containsEntry("WWW-Authenticate", "Bearer realm=\"beacon-admin\"");
+    }
+
+    @Test
+    public void testMissingTokenGets401() throws Exception {
+        filter(new AdminAuthenticationFilter("s3cret"), null);
+
+        assertThat(chained).isFalse();
+        assertThat(status).isEqualTo(401);
+    }
+
+    @Test
+    public void testOtherSchemeGets401() throws Exception {
+        filter(new AdminAuthenticationFilter("s3cret"), "Basic s3cret");
+
+        assertThat(chained).isFalse();
+        assertThat(status).isEqualTo(401);
+    }
+
+    @Test
+    public void testDisabledWithoutConfiguredToken() throws Exception {
+        filter(new AdminAuthenticationFilter(" "), "Bearer ");
+
+        assertThat(chained).isFalse();
+        assertThat(status).isEqualTo(403);
+        assertThat(body.toString("UTF-8")).contains(AdminAuthenticationFilter.TOKEN_PROPERTY);
+    }
+
+    private void filter(AdminAuthenticationFilter filter, String authorization) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) ->
+                method.getName().equals("getHeader") && "Authorization".equals(args[0]) ? authorization : null);
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setStatus":
+                    status = (Integer) args[0];
+                    return null;
+                case "setHeader":
+                    headers.put((String) args[0], (String) args[1]);
+                    return null;
+                case "getOutputStream":
+                    return out;
+                default:
+                    return null;
+            }
+        });
+        filter.doFilter(request, response, (filteredRequest, filteredResponse) -> chained = true);
+    }
+}
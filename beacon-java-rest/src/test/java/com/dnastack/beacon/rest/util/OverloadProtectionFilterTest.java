@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.rest.util;
+
+import com.dnastack.beacon.service.limit.ClientQuotas;
+import com.dnastack.beacon.service.limit.GradientConcurrencyLimit;
+import com.dnastack.beacon.service.limit.OverloadProtection;
+import org.junit.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the responses to shed requests and that the concurrency permit of a query is released exactly once on every
+ * path. Clients may send 2 requests at once and 1 per second after that, and 1 query may run at a time; the clock only
+ * moves when a test moves it.
+ */
+public class OverloadProtectionFilterTest {
+
+    private long now;
+    private final RecordingProtection protection = new RecordingProtection();
+    private final OverloadProtectionFilter filter = new OverloadProtectionFilter(protection);
+
+    @Test
+    public void testRequestBeyondQuotaGets429() throws Exception {
+        assertThat(filter("/info", chain(200)).status).isEqualTo(200);
+        assertThat(filter("/info", chain(200)).status).isEqualTo(200);
+
+        Exchange shed = filter("/info", chain(200));
+
+        assertThat(shed.status).isEqualTo(429);
+        assertThat(shed.headers).containsEntry("Retry-After", "1");
+        assertThat(shed.body.toString("UTF-8")).contains("\"errorCode\":429");
+        assertThat(shed.chained).isFalse();
+    }
+
+    @Test
+    public void testQueryBeyondConcurrencyLimitGets503() throws Exception {
+        Exchange running = filter("/query", asyncChain());
+
+        Exchange shed = filter("/query", chain(200));
+
+        assertThat(shed.status).isEqualTo(503);
+        assertThat(shed.headers).containsEntry("Retry-After", "1");
+        assertThat(shed.chained).isFalse();
+        assertThat(protection.getShedCount(OverloadProtection.Shed.CONCURRENCY)).isEqualTo(1L);
+
+        running.listener.onComplete(new AsyncEvent(null));
+        now += TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(filter("/query", chain(200)).status).isEqualTo(200);
+    }
+
+    @Test
+    public void testExemptPathsAreNeverShed() throws Exception {
+        filter("/query", asyncChain());
+        for (int i = 0; i < 3; i++) {
+            assertThat(filter("/metrics", chain(200)).status).isEqualTo(200);
+        }
+        assertThat(protection.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSynchronousQueryReleasesMeasured() throws Exception {
+        filter("/query", chain(200));
+
+        assertThat(protection.measured).isEqualTo(1);
+        assertThat(protection.unmeasured).isZero();
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testServerErrorReleasesUnmeasured() throws Exception {
+        filter("/query", chain(500));
+
+        assertThat(protection.measured).isZero();
+        assertThat(protection.unmeasured).isEqualTo(1);
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testFailingChainReleasesUnmeasured() throws Exception {
+        try {
+            filter("/query", (request, response) -> {
+                throw new IllegalStateException("adapter failed");
+            });
+        } catch (IllegalStateException expected) {
+            // rethrown by the filter
+        }
+
+        assertThat(protection.unmeasured).isEqualTo(1);
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testAsynchronousQueryReleasesOnComplete() throws Exception {
+        Exchange exchange = filter("/query", asyncChain());
+
+        assertThat(protection.getInFlight()).isEqualTo(1);
+
+        now += TimeUnit.MILLISECONDS.toNanos(5);
+        exchange.listener.onComplete(new AsyncEvent(null));
+
+        assertThat(protection.measured).isEqualTo(1);
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testAsynchronousQueryReleasesOnTimeoutOnce() throws Exception {
+        Exchange exchange = filter("/query", asyncChain());
+
+        exchange.listener.onTimeout(new AsyncEvent(null));
+
+        assertThat(protection.unmeasured).isEqualTo(1);
+        assertThat(protection.getInFlight()).isZero();
+
+        exchange.listener.onComplete(new AsyncEvent(null));
+
+        assertThat(protection.unmeasured).isEqualTo(1);
+        assertThat(protection.measured).isZero();
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testAsynchronousQueryReleasesOnError() throws Exception {
+        Exchange exchange = filter("/query", asyncChain());
+
+        exchange.listener.onError(new AsyncEvent(null, new IOException("client went away")));
+        exchange.listener.onComplete(new AsyncEvent(null));
+
+        assertThat(protection.unmeasured).isEqualTo(1);
+        assertThat(protection.getInFlight()).isZero();
+    }
+
+    private Exchange filter(String path, FilterChain chain) throws IOException, ServletException {
+        Exchange exchange = new Exchange(path);
+        filter.doFilter(exchange.request(), exchange.response(), (request, response) -> {
+            exchange.chained = true;
+            chain.doFilter(request, response);
+        });
+        return exchange;
+    }
+
+    private static FilterChain chain(int status) {
+        return (request, response) -> ((HttpServletResponse) response).setStatus(status);
+    }
+
+    private static FilterChain asyncChain() {
+        return (request, response) -> ((Exchange.Request) Proxy.getInvocationHandler(request)).exchange.asyncStarted = true;
+    }
+
+    /**
+     * Protection counting how permits are released.
+     */
+    private final class RecordingProtection extends OverloadProtection {
+
+        private int measured;
+        private int unmeasured;
+
+        private RecordingProtection() {
+            super(new ClientQuotas(1, 2, 10, () -> now), new GradientConcurrencyLimit(1, 1, 1), null, () -> now);
+        }
+
+        @Override
+        public void release(long startNanos) {
+            measured++;
+            super.release(startNanos);
+        }
+
+        @Override
+        public void releaseUnmeasured() {
+            unmeasured++;
+            super.releaseUnmeasured();
+        }
+    }
+
+    /**
+     * Request and response of one call of the filter.
+     */
+    private static final class Exchange {
+
+        private final String path;
+        private final Map<String, String> headers = new HashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private int status = 200;
+        private boolean chained;
+        private boolean asyncStarted;
+        private AsyncListener listener;
+
+        private Exchange(String path) {
+            this.path = path;
+        }
+
+        private HttpServletRequest request() {
+            return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                               new Class<?>[]{HttpServletRequest.class},
+                                                               new Request(this));
+        }
+
+        private HttpServletResponse response() {
+            ServletOutputStream out = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setStatus":
+                        status = (Integer) args[0];
+                        return null;
+                    case "getStatus":
+                        return status;
+                    case "setHeader":
+                        headers.put((String) args[0], (String) args[1]);
+                        return null;
+                    case "getOutputStream":
+                        return out;
+                    case "isCommitted":
+                        return false;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private static final class Request implements InvocationHandler {
+
+            private final Exchange exchange;
+
+            private Request(Exchange exchange) {
+                this.exchange = exchange;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getServletPath":
+                        return exchange.path;
+                    case "getRemoteAddr":
+                        return "192.0.2.1";
+                    case "isAsyncStarted":
+                        return exchange.asyncStarted;
+                    case "getAsyncContext":
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AsyncContext.class}, (context, contextMethod, contextArgs) -> {
+                            if (contextMethod.getName().equals("addListener")) {
+                                exchange.listener = (AsyncListener) contextArgs[0];
+                            }
+                            return null;
+                        });
+                    default:
+                        return null;
+                }
+            }
+        }
+    }
+}
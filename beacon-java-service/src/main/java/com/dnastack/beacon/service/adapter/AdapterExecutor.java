@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.adapter;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs calls of synchronous adapters for asynchronous requests, so that a slow adapter ties up threads of this executor
+ * rather than the container's request threads. Virtual threads are used where the JVM has them (Java 21 and later),
+ * otherwise a bounded pool of {@code beacon.async.threads} threads (default 64) with a queue of
+ * {@code beacon.async.queueSize} calls (default 1024); calls beyond that are rejected rather than queued without
+ * bound. Asynchronous requests time out after {@code beacon.async.timeoutMillis} (default 30000).
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class AdapterExecutor {
+
+    public static final String THREADS_PROPERTY = "beacon.async.threads";
+    public static final String QUEUE_SIZE_PROPERTY = "beacon.async.queueSize";
+    public static final String TIMEOUT_MILLIS_PROPERTY = "beacon.async.timeoutMillis";
+    public static final String VIRTUAL_THREADS_PROPERTY = "beacon.async.virtualThreads";
+
+    private static final Logger LOGGER = Logger.getLogger(AdapterExecutor.class.getName());
+
+    /**
+     * Call of a synchronous adapter method.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface AdapterCall<T> {
+        T call() throws BeaconException;
+    }
+
+    private ExecutorService executor;
+    private long timeoutMillis;
+
+    @PostConstruct
+    public void init() {
+        timeoutMillis = Long.getLong(TIMEOUT_MILLIS_PROPERTY, 30000);
+        if (Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))) {
+            executor = newVirtualThreadExecutor();
+        }
+        if (executor == null) {
+            int threads = Integer.getInteger(THREADS_PROPERTY, 64);
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads,
+                                                             threads,
+                                                             60,
+                                                             TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(Integer.getInteger(QUEUE_SIZE_PROPERTY, 1024)),
+                                                             task -> {
+                                                                 Thread thread = new Thread(task, "beacon-adapter-" + count.incrementAndGet());
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.WARNING, "Virtual threads are not available, using a thread pool", e);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param call adapter call
+     * @param <T>  result type
+     * @return future completed with the result of the call, or failed with its exception, or failed with
+     * RejectedExecutionException if the executor is saturated
+     */
+    public <T> CompletableFuture<T> submit(AdapterCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // cancelled or timed out while queued
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (BeaconException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @return time after which an asynchronous request is answered with an error, in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
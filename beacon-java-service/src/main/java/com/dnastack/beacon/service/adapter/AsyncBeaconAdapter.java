@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.adapter;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.api.VariantRange;
+import org.ga4gh.beacon.Beacon;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapter answering queries without blocking the calling thread, e.g. one backed by a non-blocking database driver or
+ * remote beacons. The service hands allele queries of such an adapter the calling thread only for as long as it takes
+ * to start them; adapters implementing only {@link ExtendedBeaconAdapter} or the plain Beacon Adapter API are run on
+ * the {@link AdapterExecutor} instead.
+ * <p>
+ * Failed futures should be completed with a {@link BeaconException}, which is reported to the client like one thrown
+ * by a synchronous adapter.
+ *
+ * @version 1.0
+ */
+public interface AsyncBeaconAdapter extends ExtendedBeaconAdapter {
+
+    /**
+     * @param request validated allele request
+     * @return future completed with the allele response
+     */
+    CompletableFuture<BeaconAlleleResponse> getBeaconAlleleResponseAsync(BeaconAlleleRequest request);
+
+    /**
+     * Answers a range, bracket or variant type query, see {@link ExtendedBeaconAdapter#getBeaconAlleleResponse(BeaconAlleleRequest,
+     * VariantRange)}. The default implementation calls the synchronous method on the calling thread.
+     *
+     * @param request validated allele request
+     * @param range   range of the query
+     * @return future completed with the allele response
+     */
+    default CompletableFuture<BeaconAlleleResponse> getBeaconAlleleResponseAsync(BeaconAlleleRequest request, VariantRange range) {
+        CompletableFuture<BeaconAlleleResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(getBeaconAlleleResponse(request, range));
+        } catch (BeaconException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * The default implementation calls {@link #getBeacon()} on the calling thread.
+     *
+     * @return future completed with the beacon information
+     */
+    default CompletableFuture<Beacon> getBeaconAsync() {
+        CompletableFuture<Beacon> future = new CompletableFuture<>();
+        try {
+            future.complete(getBeacon());
+        } catch (BeaconException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
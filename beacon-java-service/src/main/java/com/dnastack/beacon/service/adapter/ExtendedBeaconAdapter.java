@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.adapter;
+
+import com.dnastack.beacon.adapter.api.BeaconAdapter;
+import com.dnastack.beacon.exceptions.BeaconAlleleRequestException;
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.api.VariantRange;
+import com.dnastack.beacon.utils.Reason;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Optional capabilities of a beacon adapter beyond the Beacon Adapter API. The service checks whether the injected
+ * adapter implements this interface and falls back to the plain {@link BeaconAdapter} behaviour otherwise.
+ * <p>
+ * An EJB adapter should implement this interface only (not {@link BeaconAdapter} next to it), so that it remains its
+ * single business interface and the injected proxy exposes the extended methods.
+ *
+ * @version 1.0
+ */
+public interface ExtendedBeaconAdapter extends BeaconAdapter {
+
+    /**
+     * Version of the data served by the adapter. It changes whenever the datasets or their contents change, so anything
+     * derived from the adapter's responses can be cached until it does.
+     *
+     * @return data version, or a negative number if the adapter cannot tell when its data changes
+     */
+    long getDataVersion();
+
+    /**
+     * Answers a range, bracket, variant type or cohort query, see {@link VariantRange}. The request has been
+     * validated; its reference and alternate bases may be null or {@link VariantRange#ANY_BASES}.
+     *
+     * @param request allele request
+     * @param range   range of the query
+     * @return allele response, existing if any variant matches
+     * @throws BeaconException if the query cannot be answered
+     */
+    default BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request, VariantRange range) throws BeaconException {
+        throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST, "Range and cohort queries are not supported by this beacon", request);
+    }
+
+    /**
+     * Reloads the adapter's data without interrupting queries. The new data is built in the background and published
+     * at once; queries started before the switch finish on the data they started with.
+     *
+     * @return future completed with the new data version once the data is published
+     */
+    default CompletableFuture<Long> reload() {
+        CompletableFuture<Long> unsupported = new CompletableFuture<>();
+        unsupported.completeExceptionally(new UnsupportedOperationException("Adapter does not support reloading"));
+        return unsupported;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.api;
+
+import com.dnastack.beacon.utils.Reason;
+
+/**
+ * Reasons an allele request can be rejected by validation, in the order they are checked.
+ *
+ * @version 1.0
+ */
+public enum AlleleRequestError {
+
+    MISSING_REFERENCE_NAME("Reference cannot be null. Please provide an appropriate reference name"),
+    MISSING_START("Start position cannot be null. Please provide a 0-based start position"),
+    MISSING_REFERENCE_BASES("Reference bases cannot be null"),
+    MISSING_ALTERNATE_BASES("Alternate bases cannot be null"),
+    MISSING_ASSEMBLY_ID("AssemblyId cannot be null. Please defined a valid GRCh assembly Id"),
+    INVALID_ASSEMBLY_ID("Invalid assemblyId. Assemblies must be from GRCh builds"),
+    MISSING_START_RANGE("Bracket queries need both startMin and startMax"),
+    INVALID_RANGE("Invalid range. The start of a range must be smaller than its end and minimums cannot exceed maximums"),
+    MISSING_ALTERNATE_BASES_OR_VARIANT_TYPE("Either alternate bases or a variant type must be given");
+
+    private final String message;
+
+    AlleleRequestError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Reason getReason() {
+        return Reason.INVALID_REQUEST;
+    }
+}
@@ -31,6 +31,7 @@ import org.ga4gh.beacon.BeaconAlleleRequest;
 import org.ga4gh.beacon.BeaconAlleleResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Beacon service abstract class
@@ -40,6 +41,19 @@ import java.util.List;
  */
 public interface BeaconService {
 
+    /**
+     * Validate the fields of an allele request without querying the beacon. Cheaper than letting the query methods
+     * throw, for callers that can report the error themselves.
+     *
+     * @param referenceName  chromosome name
+     * @param start          start position
+     * @param referenceBases reference bases
+     * @param alternateBases alternate bases
+     * @param assemblyId     assembly version
+     * @return the first problem found, or null if the request is valid
+     */
+    AlleleRequestError validateAllele(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId);
+
     /**
      * Get a beacon allele response from a beacon allele request.
      *
@@ -55,6 +69,26 @@ public interface BeaconService {
      */
     BeaconAlleleResponse queryAllele(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses) throws BeaconException;
 
+    /**
+     * Validate a variant query without querying the beacon. Unlike exact allele requests, range and bracket queries
+     * need no reference bases, and a variant type may take the place of the alternate bases.
+     *
+     * @param request allele request, its start is ignored for bracket queries
+     * @param range   range of the query
+     * @return the first problem found, or null if the query is valid
+     */
+    AlleleRequestError validateVariants(BeaconAlleleRequest request, VariantRange range);
+
+    /**
+     * Get a beacon allele response for all variants matching a range, bracket, variant type or cohort query.
+     *
+     * @param request allele request, its start is ignored for bracket queries
+     * @param range   range of the query
+     * @return Beacon allele response
+     * @throws BeaconException if the query is invalid or the adapter does not support it
+     */
+    BeaconAlleleResponse queryVariants(BeaconAlleleRequest request, VariantRange range) throws BeaconException;
+
     /**
      * Get a beacon allele response from the beacon, given a BeaconAlleleRequest
      *
@@ -64,6 +98,27 @@ public interface BeaconService {
      */
     BeaconAlleleResponse queryAllele(BeaconAlleleRequest request) throws BeaconException;
 
+    /**
+     * Get a beacon allele response without blocking the calling thread on the adapter. The request is validated on the
+     * calling thread.
+     *
+     * @param request Not null request object
+     * @return future completed with the Beacon allele response, or failed with a BeaconException if the request is
+     * invalid or the adapter fails
+     */
+    CompletableFuture<BeaconAlleleResponse> queryAlleleAsync(BeaconAlleleRequest request);
+
+    /**
+     * Get a beacon allele response for a range, bracket, variant type or cohort query without blocking the calling
+     * thread on the adapter.
+     *
+     * @param request allele request, its start is ignored for bracket queries
+     * @param range   range of the query
+     * @return future completed with the Beacon allele response, or failed with a BeaconException if the query is
+     * invalid, the adapter does not support it or the adapter fails
+     */
+    CompletableFuture<BeaconAlleleResponse> queryVariantsAsync(BeaconAlleleRequest request, VariantRange range);
+
     /**
      * Get information for a single beacon.
      *
@@ -72,4 +127,28 @@ public interface BeaconService {
      */
     Beacon queryBeacon() throws BeaconException;
 
+    /**
+     * Get information for a single beacon without blocking the calling thread on the adapter.
+     *
+     * @return future completed with the beacon, or failed with a BeaconException
+     */
+    CompletableFuture<Beacon> queryBeaconAsync();
+
+    /**
+     * Get the version of the data served by the beacon. Information derived from the beacon may be cached for as long as
+     * the version stays the same.
+     *
+     * @return data version, or a negative number if the adapter does not report changes of its data
+     */
+    long getDataVersion();
+
+    /**
+     * Reload the data of the beacon in the background. Queries are answered from the current data until the new data
+     * is published.
+     *
+     * @return future completed with the new data version, or failed with UnsupportedOperationException if the adapter
+     * cannot reload
+     */
+    CompletableFuture<Long> reload();
+
 }
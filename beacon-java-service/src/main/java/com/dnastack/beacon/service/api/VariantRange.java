@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.api;
+
+/**
+ * Positional constraints of a variant query beyond the exact start position of an allele request.
+ * <ul>
+ * <li>range query: {@code start} and {@code end} select the variants overlapping the half-open interval
+ * [start, end)</li>
+ * <li>bracket query: {@code startMin} and {@code startMax} select the variants starting within [startMin, startMax],
+ * optionally narrowed down to the ones ending within [endMin, endMax]; meant for structural variants with imprecise
+ * breakpoints</li>
+ * </ul>
+ * Either query may be combined with a {@code variantType} such as DEL, DUP or CNV, which matches the symbolic
+ * alternate allele of structural variants (CNV matches deletions and duplications too). Reference and alternate bases
+ * of {@code N} match any allele. A {@code cohortId} restricts any query, including an exact allele query, to the
+ * variants carried by samples of the named cohort, and its sample counts to those samples.
+ *
+ * @version 1.0
+ */
+public final class VariantRange {
+
+    /**
+     * Allele matching any bases.
+     */
+    public static final String ANY_BASES = "N";
+
+    private static final VariantRange NONE = new VariantRange(null, null, null, null, null, null, null);
+
+    private final Long end;
+    private final Long startMin;
+    private final Long startMax;
+    private final Long endMin;
+    private final Long endMax;
+    private final String variantType;
+    private final String cohortId;
+
+    public VariantRange(Long end, Long startMin, Long startMax, Long endMin, Long endMax, String variantType) {
+        this(end, startMin, startMax, endMin, endMax, variantType, null);
+    }
+
+    public VariantRange(Long end, Long startMin, Long startMax, Long endMin, Long endMax, String variantType, String cohortId) {
+        this.end = end;
+        this.startMin = startMin;
+        this.startMax = startMax;
+        this.endMin = endMin;
+        this.endMax = endMax;
+        this.variantType = variantType == null || variantType.isEmpty() ? null : variantType.toUpperCase();
+        this.cohortId = cohortId == null || cohortId.isEmpty() ? null : cohortId;
+    }
+
+    /**
+     * @return range without constraints, matching the exact start position of the request
+     */
+    public static VariantRange none() {
+        return NONE;
+    }
+
+    /**
+     * @return true if the range adds no constraints to an exact allele request
+     */
+    public boolean isEmpty() {
+        return isExact() && cohortId == null;
+    }
+
+    /**
+     * @return true if the range adds no positional constraints, so the request selects the variants at its start
+     */
+    public boolean isExact() {
+        return end == null && !isBracket() && variantType == null;
+    }
+
+    /**
+     * @return true if any of the bracket bounds is given
+     */
+    public boolean isBracket() {
+        return startMin != null || startMax != null || endMin != null || endMax != null;
+    }
+
+    /**
+     * @param bases reference or alternate bases of a request
+     * @return true if the bases match any allele
+     */
+    public static boolean isWildcard(String bases) {
+        return bases == null || ANY_BASES.equals(bases);
+    }
+
+    public Long getEnd() {
+        return end;
+    }
+
+    public Long getStartMin() {
+        return startMin;
+    }
+
+    public Long getStartMax() {
+        return startMax;
+    }
+
+    public Long getEndMin() {
+        return endMin;
+    }
+
+    public Long getEndMax() {
+        return endMax;
+    }
+
+    public String getVariantType() {
+        return variantType;
+    }
+
+    /**
+     * @return id of the cohort the query is restricted to, or null
+     */
+    public String getCohortId() {
+        return cohortId;
+    }
+
+    /**
+     * @param referenceBases reference allele of a variant
+     * @param alternateBases alternate allele of a variant
+     * @return true if the variant is of the requested type, or no type was requested
+     */
+    public boolean matchesType(String referenceBases, String alternateBases) {
+        if (variantType == null) {
+            return true;
+        }
+        String type = typeOf(referenceBases, alternateBases);
+        if ("CNV".equals(variantType)) {
+            return "CNV".equals(type) || "DEL".equals(type) || "DUP".equals(type);
+        }
+        return variantType.equals(type);
+    }
+
+    /**
+     * Classifies a variant: symbolic alleles by their type (the part of {@code <DUP:TANDEM>} before the first colon),
+     * sequence alleles as SNP, MNP, INS or DEL.
+     */
+    private static String typeOf(String referenceBases, String alternateBases) {
+        if (alternateBases.length() > 2 && alternateBases.charAt(0) == '<' && alternateBases.endsWith(">")) {
+            int colon = alternateBases.indexOf(':');
+            return alternateBases.substring(1, colon < 0 ? alternateBases.length() - 1 : colon);
+        }
+        int referenceLength = referenceBases.length();
+        int alternateLength = alternateBases.length();
+        if (referenceLength == alternateLength) {
+            return referenceLength == 1 ? "SNP" : "MNP";
+        }
+        return referenceLength < alternateLength ? "INS" : "DEL";
+    }
+}
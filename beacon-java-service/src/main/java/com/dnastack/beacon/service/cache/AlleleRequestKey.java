@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import org.ga4gh.beacon.BeaconAlleleRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Canonical form of an allele request used as a cache key. Dataset ids are deduplicated and sorted, so requests that
+ * differ only in the order of their datasets share an entry, and an empty dataset list stands for all datasets.
+ *
+ * @version 1.0
+ */
+final class AlleleRequestKey {
+
+    private static final String[] ALL_DATASETS = new String[0];
+
+    private final String assemblyId;
+    private final String referenceName;
+    private final long start;
+    private final String referenceBases;
+    private final String alternateBases;
+    private final String[] datasetIds;
+    private final boolean includeDatasetResponses;
+    private final int hash;
+
+    AlleleRequestKey(BeaconAlleleRequest request) {
+        this.assemblyId = request.getAssemblyId();
+        this.referenceName = request.getReferenceName();
+        this.start = request.getStart();
+        this.referenceBases = request.getReferenceBases();
+        this.alternateBases = request.getAlternateBases();
+        this.datasetIds = canonical(request.getDatasetIds());
+        this.includeDatasetResponses = Boolean.TRUE.equals(request.getIncludeDatasetResponses());
+
+        int result = assemblyId.hashCode();
+        result = 31 * result + referenceName.hashCode();
+        result = 31 * result + Long.hashCode(start);
+        result = 31 * result + referenceBases.hashCode();
+        result = 31 * result + alternateBases.hashCode();
+        result = 31 * result + Arrays.hashCode(datasetIds);
+        this.hash = 31 * result + (includeDatasetResponses ? 1 : 0);
+    }
+
+    private static String[] canonical(List<String> datasetIds) {
+        if (datasetIds == null || datasetIds.isEmpty()) {
+            return ALL_DATASETS;
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String datasetId : datasetIds) {
+            if (datasetId != null) {
+                sorted.add(datasetId);
+            }
+        }
+        return sorted.toArray(new String[sorted.size()]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AlleleRequestKey)) {
+            return false;
+        }
+        AlleleRequestKey that = (AlleleRequestKey) o;
+        return hash == that.hash
+                && start == that.start
+                && includeDatasetResponses == that.includeDatasetResponses
+                && Objects.equals(assemblyId, that.assemblyId)
+                && Objects.equals(referenceName, that.referenceName)
+                && Objects.equals(referenceBases, that.referenceBases)
+                && Objects.equals(alternateBases, that.alternateBases)
+                && Arrays.equals(datasetIds, that.datasetIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of allele responses keyed on the canonical allele request. The size is bounded by
+ * {@value #MAX_ENTRIES_PROPERTY} (default {@value #DEFAULT_MAX_ENTRIES}, 0 disables the cache) and every entry lives at
+ * most {@value #TTL_SECONDS_PROPERTY} seconds (default {@value #DEFAULT_TTL_SECONDS}). All entries are dropped when the
+ * data version of the beacon moves forward; adapters that do not report a data version rely on the time to live alone.
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class AlleleResponseCache {
+
+    public static final String MAX_ENTRIES_PROPERTY = "beacon.cache.maxEntries";
+    public static final String TTL_SECONDS_PROPERTY = "beacon.cache.ttlSeconds";
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    private int maxEntries;
+    private long ttlSeconds;
+    private SegmentedLruCache<AlleleRequestKey, CachedResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        maxEntries = Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
+        ttlSeconds = Long.getLong(TTL_SECONDS_PROPERTY, DEFAULT_TTL_SECONDS);
+        if (maxEntries > 0 && ttlSeconds > 0) {
+            cache = new SegmentedLruCache<>(maxEntries, ttlSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @param request valid allele request
+     * @param version current data version
+     * @return response answered from the cache, or null on a miss
+     */
+    public BeaconAlleleResponse get(BeaconAlleleRequest request, long version) {
+        cache.validate(Math.max(0, version));
+        CachedResponse cached = cache.get(new AlleleRequestKey(request));
+        return cached == null ? null : cached.toResponse(request);
+    }
+
+    /**
+     * Caches a response. Responses which are not a complete answer, i.e. carry an error, leave the answer unknown or
+     * have a dataset which failed, are not cached, so a transient failure is not served until the entry expires.
+     *
+     * @param request  valid allele request
+     * @param response response to the request
+     * @param version  data version the response was computed for
+     */
+    public void put(BeaconAlleleRequest request, BeaconAlleleResponse response, long version) {
+        if (!isComplete(response)) {
+            return;
+        }
+        cache.put(new AlleleRequestKey(request), new CachedResponse(response), Math.max(0, version));
+    }
+
+    private static boolean isComplete(BeaconAlleleResponse response) {
+        if (response == null || response.getError() != null || response.getExists() == null) {
+            return false;
+        }
+        if (response.getDatasetAlleleResponses() != null) {
+            for (BeaconDatasetAlleleResponse dataset : response.getDatasetAlleleResponses()) {
+                if (dataset.getError() != null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops all cached responses, e.g. the ones of synthetic queries.
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return current counters of the cache
+     */
+    public CacheStatistics getStatistics() {
+        if (cache == null) {
+            return new CacheStatistics(false, maxEntries, ttlSeconds, -1, 0, 0, 0, 0, 0, 0);
+        }
+        return new CacheStatistics(true,
+                                   maxEntries,
+                                   ttlSeconds,
+                                   cache.getVersion(),
+                                   cache.size(),
+                                   cache.getHitCount(),
+                                   cache.getMissCount(),
+                                   cache.getEvictionCount(),
+                                   cache.getExpirationCount(),
+                                   cache.getInvalidationCount());
+    }
+
+    /**
+     * Request independent part of a response. The beacon id and the echoed request are filled in on every hit, and the
+     * dataset responses are put in the order the request lists its datasets.
+     */
+    private static final class CachedResponse {
+
+        private final String beaconId;
+        private final Boolean exists;
+        private final List<BeaconDatasetAlleleResponse> datasetResponses;
+        private final Map<String, BeaconDatasetAlleleResponse> datasetResponsesById;
+
+        private CachedResponse(BeaconAlleleResponse response) {
+            this.beaconId = response.getBeaconId();
+            this.exists = response.getExists();
+            List<BeaconDatasetAlleleResponse> datasets = response.getDatasetAlleleResponses();
+            if (datasets == null) {
+                this.datasetResponses = null;
+                this.datasetResponsesById = Collections.emptyMap();
+            } else {
+                this.datasetResponses = Collections.unmodifiableList(new ArrayList<>(datasets));
+                Map<String, BeaconDatasetAlleleResponse> byId = new HashMap<>();
+                for (BeaconDatasetAlleleResponse dataset : datasets) {
+                    byId.putIfAbsent(dataset.getDatasetId(), dataset);
+                }
+                this.datasetResponsesById = byId;
+            }
+        }
+
+        private BeaconAlleleResponse toResponse(BeaconAlleleRequest request) {
+            BeaconAlleleResponse response = new BeaconAlleleResponse();
+            response.setBeaconId(beaconId);
+            response.setExists(exists);
+            response.setError(null);
+            response.setAlleleRequest(request);
+            response.setDatasetAlleleResponses(datasetResponses(request.getDatasetIds()));
+            return response;
+        }
+
+        private List<BeaconDatasetAlleleResponse> datasetResponses(List<String> datasetIds) {
+            if (datasetResponses == null || datasetIds == null || datasetIds.isEmpty()) {
+                return datasetResponses;
+            }
+            List<BeaconDatasetAlleleResponse> ordered = new ArrayList<>(datasetIds.size());
+            for (String datasetId : datasetIds) {
+                BeaconDatasetAlleleResponse dataset = datasetResponsesById.get(datasetId);
+                if (dataset != null) {
+                    ordered.add(dataset);
+                }
+            }
+            return ordered;
+        }
+    }
+}
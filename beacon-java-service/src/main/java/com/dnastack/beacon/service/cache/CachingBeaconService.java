@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.api.BeaconService;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+
+import javax.annotation.Priority;
+import javax.decorator.Decorator;
+import javax.decorator.Delegate;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorates the beacon service with the {@link AlleleResponseCache}. Invalid requests are passed straight to the
+ * service so that it reports the error; valid ones are answered from the cache when possible.
+ *
+ * @version 1.0
+ */
+@Decorator
+@Priority(Interceptor.Priority.APPLICATION)
+public abstract class CachingBeaconService implements BeaconService {
+
+    @Inject
+    @Delegate
+    @Any
+    private BeaconService delegate;
+
+    @Inject
+    private AlleleResponseCache cache;
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public BeaconAlleleResponse queryAllele(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses) throws BeaconException {
+        if (!cache.isEnabled() || delegate.validateAllele(referenceName, start, referenceBases, alternateBases, assemblyId) != null) {
+            return delegate.queryAllele(referenceName, start, referenceBases, alternateBases, assemblyId, datasetIds, includeDatasetResponses);
+        }
+
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName(referenceName);
+        request.setReferenceBases(referenceBases);
+        request.setAlternateBases(alternateBases);
+        request.setStart(start);
+        request.setIncludeDatasetResponses(includeDatasetResponses != null ? includeDatasetResponses : false);
+        request.setAssemblyId(assemblyId);
+        request.setDatasetIds(datasetIds);
+
+        return cachedQuery(request);
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public BeaconAlleleResponse queryAllele(BeaconAlleleRequest request) throws BeaconException {
+        if (!cache.isEnabled() || delegate.validateAllele(request.getReferenceName(),
+                                                          request.getStart(),
+                                                          request.getReferenceBases(),
+                                                          request.getAlternateBases(),
+                                                          request.getAssemblyId()) != null) {
+            return delegate.queryAllele(request);
+        }
+
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+
+        return cachedQuery(request);
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public CompletableFuture<BeaconAlleleResponse> queryAlleleAsync(BeaconAlleleRequest request) {
+        if (!cache.isEnabled() || delegate.validateAllele(request.getReferenceName(),
+                                                          request.getStart(),
+                                                          request.getReferenceBases(),
+                                                          request.getAlternateBases(),
+                                                          request.getAssemblyId()) != null) {
+            return delegate.queryAlleleAsync(request);
+        }
+
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+
+        long version = delegate.getDataVersion();
+        BeaconAlleleResponse cached = cache.get(request, version);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return delegate.queryAlleleAsync(request).thenApply(response -> {
+            cache.put(request, response, version);
+            return response;
+        });
+    }
+
+    private BeaconAlleleResponse cachedQuery(BeaconAlleleRequest request) throws BeaconException {
+        long version = delegate.getDataVersion();
+        BeaconAlleleResponse response = cache.get(request, version);
+        if (response == null) {
+            response = delegate.queryAllele(request);
+            cache.put(request, response, version);
+        }
+        return response;
+    }
+}
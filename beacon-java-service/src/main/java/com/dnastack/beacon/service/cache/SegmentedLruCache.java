@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded LRU cache with a time to live. Keys are spread over independently locked segments, each an access
+ * ordered {@link LinkedHashMap}, so concurrent readers rarely contend. Every entry remembers the data version it was
+ * computed for and is ignored once a newer version is seen. The version starts at 0 and only moves forward, so a request
+ * that read an older version while a reload was published cannot bring the cache back to it.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @version 1.0
+ */
+public class SegmentedLruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final List<Segment> segments = new ArrayList<>(SEGMENTS);
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of entries, approximately; the bound is enforced per segment
+     * @param ttl        time to live of an entry
+     * @param unit       unit of the time to live
+     */
+    public SegmentedLruCache(int maxEntries, long ttl, TimeUnit unit) {
+        int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new Segment(perSegment));
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * @param key cache key
+     * @return cached value, or null if there is none or it expired
+     */
+    public V get(K key) {
+        long now = System.nanoTime();
+        long current = version.get();
+        Segment segment = segment(key);
+        Node<V> entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+            if (entry != null && (entry.version != current || now - entry.expiresAt > 0)) {
+                segment.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * @param key     cache key
+     * @param value   value to cache
+     * @param version data version the value was computed for
+     */
+    public void put(K key, V value, long version) {
+        if (version != this.version.get()) {
+            return;
+        }
+        Node<V> entry = new Node<>(value, version, System.nanoTime() + ttlNanos);
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * Drops all entries if the data version is newer than the one of the cache. Older versions are ignored.
+     *
+     * @param version current data version
+     */
+    public void validate(long version) {
+        long current;
+        do {
+            current = this.version.get();
+            if (version <= current) {
+                return;
+            }
+        } while (!this.version.compareAndSet(current, version));
+        invalidations.increment();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops all entries without counting an invalidation.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private Segment segment(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments.get(hash & (SEGMENTS - 1));
+    }
+
+    private static final class Node<V> {
+
+        private final V value;
+        private final long version;
+        private final long expiresAt;
+
+        private Node(V value, long version, long expiresAt) {
+            this.value = value;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<K, Node<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
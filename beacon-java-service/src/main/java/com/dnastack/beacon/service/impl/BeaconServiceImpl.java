@@ -26,7 +26,13 @@ package com.dnastack.beacon.service.impl;
 import com.dnastack.beacon.adapter.api.BeaconAdapter;
 import com.dnastack.beacon.exceptions.BeaconAlleleRequestException;
 import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.adapter.AdapterExecutor;
+import com.dnastack.beacon.service.adapter.AsyncBeaconAdapter;
+import com.dnastack.beacon.service.adapter.ExtendedBeaconAdapter;
+import com.dnastack.beacon.service.api.AlleleRequestError;
 import com.dnastack.beacon.service.api.BeaconService;
+import com.dnastack.beacon.service.api.VariantRange;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
 import com.dnastack.beacon.utils.Reason;
 import org.ga4gh.beacon.Beacon;
 import org.ga4gh.beacon.BeaconAlleleRequest;
@@ -35,6 +41,7 @@ import org.ga4gh.beacon.BeaconAlleleResponse;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Beacon service implementation. Ensures the request are valid, and throws the appropriate exceptions
@@ -47,6 +54,12 @@ public class BeaconServiceImpl implements BeaconService {
     @Inject
     private BeaconAdapter adapter;
 
+    @Inject
+    private BeaconMetrics metrics;
+
+    @Inject
+    private AdapterExecutor executor;
+
     /**
      * Validate the beacon fields according to the 0.3.0 beacon specifications
      *
@@ -58,23 +71,31 @@ public class BeaconServiceImpl implements BeaconService {
      * @throws BeaconAlleleRequestException
      */
     private void validateRequest(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId) throws BeaconAlleleRequestException {
+        AlleleRequestError error = validateAllele(referenceName, start, referenceBases, alternateBases, assemblyId);
+        if (error != null) {
+            throw new BeaconAlleleRequestException(error.getReason(), error.getMessage());
+        }
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public AlleleRequestError validateAllele(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId) {
         if (referenceName == null) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST,
-                                                   "Reference cannot be null. Please provide an appropriate reference name");
+            return AlleleRequestError.MISSING_REFERENCE_NAME;
         } else if (start == null) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST,
-                                                   "Start position cannot be null. Please provide a 0-based start position");
+            return AlleleRequestError.MISSING_START;
         } else if (referenceBases == null) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST, "Reference bases cannot be null");
+            return AlleleRequestError.MISSING_REFERENCE_BASES;
         } else if (alternateBases == null) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST, "Alternate bases cannot be null");
+            return AlleleRequestError.MISSING_ALTERNATE_BASES;
         } else if (assemblyId == null) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST,
-                                                   "AssemblyId cannot be null. Please defined a valid GRCh assembly Id");
+            return AlleleRequestError.MISSING_ASSEMBLY_ID;
         } else if (!assemblyId.startsWith("GRCh")) {
-            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST,
-                                                   "Invalid assemblyId. Assemblies must be from GRCh builds");
+            return AlleleRequestError.INVALID_ASSEMBLY_ID;
         }
+        return null;
     }
 
     /**
@@ -97,7 +118,7 @@ public class BeaconServiceImpl implements BeaconService {
         request.setAssemblyId(assemblyId);
         request.setDatasetIds(datasetIds);
 
-        return adapter.getBeaconAlleleResponse(request);
+        return queryAdapter(request);
     }
 
     /**
@@ -115,7 +136,139 @@ public class BeaconServiceImpl implements BeaconService {
             request.setIncludeDatasetResponses(false);
         }
 
-        return adapter.getBeaconAlleleResponse(request);
+        return queryAdapter(request);
+    }
+
+    private BeaconAlleleResponse queryAdapter(BeaconAlleleRequest request) throws BeaconException {
+        long started = System.nanoTime();
+        try {
+            return adapter.getBeaconAlleleResponse(request);
+        } finally {
+            metrics.recordSince(BeaconMetrics.Stage.ADAPTER, started);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public CompletableFuture<BeaconAlleleResponse> queryAlleleAsync(BeaconAlleleRequest request) {
+        AlleleRequestError error = validateAllele(request.getReferenceName(),
+                                                  request.getStart(),
+                                                  request.getReferenceBases(),
+                                                  request.getAlternateBases(),
+                                                  request.getAssemblyId());
+        if (error != null) {
+            return failed(new BeaconAlleleRequestException(error.getReason(), error.getMessage()));
+        }
+
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+
+        long started = System.nanoTime();
+        CompletableFuture<BeaconAlleleResponse> response;
+        if (adapter instanceof AsyncBeaconAdapter) {
+            response = ((AsyncBeaconAdapter) adapter).getBeaconAlleleResponseAsync(request);
+        } else {
+            BeaconAdapter target = adapter;
+            response = executor.submit(() -> target.getBeaconAlleleResponse(request));
+        }
+        return response.whenComplete((result, failure) -> metrics.recordSince(BeaconMetrics.Stage.ADAPTER, started));
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public AlleleRequestError validateVariants(BeaconAlleleRequest request, VariantRange range) {
+        if (range.isExact()) {
+            return validateAllele(request.getReferenceName(),
+                                  request.getStart(),
+                                  request.getReferenceBases(),
+                                  request.getAlternateBases(),
+                                  request.getAssemblyId());
+        }
+        if (request.getReferenceName() == null) {
+            return AlleleRequestError.MISSING_REFERENCE_NAME;
+        }
+        if (range.isBracket()) {
+            if (range.getStartMin() == null || range.getStartMax() == null) {
+                return AlleleRequestError.MISSING_START_RANGE;
+            } else if (range.getStartMin() > range.getStartMax()
+                    || (range.getEndMin() != null && range.getEndMax() != null && range.getEndMin() > range.getEndMax())) {
+                return AlleleRequestError.INVALID_RANGE;
+            }
+        } else if (request.getStart() == null) {
+            return AlleleRequestError.MISSING_START;
+        } else if (range.getEnd() != null && range.getEnd() <= request.getStart()) {
+            return AlleleRequestError.INVALID_RANGE;
+        }
+        if (request.getAlternateBases() == null && range.getVariantType() == null) {
+            return AlleleRequestError.MISSING_ALTERNATE_BASES_OR_VARIANT_TYPE;
+        } else if (request.getAssemblyId() == null) {
+            return AlleleRequestError.MISSING_ASSEMBLY_ID;
+        } else if (!request.getAssemblyId().startsWith("GRCh")) {
+            return AlleleRequestError.INVALID_ASSEMBLY_ID;
+        }
+        return null;
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public BeaconAlleleResponse queryVariants(BeaconAlleleRequest request, VariantRange range) throws BeaconException {
+        if (range.isEmpty()) {
+            return queryAllele(request);
+        }
+        AlleleRequestError error = validateVariants(request, range);
+        if (error != null) {
+            throw new BeaconAlleleRequestException(error.getReason(), error.getMessage(), request);
+        }
+
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+        if (!(adapter instanceof ExtendedBeaconAdapter)) {
+            throw new BeaconAlleleRequestException(Reason.INVALID_REQUEST, "Range and cohort queries are not supported by this beacon", request);
+        }
+        long started = System.nanoTime();
+        try {
+            return ((ExtendedBeaconAdapter) adapter).getBeaconAlleleResponse(request, range);
+        } finally {
+            metrics.recordSince(BeaconMetrics.Stage.ADAPTER, started);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public CompletableFuture<BeaconAlleleResponse> queryVariantsAsync(BeaconAlleleRequest request, VariantRange range) {
+        if (range.isEmpty()) {
+            return queryAlleleAsync(request);
+        }
+        AlleleRequestError error = validateVariants(request, range);
+        if (error != null) {
+            return failed(new BeaconAlleleRequestException(error.getReason(), error.getMessage(), request));
+        }
+
+        if (request.getIncludeDatasetResponses() == null) {
+            request.setIncludeDatasetResponses(false);
+        }
+        if (!(adapter instanceof ExtendedBeaconAdapter)) {
+            return failed(new BeaconAlleleRequestException(Reason.INVALID_REQUEST, "Range and cohort queries are not supported by this beacon", request));
+        }
+        long started = System.nanoTime();
+        CompletableFuture<BeaconAlleleResponse> response;
+        if (adapter instanceof AsyncBeaconAdapter) {
+            response = ((AsyncBeaconAdapter) adapter).getBeaconAlleleResponseAsync(request, range);
+        } else {
+            ExtendedBeaconAdapter target = (ExtendedBeaconAdapter) adapter;
+            response = executor.submit(() -> target.getBeaconAlleleResponse(request, range));
+        }
+        return response.whenComplete((result, failure) -> metrics.recordSince(BeaconMetrics.Stage.ADAPTER, started));
     }
 
     /**
@@ -125,4 +278,43 @@ public class BeaconServiceImpl implements BeaconService {
     public Beacon queryBeacon() throws BeaconException {
         return adapter.getBeacon();
     }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public CompletableFuture<Beacon> queryBeaconAsync() {
+        if (adapter instanceof AsyncBeaconAdapter) {
+            return ((AsyncBeaconAdapter) adapter).getBeaconAsync();
+        }
+        BeaconAdapter target = adapter;
+        return executor.submit(target::getBeacon);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public long getDataVersion() {
+        return adapter instanceof ExtendedBeaconAdapter ? ((ExtendedBeaconAdapter) adapter).getDataVersion() : -1;
+    }
+
+    /**
+     * @inheritDoc
+     **/
+    @Override
+    public CompletableFuture<Long> reload() {
+        if (adapter instanceof ExtendedBeaconAdapter) {
+            return ((ExtendedBeaconAdapter) adapter).reload();
+        }
+        CompletableFuture<Long> unsupported = new CompletableFuture<>();
+        unsupported.completeExceptionally(new UnsupportedOperationException("Adapter does not support reloading"));
+        return unsupported;
+    }
 }
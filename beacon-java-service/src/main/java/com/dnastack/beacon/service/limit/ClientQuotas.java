@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.limit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Request quotas per client, one {@link TokenBucket} each. Buckets of clients that have been quiet long enough to be
+ * full again are dropped once more than the maximum number of clients are tracked; if that is not enough, further new
+ * clients share a single bucket until some are dropped.
+ *
+ * @version 1.0
+ */
+public final class ClientQuotas {
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxClients;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongSupplier clock;
+
+    /**
+     * @param ratePerSecond sustained requests per second of a client
+     * @param burst         requests a client may send at once
+     * @param maxClients    clients tracked with a bucket of their own
+     */
+    public ClientQuotas(double ratePerSecond, int burst, int maxClients) {
+        this(ratePerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    /**
+     * @param ratePerSecond sustained requests per second of a client
+     * @param burst         requests a client may send at once
+     * @param maxClients    clients tracked with a bucket of their own
+     * @param clock         source of {@link System#nanoTime()}, or of the time of another clock
+     */
+    public ClientQuotas(double ratePerSecond, int burst, int maxClients, LongSupplier clock) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.overflow = new TokenBucket(ratePerSecond, burst, clock.getAsLong());
+    }
+
+    /**
+     * @param client client key, e.g. its address or API key
+     * @return 0 if the request is within the client's quota, otherwise the time until it is in nanoseconds
+     */
+    public long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = newBucket(client, now);
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    private TokenBucket newBucket(String client, long now) {
+        if (buckets.size() >= maxClients) {
+            evictFull(now);
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+        }
+        return buckets.computeIfAbsent(client, key -> new TokenBucket(ratePerSecond, burst, now));
+    }
+
+    private void evictFull(long now) {
+        // one thread sweeps at a time, the others go on with the overflow bucket meanwhile
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (Iterator<Map.Entry<String, TokenBucket>> it = buckets.entrySet().iterator(); it.hasNext(); ) {
+                if (it.next().getValue().isFull(now)) {
+                    it.remove();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return number of clients tracked with a bucket of their own
+     */
+    public int getClientCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limit of concurrent requests in the style of the gradient algorithm of Netflix' concurrency-limits. Every
+ * completed request compares its latency with the latency without load, estimated as the lowest latency seen: while
+ * latency stays within 1.5 times that, the limit grows by about its square root; once requests queue up and latency
+ * rises, the limit shrinks in proportion, by at most half per step. The estimate creeps up slowly, so that a lasting
+ * change of the latency without load, e.g. after the data grew, is picked up. The limit, the estimate and the number
+ * of requests in flight are atomics updated by compare-and-set, so the limiter takes no locks.
+ *
+ * @version 1.0
+ */
+public final class GradientConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    /**
+     * Growth of the latency estimate per request, doubling it in about 7000 requests unless lower latencies are seen.
+     */
+    private static final double BASELINE_DRIFT = 1e-4;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limit;
+    private final AtomicLong baselineRtt = new AtomicLong(Double.doubleToLongBits(0));
+
+    /**
+     * @param initialLimit limit before any latency was observed
+     * @param minLimit     smallest limit
+     * @param maxLimit     largest limit
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+    }
+
+    /**
+     * @return true if the request may proceed, in which case one of the release methods has to follow
+     */
+    public boolean tryAcquire() {
+        int current = getLimit();
+        for (; ; ) {
+            int running = inFlight.get();
+            if (running >= current) {
+                return false;
+            }
+            if (inFlight.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request and adjusts the limit to its latency.
+     *
+     * @param rttNanos latency of the request
+     */
+    public void release(long rttNanos) {
+        int running = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, running);
+        }
+    }
+
+    /**
+     * Ends a request whose latency says nothing about the load, e.g. one that failed early.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void update(double rtt, int running) {
+        double baseline = updateBaseline(rtt);
+        for (; ; ) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            if (running < current / 2) {
+                // far from the limit, the latency tells nothing about it
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * baseline / rtt));
+            double target = current * gradient + Math.sqrt(current);
+            double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+            if (next == current || limit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private double updateBaseline(double rtt) {
+        for (; ; ) {
+            long bits = baselineRtt.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = current == 0 ? rtt : Math.min(rtt, current * (1 + BASELINE_DRIFT));
+            if (baselineRtt.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
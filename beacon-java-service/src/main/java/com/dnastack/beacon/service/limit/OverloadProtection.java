@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.limit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Overload protection of the beacon: request quotas per client and an adaptive limit of concurrent queries. Both are
+ * checked before a request is parsed, so requests beyond them cost next to nothing. Settings are read from system
+ * properties; quotas are off unless {@code beacon.limit.clientRate} is set, the concurrency limit is on unless
+ * {@code beacon.limit.concurrency} is false.
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class OverloadProtection {
+
+    public static final String CLIENT_RATE_PROPERTY = "beacon.limit.clientRate";
+    public static final String CLIENT_BURST_PROPERTY = "beacon.limit.clientBurst";
+    public static final String MAX_CLIENTS_PROPERTY = "beacon.limit.maxClients";
+    public static final String API_KEY_HEADER_PROPERTY = "beacon.limit.apiKeyHeader";
+    public static final String CONCURRENCY_PROPERTY = "beacon.limit.concurrency";
+    public static final String INITIAL_CONCURRENCY_PROPERTY = "beacon.limit.initialConcurrency";
+    public static final String MIN_CONCURRENCY_PROPERTY = "beacon.limit.minConcurrency";
+    public static final String MAX_CONCURRENCY_PROPERTY = "beacon.limit.maxConcurrency";
+
+    /**
+     * Reasons for shedding a request.
+     */
+    public enum Shed {
+        /**
+         * The client exceeded its quota.
+         */
+        QUOTA,
+        /**
+         * The beacon is at its concurrency limit.
+         */
+        CONCURRENCY
+    }
+
+    private ClientQuotas quotas;
+    private GradientConcurrencyLimit concurrency;
+    private String apiKeyHeader;
+    private LongSupplier clock = System::nanoTime;
+    private final LongAdder shedByQuota = new LongAdder();
+    private final LongAdder shedByConcurrency = new LongAdder();
+
+    public OverloadProtection() {
+    }
+
+    /**
+     * Protection with the given limits instead of the ones of the system properties, for use outside a container.
+     *
+     * @param quotas       client quotas, null for none
+     * @param concurrency  concurrency limit, null for none
+     * @param apiKeyHeader name of the header identifying a client by API key, null for none
+     * @param clock        source of {@link System#nanoTime()}, or of the time of another clock
+     */
+    public OverloadProtection(ClientQuotas quotas, GradientConcurrencyLimit concurrency, String apiKeyHeader, LongSupplier clock) {
+        this.quotas = quotas;
+        this.concurrency = concurrency;
+        this.apiKeyHeader = apiKeyHeader;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        double rate = Double.parseDouble(System.getProperty(CLIENT_RATE_PROPERTY, "0"));
+        if (rate > 0) {
+            int burst = Integer.getInteger(CLIENT_BURST_PROPERTY, (int) Math.max(1, Math.ceil(rate * 2)));
+            quotas = new ClientQuotas(rate, burst, Integer.getInteger(MAX_CLIENTS_PROPERTY, 100000));
+        }
+        String header = System.getProperty(API_KEY_HEADER_PROPERTY, "");
+        apiKeyHeader = header.trim().isEmpty() ? null : header.trim();
+        if (Boolean.parseBoolean(System.getProperty(CONCURRENCY_PROPERTY, "true"))) {
+            concurrency = new GradientConcurrencyLimit(Integer.getInteger(INITIAL_CONCURRENCY_PROPERTY, 64),
+                                                       Integer.getInteger(MIN_CONCURRENCY_PROPERTY, 16),
+                                                       Integer.getInteger(MAX_CONCURRENCY_PROPERTY, 1024));
+        }
+    }
+
+    /**
+     * @param client client key
+     * @return 0 if the request is within the client's quota or quotas are off, otherwise the time until it is in
+     * nanoseconds
+     */
+    public long tryAcquireQuota(String client) {
+        if (quotas == null) {
+            return 0;
+        }
+        long wait = quotas.tryAcquire(client);
+        if (wait > 0) {
+            shedByQuota.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * @return true if the query may proceed, in which case {@link #release(long)} or {@link #releaseUnmeasured()} has
+     * to follow
+     */
+    public boolean tryAcquireConcurrency() {
+        if (concurrency == null || concurrency.tryAcquire()) {
+            return true;
+        }
+        shedByConcurrency.increment();
+        return false;
+    }
+
+    /**
+     * @return current time of the clock latencies are measured with, in nanoseconds
+     */
+    public long nanoTime() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Ends a query and adjusts the concurrency limit to its latency.
+     *
+     * @param startNanos {@link #nanoTime()} when the permit was acquired
+     */
+    public void release(long startNanos) {
+        if (concurrency != null) {
+            concurrency.release(clock.getAsLong() - startNanos);
+        }
+    }
+
+    /**
+     * Ends a query whose latency says nothing about the load, e.g. one that failed.
+     */
+    public void releaseUnmeasured() {
+        if (concurrency != null) {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * @return name of the header identifying a client by API key, null if clients are identified by address only
+     */
+    public String getApiKeyHeader() {
+        return apiKeyHeader;
+    }
+
+    public long getShedCount(Shed reason) {
+        return reason == Shed.QUOTA ? shedByQuota.sum() : shedByConcurrency.sum();
+    }
+
+    /**
+     * @return current concurrency limit, 0 if the limit is off
+     */
+    public int getConcurrencyLimit() {
+        return concurrency == null ? 0 : concurrency.getLimit();
+    }
+
+    public int getInFlight() {
+        return concurrency == null ? 0 : concurrency.getInFlight();
+    }
+}
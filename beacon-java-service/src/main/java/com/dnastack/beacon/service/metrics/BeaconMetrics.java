@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.metrics;
+
+import org.ga4gh.beacon.BeaconAlleleResponse;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the request stages and counters of the allele query outcomes. Recording does not allocate, so
+ * it is always on.
+ *
+ * @version 1.0
+ */
+@ApplicationScoped
+public class BeaconMetrics {
+
+    /**
+     * Stages of an allele request.
+     */
+    public enum Stage {
+        /**
+         * Whole HTTP request, from the first byte read to the last byte written.
+         */
+        TOTAL,
+        /**
+         * Validation of the request fields.
+         */
+        VALIDATION,
+        /**
+         * Adapter call answering the request, all datasets included.
+         */
+        ADAPTER,
+        /**
+         * Encoding of the response entity.
+         */
+        SERIALIZATION
+    }
+
+    /**
+     * Outcomes of an allele request.
+     */
+    public enum Outcome {
+        TRUE, FALSE, NULL, ERROR
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+    private final ConcurrentMap<String, LatencyHistogram> datasetLookups = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UpstreamMetrics> upstreams = new ConcurrentHashMap<>();
+    private volatile Map<String, DatasetMemory> datasetMemory = Collections.emptyMap();
+
+    public BeaconMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    /**
+     * @param stage      stage of the request
+     * @param startNanos {@link System#nanoTime()} at the start of the stage
+     */
+    public void recordSince(Stage stage, long startNanos) {
+        stages.get(stage).recordSince(startNanos);
+    }
+
+    /**
+     * Records the lookup of one dataset by the adapter. Only datasets served by the adapter should be recorded, so
+     * the number of histograms stays bounded.
+     *
+     * @param datasetId  dataset id
+     * @param startNanos {@link System#nanoTime()} at the start of the lookup
+     */
+    public void recordDatasetLookupSince(String datasetId, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        LatencyHistogram histogram = datasetLookups.get(datasetId);
+        if (histogram == null) {
+            histogram = datasetLookups.computeIfAbsent(datasetId, id -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Metrics of the queries an adapter sends to an upstream beacon. Only configured upstreams should be recorded, so
+     * the number of metrics stays bounded.
+     *
+     * @param upstreamId upstream beacon id
+     * @return metrics of the upstream, created on first use
+     */
+    public UpstreamMetrics getUpstream(String upstreamId) {
+        UpstreamMetrics upstream = upstreams.get(upstreamId);
+        return upstream != null ? upstream : upstreams.computeIfAbsent(upstreamId, id -> new UpstreamMetrics());
+    }
+
+    /**
+     * Replaces the memory accounting of the datasets, whenever an adapter publishes new data.
+     *
+     * @param memory memory of every served dataset keyed by dataset id
+     */
+    public void setDatasetMemory(Map<String, DatasetMemory> memory) {
+        this.datasetMemory = Collections.unmodifiableMap(memory);
+    }
+
+    /**
+     * @param response answered allele response, null counts as an error
+     */
+    public void recordOutcome(BeaconAlleleResponse response) {
+        Outcome outcome;
+        if (response == null || response.getError() != null) {
+            outcome = Outcome.ERROR;
+        } else if (response.getExists() == null) {
+            outcome = Outcome.NULL;
+        } else {
+            outcome = response.getExists() ? Outcome.TRUE : Outcome.FALSE;
+        }
+        outcomes.get(outcome).increment();
+    }
+
+    public void recordError() {
+        outcomes.get(Outcome.ERROR).increment();
+    }
+
+    public LatencyHistogram getStage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public long getOutcomeCount(Outcome outcome) {
+        return outcomes.get(outcome).sum();
+    }
+
+    /**
+     * @return dataset lookup histograms keyed by dataset id
+     */
+    public Map<String, LatencyHistogram> getDatasetLookups() {
+        return Collections.unmodifiableMap(datasetLookups);
+    }
+
+    /**
+     * @return memory of the served datasets keyed by dataset id, empty if the adapter does not report it
+     */
+    public Map<String, DatasetMemory> getDatasetMemory() {
+        return datasetMemory;
+    }
+
+    /**
+     * @return upstream metrics keyed by upstream beacon id
+     */
+    public Map<String, UpstreamMetrics> getUpstreams() {
+        return Collections.unmodifiableMap(upstreams);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.metrics;
+
+/**
+ * Memory held by one dataset of an adapter outside the Java heap, for sizing the heap, the direct memory limit and
+ * the page cache.
+ *
+ * @version 1.0
+ */
+public final class DatasetMemory {
+
+    private final long mappedBytes;
+    private final long directBytes;
+
+    /**
+     * @param mappedBytes bytes of files mapped into memory, paged in by the OS and shared through its page cache
+     * @param directBytes bytes of direct buffers, counted against {@code -XX:MaxDirectMemorySize}
+     */
+    public DatasetMemory(long mappedBytes, long directBytes) {
+        this.mappedBytes = mappedBytes;
+        this.directBytes = directBytes;
+    }
+
+    public long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    public long getDirectBytes() {
+        return directBytes;
+    }
+}
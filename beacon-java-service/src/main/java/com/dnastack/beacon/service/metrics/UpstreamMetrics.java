@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and event counters of the queries an adapter sends to one upstream beacon.
+ *
+ * @version 1.0
+ */
+public final class UpstreamMetrics {
+
+    /**
+     * Events of an upstream query.
+     */
+    public enum Event {
+        /**
+         * Query answered by the upstream.
+         */
+        SUCCESS,
+        /**
+         * Query failed, e.g. the upstream could not be reached or answered with an error status.
+         */
+        FAILURE,
+        /**
+         * Query not answered in time.
+         */
+        TIMEOUT,
+        /**
+         * Query sent a second time because the first attempt was slow.
+         */
+        HEDGE,
+        /**
+         * Query not sent because the circuit of the upstream was open.
+         */
+        REJECTED,
+        /**
+         * Query answered from the cache.
+         */
+        CACHE_HIT
+    }
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<Event, LongAdder> events = new EnumMap<>(Event.class);
+
+    public UpstreamMetrics() {
+        for (Event event : Event.values()) {
+            events.put(event, new LongAdder());
+        }
+    }
+
+    /**
+     * @return latency of the queries sent to the upstream, hedged attempts included
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public void record(Event event) {
+        events.get(event).increment();
+    }
+
+    public long getCount(Event event) {
+        return events.get(event).sum();
+    }
+}
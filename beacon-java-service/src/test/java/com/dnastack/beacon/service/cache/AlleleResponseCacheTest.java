@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.ga4gh.beacon.BeaconError;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that requests differing only in the form of their dataset list share an entry, and that a new data version
+ * drops the cached responses.
+ */
+public class AlleleResponseCacheTest {
+
+    private final AlleleResponseCache cache = new AlleleResponseCache();
+
+    @Before
+    public void setUp() {
+        cache.init();
+    }
+
+    @Test
+    public void testDatasetOrderIsCanonical() {
+        cache(request("a", "b"), response(request("a", "b"), "a", "b"));
+
+        BeaconAlleleResponse cached = cache.get(request("b", "a", "b"), 1);
+
+        assertThat(cached).isNotNull();
+        assertThat(cached.getAlleleRequest().getDatasetIds()).containsExactly("b", "a", "b");
+        assertThat(datasetIds(cached)).containsExactly("b", "a", "b");
+    }
+
+    @Test
+    public void testMissingAndEmptyDatasetListsShareEntry() {
+        cache(request(), response(request()));
+
+        BeaconAlleleRequest request = request();
+        request.setDatasetIds(null);
+
+        assertThat(cache.get(request, 1)).isNotNull();
+    }
+
+    @Test
+    public void testOtherAlleleMisses() {
+        cache(request("a"), response(request("a"), "a"));
+
+        BeaconAlleleRequest request = request("a");
+        request.setAlternateBases("G");
+
+        assertThat(cache.get(request, 1)).isNull();
+    }
+
+    @Test
+    public void testErrorResponseIsNotCached() {
+        BeaconAlleleResponse response = response(request("a"), "a");
+        response.setError(new BeaconError());
+        cache(request("a"), response);
+
+        assertThat(cache.get(request("a"), 1)).isNull();
+    }
+
+    @Test
+    public void testUnansweredResponseIsNotCached() {
+        BeaconAlleleResponse response = response(request("a"), "a");
+        response.setExists(null);
+        cache(request("a"), response);
+
+        assertThat(cache.get(request("a"), 1)).isNull();
+    }
+
+    @Test
+    public void testResponseWithFailedDatasetIsNotCached() {
+        BeaconAlleleResponse response = response(request("a", "b"), "a", "b");
+        BeaconDatasetAlleleResponse failed = response.getDatasetAlleleResponses().get(1);
+        failed.setExists(null);
+        failed.setError(new BeaconError());
+        cache(request("a", "b"), response);
+
+        assertThat(cache.get(request("a", "b"), 1)).isNull();
+    }
+
+    @Test
+    public void testUnversionedResponsesAreCached() {
+        cache.get(request("a"), -1);
+        cache.put(request("a"), response(request("a"), "a"), -1);
+
+        assertThat(cache.get(request("a"), -1)).isNotNull();
+        assertThat(cache.getStatistics().getInvalidationCount()).isZero();
+    }
+
+    @Test
+    public void testNewVersionInvalidates() {
+        cache(request("a"), response(request("a"), "a"));
+
+        assertThat(cache.get(request("a"), 2)).isNull();
+        assertThat(cache.getStatistics().getInvalidationCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testResponseOfOlderVersionIsNotCached() {
+        cache.get(request("a"), 2);
+        cache(request("a"), response(request("a"), "a"));
+
+        assertThat(cache.get(request("a"), 2)).isNull();
+        assertThat(cache.getStatistics().getDataVersion()).isEqualTo(2L);
+    }
+
+    /**
+     * Caches a response the way the caching service does, after a miss of the same request.
+     */
+    private void cache(BeaconAlleleRequest request, BeaconAlleleResponse response) {
+        assertThat(cache.get(request, 1)).isNull();
+        cache.put(request, response, 1);
+    }
+
+    private static BeaconAlleleRequest request(String... datasetIds) {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setAssemblyId("GRCh37");
+        request.setReferenceName("1");
+        request.setStart(1000L);
+        request.setReferenceBases("A");
+        request.setAlternateBases("T");
+        request.setDatasetIds(new ArrayList<>(Arrays.asList(datasetIds)));
+        request.setIncludeDatasetResponses(true);
+        return request;
+    }
+
+    private static BeaconAlleleResponse response(BeaconAlleleRequest request, String... datasetIds) {
+        List<BeaconDatasetAlleleResponse> datasets = new ArrayList<>();
+        for (String datasetId : datasetIds) {
+            BeaconDatasetAlleleResponse dataset = new BeaconDatasetAlleleResponse();
+            dataset.setDatasetId(datasetId);
+            dataset.setExists(true);
+            datasets.add(dataset);
+        }
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId("beacon");
+        response.setExists(true);
+        response.setAlleleRequest(request);
+        response.setDatasetAlleleResponses(datasetIds.length == 0 ? Collections.<BeaconDatasetAlleleResponse>emptyList() : datasets);
+        return response;
+    }
+
+    private static List<String> datasetIds(BeaconAlleleResponse response) {
+        List<String> ids = new ArrayList<>();
+        for (BeaconDatasetAlleleResponse dataset : response.getDatasetAlleleResponses()) {
+            ids.add(dataset.getDatasetId());
+        }
+        return ids;
+    }
+}
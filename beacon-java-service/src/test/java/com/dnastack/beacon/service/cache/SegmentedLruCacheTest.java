@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks eviction within a segment and invalidation on newer data versions. Integer keys 16 apart land in the same
+ * segment, and a cache of 32 entries holds two per segment.
+ */
+public class SegmentedLruCacheTest {
+
+    private final SegmentedLruCache<Integer, String> cache = new SegmentedLruCache<>(32, 1, TimeUnit.HOURS);
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.validate(1);
+        cache.put(0, "a", 1);
+        cache.put(16, "b", 1);
+        assertThat(cache.get(0)).isEqualTo("a");
+        cache.put(32, "c", 1);
+
+        assertThat(cache.get(16)).isNull();
+        assertThat(cache.get(0)).isEqualTo("a");
+        assertThat(cache.get(32)).isEqualTo("c");
+        assertThat(cache.getEvictionCount()).isEqualTo(1L);
+        assertThat(cache.size()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testOtherSegmentsAreNotEvicted() {
+        cache.validate(1);
+        for (int key = 0; key < 32; key++) {
+            cache.put(key, "v" + key, 1);
+        }
+
+        assertThat(cache.getEvictionCount()).isZero();
+        assertThat(cache.size()).isEqualTo(32L);
+    }
+
+    @Test
+    public void testNewerVersionDropsEntries() {
+        cache.validate(1);
+        cache.put(0, "a", 1);
+        cache.validate(2);
+
+        assertThat(cache.get(0)).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getVersion()).isEqualTo(2L);
+        assertThat(cache.getInvalidationCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testOlderVersionIsIgnored() {
+        cache.validate(2);
+        cache.put(0, "a", 2);
+        cache.validate(1);
+        cache.put(16, "b", 1);
+
+        assertThat(cache.get(0)).isEqualTo("a");
+        assertThat(cache.get(16)).isNull();
+        assertThat(cache.getVersion()).isEqualTo(2L);
+        assertThat(cache.getInvalidationCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testVersionStartsAtZero() {
+        cache.put(0, "a", 0);
+        cache.validate(0);
+
+        assertThat(cache.get(0)).isEqualTo("a");
+        assertThat(cache.getVersion()).isZero();
+        assertThat(cache.getInvalidationCount()).isZero();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.limit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that every client has a quota of its own and that quiet clients make room for new ones.
+ */
+public class ClientQuotasTest {
+
+    private long now;
+    private final ClientQuotas quotas = new ClientQuotas(1, 2, 2, () -> now);
+
+    @Test
+    public void testClientsHaveSeparateQuotas() {
+        assertThat(quotas.tryAcquire("a")).isZero();
+        assertThat(quotas.tryAcquire("a")).isZero();
+        assertThat(quotas.tryAcquire("a")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(quotas.tryAcquire("b")).isZero();
+        assertThat(quotas.getClientCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testQuotaRefillsWithTheClock() {
+        quotas.tryAcquire("a");
+        quotas.tryAcquire("a");
+
+        now += TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(quotas.tryAcquire("a")).isZero();
+    }
+
+    @Test
+    public void testFullBucketsAreDroppedForNewClients() {
+        quotas.tryAcquire("a");
+        quotas.tryAcquire("b");
+        now += TimeUnit.SECONDS.toNanos(1);
+
+        assertThat(quotas.tryAcquire("c")).isZero();
+        assertThat(quotas.getClientCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNewClientsShareOverflowBucketWhileAllAreBusy() {
+        quotas.tryAcquire("a");
+        quotas.tryAcquire("b");
+
+        assertThat(quotas.tryAcquire("c")).isZero();
+        assertThat(quotas.tryAcquire("d")).isZero();
+        assertThat(quotas.tryAcquire("e")).isGreaterThan(0L);
+        assertThat(quotas.getClientCount()).isEqualTo(2);
+    }
+}
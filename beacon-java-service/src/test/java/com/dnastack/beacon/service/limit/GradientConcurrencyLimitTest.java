@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.limit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks how the limit follows the latency gradient. Latencies are passed in, so the tests need no clock.
+ */
+public class GradientConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 2, 40);
+
+    @Test
+    public void testDeniesRequestsAtTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.getInFlight()).isEqualTo(10);
+
+        limit.release();
+
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void testGrowsWhileLatencyStaysLow() {
+        saturate(FAST);
+        int grown = limit.getLimit();
+
+        assertThat(grown).isGreaterThan(10);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(FAST);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(40);
+    }
+
+    @Test
+    public void testShrinksWhenLatencyRises() {
+        for (int i = 0; i < 5; i++) {
+            saturate(FAST);
+        }
+        int before = limit.getLimit();
+
+        saturate(SLOW);
+
+        assertThat(limit.getLimit()).isLessThan(before);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(SLOW * 10);
+        }
+
+        // halving by the gradient is offset by the square root headroom at 4
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void testLatencyWithinToleranceDoesNotShrink() {
+        saturate(FAST);
+        int before = limit.getLimit();
+
+        saturate(FAST * 3 / 2);
+
+        assertThat(limit.getLimit()).isGreaterThan(before - 1);
+    }
+
+    @Test
+    public void testIgnoresLatencyFarBelowTheLimit() {
+        saturate(FAST);
+        int before = limit.getLimit();
+
+        limit.tryAcquire();
+        limit.release(SLOW);
+
+        assertThat(limit.getLimit()).isEqualTo(before);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    public void testUnmeasuredReleaseKeepsTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+        }
+        for (int i = 0; i < 10; i++) {
+            limit.release();
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    /**
+     * Runs as many requests at once as the limit allows, all with the given latency.
+     */
+    private void saturate(long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.service.metrics;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the bucket layout around the boundaries of the sub-buckets, and the counts and quantiles read from it.
+ */
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void testSmallValuesHaveABucketEach() {
+        for (int value = 0; value < 32; value++) {
+            assertThat(LatencyHistogram.index(value)).isEqualTo(value);
+            assertThat(LatencyHistogram.highestValue(value)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void testIndexIsContiguousAcrossSubBucketBoundaries() {
+        assertThat(LatencyHistogram.index(31)).isEqualTo(31);
+        assertThat(LatencyHistogram.index(32)).isEqualTo(32);
+        assertThat(LatencyHistogram.index(33)).isEqualTo(32);
+        assertThat(LatencyHistogram.index(34)).isEqualTo(33);
+        assertThat(LatencyHistogram.index(63)).isEqualTo(47);
+        assertThat(LatencyHistogram.index(64)).isEqualTo(48);
+        assertThat(LatencyHistogram.index(67)).isEqualTo(48);
+        assertThat(LatencyHistogram.index(68)).isEqualTo(49);
+    }
+
+    @Test
+    public void testBucketsCoverEveryValueInOrder() {
+        for (long value = 1; value < 1 << 16; value++) {
+            checkBucket(value);
+        }
+        for (long power = 1L << 16; power <= LatencyHistogram.MAX_VALUE; power <<= 1) {
+            for (long value = power - 2; value <= power + 2; value++) {
+                checkBucket(value);
+            }
+        }
+        checkBucket(LatencyHistogram.MAX_VALUE);
+    }
+
+    @Test
+    public void testBucketIsWithinASixteenthOfItsValues() {
+        for (long value = 32; value < 1 << 16; value++) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.index(value));
+            assertThat(highest - value).isLessThanOrEqualTo(value / 16);
+        }
+    }
+
+    @Test
+    public void testQuantilesOfKnownDistribution() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        assertThat(histogram.getValueAtQuantile(0)).isEqualTo(10L);
+        assertThat(histogram.getValueAtQuantile(0.5)).isEqualTo(10L);
+        assertThat(histogram.getValueAtQuantile(0.9)).isEqualTo(10L);
+        // 1000 shares the bucket 992..1023
+        assertThat(histogram.getValueAtQuantile(0.91)).isEqualTo(1023L);
+        assertThat(histogram.getValueAtQuantile(1)).isEqualTo(1023L);
+        assertThat(histogram.getCount()).isEqualTo(100L);
+        assertThat(histogram.getSum()).isEqualTo(10900L);
+    }
+
+    @Test
+    public void testQuantilesOfUniformDistribution() {
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getValueAtQuantile(0.5)).isBetween(5000L, 5000L + 5000 / 16);
+        assertThat(histogram.getValueAtQuantile(0.99)).isBetween(9900L, 9900L + 9900 / 16);
+    }
+
+    @Test
+    public void testCountAtOrBelowExcludesBucketsExtendingPastTheBound() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        assertThat(histogram.getCountAtOrBelow(-1)).isZero();
+        assertThat(histogram.getCountAtOrBelow(9)).isZero();
+        assertThat(histogram.getCountAtOrBelow(10)).isEqualTo(90L);
+        assertThat(histogram.getCountAtOrBelow(1000)).isEqualTo(90L);
+        assertThat(histogram.getCountAtOrBelow(1023)).isEqualTo(100L);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        assertThat(histogram.getValueAtQuantile(0.99)).isZero();
+        assertThat(histogram.getCountAtOrBelow(Long.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    public void testValuesAreClampedToTheRange() {
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+
+        assertThat(histogram.getValueAtQuantile(1)).isEqualTo(LatencyHistogram.MAX_VALUE);
+        assertThat(histogram.getValueAtQuantile(0.5)).isZero();
+        assertThat(histogram.getSum()).isEqualTo(LatencyHistogram.MAX_VALUE);
+        assertThat(histogram.getCountAtOrBelow(Long.MAX_VALUE)).isEqualTo(2L);
+    }
+
+    /**
+     * Checks that a value lies in its bucket, and that its bucket is the one of the previous value or the next one.
+     */
+    private static void checkBucket(long value) {
+        int index = LatencyHistogram.index(value);
+        int previous = LatencyHistogram.index(value - 1);
+        assertThat(index - previous).isBetween(0, 1);
+        assertThat(LatencyHistogram.highestValue(index)).isGreaterThanOrEqualTo(value);
+        assertThat(LatencyHistogram.highestValue(index - 1)).isLessThan(value);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking JSON client of upstream beacons on top of {@link HttpURLConnection}. Response bodies are always read to the
+ * end and closed without disconnecting, so the JDK returns the connection to its keep-alive pool (sized by the
+ * {@code http.maxConnections} system property, 5 per host by default) and the next query to the same upstream reuses
+ * it.
+ *
+ * @version 1.0
+ */
+final class BeaconHttpClient {
+
+    private final Gson gson;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    BeaconHttpClient(Gson gson, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.gson = gson;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * @param url  absolute url
+     * @param type type of the JSON response
+     * @param <T>  response type
+     * @return parsed response
+     * @throws UpstreamException if the upstream cannot be reached, answers with another status than 200 or with
+     *                           malformed JSON
+     */
+    <T> T get(String url, Class<T> type) throws UpstreamException {
+        HttpURLConnection connection;
+        int status;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Accept", "application/json");
+            status = connection.getResponseCode();
+        } catch (SocketTimeoutException e) {
+            throw new UpstreamException(UpstreamException.GATEWAY_TIMEOUT, "Timed out connecting to " + url, e);
+        } catch (IOException e) {
+            throw new UpstreamException(UpstreamException.BAD_GATEWAY, "Could not reach " + url + ": " + e.getMessage(), e);
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            drain(connection.getErrorStream());
+            throw new UpstreamException(status >= 500 ? UpstreamException.BAD_GATEWAY : status, url + " answered HTTP " + status);
+        }
+        try (InputStream body = connection.getInputStream()) {
+            T value = gson.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), type);
+            drain(body);
+            if (value == null) {
+                throw new UpstreamException(UpstreamException.BAD_GATEWAY, url + " answered with an empty body");
+            }
+            return value;
+        } catch (SocketTimeoutException e) {
+            throw new UpstreamException(UpstreamException.GATEWAY_TIMEOUT, "Timed out reading from " + url, e);
+        } catch (IOException | JsonParseException e) {
+            throw new UpstreamException(UpstreamException.BAD_GATEWAY, "Could not read the answer of " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a body to the end, so the connection can be reused, and closes it.
+     */
+    private static void drain(InputStream body) {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[4096];
+        try (InputStream in = body) {
+            while (in.read(buffer) >= 0) {
+                // discard
+            }
+        } catch (IOException e) {
+            // the connection is not reused
+        }
+    }
+
+    static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.adapter.AsyncBeaconAdapter;
+import com.dnastack.beacon.service.api.VariantRange;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
+import com.dnastack.beacon.service.metrics.UpstreamMetrics;
+import com.dnastack.beacon.utils.AdapterConfig;
+import com.dnastack.beacon.utils.Reason;
+import com.google.gson.GsonBuilder;
+import org.ga4gh.beacon.*;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adapter answering queries by sending them to a set of upstream beacons concurrently and merging their answers. The
+ * allele exists if any upstream has it; with dataset responses requested, the dataset responses of all upstreams are
+ * returned, tagged with the upstream in their info, and every upstream that failed adds a dataset response with its id
+ * and the error. Without dataset responses the answer is returned as soon as one upstream has the allele.
+ * <p>
+ * Requests naming datasets go only to the upstreams serving them, as far as known from their beacon information.
+ *
+ * @version 1.0
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class FederatedBeaconAdapterImpl implements AsyncBeaconAdapter {
+
+    public static final String API_VERSION = "0.3.0";
+
+    /**
+     * Dataset response info key holding the id of the upstream that answered.
+     */
+    public static final String UPSTREAM_INFO = "upstream";
+
+    private static final int QUEUE_PER_THREAD = 16;
+
+    /**
+     * Records the upstream queries, absent when the adapter is not managed by the container.
+     */
+    @Inject
+    private BeaconMetrics metrics;
+
+    private volatile Federation federation;
+
+    /**
+     * Upstreams of one configuration with the threads querying them.
+     */
+    private static final class Federation {
+
+        private final FederationConfig config;
+        private final List<Upstream> upstreams = new ArrayList<>();
+        private final ThreadPoolExecutor executor;
+        private final ScheduledThreadPoolExecutor scheduler;
+
+        private Federation(FederationConfig config, BeaconMetrics metrics) {
+            this.config = config;
+            AtomicInteger count = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(config.getThreads(),
+                                                   config.getThreads(),
+                                                   60,
+                                                   TimeUnit.SECONDS,
+                                                   new ArrayBlockingQueue<>(config.getThreads() * QUEUE_PER_THREAD),
+                                                   runnable -> daemon(runnable, "beacon-upstream-" + count.incrementAndGet()));
+            this.executor.allowCoreThreadTimeOut(true);
+            this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> daemon(runnable, "beacon-upstream-timer"));
+            this.scheduler.setRemoveOnCancelPolicy(true);
+            BeaconHttpClient client = new BeaconHttpClient(new GsonBuilder().create(),
+                                                           config.getConnectTimeoutMillis(),
+                                                           (int) Math.min(Integer.MAX_VALUE, config.getTimeoutMillis()));
+            for (Map.Entry<String, String> upstream : config.getUpstreams().entrySet()) {
+                upstreams.add(new Upstream(upstream.getKey(),
+                                           upstream.getValue(),
+                                           config,
+                                           client,
+                                           executor,
+                                           scheduler,
+                                           metrics != null ? metrics.getUpstream(upstream.getKey()) : new UpstreamMetrics()));
+            }
+        }
+
+        private static Thread daemon(Runnable runnable, String name) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+
+        private void shutdown() {
+            executor.shutdownNow();
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Answer of one upstream: its response or the failure.
+     */
+    private static final class UpstreamAnswer {
+
+        private final Upstream upstream;
+        private final BeaconAlleleResponse response;
+        private final Throwable failure;
+
+        private UpstreamAnswer(Upstream upstream, BeaconAlleleResponse response, Throwable failure) {
+            this.upstream = upstream;
+            this.response = response;
+            this.failure = failure;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        initAdapter(null);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        Federation current = federation;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    @Override
+    public void initAdapter(AdapterConfig adapterConfig) {
+        configure(adapterConfig != null && adapterConfig.getConfigValues() != null
+                          ? FederationConfig.fromAdapterConfig(adapterConfig)
+                          : FederationConfig.fromSystemProperties());
+    }
+
+    /**
+     * Switches to the given upstreams and fetches their beacon information in the background to learn their datasets.
+     *
+     * @param config federation settings
+     */
+    void configure(FederationConfig config) {
+        Federation previous = federation;
+        federation = new Federation(config, metrics);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        for (Upstream upstream : federation.upstreams) {
+            upstream.getInfo();
+        }
+    }
+
+    private Federation federation() {
+        Federation current = federation;
+        if (current == null) {
+            throw new IllegalStateException("Adapter is not initialized");
+        }
+        return current;
+    }
+
+    @Override
+    public CompletableFuture<BeaconAlleleResponse> getBeaconAlleleResponseAsync(BeaconAlleleRequest request) {
+        return query(request, VariantRange.none());
+    }
+
+    @Override
+    public CompletableFuture<BeaconAlleleResponse> getBeaconAlleleResponseAsync(BeaconAlleleRequest request, VariantRange range) {
+        return query(request, range);
+    }
+
+    @Override
+    public BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request) throws BeaconException {
+        return await(query(request, VariantRange.none()));
+    }
+
+    @Override
+    public BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request, VariantRange range) throws BeaconException {
+        return await(query(request, range));
+    }
+
+    @Override
+    public BeaconAlleleResponse getBeaconAlleleResponse(String referenceName, Long start, String referenceBases, String alternateBases, String assemblyId, List<String> datasetIds, Boolean includeDatasetResponses) throws BeaconException {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName(referenceName);
+        request.setStart(start);
+        request.setReferenceBases(referenceBases);
+        request.setAlternateBases(alternateBases);
+        request.setAssemblyId(assemblyId);
+        request.setDatasetIds(datasetIds);
+        request.setIncludeDatasetResponses(includeDatasetResponses != null && includeDatasetResponses);
+        return getBeaconAlleleResponse(request);
+    }
+
+    /**
+     * Upstream data changes without notice, so responses are cached for their time to live only.
+     */
+    @Override
+    public long getDataVersion() {
+        return -1;
+    }
+
+    @Override
+    public Beacon getBeacon() throws BeaconException {
+        return await(getBeaconAsync());
+    }
+
+    @Override
+    public CompletableFuture<Beacon> getBeaconAsync() {
+        Federation current = federation();
+        List<Upstream> upstreams = current.upstreams;
+        List<CompletableFuture<Beacon>> infos = new ArrayList<>(upstreams.size());
+        for (Upstream upstream : upstreams) {
+            infos.add(upstream.getInfo().exceptionally(failure -> null));
+        }
+        return CompletableFuture.allOf(infos.toArray(new CompletableFuture[infos.size()]))
+                                .thenApply(done -> createBeacon(current, infos));
+    }
+
+    private CompletableFuture<BeaconAlleleResponse> query(BeaconAlleleRequest request, VariantRange range) {
+        Federation current = federation();
+        boolean includeDatasets = Boolean.TRUE.equals(request.getIncludeDatasetResponses());
+        List<Upstream> targets = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        for (Upstream upstream : current.upstreams) {
+            List<String> datasetIds = upstream.route(request.getDatasetIds());
+            if (datasetIds != null) {
+                targets.add(upstream);
+                paths.add(queryPath(request, datasetIds, range));
+            }
+        }
+        if (targets.isEmpty()) {
+            BeaconAlleleResponse response = newResponse(current, request);
+            response.setExists(null);
+            response.setError(error(404, "Could not find dataset"));
+            return CompletableFuture.completedFuture(response);
+        }
+
+        CompletableFuture<BeaconAlleleResponse> merged = new CompletableFuture<>();
+        UpstreamAnswer[] answers = new UpstreamAnswer[targets.size()];
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            int index = i;
+            Upstream upstream = targets.get(i);
+            upstream.query(paths.get(i)).whenComplete((response, failure) -> {
+                answers[index] = new UpstreamAnswer(upstream, response, failure);
+                if (!includeDatasets && failure == null && response.getError() == null && Boolean.TRUE.equals(response.getExists())) {
+                    BeaconAlleleResponse found = newResponse(current, request);
+                    found.setExists(true);
+                    merged.complete(found);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    merged.complete(merge(current, request, answers, includeDatasets));
+                }
+            });
+        }
+        return merged;
+    }
+
+    private static BeaconAlleleResponse merge(Federation federation, BeaconAlleleRequest request, UpstreamAnswer[] answers, boolean includeDatasets) {
+        BeaconAlleleResponse merged = newResponse(federation, request);
+        List<BeaconDatasetAlleleResponse> datasets = includeDatasets ? new ArrayList<>() : null;
+        Boolean exists = null;
+        BeaconError firstError = null;
+        for (UpstreamAnswer answer : answers) {
+            BeaconError upstreamError = upstreamError(answer);
+            if (upstreamError != null) {
+                if (firstError == null) {
+                    firstError = upstreamError;
+                }
+                if (includeDatasets) {
+                    BeaconDatasetAlleleResponse failed = new BeaconDatasetAlleleResponse();
+                    failed.setDatasetId(answer.upstream.getId());
+                    failed.setExists(null);
+                    failed.setError(upstreamError);
+                    failed.setInfo(Collections.singletonMap(UPSTREAM_INFO, answer.upstream.getId()));
+                    datasets.add(failed);
+                }
+                continue;
+            }
+            if (answer.response.getExists() != null) {
+                exists = Boolean.TRUE.equals(exists) || answer.response.getExists();
+            }
+            if (includeDatasets && answer.response.getDatasetAlleleResponses() != null) {
+                for (BeaconDatasetAlleleResponse dataset : answer.response.getDatasetAlleleResponses()) {
+                    datasets.add(tag(dataset, answer.upstream.getId()));
+                }
+            }
+        }
+        if (!Boolean.TRUE.equals(exists) && firstError != null) {
+            // a failed upstream might have had the allele, so no upstream answering true does not mean absent
+            exists = null;
+        }
+        merged.setExists(exists);
+        merged.setDatasetAlleleResponses(datasets);
+        if (exists == null && !includeDatasets && firstError != null) {
+            merged.setError(firstError);
+        }
+        return merged;
+    }
+
+    private static BeaconError upstreamError(UpstreamAnswer answer) {
+        if (answer.failure != null) {
+            Throwable cause = answer.failure instanceof CompletionException && answer.failure.getCause() != null
+                    ? answer.failure.getCause()
+                    : answer.failure;
+            int code = cause instanceof UpstreamException
+                    ? ((UpstreamException) cause).getStatusCode()
+                    : UpstreamException.BAD_GATEWAY;
+            return error(code, cause.getMessage());
+        }
+        return answer.response.getError();
+    }
+
+    /**
+     * Copies a dataset response of an upstream, which may be cached and shared, adding the upstream id to its info.
+     */
+    private static BeaconDatasetAlleleResponse tag(BeaconDatasetAlleleResponse dataset, String upstreamId) {
+        BeaconDatasetAlleleResponse copy = new BeaconDatasetAlleleResponse();
+        copy.setDatasetId(dataset.getDatasetId());
+        copy.setExists(dataset.getExists());
+        copy.setError(dataset.getError());
+        copy.setFrequency(dataset.getFrequency());
+        copy.setVariantCount(dataset.getVariantCount());
+        copy.setCallCount(dataset.getCallCount());
+        copy.setSampleCount(dataset.getSampleCount());
+        copy.setNote(dataset.getNote());
+        copy.setExternalUrl(dataset.getExternalUrl());
+        Map<String, String> info = dataset.getInfo() != null ? new HashMap<>(dataset.getInfo()) : new HashMap<>();
+        info.put(UPSTREAM_INFO, upstreamId);
+        copy.setInfo(info);
+        return copy;
+    }
+
+    private static BeaconAlleleResponse newResponse(Federation federation, BeaconAlleleRequest request) {
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId(federation.config.getBeaconId());
+        response.setAlleleRequest(request);
+        return response;
+    }
+
+    private static BeaconError error(int code, String message) {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(code);
+        error.setMessage(message);
+        return error;
+    }
+
+    /**
+     * Builds the query of an upstream. Dataset ids are sorted so equal queries share a cache entry.
+     */
+    static String queryPath(BeaconAlleleRequest request, List<String> datasetIds, VariantRange range) {
+        StringBuilder path = new StringBuilder("/query?");
+        param(path, "referenceName", request.getReferenceName());
+        param(path, "start", request.getStart());
+        param(path, "referenceBases", request.getReferenceBases());
+        param(path, "alternateBases", request.getAlternateBases());
+        param(path, "assemblyId", request.getAssemblyId());
+        List<String> sorted = new ArrayList<>(datasetIds);
+        Collections.sort(sorted);
+        for (String datasetId : sorted) {
+            param(path, "datasetIds", datasetId);
+        }
+        param(path, "includeDatasetResponses", Boolean.TRUE.equals(request.getIncludeDatasetResponses()));
+        param(path, "end", range.getEnd());
+        param(path, "startMin", range.getStartMin());
+        param(path, "startMax", range.getStartMax());
+        param(path, "endMin", range.getEndMin());
+        param(path, "endMax", range.getEndMax());
+        param(path, "variantType", range.getVariantType());
+        param(path, "cohortId", range.getCohortId());
+        return path.toString();
+    }
+
+    private static void param(StringBuilder path, String name, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (path.charAt(path.length() - 1) != '?') {
+            path.append('&');
+        }
+        path.append(name).append('=').append(BeaconHttpClient.encode(value.toString()));
+    }
+
+    private static Beacon createBeacon(Federation federation, List<CompletableFuture<Beacon>> infos) {
+        List<BeaconDataset> datasets = new ArrayList<>();
+        Map<String, String> info = new LinkedHashMap<>();
+        for (int i = 0; i < federation.upstreams.size(); i++) {
+            Upstream upstream = federation.upstreams.get(i);
+            Beacon upstreamInfo = infos.get(i).join();
+            if (upstreamInfo != null && upstreamInfo.getDatasets() != null) {
+                datasets.addAll(upstreamInfo.getDatasets());
+            }
+            UpstreamMetrics metrics = upstream.getMetrics();
+            String prefix = UPSTREAM_INFO + "." + upstream.getId() + ".";
+            info.put(prefix + "url", upstream.getBaseUrl());
+            info.put(prefix + "state", upstreamInfo != null ? upstream.getState().name() : "UNREACHABLE");
+            info.put(prefix + "p50Millis", millis(metrics.getLatency().getValueAtQuantile(0.5)));
+            info.put(prefix + "p99Millis", millis(metrics.getLatency().getValueAtQuantile(0.99)));
+        }
+        Beacon beacon = new Beacon();
+        beacon.setId(federation.config.getBeaconId());
+        beacon.setName("Federated Beacon");
+        beacon.setApiVersion(API_VERSION);
+        beacon.setVersion(API_VERSION);
+        beacon.setDescription("Beacon answering from " + federation.upstreams.size() + " upstream beacons");
+        beacon.setDatasets(datasets);
+        beacon.setSampleAlleleRequests(Collections.<BeaconAlleleRequest>emptyList());
+        beacon.setInfo(info);
+        return beacon;
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws BeaconException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeaconException(Reason.UNEXPECTED_ERROR, "Interrupted while querying upstream beacons");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BeaconException(Reason.UNEXPECTED_ERROR, String.valueOf(e.getCause().getMessage()));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import com.dnastack.beacon.utils.AdapterConfig;
+import com.dnastack.beacon.utils.ConfigValue;
+
+import java.util.*;
+
+/**
+ * Settings of the {@link FederatedBeaconAdapterImpl}, read from the adapter config or, without one, from system
+ * properties named {@code beacon.federation.<setting>}.
+ *
+ * @version 1.0
+ */
+public final class FederationConfig {
+
+    /**
+     * Adapter config value (may be repeated) with an upstream beacon, as {@code <id>=<base url>} or just the base url.
+     */
+    public static final String UPSTREAM = "upstream";
+
+    /**
+     * System property with comma separated upstream beacons, used when the adapter is initialized without a config.
+     */
+    public static final String UPSTREAMS_PROPERTY = "beacon.federation.upstreams";
+
+    /**
+     * Prefix of the system properties holding the other settings.
+     */
+    public static final String PROPERTY_PREFIX = "beacon.federation.";
+
+    public static final String BEACON_ID = "beaconId";
+    public static final String TIMEOUT_MILLIS = "timeoutMillis";
+    public static final String CONNECT_TIMEOUT_MILLIS = "connectTimeoutMillis";
+    public static final String HEDGE_QUANTILE = "hedgeQuantile";
+    public static final String HEDGE_AFTER_MILLIS = "hedgeAfterMillis";
+    public static final String FAILURE_THRESHOLD = "failureThreshold";
+    public static final String OPEN_MILLIS = "openMillis";
+    public static final String THREADS = "threads";
+    public static final String CACHE_MAX_ENTRIES = "cacheMaxEntries";
+    public static final String CACHE_TTL_SECONDS = "cacheTtlSeconds";
+
+    private static final String[] SETTINGS = {BEACON_ID, TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS, HEDGE_QUANTILE,
+                                              HEDGE_AFTER_MILLIS, FAILURE_THRESHOLD, OPEN_MILLIS, THREADS,
+                                              CACHE_MAX_ENTRIES, CACHE_TTL_SECONDS};
+
+    private final Map<String, String> upstreams;
+    private final String beaconId;
+    private final long timeoutMillis;
+    private final int connectTimeoutMillis;
+    private final double hedgeQuantile;
+    private final long hedgeAfterMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int threads;
+    private final int cacheMaxEntries;
+    private final long cacheTtlSeconds;
+
+    private FederationConfig(List<String> upstreams, Map<String, String> settings) {
+        Map<String, String> byId = new LinkedHashMap<>();
+        for (String upstream : upstreams) {
+            String value = upstream.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            int separator = value.indexOf('=');
+            String url = separator < 0 ? value : value.substring(separator + 1).trim();
+            String id = separator < 0 ? url : value.substring(0, separator).trim();
+            while (url.endsWith("/")) {
+                url = url.substring(0, url.length() - 1);
+            }
+            if (byId.put(id, url) != null) {
+                throw new IllegalArgumentException("Duplicate upstream beacon id " + id);
+            }
+        }
+        this.upstreams = Collections.unmodifiableMap(byId);
+        this.beaconId = settings.getOrDefault(BEACON_ID, "federated-beacon");
+        this.timeoutMillis = Long.parseLong(settings.getOrDefault(TIMEOUT_MILLIS, "5000"));
+        this.connectTimeoutMillis = Integer.parseInt(settings.getOrDefault(CONNECT_TIMEOUT_MILLIS, "1000"));
+        this.hedgeQuantile = Double.parseDouble(settings.getOrDefault(HEDGE_QUANTILE, "0.95"));
+        this.hedgeAfterMillis = Long.parseLong(settings.getOrDefault(HEDGE_AFTER_MILLIS, "0"));
+        this.failureThreshold = Integer.parseInt(settings.getOrDefault(FAILURE_THRESHOLD, "5"));
+        this.openMillis = Long.parseLong(settings.getOrDefault(OPEN_MILLIS, "30000"));
+        this.threads = Integer.parseInt(settings.getOrDefault(THREADS, "128"));
+        this.cacheMaxEntries = Integer.parseInt(settings.getOrDefault(CACHE_MAX_ENTRIES, "10000"));
+        this.cacheTtlSeconds = Long.parseLong(settings.getOrDefault(CACHE_TTL_SECONDS, "60"));
+        if (timeoutMillis <= 0 || threads <= 0 || failureThreshold <= 0) {
+            throw new IllegalArgumentException("Timeout, threads and failure threshold of the federation must be positive");
+        }
+    }
+
+    /**
+     * @param upstreams upstream beacons, as {@code <id>=<base url>} or just the base url
+     * @param settings  other settings by name, missing ones take their defaults
+     * @return config
+     */
+    public static FederationConfig of(List<String> upstreams, Map<String, String> settings) {
+        return new FederationConfig(upstreams, settings);
+    }
+
+    public static FederationConfig fromAdapterConfig(AdapterConfig adapterConfig) {
+        List<String> upstreams = new ArrayList<>();
+        Map<String, String> settings = new HashMap<>();
+        for (ConfigValue value : adapterConfig.getConfigValues()) {
+            if (UPSTREAM.equals(value.getName())) {
+                upstreams.add(value.getValue());
+            } else if (value.getName() != null) {
+                settings.put(value.getName(), value.getValue());
+            }
+        }
+        return new FederationConfig(upstreams, settings);
+    }
+
+    public static FederationConfig fromSystemProperties() {
+        Map<String, String> settings = new HashMap<>();
+        for (String setting : SETTINGS) {
+            String value = System.getProperty(PROPERTY_PREFIX + setting);
+            if (value != null) {
+                settings.put(setting, value);
+            }
+        }
+        String upstreams = System.getProperty(UPSTREAMS_PROPERTY, "");
+        return new FederationConfig(Arrays.asList(upstreams.split(",")), settings);
+    }
+
+    /**
+     * @return base urls of the upstream beacons keyed by their ids, in configuration order
+     */
+    public Map<String, String> getUpstreams() {
+        return upstreams;
+    }
+
+    public String getBeaconId() {
+        return beaconId;
+    }
+
+    /**
+     * @return time after which an upstream beacon that has not answered is reported as failed, in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @return latency quantile of an upstream after which a query is sent again, 0 disables hedging
+     */
+    public double getHedgeQuantile() {
+        return hedgeQuantile;
+    }
+
+    /**
+     * @return fixed delay after which a query is sent again in milliseconds, 0 derives it from {@link #getHedgeQuantile()}
+     */
+    public long getHedgeAfterMillis() {
+        return hedgeAfterMillis;
+    }
+
+    /**
+     * @return consecutive failures opening the circuit of an upstream
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * @return time an open circuit rejects queries before letting a trial query through, in milliseconds
+     */
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return maximum number of cached upstream responses per upstream, 0 disables the cache
+     */
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public long getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+}
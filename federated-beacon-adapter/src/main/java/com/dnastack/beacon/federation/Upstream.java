@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import com.dnastack.beacon.service.cache.SegmentedLruCache;
+import com.dnastack.beacon.service.metrics.UpstreamMetrics;
+import org.ga4gh.beacon.Beacon;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDataset;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One upstream beacon of the federation. Queries are sent on the federation's executor and fail after the configured
+ * timeout; a query still unanswered after the upstream's usual latency (a quantile of its latency histogram, or a
+ * fixed delay) is sent once more and the first answer wins. A {@link CircuitBreaker} stops queries to an upstream that
+ * keeps failing, and answers and the upstream's beacon information are cached for a short time.
+ *
+ * @version 1.0
+ */
+final class Upstream {
+
+    /**
+     * Latencies recorded before the hedge delay is derived from the histogram.
+     */
+    private static final long HEDGE_MIN_SAMPLES = 100;
+    private static final long HEDGE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String id;
+    private final String baseUrl;
+    private final FederationConfig config;
+    private final BeaconHttpClient client;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final CircuitBreaker breaker;
+    private final UpstreamMetrics metrics;
+    private final SegmentedLruCache<String, BeaconAlleleResponse> cache;
+
+    private volatile Set<String> datasetIds;
+    private volatile CompletableFuture<Beacon> info;
+    private volatile long infoFetchedAt;
+    private volatile long hedgeDelayNanos;
+    private volatile long hedgeDelayComputedAt;
+
+    Upstream(String id, String baseUrl, FederationConfig config, BeaconHttpClient client, Executor executor, ScheduledExecutorService scheduler, UpstreamMetrics metrics) {
+        this.id = id;
+        this.baseUrl = baseUrl;
+        this.config = config;
+        this.client = client;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.breaker = new CircuitBreaker(config.getFailureThreshold(), config.getOpenMillis());
+        this.cache = config.getCacheMaxEntries() > 0
+                ? new SegmentedLruCache<>(config.getCacheMaxEntries(), config.getCacheTtlSeconds(), TimeUnit.SECONDS)
+                : null;
+        this.hedgeDelayComputedAt = System.nanoTime() - HEDGE_REFRESH_NANOS;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    UpstreamMetrics getMetrics() {
+        return metrics;
+    }
+
+    CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * Picks the requested datasets served by this upstream.
+     *
+     * @param requested requested dataset ids, null or empty for all datasets
+     * @return dataset ids to forward, empty for all datasets, or null if the upstream serves none of the requested ones
+     */
+    List<String> route(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> served = datasetIds;
+        if (served == null) {
+            // not known yet, the upstream answers for the datasets it has
+            return requested;
+        }
+        List<String> routed = new ArrayList<>();
+        for (String datasetId : requested) {
+            if (served.contains(datasetId)) {
+                routed.add(datasetId);
+            }
+        }
+        return routed.isEmpty() ? null : routed;
+    }
+
+    /**
+     * @param pathAndQuery path of the query below the base url, starting with a slash
+     * @return future completed with the upstream's answer, or failed with an {@link UpstreamException}
+     */
+    CompletableFuture<BeaconAlleleResponse> query(String pathAndQuery) {
+        String url = baseUrl + pathAndQuery;
+        if (cache != null) {
+            BeaconAlleleResponse cached = cache.get(url);
+            if (cached != null) {
+                metrics.record(UpstreamMetrics.Event.CACHE_HIT);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        return send(url, BeaconAlleleResponse.class, true).whenComplete((response, failure) -> {
+            if (failure == null && cache != null) {
+                cache.put(url, response, 0);
+            }
+        });
+    }
+
+    /**
+     * Returns the beacon information of the upstream, fetched again once it is older than the cache time to live or
+     * the last fetch failed. Concurrent callers share a fetch in progress.
+     *
+     * @return future completed with the upstream's beacon information, or failed with an {@link UpstreamException}
+     */
+    CompletableFuture<Beacon> getInfo() {
+        CompletableFuture<Beacon> current = info;
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = info;
+            if (!isFresh(current)) {
+                current = fetchInfo();
+                info = current;
+            }
+            return current;
+        }
+    }
+
+    private boolean isFresh(CompletableFuture<Beacon> fetched) {
+        if (fetched == null) {
+            return false;
+        }
+        if (!fetched.isDone()) {
+            return true;
+        }
+        return !fetched.isCompletedExceptionally()
+                && System.nanoTime() - infoFetchedAt < TimeUnit.SECONDS.toNanos(config.getCacheTtlSeconds());
+    }
+
+    /**
+     * Fetches the beacon information of the upstream and remembers the datasets it serves.
+     */
+    private CompletableFuture<Beacon> fetchInfo() {
+        return send(baseUrl + "/", Beacon.class, false).whenComplete((beacon, failure) -> {
+            if (failure == null) {
+                infoFetchedAt = System.nanoTime();
+            }
+            if (failure == null && beacon.getDatasets() != null) {
+                Set<String> served = new HashSet<>();
+                for (BeaconDataset dataset : beacon.getDatasets()) {
+                    served.add(dataset.getId());
+                }
+                datasetIds = Collections.unmodifiableSet(served);
+            }
+        });
+    }
+
+    /**
+     * Sends a request with a timeout. Allele queries are also hedged and pass the circuit breaker; information requests,
+     * which are rare and only refresh the routing, are neither.
+     */
+    private <T> CompletableFuture<T> send(String url, Class<T> type, boolean query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (query && !breaker.tryAcquire()) {
+            metrics.record(UpstreamMetrics.Event.REJECTED);
+            result.completeExceptionally(new UpstreamException(UpstreamException.SERVICE_UNAVAILABLE,
+                                                               "Upstream beacon " + id + " is failing, circuit open"));
+            return result;
+        }
+        long started = System.nanoTime();
+        AtomicInteger attempts = new AtomicInteger(1);
+        attempt(url, type, result, attempts);
+        ScheduledFuture<?> hedge = null;
+        long hedgeDelay = query ? hedgeDelayNanos() : 0;
+        if (hedgeDelay > 0) {
+            hedge = scheduler.schedule(() -> {
+                if (!result.isDone() && breaker.getState() == CircuitBreaker.State.CLOSED) {
+                    attempts.incrementAndGet();
+                    metrics.record(UpstreamMetrics.Event.HEDGE);
+                    attempt(url, type, result, attempts);
+                }
+            }, hedgeDelay, TimeUnit.NANOSECONDS);
+        }
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+            result.completeExceptionally(new UpstreamException(UpstreamException.GATEWAY_TIMEOUT,
+                                                               "Upstream beacon " + id + " did not answer within " + config.getTimeoutMillis() + " ms"));
+        }, config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> pendingHedge = hedge;
+        return result.whenComplete((value, failure) -> {
+            timeout.cancel(false);
+            if (pendingHedge != null) {
+                pendingHedge.cancel(false);
+            }
+            if (!query) {
+                return;
+            }
+            metrics.getLatency().recordSince(started);
+            if (failure == null) {
+                breaker.onSuccess();
+                metrics.record(UpstreamMetrics.Event.SUCCESS);
+            } else if (failure instanceof UpstreamException && !((UpstreamException) failure).isUpstreamFault()) {
+                breaker.onSuccess();
+                metrics.record(UpstreamMetrics.Event.FAILURE);
+            } else {
+                breaker.onFailure();
+                boolean timedOut = failure instanceof UpstreamException
+                        && ((UpstreamException) failure).getStatusCode() == UpstreamException.GATEWAY_TIMEOUT;
+                metrics.record(timedOut ? UpstreamMetrics.Event.TIMEOUT : UpstreamMetrics.Event.FAILURE);
+            }
+        });
+    }
+
+    /**
+     * Sends one attempt of a query. The result fails only once every attempt has failed.
+     */
+    private <T> void attempt(String url, Class<T> type, CompletableFuture<T> result, AtomicInteger attempts) {
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(client.get(url, type));
+                } catch (UpstreamException e) {
+                    if (attempts.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                } catch (RuntimeException e) {
+                    if (attempts.decrementAndGet() == 0) {
+                        result.completeExceptionally(new UpstreamException(UpstreamException.BAD_GATEWAY, e.getMessage(), e));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (attempts.decrementAndGet() == 0) {
+                result.completeExceptionally(new UpstreamException(UpstreamException.SERVICE_UNAVAILABLE,
+                                                                   "Too many queries to upstream beacons in flight", e));
+            }
+        }
+    }
+
+    /**
+     * @return delay after which a query is hedged in nanoseconds, 0 if it is not
+     */
+    private long hedgeDelayNanos() {
+        if (config.getHedgeAfterMillis() > 0) {
+            return TimeUnit.MILLISECONDS.toNanos(config.getHedgeAfterMillis());
+        }
+        if (config.getHedgeQuantile() <= 0 || metrics.getLatency().getCount() < HEDGE_MIN_SAMPLES) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt >= HEDGE_REFRESH_NANOS) {
+            long delay = metrics.getLatency().getValueAtQuantile(config.getHedgeQuantile());
+            // a hedge that cannot answer before the timeout only adds load
+            hedgeDelayNanos = delay < TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMillis()) ? delay : 0;
+            hedgeDelayComputedAt = now;
+        }
+        return hedgeDelayNanos;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the federated adapter against local stub beacons.
+ */
+public class FederatedBeaconAdapterTest {
+
+    private final List<StubBeacon> stubs = new ArrayList<>();
+    private final FederatedBeaconAdapterImpl adapter = new FederatedBeaconAdapterImpl();
+
+    @After
+    public void tearDown() {
+        adapter.destroy();
+        for (StubBeacon stub : stubs) {
+            stub.close();
+        }
+    }
+
+    @Test
+    public void testMergesUpstreamAnswers() throws Exception {
+        StubBeacon a = stub("a1", true);
+        StubBeacon b = stub("b1", false);
+        configure(Collections.<String, String>emptyMap(), "a=" + a.getUrl(), "b=" + b.getUrl());
+
+        BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request(true));
+
+        assertThat(response.getExists()).isTrue();
+        List<String> datasetIds = new ArrayList<>();
+        for (BeaconDatasetAlleleResponse dataset : response.getDatasetAlleleResponses()) {
+            datasetIds.add(dataset.getDatasetId());
+        }
+        assertThat(datasetIds).containsExactly("a1", "b1");
+        assertThat(response.getDatasetAlleleResponses().get(1).getInfo())
+                .containsEntry(FederatedBeaconAdapterImpl.UPSTREAM_INFO, "b");
+        assertThat(adapter.getBeacon().getDatasets()).hasSize(2);
+    }
+
+    @Test
+    public void testSlowUpstreamTimesOut() throws Exception {
+        StubBeacon fast = stub("fast", false);
+        StubBeacon slow = stub("slow", true).slow(3000, Integer.MAX_VALUE);
+        configure(settings(FederationConfig.TIMEOUT_MILLIS, "300", FederationConfig.HEDGE_QUANTILE, "0"),
+                  "fast=" + fast.getUrl(), "slow=" + slow.getUrl());
+
+        long started = System.nanoTime();
+        BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request(true));
+
+        assertThat(System.nanoTime() - started).isLessThan(2000000000L);
+        assertThat(response.getExists()).isNull();
+        BeaconDatasetAlleleResponse timedOut = response.getDatasetAlleleResponses().get(1);
+        assertThat(timedOut.getDatasetId()).isEqualTo("slow");
+        assertThat(timedOut.getExists()).isNull();
+        assertThat(timedOut.getError().getErrorCode()).isEqualTo(UpstreamException.GATEWAY_TIMEOUT);
+    }
+
+    @Test
+    public void testFailedUpstreamLeavesAbsenceUnanswered() throws Exception {
+        StubBeacon absent = stub("absent", false);
+        StubBeacon failing = stub("failing", true).failing(500);
+        configure(settings(FederationConfig.HEDGE_QUANTILE, "0"),
+                  "absent=" + absent.getUrl(), "failing=" + failing.getUrl());
+
+        BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request(false));
+
+        assertThat(response.getExists()).isNull();
+        assertThat(response.getError().getErrorCode()).isEqualTo(UpstreamException.BAD_GATEWAY);
+    }
+
+    @Test
+    public void testHedgesSlowQuery() throws Exception {
+        StubBeacon stub = stub("a1", true).slow(3000, 1);
+        configure(settings(FederationConfig.TIMEOUT_MILLIS, "2000", FederationConfig.HEDGE_AFTER_MILLIS, "50"),
+                  "a=" + stub.getUrl());
+
+        long started = System.nanoTime();
+        BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request(false));
+
+        assertThat(response.getExists()).isTrue();
+        assertThat(System.nanoTime() - started).isLessThan(1500000000L);
+        assertThat(stub.getQueries()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCircuitOpensAfterFailures() throws Exception {
+        StubBeacon stub = stub("a1", true).failing(500);
+        configure(settings(FederationConfig.FAILURE_THRESHOLD, "2", FederationConfig.HEDGE_QUANTILE, "0"),
+                  "a=" + stub.getUrl());
+
+        for (int i = 0; i < 2; i++) {
+            BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request(false));
+            assertThat(response.getExists()).isNull();
+            assertThat(response.getError().getErrorCode()).isEqualTo(UpstreamException.BAD_GATEWAY);
+        }
+        BeaconAlleleResponse rejected = adapter.getBeaconAlleleResponse(request(false));
+
+        assertThat(rejected.getError().getErrorCode()).isEqualTo(UpstreamException.SERVICE_UNAVAILABLE);
+        assertThat(stub.getQueries()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCachesAnswers() throws Exception {
+        StubBeacon stub = stub("a1", true);
+        configure(Collections.<String, String>emptyMap(), "a=" + stub.getUrl());
+
+        adapter.getBeaconAlleleResponse(request(true));
+        BeaconAlleleResponse cached = adapter.getBeaconAlleleResponse(request(true));
+
+        assertThat(cached.getExists()).isTrue();
+        assertThat(stub.getQueries()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCachesUpstreamInformation() throws Exception {
+        StubBeacon stub = stub("a1", true);
+        configure(Collections.<String, String>emptyMap(), "a=" + stub.getUrl());
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(adapter.getBeacon().getDatasets()).hasSize(1);
+        }
+
+        assertThat(stub.getInfoRequests()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRoutesRequestsToUpstreamsServingTheDatasets() throws Exception {
+        StubBeacon a = stub("a1", true);
+        StubBeacon b = stub("b1", false);
+        configure(Collections.<String, String>emptyMap(), "a=" + a.getUrl(), "b=" + b.getUrl());
+        adapter.getBeacon();
+
+        BeaconAlleleRequest request = request(true);
+        request.setDatasetIds(Collections.singletonList("b1"));
+        BeaconAlleleResponse response = adapter.getBeaconAlleleResponse(request);
+
+        assertThat(response.getExists()).isFalse();
+        assertThat(a.getQueries()).isZero();
+        assertThat(b.getQueries()).isEqualTo(1);
+    }
+
+    private StubBeacon stub(String datasetId, boolean exists) throws Exception {
+        StubBeacon stub = new StubBeacon(datasetId, exists);
+        stubs.add(stub);
+        return stub;
+    }
+
+    private void configure(Map<String, String> settings, String... upstreams) {
+        adapter.configure(FederationConfig.of(Arrays.asList(upstreams), settings));
+    }
+
+    private static Map<String, String> settings(String... namesAndValues) {
+        Map<String, String> settings = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            settings.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return settings;
+    }
+
+    private static BeaconAlleleRequest request(boolean includeDatasetResponses) {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setReferenceName("1");
+        request.setStart(1000L);
+        request.setReferenceBases("A");
+        request.setAlternateBases("C");
+        request.setAssemblyId("GRCh37");
+        request.setIncludeDatasetResponses(includeDatasetResponses);
+        return request;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.federation;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.ga4gh.beacon.Beacon;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDataset;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server answering beacon queries with a fixed answer, optionally slowly or with an error status.
+ */
+class StubBeacon implements AutoCloseable {
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final String datasetId;
+    private final boolean exists;
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger infoRequests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMillis;
+    private volatile int slowQueries = Integer.MAX_VALUE;
+
+    StubBeacon(String datasetId, boolean exists) throws IOException {
+        this.datasetId = datasetId;
+        this.exists = exists;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/query", this::query);
+        server.createContext("/", exchange -> {
+            infoRequests.incrementAndGet();
+            respond(exchange, 200, gson.toJson(info()));
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Delays the first {@code slowQueries} queries.
+     */
+    StubBeacon slow(long delayMillis, int slowQueries) {
+        this.delayMillis = delayMillis;
+        this.slowQueries = slowQueries;
+        return this;
+    }
+
+    StubBeacon failing(int status) {
+        this.status = status;
+        return this;
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int getQueries() {
+        return queries.get();
+    }
+
+    int getInfoRequests() {
+        return infoRequests.get();
+    }
+
+    private void query(HttpExchange exchange) throws IOException {
+        if (queries.incrementAndGet() <= slowQueries && delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (status != 200) {
+            respond(exchange, status, "{}");
+            return;
+        }
+        BeaconDatasetAlleleResponse dataset = new BeaconDatasetAlleleResponse();
+        dataset.setDatasetId(datasetId);
+        dataset.setExists(exists);
+        BeaconAlleleResponse response = new BeaconAlleleResponse();
+        response.setBeaconId("stub");
+        response.setExists(exists);
+        if (exchange.getRequestURI().getRawQuery().contains("includeDatasetResponses=true")) {
+            List<BeaconDatasetAlleleResponse> datasets = new ArrayList<>();
+            datasets.add(dataset);
+            response.setDatasetAlleleResponses(datasets);
+        }
+        respond(exchange, 200, gson.toJson(response));
+    }
+
+    private Beacon info() {
+        BeaconDataset dataset = new BeaconDataset();
+        dataset.setId(datasetId);
+        Beacon beacon = new Beacon();
+        beacon.setId("stub");
+        beacon.setDatasets(Collections.singletonList(dataset));
+        return beacon;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
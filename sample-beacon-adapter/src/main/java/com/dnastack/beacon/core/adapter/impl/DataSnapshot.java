@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable view of all datasets served by the adapter at one data version. A query acquires the current snapshot
+ * once and reads every dataset from it, so it never mixes datasets of two releases. Acquiring and releasing only
+ * update a reference count, so readers never block; the adapter holds one reference of its own until the snapshot is
+ * replaced, and the data is closed, its files unmapped and its direct memory freed, as soon as the last reader
+ * releases it.
+ *
+ * @version 1.0
+ */
+final class DataSnapshot {
+
+    private static final int RELEASED = -1;
+
+    private final long version;
+    private final String loadDateTime;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile SampleDataStore dataStore;
+
+    DataSnapshot(SampleDataStore dataStore, long version, String loadDateTime) {
+        this.dataStore = dataStore;
+        this.version = version;
+        this.loadDateTime = loadDateTime;
+    }
+
+    /**
+     * Adds a reader reference.
+     *
+     * @return false if the snapshot was already released and must not be read
+     */
+    boolean acquire() {
+        for (; ; ) {
+            int count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops a reference acquired by {@link #acquire()}, or the adapter's own reference once the snapshot was replaced.
+     */
+    void release() {
+        if (references.decrementAndGet() == 0 && references.compareAndSet(0, RELEASED)) {
+            SampleDataStore released = dataStore;
+            dataStore = null;
+            released.close();
+        }
+    }
+
+    boolean isReleased() {
+        return references.get() == RELEASED;
+    }
+
+    SampleDataStore getDataStore() {
+        return dataStore;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    String getLoadDateTime() {
+        return loadDateTime;
+    }
+}
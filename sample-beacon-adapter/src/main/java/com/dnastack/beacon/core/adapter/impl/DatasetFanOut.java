@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.impl;
+
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.ga4gh.beacon.BeaconError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Looks up the datasets of a query concurrently on a bounded pool of threads. A lookup the pool does not accept, as its
+ * queue is full or it is shut down, runs on the calling thread, so every submitted lookup completes. Waiting for the
+ * lookups of a query is bounded by a timeout; datasets not answered by then get a 503 error response.
+ *
+ * @version 1.0
+ */
+final class DatasetFanOut {
+
+    static final int TIMED_OUT = 503;
+
+    private static final Logger LOGGER = Logger.getLogger(DatasetFanOut.class.getName());
+    private static final int QUEUE_PER_THREAD = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutNanos;
+
+    /**
+     * @param threads       number of lookup threads
+     * @param timeoutMillis time a query waits for its lookups
+     */
+    DatasetFanOut(int threads, long timeoutMillis) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads,
+                                          threads,
+                                          60,
+                                          TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                                          runnable -> {
+                                              Thread thread = new Thread(runnable, "beacon-lookup-" + count.incrementAndGet());
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          },
+                                          (task, rejectedBy) -> task.run());
+        executor.allowCoreThreadTimeOut(true);
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * @param datasetIds datasets to look up
+     * @param lookup     lookup of a single dataset
+     * @return dataset responses in the order of the dataset ids
+     */
+    List<BeaconDatasetAlleleResponse> lookupAll(List<String> datasetIds, Function<String, BeaconDatasetAlleleResponse> lookup) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Future<BeaconDatasetAlleleResponse>> futures = new ArrayList<>(datasetIds.size());
+        try {
+            for (String datasetId : datasetIds) {
+                futures.add(executor.submit(() -> lookup.apply(datasetId)));
+            }
+            List<BeaconDatasetAlleleResponse> responses = new ArrayList<>(datasetIds.size());
+            for (int i = 0; i < futures.size(); i++) {
+                responses.add(await(futures.get(i), datasetIds.get(i), deadline - System.nanoTime()));
+            }
+            return responses;
+        } finally {
+            cancel(futures);
+        }
+    }
+
+    /**
+     * Determines whether any dataset contains the allele, returning as soon as one does without waiting for the others.
+     *
+     * @param datasetIds datasets to look up
+     * @param lookup     lookup of a single dataset
+     * @return true if a dataset contains the allele, false if none does, null if none did before the timeout but some
+     * datasets were not answered
+     */
+    Boolean anyExists(List<String> datasetIds, Function<String, BeaconDatasetAlleleResponse> lookup) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletionService<BeaconDatasetAlleleResponse> completion = new ExecutorCompletionService<>(executor);
+        List<Future<BeaconDatasetAlleleResponse>> futures = new ArrayList<>(datasetIds.size());
+        try {
+            for (String datasetId : datasetIds) {
+                futures.add(completion.submit(() -> lookup.apply(datasetId)));
+            }
+            boolean unanswered = false;
+            for (int i = 0; i < futures.size(); i++) {
+                Future<BeaconDatasetAlleleResponse> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    return null;
+                }
+                BeaconDatasetAlleleResponse response = await(done, null, 0);
+                if (Boolean.TRUE.equals(response.getExists())) {
+                    return true;
+                }
+                unanswered |= isTimedOut(response);
+            }
+            return unanswered ? null : false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up datasets", e);
+        } finally {
+            cancel(futures);
+        }
+    }
+
+    /**
+     * Stops accepting lookups and waits up to the timeout for the queued ones to finish. Lookups still queued then are
+     * cancelled, so that no query waits for them.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            LOGGER.warning("Dataset lookups did not finish in time, cancelling them");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable queued : executor.shutdownNow()) {
+            if (queued instanceof Future) {
+                ((Future<?>) queued).cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @return whether the response is the one of a dataset not answered in time
+     */
+    static boolean isTimedOut(BeaconDatasetAlleleResponse response) {
+        return response.getError() != null && response.getError().getErrorCode() == TIMED_OUT;
+    }
+
+    private static BeaconDatasetAlleleResponse await(Future<BeaconDatasetAlleleResponse> future, String datasetId, long timeoutNanos) {
+        try {
+            return future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            return timedOut(datasetId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up datasets", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static BeaconDatasetAlleleResponse timedOut(String datasetId) {
+        BeaconError error = new BeaconError();
+        error.setErrorCode(TIMED_OUT);
+        error.setMessage("Dataset lookup timed out");
+        BeaconDatasetAlleleResponse response = new BeaconDatasetAlleleResponse();
+        response.setDatasetId(datasetId);
+        response.setError(error);
+        return response;
+    }
+
+    private static void cancel(List<Future<BeaconDatasetAlleleResponse>> futures) {
+        for (Future<BeaconDatasetAlleleResponse> future : futures) {
+            future.cancel(false);
+        }
+    }
+}
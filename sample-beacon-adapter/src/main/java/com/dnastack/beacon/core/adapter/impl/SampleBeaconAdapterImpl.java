@@ -23,33 +23,187 @@
  */
 package com.dnastack.beacon.core.adapter.impl;
 
-import com.dnastack.beacon.adapter.api.BeaconAdapter;
+import com.dnastack.beacon.core.adapter.index.AlleleDictionary;
+import com.dnastack.beacon.core.adapter.index.ContigIndex;
+import com.dnastack.beacon.core.adapter.index.DatasetFilter;
+import com.dnastack.beacon.core.adapter.index.DatasetIndex;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+import com.dnastack.beacon.core.adapter.liftover.ChainIndex;
+import com.dnastack.beacon.core.adapter.liftover.LiftedQuery;
 import com.dnastack.beacon.exceptions.BeaconException;
+import com.dnastack.beacon.service.adapter.ExtendedBeaconAdapter;
+import com.dnastack.beacon.service.api.VariantRange;
+import com.dnastack.beacon.service.metrics.BeaconMetrics;
 import com.dnastack.beacon.utils.AdapterConfig;
+import com.dnastack.beacon.utils.ConfigValue;
 import org.ga4gh.beacon.*;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
 
 /**
+ * Sample adapter serving variant index files. All datasets are published together as one {@link DataSnapshot}, which
+ * queries read without locking; {@link #reload()} builds the next snapshot in the background and swaps it in.
+ *
  * @author patrickmagee
  */
 @Singleton
-public class SampleBeaconAdapterImpl implements BeaconAdapter {
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SampleBeaconAdapterImpl implements ExtendedBeaconAdapter {
 
     public static final String API_VERSION = "0.3.0";
     public static final String BEACON_ID = "beacon_id";
     public static final String DATASET_ID = "dataset_id";
     public static final String ORG_ID = "org_id";
 
-    private SampleDataStore dataStore;
+    /**
+     * Adapter config value (may be repeated) with an index file or a directory of index files to serve.
+     */
+    public static final String INDEX_PATH = "indexPath";
+
+    /**
+     * System property with comma separated index paths, used when the adapter is initialized without a config.
+     */
+    public static final String INDEX_PATH_PROPERTY = "beacon.sample.indexPath";
+
+    /**
+     * Adapter config value with the Bloom filter false positive rate of every dataset, 0 disables the filters. A value
+     * named {@code bloomFalsePositiveRate.<datasetId>} overrides the rate of a single dataset.
+     */
+    public static final String BLOOM_FALSE_POSITIVE_RATE = "bloomFalsePositiveRate";
+
+    /**
+     * System property with the Bloom filter false positive rate, used when the adapter is initialized without a config.
+     */
+    public static final String BLOOM_FALSE_POSITIVE_RATE_PROPERTY = "beacon.sample.bloomFalsePositiveRate";
+
+    public static final double DEFAULT_BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * Adapter config value with the number of threads looking up datasets concurrently, 0 looks them up on the
+     * request thread. Defaults to the number of processors.
+     */
+    public static final String FAN_OUT_THREADS = "fanOutThreads";
+
+    /**
+     * System property with the number of fan-out threads, used when the adapter is initialized without a config.
+     */
+    public static final String FAN_OUT_THREADS_PROPERTY = "beacon.sample.fanOutThreads";
+
+    /**
+     * Adapter config value with the time a query waits for its dataset lookups, in milliseconds. Datasets not looked up
+     * by then are answered with an error. Defaults to 30000.
+     */
+    public static final String FAN_OUT_TIMEOUT_MILLIS = "fanOutTimeoutMillis";
+
+    /**
+     * System property with the fan-out timeout, used when the adapter is initialized without a config.
+     */
+    public static final String FAN_OUT_TIMEOUT_MILLIS_PROPERTY = "beacon.sample.fanOutTimeoutMillis";
+
+    public static final long DEFAULT_FAN_OUT_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * Adapter config value (may be repeated) with a chain file translating queries of one assembly to datasets of
+     * another, as {@code <query assembly>:<dataset assembly>=<path>}, e.g. {@code GRCh38:GRCh37=hg38ToHg19.over.chain.gz}.
+     */
+    public static final String LIFTOVER = "liftover";
+
+    /**
+     * System property with comma separated liftover chain files, used when the adapter is initialized without a config.
+     */
+    public static final String LIFTOVER_PROPERTY = "beacon.sample.liftover";
+
+    /**
+     * Allele id matching every allele of a dataset.
+     */
+    private static final int ANY_ALLELE = -2;
+
+    /**
+     * Info shared by all responses. Unmodifiable, so encoders may cache its serialized form.
+     */
+    private static final Map<String, String> SAMPLE_INFO = Collections.unmodifiableMap(Collections.singletonMap("note",
+                                                                                                              "Sample Beacon only"));
+
+    private final AtomicReference<DataSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Long>> pendingReload = new AtomicReference<>();
+    private final ExecutorService reloadExecutor = new ThreadPoolExecutor(0,
+                                                                          1,
+                                                                          60,
+                                                                          TimeUnit.SECONDS,
+                                                                          new LinkedBlockingQueue<>(),
+                                                                          runnable -> {
+                                                                              Thread thread = new Thread(runnable,
+                                                                                                         "beacon-reload");
+                                                                              thread.setDaemon(true);
+                                                                              return thread;
+                                                                          });
+
+    /**
+     * Guards loading and publishing snapshots and the settings below. Queries never take it.
+     */
+    private final Object loadLock = new Object();
+    private List<Path> indexPaths = Collections.emptyList();
+    private Map<String, Double> falsePositiveRates = Collections.emptyMap();
+    private double defaultFalsePositiveRate = DEFAULT_BLOOM_FALSE_POSITIVE_RATE;
+    private Map<String, Map<String, Path>> chainFiles = Collections.emptyMap();
+    private long dataVersion;
+
+    private volatile DatasetFanOut fanOut;
+
+    /**
+     * Records the lookup time and memory of every dataset, absent when the adapter is not managed by the container.
+     */
+    @Inject
+    private BeaconMetrics metrics;
 
-    private BeaconDatasetAlleleResponse lookupDataset(String datasetId, String assemblyId, String referencName, long start, String refBases, String altBases) {
+    /**
+     * Looks up a dataset on a fan-out thread. The lookup holds a reference of its own on the snapshot, as a query that
+     * has its answer returns without waiting for the lookups it no longer needs, and the snapshot's memory is freed
+     * once the last reference is released.
+     */
+    private BeaconDatasetAlleleResponse lookupDataset(DataSnapshot data, String datasetId, BeaconAlleleRequest request, VariantRange range) {
+        if (!data.acquire()) {
+            // the query is gone and the snapshot released, so nobody waits for the answer
+            BeaconDatasetAlleleResponse response = new BeaconDatasetAlleleResponse();
+            response.setDatasetId(datasetId);
+            return response;
+        }
+        try {
+            return lookupDataset(data.getDataStore(), datasetId, request, range);
+        } finally {
+            data.release();
+        }
+    }
+
+    private BeaconDatasetAlleleResponse lookupDataset(SampleDataStore dataStore, String datasetId, BeaconAlleleRequest request, VariantRange range) {
+        long started = System.nanoTime();
+        BeaconDatasetAlleleResponse response = matchDataset(dataStore, datasetId, request, range);
+        if (metrics != null && dataStore.getDataset(datasetId) != null) {
+            metrics.recordDatasetLookupSince(datasetId, started);
+        }
+        return response;
+    }
+
+    private BeaconDatasetAlleleResponse matchDataset(SampleDataStore dataStore, String datasetId, BeaconAlleleRequest request, VariantRange range) {
+        String assemblyId = request.getAssemblyId();
+        String referencName = request.getReferenceName();
         BeaconDatasetAlleleResponse response = new BeaconDatasetAlleleResponse();
         response.setDatasetId(datasetId);
 
-        Map<String, Map> dataset = dataStore.getDATA().get(datasetId);
+        DatasetIndex dataset = dataStore.getDataset(datasetId);
         if (dataset == null || dataset.isEmpty()) {
             BeaconError be = new BeaconError();
             be.setErrorCode(404);
@@ -60,7 +214,27 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
 
             return response;
         }
-        Map<String, Map> assembly = ((Map) dataset.get(assemblyId));
+        SampleBitmap cohort = null;
+        if (range.getCohortId() != null) {
+            cohort = dataset.getCohort(range.getCohortId());
+            if (cohort == null) {
+                BeaconError be = new BeaconError();
+                be.setErrorCode(404);
+                be.setMessage("Could not find cohort in current dataset");
+
+                response.setExists(null);
+                response.setError(be);
+
+                return response;
+            }
+        }
+        Map<String, ContigIndex> assembly = dataset.getAssembly(assemblyId);
+        if (assembly == null) {
+            ChainIndex chain = dataStore.getLiftover(assemblyId, dataset);
+            if (chain != null) {
+                return liftOver(dataStore, datasetId, chain, request, range);
+            }
+        }
         if (assembly == null || assembly.isEmpty()) {
             BeaconError be = new BeaconError();
             be.setErrorCode(404);
@@ -71,39 +245,171 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
 
             return response;
         }
-        Map<Long, Map> reference = ((Map) assembly.get(referencName));
+        ContigIndex reference = assembly.get(referencName);
         if (reference == null || reference.isEmpty()) {
             response.setExists(null);
             return addInfo(response);
         }
-        Map<String, String> bases = ((Map) reference.get(start));
-        if (bases == null || bases.isEmpty()) {
-            response.setExists(false);
+        if (!range.isExact() || VariantRange.isWildcard(request.getReferenceBases()) || VariantRange.isWildcard(request.getAlternateBases())) {
+            response.setExists(containsVariant(dataset.getAlleles(), reference, request, range, cohort));
             return addInfo(response);
         }
-        if (bases.get("referenceBases").equals(refBases) && bases.get("alternateBases").equals(altBases)) {
-            response.setExists(true);
+        long start = request.getStart();
+        String refBases = request.getReferenceBases();
+        String altBases = request.getAlternateBases();
+        AlleleDictionary alleles = dataset.getAlleles();
+        int refId = alleles.lookup(refBases);
+        int altId = alleles.lookup(altBases);
+        if (refId == AlleleDictionary.NOT_FOUND || altId == AlleleDictionary.NOT_FOUND) {
+            response.setExists(false);
             return addInfo(response);
-        } else {
+        }
+        DatasetFilter filter = dataStore.getFilter(datasetId);
+        if (filter != null && !filter.mightContain(assemblyId, referencName, start, refId, altId)) {
             response.setExists(false);
             return addInfo(response);
         }
+        int row = reference.indexOf(start, refId, altId);
+        if (cohort != null) {
+            return addCohortStatistics(addInfo(response), row == ContigIndex.NOT_FOUND ? 0 : carriersIn(reference, row, cohort));
+        }
+        response.setExists(row != ContigIndex.NOT_FOUND);
+        return addStatistics(addInfo(response), reference, row);
+    }
+
+    /**
+     * Answers a query of another assembly than the dataset's by translating it to the dataset's assembly. Positions
+     * without a counterpart in the dataset's assembly cannot hold any of its variants; a range that cannot be
+     * translated in one piece is answered with null, as part of it may, and so is a query that has a counterpart but
+     * cannot be translated to it.
+     */
+    private BeaconDatasetAlleleResponse liftOver(SampleDataStore dataStore, String datasetId, ChainIndex chain, BeaconAlleleRequest request, VariantRange range) {
+        LiftedQuery lifted = LiftedQuery.lift(chain, request, range);
+        if (lifted == null || lifted == LiftedQuery.NOT_LIFTABLE) {
+            BeaconDatasetAlleleResponse response = new BeaconDatasetAlleleResponse();
+            response.setDatasetId(datasetId);
+            response.setExists(lifted == null && range.isExact() ? false : null);
+            return addLiftoverInfo(addInfo(response), chain);
+        }
+        BeaconAlleleRequest translated = lifted.getRequest();
+        Map<String, ContigIndex> assembly = dataStore.getDataset(datasetId).getAssembly(chain.getTargetAssemblyId());
+        if (!assembly.containsKey(translated.getReferenceName())) {
+            translated.setReferenceName(ChainIndex.alternativeName(translated.getReferenceName()));
+        }
+        return addLiftoverInfo(matchDataset(dataStore, datasetId, translated, lifted.getRange()), chain);
+    }
+
+    private static BeaconDatasetAlleleResponse addLiftoverInfo(BeaconDatasetAlleleResponse datasetResponse, ChainIndex chain) {
+        Map<String, String> info = new HashMap<>(datasetResponse.getInfo() != null ? datasetResponse.getInfo() : Collections.emptyMap());
+        info.put("liftover", chain.getSourceAssemblyId() + ">" + chain.getTargetAssemblyId());
+        datasetResponse.setInfo(info);
+        return datasetResponse;
+    }
+
+    /**
+     * Answers wildcard, range and bracket queries on one contig. Range queries use the interval tree of the contig,
+     * bracket queries scan the rows starting within the bracket. With a cohort, only rows carried by one of its samples
+     * match.
+     */
+    private static boolean containsVariant(AlleleDictionary alleles, ContigIndex contig, BeaconAlleleRequest request, VariantRange range, SampleBitmap cohort) {
+        int refId = alleleId(alleles, request.getReferenceBases());
+        int altId = alleleId(alleles, request.getAlternateBases());
+        if (refId == AlleleDictionary.NOT_FOUND || altId == AlleleDictionary.NOT_FOUND) {
+            return false;
+        }
+        IntPredicate matches = row -> (refId == ANY_ALLELE || contig.getReferenceId(row) == refId)
+                && (altId == ANY_ALLELE || contig.getAlternateId(row) == altId)
+                && (range.getVariantType() == null || range.matchesType(alleles.get(contig.getReferenceId(row)),
+                                                                        alleles.get(contig.getAlternateId(row))))
+                && (cohort == null || carriersIn(contig, row, cohort) > 0);
+        int size = contig.size();
+        if (range.isBracket()) {
+            long endMin = range.getEndMin() != null ? range.getEndMin() : Long.MIN_VALUE;
+            long endMax = range.getEndMax() != null ? range.getEndMax() : Long.MAX_VALUE;
+            for (int row = contig.firstRow(range.getStartMin()); row < size && contig.getPosition(row) <= range.getStartMax(); row++) {
+                long end = contig.getEnd(row);
+                if (end >= endMin && end <= endMax && matches.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long start = request.getStart();
+        if (range.getEnd() != null) {
+            // the visitor stops the query at the first match
+            return !contig.forEachOverlap(start, range.getEnd(), row -> !matches.test(row));
+        }
+        for (int row = contig.firstRow(start); row < size && contig.getPosition(row) == start; row++) {
+            if (matches.test(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int alleleId(AlleleDictionary alleles, String bases) {
+        return VariantRange.isWildcard(bases) ? ANY_ALLELE : alleles.lookup(bases);
+    }
+
+    /**
+     * Sets the counts of an exact allele query from the precomputed columns of the matching row. Counts that are not
+     * known, and the counts of wildcard and range queries, are left out.
+     */
+    private static BeaconDatasetAlleleResponse addStatistics(BeaconDatasetAlleleResponse datasetResponse, ContigIndex contig, int row) {
+        if (row == ContigIndex.NOT_FOUND) {
+            datasetResponse.setVariantCount(0L);
+            datasetResponse.setSampleCount(0L);
+            return datasetResponse;
+        }
+        datasetResponse.setVariantCount(1L);
+        int alleleCount = contig.getAlleleCount(row);
+        int alleleNumber = contig.getAlleleNumber(row);
+        int sampleCount = contig.getSampleCount(row);
+        if (alleleNumber != ContigIndex.UNKNOWN) {
+            datasetResponse.setCallCount((long) alleleNumber);
+            if (alleleCount != ContigIndex.UNKNOWN && alleleNumber > 0) {
+                datasetResponse.setFrequency((double) alleleCount / alleleNumber);
+            }
+        }
+        if (sampleCount != ContigIndex.UNKNOWN) {
+            datasetResponse.setSampleCount((long) sampleCount);
+        }
+        return datasetResponse;
+    }
+
+    /**
+     * @return number of samples of the cohort carrying the variant of a row, {@link ContigIndex#UNKNOWN} if the
+     * carriers of the row are not known
+     */
+    private static int carriersIn(ContigIndex contig, int row, SampleBitmap cohort) {
+        SampleBitmap carriers = contig.getCarriers(row);
+        return carriers == null ? ContigIndex.UNKNOWN : carriers.andCardinality(cohort);
+    }
+
+    /**
+     * Answers an exact allele query restricted to a cohort: the variant exists if a sample of the cohort carries it.
+     * The allele counts of the whole dataset do not apply to the cohort and are left out.
+     */
+    private static BeaconDatasetAlleleResponse addCohortStatistics(BeaconDatasetAlleleResponse datasetResponse, int carriers) {
+        if (carriers == ContigIndex.UNKNOWN) {
+            datasetResponse.setExists(null);
+            return datasetResponse;
+        }
+        datasetResponse.setExists(carriers > 0);
+        datasetResponse.setVariantCount(carriers > 0 ? 1L : 0L);
+        datasetResponse.setSampleCount((long) carriers);
+        return datasetResponse;
     }
 
     private BeaconDatasetAlleleResponse addInfo(BeaconDatasetAlleleResponse datasetResponse) {
-        datasetResponse.setCallCount(1l);
-        datasetResponse.setFrequency(0.221);
-        datasetResponse.setVariantCount(1l);
-        datasetResponse.setSampleCount(1l);
         datasetResponse.setExternalUrl("www.google.com");
         datasetResponse.setNote("This is a sample beacon only");
-        Map<String, String> info = new HashMap<>();
-        info.put("note", "Sample Beacon only");
-        datasetResponse.setInfo(info);
+        datasetResponse.setInfo(SAMPLE_INFO);
         return datasetResponse;
     }
 
-    private Beacon createSampleBeacon() {
+    private Beacon createSampleBeacon(DataSnapshot data) {
+        SampleDataStore dataStore = data.getDataStore();
         Beacon beacon = new Beacon();
         beacon.setApiVersion(API_VERSION);
         beacon.setVersion(API_VERSION);
@@ -111,15 +417,17 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
         beacon.setName("Sample Beacon");
         beacon.setAlternativeUrl("www.google.ca");
         beacon.setWelcomeUrl("www.url");
-        beacon.setDatasets(Arrays.asList(createSampleBeaconDataset()));
-        beacon.setCreateDateTime(new Date().toString());
-        beacon.setUpdateDateTime(new Date().toString());
+        List<BeaconDataset> datasets = new ArrayList<>();
+        for (DatasetIndex dataset : dataStore.getDatasets().values()) {
+            datasets.add(createSampleBeaconDataset(dataStore, dataset, data.getLoadDateTime()));
+        }
+        beacon.setDatasets(datasets);
+        beacon.setCreateDateTime(data.getLoadDateTime());
+        beacon.setUpdateDateTime(data.getLoadDateTime());
         beacon.setSampleAlleleRequests(Arrays.asList(createSampleRequest()));
         beacon.setOrganization(createSampleOrganization());
         beacon.setId(BEACON_ID);
-        Map<String, String> info = new HashMap<>();
-        info.put("note", "Sample Beacon only");
-        beacon.setInfo(info);
+        beacon.setInfo(SAMPLE_INFO);
 
         return beacon;
     }
@@ -146,58 +454,291 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
         organization.setLogoUrl("www.logoUrl.com");
         organization.setName("Sample Org");
         organization.setId(ORG_ID);
-        Map<String, String> info = new HashMap<>();
-        info.put("note", "Sample Beacon only");
-        organization.setInfo(info);
+        organization.setInfo(SAMPLE_INFO);
 
         return organization;
     }
 
-    private BeaconDataset createSampleBeaconDataset() {
+    private BeaconDataset createSampleBeaconDataset(SampleDataStore dataStore, DatasetIndex index, String loadDateTime) {
         BeaconDataset dataset = new BeaconDataset();
         dataset.setName("Sample Dataset");
-        dataset.setAssemblyId("GRCh37");
-        dataset.setUpdateDateTime(new Date().toString());
-        dataset.setCreateDateTime(new Date().toString());
-        dataset.setId(DATASET_ID);
+        dataset.setAssemblyId(index.getAssemblies().isEmpty() ? null : index.getAssemblies().keySet().iterator().next());
+        dataset.setUpdateDateTime(loadDateTime);
+        dataset.setCreateDateTime(loadDateTime);
+        dataset.setId(index.getId());
         dataset.setVersion(API_VERSION);
-        dataset.setCallCount(10l);
-        dataset.setSampleCount(10l);
+        dataset.setVariantCount(index.getVariantCount());
+        dataset.setCallCount(index.getCallCount() != ContigIndex.UNKNOWN ? index.getCallCount() : null);
+        dataset.setSampleCount(index.getSampleCount() != ContigIndex.UNKNOWN ? (long) index.getSampleCount() : null);
         dataset.setDescription("Sample implementation");
         Map<String, String> info = new HashMap<>();
         info.put("note", "Sample Beacon only");
+        DatasetFilter filter = dataStore.getFilter(index.getId());
+        if (filter != null) {
+            info.put("bloomFalsePositiveRate", String.valueOf(filter.getFalsePositiveRate()));
+            info.put("bloomFilterBytes", String.valueOf(filter.getMemoryBytes()));
+        }
+        if (index.getMappedBytes() > 0) {
+            info.put("mappedBytes", String.valueOf(index.getMappedBytes()));
+        }
+        if (!index.getCohorts().isEmpty()) {
+            info.put("cohorts", String.join(",", new TreeSet<>(index.getCohorts().keySet())));
+        }
         dataset.setInfo(info);
 
         return dataset;
 
     }
 
+    /**
+     * Loads the configured indexes and publishes them as the current snapshot. Queries keep reading the previous
+     * snapshot while the new one is built, and release it when they finish.
+     *
+     * @return version of the published snapshot
+     */
+    private long loadDataStore() {
+        synchronized (loadLock) {
+            SampleDataStore dataStore;
+            try {
+                dataStore = indexPaths.isEmpty()
+                        ? new SampleDataStore()
+                        : SampleDataStore.load(indexPaths, falsePositiveRates, defaultFalsePositiveRate, chainFiles);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open beacon index " + indexPaths, e);
+            }
+            if (metrics != null) {
+                metrics.setDatasetMemory(dataStore.getMemory());
+            }
+            DataSnapshot published = new DataSnapshot(dataStore, ++dataVersion, new Date().toString());
+            DataSnapshot previous = snapshot.getAndSet(published);
+            if (previous != null) {
+                previous.release();
+            }
+            return published.getVersion();
+        }
+    }
+
+    /**
+     * @return the current snapshot with a reader reference, to be released by the caller
+     */
+    private DataSnapshot acquireSnapshot() {
+        for (; ; ) {
+            DataSnapshot current = snapshot.get();
+            if (current == null) {
+                throw new IllegalStateException("Adapter is not initialized");
+            }
+            if (current.acquire()) {
+                return current;
+            }
+        }
+    }
+
+    private void startFanOut(int threads, long timeoutMillis) {
+        stopFanOut();
+        if (threads > 0) {
+            fanOut = new DatasetFanOut(threads, timeoutMillis);
+        }
+    }
+
+    /**
+     * Lets the lookups already submitted finish; queries started meanwhile look up their datasets on their own thread.
+     */
+    private void stopFanOut() {
+        DatasetFanOut previous = fanOut;
+        fanOut = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Looks up all requested datasets, concurrently if there is more than one and fan-out is enabled.
+     *
+     * @return dataset responses in the order of the requested dataset ids
+     */
+    private List<BeaconDatasetAlleleResponse> lookupDatasets(DataSnapshot data, List<String> datasetIds, BeaconAlleleRequest request, VariantRange range) {
+        DatasetFanOut fanOut = this.fanOut;
+        if (fanOut == null || datasetIds.size() < 2) {
+            List<BeaconDatasetAlleleResponse> responses = new ArrayList<>(datasetIds.size());
+            for (String datasetId : datasetIds) {
+                responses.add(lookupDataset(data.getDataStore(), datasetId, request, range));
+            }
+            return responses;
+        }
+        return fanOut.lookupAll(datasetIds, datasetId -> lookupDataset(data, datasetId, request, range));
+    }
+
+    /**
+     * Determines whether any of the requested datasets contains the allele, stopping as soon as one does.
+     *
+     * @return null if none does but some were not looked up in time
+     */
+    private Boolean anyDatasetExists(DataSnapshot data, List<String> datasetIds, BeaconAlleleRequest request, VariantRange range) {
+        DatasetFanOut fanOut = this.fanOut;
+        if (fanOut == null) {
+            for (String datasetId : datasetIds) {
+                if (Boolean.TRUE.equals(lookupDataset(data.getDataStore(), datasetId, request, range).getExists())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return fanOut.anyExists(datasetIds, datasetId -> lookupDataset(data, datasetId, request, range));
+    }
+
     @PostConstruct
     public void init() {
         initAdapter(null);
     }
 
+    @PreDestroy
+    public void destroy() {
+        reloadExecutor.shutdownNow();
+        stopFanOut();
+        synchronized (loadLock) {
+            // the data is freed once the queries still reading it finish
+            DataSnapshot current = snapshot.getAndSet(null);
+            if (current != null) {
+                current.release();
+            }
+        }
+    }
+
     @Override
     public void initAdapter(AdapterConfig adapterConfig) {
-        dataStore = new SampleDataStore();
+        List<Path> indexPaths = new ArrayList<>();
+        Map<String, Double> falsePositiveRates = new HashMap<>();
+        double defaultFalsePositiveRate = DEFAULT_BLOOM_FALSE_POSITIVE_RATE;
+        Map<String, Map<String, Path>> chainFiles = new HashMap<>();
+        int fanOutThreads = Runtime.getRuntime().availableProcessors();
+        long fanOutTimeoutMillis = DEFAULT_FAN_OUT_TIMEOUT_MILLIS;
+        if (adapterConfig != null && adapterConfig.getConfigValues() != null) {
+            for (ConfigValue value : adapterConfig.getConfigValues()) {
+                if (INDEX_PATH.equals(value.getName())) {
+                    indexPaths.add(Paths.get(value.getValue()));
+                } else if (FAN_OUT_THREADS.equals(value.getName())) {
+                    fanOutThreads = Integer.parseInt(value.getValue());
+                } else if (FAN_OUT_TIMEOUT_MILLIS.equals(value.getName())) {
+                    fanOutTimeoutMillis = Long.parseLong(value.getValue());
+                } else if (LIFTOVER.equals(value.getName())) {
+                    addChainFile(chainFiles, value.getValue());
+                } else if (BLOOM_FALSE_POSITIVE_RATE.equals(value.getName())) {
+                    defaultFalsePositiveRate = Double.parseDouble(value.getValue());
+                } else if (value.getName() != null && value.getName().startsWith(BLOOM_FALSE_POSITIVE_RATE + ".")) {
+                    falsePositiveRates.put(value.getName().substring(BLOOM_FALSE_POSITIVE_RATE.length() + 1),
+                                           Double.parseDouble(value.getValue()));
+                }
+            }
+        } else {
+            String rate = System.getProperty(BLOOM_FALSE_POSITIVE_RATE_PROPERTY);
+            if (rate != null) {
+                defaultFalsePositiveRate = Double.parseDouble(rate);
+            }
+            fanOutThreads = Integer.getInteger(FAN_OUT_THREADS_PROPERTY, fanOutThreads);
+            fanOutTimeoutMillis = Long.getLong(FAN_OUT_TIMEOUT_MILLIS_PROPERTY, fanOutTimeoutMillis);
+            String liftover = System.getProperty(LIFTOVER_PROPERTY);
+            if (liftover != null) {
+                for (String chainFile : liftover.split(",")) {
+                    if (!chainFile.trim().isEmpty()) {
+                        addChainFile(chainFiles, chainFile.trim());
+                    }
+                }
+            }
+            String property = System.getProperty(INDEX_PATH_PROPERTY);
+            if (property != null) {
+                for (String path : property.split(",")) {
+                    if (!path.trim().isEmpty()) {
+                        indexPaths.add(Paths.get(path.trim()));
+                    }
+                }
+            }
+        }
+        synchronized (loadLock) {
+            this.indexPaths = Collections.unmodifiableList(indexPaths);
+            this.falsePositiveRates = Collections.unmodifiableMap(falsePositiveRates);
+            this.defaultFalsePositiveRate = defaultFalsePositiveRate;
+            this.chainFiles = Collections.unmodifiableMap(chainFiles);
+            loadDataStore();
+            startFanOut(fanOutThreads, fanOutTimeoutMillis);
+        }
+    }
+
+    /**
+     * @param chainFiles chain files keyed by the assembly they translate from, then the one they translate to
+     * @param value      chain file as {@code <query assembly>:<dataset assembly>=<path>}
+     */
+    private static void addChainFile(Map<String, Map<String, Path>> chainFiles, String value) {
+        int assemblies = value.indexOf(':');
+        int path = value.indexOf('=');
+        if (assemblies <= 0 || path <= assemblies + 1 || path == value.length() - 1) {
+            throw new IllegalArgumentException("Liftover has to be given as <query assembly>:<dataset assembly>=<path>: " + value);
+        }
+        chainFiles.computeIfAbsent(value.substring(0, assemblies), id -> new HashMap<>())
+                  .put(value.substring(assemblies + 1, path), Paths.get(value.substring(path + 1)));
+    }
+
+    /**
+     * Reloads the configured index paths in the background, picking up new, changed and removed index files. A reload
+     * requested while another is running shares its result.
+     */
+    @Override
+    public CompletableFuture<Long> reload() {
+        for (; ; ) {
+            CompletableFuture<Long> pending = pendingReload.get();
+            if (pending != null && !pending.isDone()) {
+                return pending;
+            }
+            CompletableFuture<Long> reload = new CompletableFuture<>();
+            if (pendingReload.compareAndSet(pending, reload)) {
+                reloadExecutor.execute(() -> {
+                    try {
+                        reload.complete(loadDataStore());
+                    } catch (RuntimeException | Error e) {
+                        reload.completeExceptionally(e);
+                    }
+                });
+                return reload;
+            }
+        }
     }
 
     @Override
     public BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request) throws BeaconException {
+        DataSnapshot data = acquireSnapshot();
+        try {
+            return getBeaconAlleleResponse(data, request, VariantRange.none());
+        } finally {
+            data.release();
+        }
+    }
+
+    @Override
+    public BeaconAlleleResponse getBeaconAlleleResponse(BeaconAlleleRequest request, VariantRange range) throws BeaconException {
+        DataSnapshot data = acquireSnapshot();
+        try {
+            return getBeaconAlleleResponse(data, request, range);
+        } finally {
+            data.release();
+        }
+    }
+
+    private BeaconAlleleResponse getBeaconAlleleResponse(DataSnapshot data, BeaconAlleleRequest request, VariantRange range) {
         BeaconAlleleResponse response = new BeaconAlleleResponse();
         response.setBeaconId(BEACON_ID);
         response.setAlleleRequest(request);
 
-        List<BeaconDatasetAlleleResponse> responses = new ArrayList<>();
-        for (String datasetId : request.getDatasetIds()) {
-            responses.add(lookupDataset(datasetId,
-                                        request.getAssemblyId(),
-                                        request.getReferenceName(),
-                                        request.getStart(),
-                                        request.getReferenceBases(),
-                                        request.getAlternateBases()));
+        List<String> datasetIds = request.getDatasetIds();
+        if (datasetIds == null || datasetIds.isEmpty()) {
+            datasetIds = new ArrayList<>(data.getDataStore().getDatasets().keySet());
+        }
+        if (!request.getIncludeDatasetResponses() && datasetIds.size() > 1) {
+            // only the aggregate answer is returned, so the first dataset containing the allele decides it
+            response.setExists(anyDatasetExists(data, datasetIds, request, range));
+            return response;
         }
 
+        List<BeaconDatasetAlleleResponse> responses = lookupDatasets(data, datasetIds, request, range);
+
         if (!request.getIncludeDatasetResponses() && responses.size() == 1 && responses.get(0).getError() != null) {
             response.setExists(null);
             response.setError(responses.get(0).getError());
@@ -205,13 +746,15 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
             response.setDatasetAlleleResponses(responses);
         }
         boolean exists = false;
+        boolean unanswered = false;
         for (BeaconDatasetAlleleResponse datasetResponses : responses) {
 
-            if (datasetResponses.getExists()) {
+            if (Boolean.TRUE.equals(datasetResponses.getExists())) {
                 exists = true;
             }
+            unanswered |= DatasetFanOut.isTimedOut(datasetResponses);
         }
-        response.setExists(exists);
+        response.setExists(exists ? Boolean.TRUE : unanswered ? null : Boolean.FALSE);
         return response;
     }
 
@@ -232,9 +775,20 @@ public class SampleBeaconAdapterImpl implements BeaconAdapter {
         return getBeaconAlleleResponse(request);
     }
 
+    @Override
+    public long getDataVersion() {
+        DataSnapshot current = snapshot.get();
+        return current == null ? 0 : current.getVersion();
+    }
+
     @Override
     public Beacon getBeacon() throws BeaconException {
-        return createSampleBeacon();
+        DataSnapshot data = acquireSnapshot();
+        try {
+            return createSampleBeacon(data);
+        } finally {
+            data.release();
+        }
     }
 
 }
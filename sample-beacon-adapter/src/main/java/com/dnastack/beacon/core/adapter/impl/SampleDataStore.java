@@ -24,35 +24,229 @@
 
 package com.dnastack.beacon.core.adapter.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.dnastack.beacon.core.adapter.index.DatasetFilter;
+import com.dnastack.beacon.core.adapter.index.DatasetIndex;
+import com.dnastack.beacon.core.adapter.index.DatasetIndexBuilder;
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexReader;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+import com.dnastack.beacon.core.adapter.liftover.ChainIndex;
+import com.dnastack.beacon.service.metrics.DatasetMemory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 /**
- * This class simply is acting as a datastorage for the BeaconAdapter to perform lookups on
+ * This class simply is acting as a datastorage for the BeaconAdapter to perform lookups on. Datasets loaded from index
+ * files stay mapped, and their Bloom filters allocated in direct memory, until {@link #close()}.
  *
  * @author patmagee
  */
 public class SampleDataStore {
 
-    private final Map<String, Map> DATA;
+    private final Map<String, DatasetIndex> datasets;
+    private final Map<String, DatasetFilter> filters;
+    private final Map<String, Map<String, ChainIndex>> liftovers;
 
     public SampleDataStore() {
-        DATA = new HashMap<>();
-        Map<String, Map> assemblies = new HashMap<>();
-        Map<String, Map> references = new HashMap<>();
-        Map<Long, Map> positions = new HashMap<>();
-        Map<String, String> bases = new HashMap<>();
-        bases.put("referenceBases", "A");
-        bases.put("alternateBases", "C");
-        positions.put(1000l, bases);
-        references.put("1", positions);
-        assemblies.put("GRCh37", references);
-        DATA.put(SampleBeaconAdapterImpl.DATASET_ID, assemblies);
-
-    }
-
-    public Map<String, Map> getDATA() {
-        return DATA;
+        this(sampleDatasets(),
+             Collections.emptyMap(),
+             SampleBeaconAdapterImpl.DEFAULT_BLOOM_FALSE_POSITIVE_RATE,
+             Collections.emptyList());
+    }
+
+    /**
+     * @param datasets                 datasets keyed by id
+     * @param falsePositiveRates       Bloom filter false positive rates of individual datasets
+     * @param defaultFalsePositiveRate Bloom filter false positive rate of the other datasets, 0 disables the filter
+     * @param chains                   chains translating queries between assemblies
+     */
+    private SampleDataStore(Map<String, DatasetIndex> datasets, Map<String, Double> falsePositiveRates, double defaultFalsePositiveRate, List<ChainIndex> chains) {
+        // every filter is built from a full scan of its dataset, so the datasets are scanned in parallel
+        Map<String, DatasetFilter> filters = new ConcurrentHashMap<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            datasets.values().parallelStream().forEach(dataset -> {
+                double rate = falsePositiveRates.getOrDefault(dataset.getId(), defaultFalsePositiveRate);
+                if (rate > 0) {
+                    filters.put(dataset.getId(), DatasetFilter.build(dataset, rate));
+                    if (failed.get()) {
+                        // another build failed and the filters were already closed, this one finished later
+                        closeFilter(filters, dataset.getId());
+                    }
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            failed.set(true);
+            for (String datasetId : new ArrayList<>(filters.keySet())) {
+                closeFilter(filters, datasetId);
+            }
+            throw e;
+        }
+        this.datasets = Collections.unmodifiableMap(datasets);
+        this.filters = Collections.unmodifiableMap(new HashMap<>(filters));
+        Map<String, Map<String, ChainIndex>> liftovers = new HashMap<>();
+        for (ChainIndex chain : chains) {
+            liftovers.computeIfAbsent(chain.getSourceAssemblyId(), id -> new HashMap<>()).put(chain.getTargetAssemblyId(), chain);
+        }
+        this.liftovers = liftovers;
+    }
+
+    private static void closeFilter(Map<String, DatasetFilter> filters, String datasetId) {
+        DatasetFilter filter = filters.remove(datasetId);
+        if (filter != null) {
+            filter.close();
+        }
+    }
+
+    private static Map<String, DatasetIndex> sampleDatasets() {
+        Map<String, DatasetIndex> map = new HashMap<>();
+        DatasetIndex sample = new DatasetIndexBuilder(SampleBeaconAdapterImpl.DATASET_ID).add("GRCh37", "1", 1000l, 1001l, "A", "C", 5, 20, SampleBitmap.of(1, 3, 4, 8))
+                                                                                          .sampleCount(10)
+                                                                                          .cohort("EUR", SampleBitmap.of(0, 1, 2, 3, 4))
+                                                                                          .cohort("AFR", SampleBitmap.of(5, 6, 7, 8, 9))
+                                                                                          .build();
+        map.put(sample.getId(), sample);
+        return map;
+    }
+
+    /**
+     * Opens the given index files and builds their Bloom filters, both in parallel, and reads the chain files. Directories
+     * are expanded to the index files they contain.
+     *
+     * @param paths                    index files or directories
+     * @param falsePositiveRates       Bloom filter false positive rates of individual datasets
+     * @param defaultFalsePositiveRate Bloom filter false positive rate of the other datasets, 0 disables the filter
+     * @param chainFiles               chain files keyed by the assembly they translate from, then the one they translate to
+     * @return data store serving the mapped datasets
+     * @throws IOException if an index or a chain file cannot be read, or two indexes contain the same dataset; the indexes
+     *                     opened before are closed again
+     */
+    public static SampleDataStore load(List<Path> paths, Map<String, Double> falsePositiveRates, double defaultFalsePositiveRate, Map<String, Map<String, Path>> chainFiles) throws IOException {
+        List<Path> files = resolve(paths);
+        DatasetIndex[] opened = new DatasetIndex[files.size()];
+        try {
+            try {
+                IntStream.range(0, opened.length).parallel().forEach(i -> opened[i] = open(files.get(i)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Map<String, DatasetIndex> map = new LinkedHashMap<>();
+            for (DatasetIndex dataset : opened) {
+                if (map.put(dataset.getId(), dataset) != null) {
+                    throw new IOException("Dataset " + dataset.getId() + " is defined by more than one index file");
+                }
+            }
+            List<ChainIndex> chains = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Path>> source : chainFiles.entrySet()) {
+                for (Map.Entry<String, Path> target : source.getValue().entrySet()) {
+                    chains.add(ChainIndex.read(source.getKey(), target.getKey(), target.getValue()));
+                }
+            }
+            return new SampleDataStore(map, falsePositiveRates, defaultFalsePositiveRate, chains);
+        } catch (IOException | RuntimeException | Error e) {
+            for (DatasetIndex dataset : opened) {
+                if (dataset != null) {
+                    dataset.close();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static DatasetIndex open(Path file) {
+        try {
+            return IndexReader.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Path> resolve(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + IndexFormat.FILE_EXTENSION)) {
+                    for (Path file : stream) {
+                        files.add(file);
+                    }
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * @param datasetId dataset id
+     * @return index of the dataset or null if there is no such dataset
+     */
+    public DatasetIndex getDataset(String datasetId) {
+        return datasets.get(datasetId);
+    }
+
+    public Map<String, DatasetIndex> getDatasets() {
+        return datasets;
+    }
+
+    /**
+     * @param datasetId dataset id
+     * @return Bloom filter of the dataset or null if the dataset has no filter
+     */
+    public DatasetFilter getFilter(String datasetId) {
+        return filters.get(datasetId);
+    }
+
+    /**
+     * @return memory held by every dataset outside the heap, keyed by dataset id
+     */
+    public Map<String, DatasetMemory> getMemory() {
+        Map<String, DatasetMemory> memory = new HashMap<>();
+        for (DatasetIndex dataset : datasets.values()) {
+            DatasetFilter filter = filters.get(dataset.getId());
+            memory.put(dataset.getId(), new DatasetMemory(dataset.getMappedBytes(), filter != null ? filter.getMemoryBytes() : 0));
+        }
+        return memory;
+    }
+
+    /**
+     * Unmaps the datasets and frees their filters. Only called once no query can read the data store any more.
+     */
+    public void close() {
+        for (DatasetFilter filter : filters.values()) {
+            filter.close();
+        }
+        for (DatasetIndex dataset : datasets.values()) {
+            dataset.close();
+        }
+    }
+
+    /**
+     * @param assemblyId assembly of a query
+     * @param dataset    dataset without data for the assembly
+     * @return chain translating the query to an assembly of the dataset, or null if there is none
+     */
+    public ChainIndex getLiftover(String assemblyId, DatasetIndex dataset) {
+        Map<String, ChainIndex> targets = liftovers.get(assemblyId);
+        if (targets == null) {
+            return null;
+        }
+        for (String target : dataset.getAssemblies().keySet()) {
+            ChainIndex chain = targets.get(target);
+            if (chain != null) {
+                return chain;
+            }
+        }
+        return null;
     }
 
 }
@@ -0,0 +1,54 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+/**
+ * Dictionary encoding of allele strings. Short alleles of plain bases are packed into their id by {@link PackedAlleles};
+ * every other distinct allele of a dataset is stored once and referenced from the variant columns by a dictionary id.
+ *
+ * @version 1.0
+ */
+public interface AlleleDictionary {
+
+    int NOT_FOUND = -1;
+
+    /**
+     * Looks up the id of an allele.
+     *
+     * @param allele allele, may be null
+     * @return allele id or NOT_FOUND
+     */
+    int lookup(String allele);
+
+    /**
+     * @param id allele id
+     * @return allele string
+     */
+    String get(int id);
+
+    /**
+     * @return number of stored alleles, not counting packed ones
+     */
+    int size();
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+/**
+ * Heap backed {@link ContigIndex} holding the variants as parallel primitive arrays.
+ *
+ * @version 1.0
+ */
+public final class ArrayContigIndex implements ContigIndex {
+
+    private final long[] positions;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final int[] referenceIds;
+    private final int[] alternateIds;
+    private final int[] alleleCounts;
+    private final int[] alleleNumbers;
+    private final int[] sampleCounts;
+    private final SampleBitmap[] carriers;
+
+    ArrayContigIndex(long[] positions, long[] ends, int[] referenceIds, int[] alternateIds, int[] alleleCounts, int[] alleleNumbers, int[] sampleCounts, SampleBitmap[] carriers) {
+        this.positions = positions;
+        this.ends = ends;
+        this.maxEnds = IntervalTree.build(ends, ends.length);
+        this.referenceIds = referenceIds;
+        this.alternateIds = alternateIds;
+        this.alleleCounts = alleleCounts;
+        this.alleleNumbers = alleleNumbers;
+        this.sampleCounts = sampleCounts;
+        this.carriers = carriers;
+    }
+
+    @Override
+    public int size() {
+        return positions.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    @Override
+    public long getPosition(int row) {
+        return positions[row];
+    }
+
+    @Override
+    public long getEnd(int row) {
+        return ends[row];
+    }
+
+    @Override
+    public long getMaxEnd(int row) {
+        return maxEnds[row];
+    }
+
+    @Override
+    public int getReferenceId(int row) {
+        return referenceIds[row];
+    }
+
+    @Override
+    public int getAlternateId(int row) {
+        return alternateIds[row];
+    }
+
+    @Override
+    public int getAlleleCount(int row) {
+        return alleleCounts[row];
+    }
+
+    @Override
+    public int getAlleleNumber(int row) {
+        return alleleNumbers[row];
+    }
+
+    @Override
+    public int getSampleCount(int row) {
+        return sampleCounts[row];
+    }
+
+    @Override
+    public SampleBitmap getCarriers(int row) {
+        return carriers[row];
+    }
+
+    @Override
+    public int indexOf(long position, int referenceId, int alternateId) {
+        for (int row = firstRow(position); row < positions.length && positions[row] == position; row++) {
+            if (referenceIds[row] == referenceId && alternateIds[row] == alternateId) {
+                return row;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public int firstRow(long position) {
+        int low = 0;
+        int high = positions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
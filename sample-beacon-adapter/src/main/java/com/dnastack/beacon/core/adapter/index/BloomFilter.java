@@ -0,0 +1,159 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Blocked Bloom filter over 64-bit hashes. Every key sets all of its bits within a single 512-bit block (one cache
+ * line), so a negative lookup costs one memory access regardless of the number of hash functions.
+ * <p>
+ * The bits live in direct memory, in segments of 1GB that no block crosses, so large filters neither grow the heap
+ * nor add to the work of the garbage collector. {@link #close()} frees them.
+ *
+ * @version 1.0
+ */
+public class BloomFilter {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BYTES = BLOCK_WORDS * 8;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int BLOCK_BITS_SHIFT = 23;
+    private static final int MAX_BLOCKS = Integer.MAX_VALUE / BLOCK_WORDS;
+    private static final int MAX_HASHES = 16;
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * Extra space over the classic Bloom filter size, compensating the uneven load of the blocks.
+     */
+    private static final double BLOCKING_OVERHEAD = 1.2;
+
+    private final ByteBuffer[] segments;
+    private final long bytes;
+    private final int blocks;
+    private final int hashes;
+    private final double falsePositiveRate;
+
+    private BloomFilter(int blocks, int hashes, double falsePositiveRate) {
+        this.bytes = (long) blocks * BLOCK_BYTES;
+        this.segments = new ByteBuffer[(int) ((bytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long size = Math.min(SEGMENT_MASK + 1, bytes - ((long) i << SEGMENT_SHIFT));
+            segments[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        }
+        this.blocks = blocks;
+        this.hashes = hashes;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Creates a filter sized for the given number of keys and false positive rate.
+     *
+     * @param expectedKeys      number of keys that will be added
+     * @param falsePositiveRate target false positive rate, between 0 and 1 exclusive
+     * @return empty filter
+     */
+    public static BloomFilter create(long expectedKeys, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1, got " + falsePositiveRate);
+        }
+        double bitsPerKey = -Math.log(falsePositiveRate) / (LN2 * LN2);
+        int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * LN2)));
+        double bits = Math.max(1, expectedKeys) * bitsPerKey * BLOCKING_OVERHEAD;
+        int blocks = (int) Math.min(MAX_BLOCKS, Math.max(1, Math.ceil(bits / (BLOCK_WORDS * 64))));
+        return new BloomFilter(blocks, hashes, falsePositiveRate);
+    }
+
+    public void put(long hash) {
+        long block = block(hash);
+        ByteBuffer segment = segments[(int) (block >>> SEGMENT_SHIFT)];
+        int base = (int) (block & SEGMENT_MASK);
+        int h1 = (int) hash;
+        int h2 = secondHash(hash);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) >>> BLOCK_BITS_SHIFT;
+            int word = base + ((bit >>> 6) << 3);
+            segment.putLong(word, segment.getLong(word) | 1L << bit);
+        }
+    }
+
+    /**
+     * @param hash key hash
+     * @return false if the key was definitely never added
+     */
+    public boolean mightContain(long hash) {
+        long block = block(hash);
+        ByteBuffer segment = segments[(int) (block >>> SEGMENT_SHIFT)];
+        int base = (int) (block & SEGMENT_MASK);
+        int h1 = (int) hash;
+        int h2 = secondHash(hash);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) >>> BLOCK_BITS_SHIFT;
+            if ((segment.getLong(base + ((bit >>> 6) << 3)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false positive rate the filter was sized for
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public int getHashCount() {
+        return hashes;
+    }
+
+    /**
+     * @return size of the bit array in bytes, all of it in direct memory
+     */
+    public long getMemoryBytes() {
+        return bytes;
+    }
+
+    /**
+     * Frees the bits. The filter must not be used afterwards.
+     */
+    public void close() {
+        for (ByteBuffer segment : segments) {
+            DirectMemory.free(segment);
+        }
+    }
+
+    /**
+     * @return byte offset of the block of a hash
+     */
+    private long block(long hash) {
+        return (((hash >>> 32) * blocks) >>> 32) * BLOCK_BYTES;
+    }
+
+    private static int secondHash(long hash) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32) | 1;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Variants of a single contig in a (dataset, assembly). Rows are sorted by position, so lookups are a binary search
+ * over the positions followed by a short scan of the rows sharing the same position. Every row also has an end
+ * position, and overlap queries are answered by an {@link IntervalTree} over the rows. The allele count, allele number
+ * and number of carrier samples of every row are computed when the data is loaded, so a hit is answered with them
+ * without looking at genotypes. Rows of datasets with genotypes also keep the set of their carrier samples, which
+ * answers sample counts restricted to a cohort.
+ *
+ * @version 1.0
+ */
+public interface ContigIndex {
+
+    int NOT_FOUND = -1;
+
+    /**
+     * Value of a statistic that is not known, e.g. for a VCF without genotypes or AC and AN.
+     */
+    int UNKNOWN = -1;
+
+    int size();
+
+    boolean isEmpty();
+
+    long getPosition(int row);
+
+    /**
+     * @param row row number
+     * @return 0-based exclusive end position
+     */
+    long getEnd(int row);
+
+    /**
+     * @param row row number
+     * @return largest end position in the interval tree subtree of the row
+     */
+    long getMaxEnd(int row);
+
+    int getReferenceId(int row);
+
+    int getAlternateId(int row);
+
+    /**
+     * @param row row number
+     * @return number of alternate alleles among the called genotypes (AC), or {@link #UNKNOWN}
+     */
+    int getAlleleCount(int row);
+
+    /**
+     * @param row row number
+     * @return number of called alleles at the site (AN), or {@link #UNKNOWN}
+     */
+    int getAlleleNumber(int row);
+
+    /**
+     * @param row row number
+     * @return number of samples carrying the alternate allele, or {@link #UNKNOWN}
+     */
+    int getSampleCount(int row);
+
+    /**
+     * @param row row number
+     * @return samples carrying the alternate allele, or null if not known
+     */
+    SampleBitmap getCarriers(int row);
+
+    /**
+     * Returns the first row with a position greater than or equal to the given one.
+     *
+     * @param position 0-based position
+     * @return row number, equal to size() if all positions are smaller
+     */
+    int firstRow(long position);
+
+    /**
+     * Finds the row of the variant with the given position and alleles.
+     *
+     * @param position    0-based start position
+     * @param referenceId reference allele id
+     * @param alternateId alternate allele id
+     * @return row number or NOT_FOUND
+     */
+    default int indexOf(long position, int referenceId, int alternateId) {
+        int size = size();
+        for (int row = firstRow(position); row < size && getPosition(row) == position; row++) {
+            if (getReferenceId(row) == referenceId && getAlternateId(row) == alternateId) {
+                return row;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Visits the rows of all variants overlapping a half-open interval, in no particular order.
+     *
+     * @param start   0-based start of the interval, inclusive
+     * @param end     0-based end of the interval, exclusive
+     * @param visitor called with every overlapping row, returns false to stop
+     * @return false if the visitor stopped the query
+     */
+    default boolean forEachOverlap(long start, long end, IntPredicate visitor) {
+        return IntervalTree.query(this, start, end, visitor);
+    }
+
+    /**
+     * End position of a variant whose end is not given explicitly: the variant covers its reference bases, and at
+     * least its start position.
+     *
+     * @param start          0-based start position
+     * @param referenceBases reference allele
+     * @return 0-based exclusive end position
+     */
+    static long end(long start, String referenceBases) {
+        return start + Math.max(1, referenceBases.length());
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the variants of one contig into growable primitive arrays and sorts them into an {@link ArrayContigIndex}.
+ * Input that is already sorted (the common case for VCF) is detected and not sorted again.
+ *
+ * @version 1.0
+ */
+public class ContigIndexBuilder {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private int[] referenceIds = new int[INITIAL_CAPACITY];
+    private int[] alternateIds = new int[INITIAL_CAPACITY];
+    private int[] alleleCounts = new int[INITIAL_CAPACITY];
+    private int[] alleleNumbers = new int[INITIAL_CAPACITY];
+    private int[] sampleCounts = new int[INITIAL_CAPACITY];
+    private SampleBitmap[] carriers = new SampleBitmap[INITIAL_CAPACITY];
+    private int size;
+    private boolean sorted = true;
+
+    /**
+     * @param position    0-based start position
+     * @param end         0-based exclusive end position
+     * @param referenceId reference allele id
+     * @param alternateId alternate allele id
+     */
+    public void add(long position, long end, int referenceId, int alternateId) {
+        add(position, end, referenceId, alternateId, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN);
+    }
+
+    /**
+     * @param position     0-based start position
+     * @param end          0-based exclusive end position
+     * @param referenceId  reference allele id
+     * @param alternateId  alternate allele id
+     * @param alleleCount  number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param sampleCount  number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     */
+    public void add(long position, long end, int referenceId, int alternateId, int alleleCount, int alleleNumber, int sampleCount) {
+        add(position, end, referenceId, alternateId, alleleCount, alleleNumber, sampleCount, null);
+    }
+
+    /**
+     * @param position     0-based start position
+     * @param end          0-based exclusive end position
+     * @param referenceId  reference allele id
+     * @param alternateId  alternate allele id
+     * @param alleleCount  number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param sampleCount  number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     * @param carriers     samples carrying the alternate allele, or null if not known
+     */
+    public void add(long position, long end, int referenceId, int alternateId, int alleleCount, int alleleNumber, int sampleCount, SampleBitmap carriers) {
+        if (size == positions.length) {
+            int capacity = size + (size >> 1);
+            positions = Arrays.copyOf(positions, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            referenceIds = Arrays.copyOf(referenceIds, capacity);
+            alternateIds = Arrays.copyOf(alternateIds, capacity);
+            alleleCounts = Arrays.copyOf(alleleCounts, capacity);
+            alleleNumbers = Arrays.copyOf(alleleNumbers, capacity);
+            sampleCounts = Arrays.copyOf(sampleCounts, capacity);
+            this.carriers = Arrays.copyOf(this.carriers, capacity);
+        }
+        if (sorted && size > 0 && compare(size - 1, position, referenceId, alternateId) > 0) {
+            sorted = false;
+        }
+        positions[size] = position;
+        ends[size] = end;
+        referenceIds[size] = referenceId;
+        alternateIds[size] = alternateId;
+        alleleCounts[size] = alleleCount;
+        alleleNumbers[size] = alleleNumber;
+        sampleCounts[size] = sampleCount;
+        this.carriers[size] = carriers;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the accumulated rows, drops duplicates and trims the columns to size.
+     *
+     * @return immutable contig index
+     */
+    public ArrayContigIndex build() {
+        if (!sorted) {
+            sort(0, size - 1);
+        }
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || compare(unique - 1, positions[i], referenceIds[i], alternateIds[i]) != 0) {
+                positions[unique] = positions[i];
+                ends[unique] = ends[i];
+                referenceIds[unique] = referenceIds[i];
+                alternateIds[unique] = alternateIds[i];
+                alleleCounts[unique] = alleleCounts[i];
+                alleleNumbers[unique] = alleleNumbers[i];
+                sampleCounts[unique] = sampleCounts[i];
+                carriers[unique] = carriers[i];
+                unique++;
+            }
+        }
+        return new ArrayContigIndex(Arrays.copyOf(positions, unique),
+                               Arrays.copyOf(ends, unique),
+                               Arrays.copyOf(referenceIds, unique),
+                               Arrays.copyOf(alternateIds, unique),
+                               Arrays.copyOf(alleleCounts, unique),
+                               Arrays.copyOf(alleleNumbers, unique),
+                               Arrays.copyOf(sampleCounts, unique),
+                               Arrays.copyOf(carriers, unique));
+    }
+
+    private int compare(int row, long position, int referenceId, int alternateId) {
+        int c = Long.compare(positions[row], position);
+        if (c == 0) {
+            c = Integer.compare(referenceIds[row], referenceId);
+        }
+        if (c == 0) {
+            c = Integer.compare(alternateIds[row], alternateId);
+        }
+        return c;
+    }
+
+    private int compare(int a, int b) {
+        return compare(a, positions[b], referenceIds[b], alternateIds[b]);
+    }
+
+    /**
+     * Quicksort over the parallel columns. Recurses into the smaller partition only, so the stack depth stays
+     * logarithmic even for tens of millions of rows.
+     */
+    private void sort(int low, int high) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, low) < 0) {
+                swap(mid, low);
+            }
+            if (compare(high, low) < 0) {
+                swap(high, low);
+            }
+            if (compare(high, mid) < 0) {
+                swap(high, mid);
+            }
+            long pivotPosition = positions[mid];
+            int pivotReference = referenceIds[mid];
+            int pivotAlternate = alternateIds[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(i, pivotPosition, pivotReference, pivotAlternate) < 0) {
+                    i++;
+                }
+                while (compare(j, pivotPosition, pivotReference, pivotAlternate) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(j - 1, j) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long position = positions[a];
+        positions[a] = positions[b];
+        positions[b] = position;
+        long end = ends[a];
+        ends[a] = ends[b];
+        ends[b] = end;
+        int referenceId = referenceIds[a];
+        referenceIds[a] = referenceIds[b];
+        referenceIds[b] = referenceId;
+        int alternateId = alternateIds[a];
+        alternateIds[a] = alternateIds[b];
+        alternateIds[b] = alternateId;
+        swap(alleleCounts, a, b);
+        swap(alleleNumbers, a, b);
+        swap(sampleCounts, a, b);
+        SampleBitmap carrier = carriers[a];
+        carriers[a] = carriers[b];
+        carriers[b] = carrier;
+    }
+
+    private static void swap(int[] column, int a, int b) {
+        int value = column[a];
+        column[a] = column[b];
+        column[b] = value;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bloom filters over the variants of a dataset, one per assembly, used to answer most lookups of absent alleles
+ * without touching the index. Variants are keyed by their allele ids, which are only meaningful within the dataset.
+ *
+ * @version 1.0
+ */
+public class DatasetFilter {
+
+    private final Map<String, BloomFilter> assemblies;
+    private final double falsePositiveRate;
+
+    private DatasetFilter(Map<String, BloomFilter> assemblies, double falsePositiveRate) {
+        this.assemblies = Collections.unmodifiableMap(assemblies);
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Builds the filters by scanning every variant of the dataset once.
+     *
+     * @param dataset           dataset index
+     * @param falsePositiveRate target false positive rate of every filter
+     * @return filters of the dataset
+     */
+    public static DatasetFilter build(DatasetIndex dataset, double falsePositiveRate) {
+        Map<String, BloomFilter> filters = new HashMap<>();
+        for (Map.Entry<String, Map<String, ContigIndex>> assembly : dataset.getAssemblies().entrySet()) {
+            long keys = 0;
+            for (ContigIndex contig : assembly.getValue().values()) {
+                keys += contig.size();
+            }
+            BloomFilter filter = BloomFilter.create(keys, falsePositiveRate);
+            for (Map.Entry<String, ContigIndex> reference : assembly.getValue().entrySet()) {
+                long contigHash = VariantHash.hash(reference.getKey());
+                ContigIndex contig = reference.getValue();
+                for (int row = 0; row < contig.size(); row++) {
+                    filter.put(VariantHash.combine(contigHash,
+                                                   contig.getPosition(row),
+                                                   VariantHash.hash(contig.getReferenceId(row)),
+                                                   VariantHash.hash(contig.getAlternateId(row))));
+                }
+            }
+            filters.put(assembly.getKey(), filter);
+        }
+        return new DatasetFilter(filters, falsePositiveRate);
+    }
+
+    /**
+     * @param assemblyId    assembly id
+     * @param referenceName reference name
+     * @param start         0-based start position
+     * @param referenceId   id of the reference allele in the dataset's {@link AlleleDictionary}
+     * @param alternateId   id of the alternate allele in the dataset's {@link AlleleDictionary}
+     * @return false if the dataset definitely does not contain the variant
+     */
+    public boolean mightContain(String assemblyId, String referenceName, long start, int referenceId, int alternateId) {
+        BloomFilter filter = assemblies.get(assemblyId);
+        return filter == null || filter.mightContain(VariantHash.combine(VariantHash.hash(referenceName),
+                                                                         start,
+                                                                         VariantHash.hash(referenceId),
+                                                                         VariantHash.hash(alternateId)));
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Frees the filters. They must not be used afterwards.
+     */
+    public void close() {
+        for (BloomFilter filter : assemblies.values()) {
+            filter.close();
+        }
+    }
+
+    /**
+     * @return total size of the filters in bytes, all of it in direct memory
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (BloomFilter filter : assemblies.values()) {
+            bytes += filter.getMemoryBytes();
+        }
+        return bytes;
+    }
+}
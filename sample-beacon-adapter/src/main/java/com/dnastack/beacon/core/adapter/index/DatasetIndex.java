@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Variant index of a single dataset: one {@link ContigIndex} per (assembly, contig) sharing the dataset's
+ * {@link AlleleDictionary}, the dataset totals, which are computed once when the index is built or opened, and the
+ * named cohorts of samples that sample counts can be restricted to. Indexes opened by {@link IndexReader} read all of
+ * this from the mapped index file, which stays mapped until {@link #close()}.
+ *
+ * @version 1.0
+ */
+public class DatasetIndex {
+
+    private final String id;
+    private final AlleleDictionary alleles;
+    private final Map<String, Map<String, ContigIndex>> assemblies;
+    private final long variantCount;
+    private final long callCount;
+    private final int sampleCount;
+    private final Map<String, SampleBitmap> cohorts;
+    private final MappedBuffer buffer;
+
+    DatasetIndex(String id, AlleleDictionary alleles, Map<String, Map<String, ContigIndex>> assemblies, long callCount, int sampleCount, Map<String, SampleBitmap> cohorts, MappedBuffer buffer) {
+        this.id = id;
+        this.buffer = buffer;
+        this.alleles = alleles;
+        this.assemblies = Collections.unmodifiableMap(assemblies);
+        this.callCount = callCount;
+        this.sampleCount = sampleCount;
+        this.cohorts = Collections.unmodifiableMap(cohorts);
+        long count = 0;
+        for (Map<String, ContigIndex> contigs : assemblies.values()) {
+            for (ContigIndex contig : contigs.values()) {
+                count += contig.size();
+            }
+        }
+        this.variantCount = count;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public AlleleDictionary getAlleles() {
+        return alleles;
+    }
+
+    /**
+     * @param assemblyId assembly id, e.g. GRCh37
+     * @return contig indexes keyed by reference name, or null if the dataset has no data for the assembly
+     */
+    public Map<String, ContigIndex> getAssembly(String assemblyId) {
+        return assemblies.get(assemblyId);
+    }
+
+    public Map<String, Map<String, ContigIndex>> getAssemblies() {
+        return assemblies;
+    }
+
+    public boolean isEmpty() {
+        return assemblies.isEmpty();
+    }
+
+    public long getVariantCount() {
+        return variantCount;
+    }
+
+    /**
+     * @return number of called alleles over all variants, {@link ContigIndex#UNKNOWN} if no variant has an allele
+     * number
+     */
+    public long getCallCount() {
+        return callCount;
+    }
+
+    /**
+     * @return number of samples in the dataset, or {@link ContigIndex#UNKNOWN}
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @param cohortId cohort id, e.g. a consent group or population
+     * @return samples of the cohort, or null if the dataset defines no such cohort
+     */
+    public SampleBitmap getCohort(String cohortId) {
+        return cohorts.get(cohortId);
+    }
+
+    /**
+     * @return samples of every cohort keyed by cohort id
+     */
+    public Map<String, SampleBitmap> getCohorts() {
+        return cohorts;
+    }
+
+    /**
+     * @return size of the mapped index file in bytes, 0 for an index built on the heap
+     */
+    public long getMappedBytes() {
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    /**
+     * Unmaps the index file. Nothing read from the index, bitmaps included, may be used afterwards.
+     */
+    public void close() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+}
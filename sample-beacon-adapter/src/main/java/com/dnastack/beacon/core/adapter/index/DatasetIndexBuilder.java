@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link DatasetIndex} from individual variants.
+ *
+ * @version 1.0
+ */
+public class DatasetIndexBuilder {
+
+    private final String datasetId;
+    private final HeapAlleleDictionary alleles = new HeapAlleleDictionary();
+    private final Map<String, Map<String, ContigIndexBuilder>> assemblies = new HashMap<>();
+    private final Map<String, SampleBitmap> cohorts = new HashMap<>();
+    private int sampleCount = ContigIndex.UNKNOWN;
+
+    public DatasetIndexBuilder(String datasetId) {
+        this.datasetId = datasetId;
+    }
+
+    /**
+     * Adds a single variant.
+     *
+     * @param assemblyId     assembly id, e.g. GRCh37
+     * @param referenceName  contig name
+     * @param start          0-based start position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @return this builder
+     */
+    public DatasetIndexBuilder add(String assemblyId, String referenceName, long start, String referenceBases, String alternateBases) {
+        return add(assemblyId, referenceName, start, ContigIndex.end(start, referenceBases), referenceBases, alternateBases);
+    }
+
+    /**
+     * Adds a single variant with an explicit end, e.g. a structural variant with a symbolic alternate allele.
+     *
+     * @param assemblyId     assembly id, e.g. GRCh37
+     * @param referenceName  contig name
+     * @param start          0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @return this builder
+     */
+    public DatasetIndexBuilder add(String assemblyId, String referenceName, long start, long end, String referenceBases, String alternateBases) {
+        return add(assemblyId, referenceName, start, end, referenceBases, alternateBases, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN);
+    }
+
+    /**
+     * Adds a single variant with its statistics.
+     *
+     * @param assemblyId     assembly id, e.g. GRCh37
+     * @param referenceName  contig name
+     * @param start          0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @param alleleCount    number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber   number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param sampleCount    number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     * @return this builder
+     */
+    public DatasetIndexBuilder add(String assemblyId, String referenceName, long start, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, int sampleCount) {
+        ContigIndexBuilder contig = assemblies.computeIfAbsent(assemblyId, k -> new HashMap<>())
+                                              .computeIfAbsent(referenceName, k -> new ContigIndexBuilder());
+        contig.add(start, end, alleles.intern(referenceBases), alleles.intern(alternateBases), alleleCount, alleleNumber, sampleCount);
+        return this;
+    }
+
+    /**
+     * Adds a single variant with its statistics and carrier samples.
+     *
+     * @param assemblyId     assembly id, e.g. GRCh37
+     * @param referenceName  contig name
+     * @param start          0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @param alleleCount    number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber   number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param carriers       samples carrying the alternate allele
+     * @return this builder
+     */
+    public DatasetIndexBuilder add(String assemblyId, String referenceName, long start, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, SampleBitmap carriers) {
+        ContigIndexBuilder contig = assemblies.computeIfAbsent(assemblyId, k -> new HashMap<>())
+                                              .computeIfAbsent(referenceName, k -> new ContigIndexBuilder());
+        contig.add(start, end, alleles.intern(referenceBases), alleles.intern(alternateBases), alleleCount, alleleNumber, carriers.getCardinality(), carriers);
+        return this;
+    }
+
+    /**
+     * @param sampleCount number of samples in the dataset, or {@link ContigIndex#UNKNOWN}
+     * @return this builder
+     */
+    public DatasetIndexBuilder sampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+        return this;
+    }
+
+    /**
+     * @param cohortId cohort id, e.g. a consent group or population
+     * @param samples  samples of the cohort
+     * @return this builder
+     */
+    public DatasetIndexBuilder cohort(String cohortId, SampleBitmap samples) {
+        cohorts.put(cohortId, samples);
+        return this;
+    }
+
+    public DatasetIndex build() {
+        Map<String, Map<String, ContigIndex>> built = new HashMap<>();
+        long callCount = ContigIndex.UNKNOWN;
+        for (Map.Entry<String, Map<String, ContigIndexBuilder>> assembly : assemblies.entrySet()) {
+            Map<String, ContigIndex> contigs = new HashMap<>();
+            for (Map.Entry<String, ContigIndexBuilder> contig : assembly.getValue().entrySet()) {
+                ContigIndex index = contig.getValue().build();
+                for (int row = 0; row < index.size(); row++) {
+                    int alleleNumber = index.getAlleleNumber(row);
+                    if (alleleNumber != ContigIndex.UNKNOWN) {
+                        callCount = Math.max(callCount, 0) + alleleNumber;
+                    }
+                }
+                contigs.put(contig.getKey(), index);
+            }
+            built.put(assembly.getKey(), Collections.unmodifiableMap(contigs));
+        }
+        return new DatasetIndex(datasetId, alleles, built, callCount, sampleCount, cohorts, null);
+    }
+}
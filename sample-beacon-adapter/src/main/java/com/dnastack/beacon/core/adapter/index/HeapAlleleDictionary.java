@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap backed allele dictionary used while building an index. Stored alleles are indexed in insertion order.
+ *
+ * @version 1.0
+ */
+public class HeapAlleleDictionary implements AlleleDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> alleles = new ArrayList<>();
+
+    /**
+     * Returns the id of the given allele, adding it to the dictionary if it is not present yet.
+     *
+     * @param allele not null allele
+     * @return allele id
+     */
+    public int intern(String allele) {
+        int packed = PackedAlleles.pack(allele);
+        if (packed != PackedAlleles.NOT_PACKED) {
+            return packed;
+        }
+        Integer id = ids.get(allele);
+        if (id == null) {
+            id = PackedAlleles.reference(alleles.size());
+            ids.put(allele, id);
+            alleles.add(allele);
+        }
+        return id;
+    }
+
+    @Override
+    public int lookup(String allele) {
+        int packed = PackedAlleles.pack(allele);
+        if (packed != PackedAlleles.NOT_PACKED) {
+            return packed;
+        }
+        Integer id = ids.get(allele);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    @Override
+    public String get(int id) {
+        return PackedAlleles.isPacked(id) ? PackedAlleles.unpack(id) : alleles.get(PackedAlleles.index(id));
+    }
+
+    /**
+     * @param index index of a stored allele, below {@link #size()}
+     * @return stored allele
+     */
+    String getStored(int index) {
+        return alleles.get(index);
+    }
+
+    @Override
+    public int size() {
+        return alleles.size();
+    }
+}
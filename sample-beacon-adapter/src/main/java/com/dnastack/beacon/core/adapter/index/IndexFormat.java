@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout constants of the binary variant index file. All values are little endian and every section starts on an
+ * 8-byte boundary, so primitives can be read straight from the mapped pages.
+ * <pre>
+ * header     magic "BCNINDEX", int version, int block size, long directory offset, long reserved
+ * blocks     per contig, consecutive blocks of up to block size rows: long[n] positions, long[n] end positions,
+ *            long[n] carrier offsets (relative to the carriers section, -1 if not known), int[n] reference ids,
+ *            int[n] alternate ids, see {@link PackedAlleles}, int[n] allele counts, int[n] allele numbers,
+ *            int[n] carrier sample counts, -1 where unknown
+ * block dir  per contig, long[block count] with the first position of every block
+ * tree       per contig, long[variant count] with the largest end in the {@link IntervalTree} subtree of every row
+ * carriers   {@link SampleBitmap}s of the carrier samples of rows and of the cohorts
+ * dictionary alleles not packed into their ids: int count, int reserved, int[count] indexes sorted by allele bytes,
+ *            long[count + 1] absolute string offsets, UTF-8 allele bytes
+ * directory  dataset id, long dictionary offset, long carriers offset, long call count (sum of allele numbers, -1 if
+ *            unknown), int sample count (-1 if unknown), int cohort count, then per cohort: cohort id, long carriers
+ *            relative offset of its samples; int contig count, then per contig: assembly id, reference name,
+ *            int variant count, int block count, long data offset, long block dir offset, long tree offset
+ * </pre>
+ * Strings in the directory are stored as an int byte length followed by UTF-8 bytes.
+ *
+ * @version 1.0
+ */
+public final class IndexFormat {
+
+    public static final String FILE_EXTENSION = ".bidx";
+    public static final int VERSION = 5;
+
+    static final byte[] MAGIC = "BCNINDEX".getBytes(StandardCharsets.US_ASCII);
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int HEADER_SIZE = 32;
+    static final int VERSION_OFFSET = 8;
+    static final int BLOCK_SIZE_OFFSET = 12;
+    static final int DIRECTORY_OFFSET_OFFSET = 16;
+    static final int BLOCK_SHIFT = 12;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int ROW_BYTES = 8 + 8 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    private IndexFormat() {
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
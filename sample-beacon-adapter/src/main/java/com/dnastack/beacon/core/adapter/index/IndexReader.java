@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opens binary variant index files written by {@link IndexWriter}. Only the header and the directory are parsed; the
+ * variant blocks and the allele dictionary are read from the mapped file on demand, so opening is independent of the
+ * dataset size and the pages are shared through the OS page cache.
+ *
+ * @version 1.0
+ */
+public final class IndexReader {
+
+    private IndexReader() {
+    }
+
+    /**
+     * Maps an index file.
+     *
+     * @param path index file
+     * @return dataset index backed by the mapped file
+     * @throws IOException if the file cannot be read or is not a supported index
+     */
+    public static DatasetIndex open(Path path) throws IOException {
+        MappedBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = MappedBuffer.map(channel);
+        }
+        try {
+            return read(path, buffer);
+        } catch (IOException | RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    private static DatasetIndex read(Path path, MappedBuffer buffer) throws IOException {
+        if (buffer.size() < IndexFormat.HEADER_SIZE) {
+            throw new IOException(path + " is not a beacon index file");
+        }
+        byte[] magic = new byte[IndexFormat.MAGIC.length];
+        buffer.get(0, magic, magic.length);
+        if (!Arrays.equals(magic, IndexFormat.MAGIC)) {
+            throw new IOException(path + " is not a beacon index file");
+        }
+        int version = buffer.getInt(IndexFormat.VERSION_OFFSET);
+        if (version != IndexFormat.VERSION) {
+            throw new IOException("Unsupported index version " + version + " in " + path + ", expected " + IndexFormat.VERSION);
+        }
+        if (buffer.getInt(IndexFormat.BLOCK_SIZE_OFFSET) != IndexFormat.BLOCK_SIZE) {
+            throw new IOException("Unsupported block size in " + path);
+        }
+        long directoryOffset = buffer.getLong(IndexFormat.DIRECTORY_OFFSET_OFFSET);
+        if (directoryOffset < IndexFormat.HEADER_SIZE || directoryOffset >= buffer.size()) {
+            throw new IOException(path + " is incomplete");
+        }
+
+        byte[] bytes = new byte[(int) (buffer.size() - directoryOffset)];
+        buffer.get(directoryOffset, bytes, bytes.length);
+        ByteBuffer directory = ByteBuffer.wrap(bytes).order(IndexFormat.BYTE_ORDER);
+        String datasetId = getString(directory);
+        AlleleDictionary alleles = new MappedAlleleDictionary(buffer, directory.getLong());
+        long carriersOffset = directory.getLong();
+        long callCount = directory.getLong();
+        int sampleCount = directory.getInt();
+        int cohortCount = directory.getInt();
+        Map<String, SampleBitmap> cohorts = new HashMap<>();
+        for (int i = 0; i < cohortCount; i++) {
+            String cohortId = getString(directory);
+            cohorts.put(cohortId, new SampleBitmap(buffer, carriersOffset + directory.getLong()));
+        }
+        int contigCount = directory.getInt();
+
+        Map<String, Map<String, ContigIndex>> assemblies = new HashMap<>();
+        for (int i = 0; i < contigCount; i++) {
+            String assemblyId = getString(directory);
+            String referenceName = getString(directory);
+            int variantCount = directory.getInt();
+            int blockCount = directory.getInt();
+            long dataOffset = directory.getLong();
+            long blockDirectoryOffset = directory.getLong();
+            long intervalTreeOffset = directory.getLong();
+            assemblies.computeIfAbsent(assemblyId, k -> new HashMap<>())
+                      .put(referenceName,
+                           new MappedContigIndex(buffer,
+                                                 variantCount,
+                                                 blockCount,
+                                                 dataOffset,
+                                                 blockDirectoryOffset,
+                                                 intervalTreeOffset,
+                                                 carriersOffset));
+        }
+        for (Map.Entry<String, Map<String, ContigIndex>> assembly : assemblies.entrySet()) {
+            assembly.setValue(Collections.unmodifiableMap(assembly.getValue()));
+        }
+        return new DatasetIndex(datasetId, alleles, assemblies, callCount, sampleCount, cohorts, buffer);
+    }
+
+    private static String getString(ByteBuffer directory) {
+        byte[] bytes = new byte[directory.getInt()];
+        directory.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
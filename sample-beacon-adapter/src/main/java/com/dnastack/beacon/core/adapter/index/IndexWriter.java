@@ -0,0 +1,549 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Streaming writer of the binary variant index described in {@link IndexFormat}. Variants are written contig by
+ * contig in position order and flushed block by block, so only the current block, the block directory of the current
+ * contig and the allele dictionary are held in memory. The interval tree of a contig is built in place in the mapped
+ * file from the end positions of its blocks. Carrier sets are spilled to a temporary file next to the index and
+ * appended to it on close.
+ *
+ * @version 1.0
+ */
+public class IndexWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(IndexFormat.BYTE_ORDER);
+    private final String datasetId;
+    private final HeapAlleleDictionary alleles = new HeapAlleleDictionary();
+    private final List<ContigEntry> contigs = new ArrayList<>();
+    private final Set<String> contigKeys = new HashSet<>();
+
+    private final long[] blockPositions = new long[IndexFormat.BLOCK_SIZE];
+    private final long[] blockEnds = new long[IndexFormat.BLOCK_SIZE];
+    private final int[] blockReferenceIds = new int[IndexFormat.BLOCK_SIZE];
+    private final int[] blockAlternateIds = new int[IndexFormat.BLOCK_SIZE];
+    private final int[] blockAlleleCounts = new int[IndexFormat.BLOCK_SIZE];
+    private final int[] blockAlleleNumbers = new int[IndexFormat.BLOCK_SIZE];
+    private final int[] blockSampleCounts = new int[IndexFormat.BLOCK_SIZE];
+    private final long[] blockCarriers = new long[IndexFormat.BLOCK_SIZE];
+    private final Map<String, Long> cohorts = new LinkedHashMap<>();
+    private int blockRows;
+    private long[] firstPositions = new long[16];
+    private long[] blockOffsets = new long[16];
+    private long[] positionAlleles = new long[8];
+    private int positionAlleleCount;
+
+    private ContigEntry contig;
+    private long callCount = ContigIndex.UNKNOWN;
+    private int sampleCount = ContigIndex.UNKNOWN;
+    private long offset;
+    private Path carriersPath;
+    private OutputStream carriers;
+    private long carriersSize;
+    private boolean closed;
+
+    public IndexWriter(Path path, String datasetId) throws IOException {
+        this.path = path;
+        this.datasetId = datasetId;
+        this.channel = FileChannel.open(path,
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        buffer.put(IndexFormat.MAGIC);
+        buffer.putInt(IndexFormat.VERSION);
+        buffer.putInt(IndexFormat.BLOCK_SIZE);
+        buffer.putLong(0);
+        buffer.putLong(0);
+        offset = IndexFormat.HEADER_SIZE;
+    }
+
+    /**
+     * Writes a complete in-memory index to a file.
+     *
+     * @param index index to write
+     * @param path  target file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(DatasetIndex index, Path path) throws IOException {
+        try (IndexWriter writer = new IndexWriter(path, index.getId())) {
+            writer.setSampleCount(index.getSampleCount());
+            for (Map.Entry<String, SampleBitmap> cohort : index.getCohorts().entrySet()) {
+                writer.addCohort(cohort.getKey(), cohort.getValue());
+            }
+            AlleleDictionary dictionary = index.getAlleles();
+            for (Map.Entry<String, Map<String, ContigIndex>> assembly : index.getAssemblies().entrySet()) {
+                for (Map.Entry<String, ContigIndex> reference : assembly.getValue().entrySet()) {
+                    ContigIndex contig = reference.getValue();
+                    writer.startContig(assembly.getKey(), reference.getKey());
+                    for (int row = 0; row < contig.size(); row++) {
+                        writer.add(contig.getPosition(row),
+                                   contig.getEnd(row),
+                                   dictionary.get(contig.getReferenceId(row)),
+                                   dictionary.get(contig.getAlternateId(row)),
+                                   contig.getAlleleCount(row),
+                                   contig.getAlleleNumber(row),
+                                   contig.getSampleCount(row),
+                                   contig.getCarriers(row));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sampleCount number of samples in the dataset, or {@link ContigIndex#UNKNOWN}
+     */
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Adds a named cohort that sample counts can be restricted to.
+     *
+     * @param cohortId cohort id, e.g. a consent group or population
+     * @param samples  samples of the cohort
+     * @throws IOException if the samples cannot be written
+     */
+    public void addCohort(String cohortId, SampleBitmap samples) throws IOException {
+        if (cohorts.containsKey(cohortId)) {
+            throw new IllegalStateException("Cohort " + cohortId + " was already written");
+        }
+        cohorts.put(cohortId, writeCarriers(samples));
+    }
+
+    /**
+     * Starts a new contig, finishing the previous one. Every (assembly, contig) pair may only be written once.
+     *
+     * @param assemblyId    assembly id, e.g. GRCh37
+     * @param referenceName contig name
+     * @throws IOException if the previous contig cannot be flushed
+     */
+    public void startContig(String assemblyId, String referenceName) throws IOException {
+        finishContig();
+        if (!contigKeys.add(assemblyId + '\t' + referenceName)) {
+            throw new IllegalStateException("Contig " + referenceName + " of " + assemblyId + " was already written");
+        }
+        contig = new ContigEntry(assemblyId, referenceName);
+        contig.dataOffset = offset;
+    }
+
+    /**
+     * Adds a variant to the current contig. Positions must not decrease within a contig.
+     *
+     * @param position       0-based start position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @throws IOException if a full block cannot be flushed
+     */
+    public void add(long position, String referenceBases, String alternateBases) throws IOException {
+        add(position, ContigIndex.end(position, referenceBases), referenceBases, alternateBases);
+    }
+
+    /**
+     * Adds a variant with an explicit end to the current contig. Positions must not decrease within a contig.
+     *
+     * @param position       0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @throws IOException if a full block cannot be flushed
+     */
+    public void add(long position, long end, String referenceBases, String alternateBases) throws IOException {
+        add(position, end, referenceBases, alternateBases, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN, ContigIndex.UNKNOWN);
+    }
+
+    /**
+     * Adds a variant with an explicit end and its statistics to the current contig. Positions must not decrease
+     * within a contig. Of several rows with the same position and alleles only the first is kept.
+     *
+     * @param position       0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @param alleleCount    number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber   number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param sampleCount    number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     * @throws IOException if a full block cannot be flushed
+     */
+    public void add(long position, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, int sampleCount) throws IOException {
+        add(position, end, referenceBases, alternateBases, alleleCount, alleleNumber, sampleCount, null);
+    }
+
+    /**
+     * Adds a variant with an explicit end, its statistics and its carrier samples to the current contig. Positions
+     * must not decrease within a contig. Of several rows with the same position and alleles only the first is kept.
+     *
+     * @param position       0-based start position
+     * @param end            0-based exclusive end position
+     * @param referenceBases reference allele
+     * @param alternateBases alternate allele
+     * @param alleleCount    number of alternate alleles among the called genotypes, or {@link ContigIndex#UNKNOWN}
+     * @param alleleNumber   number of called alleles, or {@link ContigIndex#UNKNOWN}
+     * @param sampleCount    number of samples carrying the alternate allele, or {@link ContigIndex#UNKNOWN}
+     * @param carriers       samples carrying the alternate allele, or null if not known
+     * @throws IOException if a full block or the carriers cannot be written
+     */
+    public void add(long position, long end, String referenceBases, String alternateBases, int alleleCount, int alleleNumber, int sampleCount, SampleBitmap carriers) throws IOException {
+        if (contig == null) {
+            throw new IllegalStateException("No contig started");
+        }
+        long previous = blockRows > 0 ? blockPositions[blockRows - 1] : contig.lastPosition;
+        if (position < previous) {
+            throw new IllegalArgumentException("Variants must be sorted by position, got " + position + " after " + previous + " on " + contig.referenceName);
+        }
+        int referenceId = alleles.intern(referenceBases);
+        int alternateId = alleles.intern(alternateBases);
+        if (!addPositionAlleles(position != previous, (long) referenceId << 32 | alternateId & 0xFFFFFFFFL)) {
+            return;
+        }
+        blockPositions[blockRows] = position;
+        blockEnds[blockRows] = Math.max(end, position);
+        blockReferenceIds[blockRows] = referenceId;
+        blockAlternateIds[blockRows] = alternateId;
+        blockAlleleCounts[blockRows] = alleleCount;
+        blockAlleleNumbers[blockRows] = alleleNumber;
+        blockSampleCounts[blockRows] = sampleCount;
+        blockCarriers[blockRows] = carriers == null ? -1 : writeCarriers(carriers);
+        if (alleleNumber != ContigIndex.UNKNOWN) {
+            callCount = Math.max(callCount, 0) + alleleNumber;
+        }
+        if (++blockRows == IndexFormat.BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finishContig();
+            long carriersOffset = appendCarriers();
+            long dictionaryOffset = writeDictionary();
+            long directoryOffset = offset;
+            putString(datasetId);
+            putLong(dictionaryOffset);
+            putLong(carriersOffset);
+            putLong(callCount);
+            putInt(sampleCount);
+            putInt(cohorts.size());
+            for (Map.Entry<String, Long> cohort : cohorts.entrySet()) {
+                putString(cohort.getKey());
+                putLong(cohort.getValue());
+            }
+            putInt(contigs.size());
+            for (ContigEntry entry : contigs) {
+                putString(entry.assemblyId);
+                putString(entry.referenceName);
+                putInt(entry.variantCount);
+                putInt(entry.blockCount);
+                putLong(entry.dataOffset);
+                putLong(entry.blockDirectoryOffset);
+                putLong(entry.intervalTreeOffset);
+            }
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(8).order(IndexFormat.BYTE_ORDER);
+            header.putLong(0, directoryOffset);
+            channel.write(header, IndexFormat.DIRECTORY_OFFSET_OFFSET);
+            channel.force(true);
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                if (carriers != null) {
+                    carriers.close();
+                    Files.deleteIfExists(carriersPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers the alleles of the rows at the current position, which may span blocks.
+     *
+     * @param newPosition true if the row is the first at its position
+     * @param alleles     reference id in the high and alternate id in the low half
+     * @return false if a row with the same alleles was already added at the position
+     */
+    private boolean addPositionAlleles(boolean newPosition, long alleles) {
+        if (newPosition) {
+            positionAlleleCount = 0;
+        }
+        for (int i = 0; i < positionAlleleCount; i++) {
+            if (positionAlleles[i] == alleles) {
+                return false;
+            }
+        }
+        if (positionAlleleCount == positionAlleles.length) {
+            positionAlleles = Arrays.copyOf(positionAlleles, positionAlleleCount * 2);
+        }
+        positionAlleles[positionAlleleCount++] = alleles;
+        return true;
+    }
+
+    /**
+     * @return offset of the carriers relative to the start of the carriers section
+     */
+    private long writeCarriers(SampleBitmap samples) throws IOException {
+        if (carriers == null) {
+            carriersPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".carriers");
+            carriers = new BufferedOutputStream(Files.newOutputStream(carriersPath), BUFFER_SIZE);
+        }
+        long carriersOffset = carriersSize;
+        byte[] bytes = samples.toBytes();
+        carriers.write(bytes);
+        carriersSize += bytes.length;
+        return carriersOffset;
+    }
+
+    /**
+     * Copies the spilled carriers into the index.
+     *
+     * @return offset of the carriers section
+     */
+    private long appendCarriers() throws IOException {
+        long carriersOffset = offset;
+        if (carriers == null) {
+            return carriersOffset;
+        }
+        carriers.flush();
+        flush();
+        try (FileChannel source = FileChannel.open(carriersPath, StandardOpenOption.READ)) {
+            long copied = 0;
+            while (copied < carriersSize) {
+                copied += source.transferTo(copied, carriersSize - copied, channel);
+            }
+        }
+        offset += carriersSize;
+        return carriersOffset;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        if (contig.blockCount == firstPositions.length) {
+            firstPositions = Arrays.copyOf(firstPositions, firstPositions.length * 2);
+            blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length * 2);
+        }
+        blockOffsets[contig.blockCount] = offset;
+        firstPositions[contig.blockCount++] = blockPositions[0];
+        for (int row = 0; row < blockRows; row++) {
+            putLong(blockPositions[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putLong(blockEnds[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putLong(blockCarriers[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putInt(blockReferenceIds[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putInt(blockAlternateIds[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putInt(blockAlleleCounts[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putInt(blockAlleleNumbers[row]);
+        }
+        for (int row = 0; row < blockRows; row++) {
+            putInt(blockSampleCounts[row]);
+        }
+        contig.variantCount += blockRows;
+        contig.lastPosition = blockPositions[blockRows - 1];
+        blockRows = 0;
+    }
+
+    private void finishContig() throws IOException {
+        if (contig == null) {
+            return;
+        }
+        flushBlock();
+        // a last block with an odd number of rows ends in the middle of a long
+        align();
+        contig.blockDirectoryOffset = offset;
+        for (int block = 0; block < contig.blockCount; block++) {
+            putLong(firstPositions[block]);
+        }
+        contig.intervalTreeOffset = offset;
+        writeTree();
+        contigs.add(contig);
+        contig = null;
+    }
+
+    /**
+     * Copies the end positions of the blocks of the current contig into its interval tree section and turns them into
+     * subtree maximum ends in the mapped file.
+     */
+    private void writeTree() throws IOException {
+        if (contig.variantCount == 0) {
+            return;
+        }
+        flush();
+        ByteBuffer ends = ByteBuffer.allocate(8 * IndexFormat.BLOCK_SIZE).order(IndexFormat.BYTE_ORDER);
+        for (int block = 0; block < contig.blockCount; block++) {
+            int rows = Math.min(IndexFormat.BLOCK_SIZE, contig.variantCount - block * IndexFormat.BLOCK_SIZE);
+            ends.clear().limit(8 * rows);
+            long position = blockOffsets[block] + 8L * rows;
+            while (ends.hasRemaining()) {
+                if (channel.read(ends, position + ends.position()) < 0) {
+                    throw new IOException("Index file " + path + " ended inside a block");
+                }
+            }
+            ends.flip();
+            while (ends.hasRemaining()) {
+                putLong(ends.getLong());
+            }
+        }
+        flush();
+        MappedBuffer tree = MappedBuffer.map(channel, FileChannel.MapMode.READ_WRITE, contig.intervalTreeOffset, 8L * contig.variantCount);
+        try {
+            IntervalTree.build(tree, contig.variantCount);
+            tree.force();
+        } finally {
+            tree.close();
+        }
+    }
+
+    private long writeDictionary() throws IOException {
+        int count = alleles.size();
+        byte[][] bytes = new byte[count][];
+        Integer[] sorted = new Integer[count];
+        for (int index = 0; index < count; index++) {
+            bytes[index] = alleles.getStored(index).getBytes(StandardCharsets.UTF_8);
+            sorted[index] = index;
+        }
+        Arrays.sort(sorted, (a, b) -> MappedAlleleDictionary.compare(bytes[a], bytes[b]));
+
+        long dictionaryOffset = offset;
+        putInt(count);
+        putInt(0);
+        for (Integer index : sorted) {
+            putInt(index);
+        }
+        align();
+        long stringOffset = offset + 8L * (count + 1);
+        for (int index = 0; index < count; index++) {
+            putLong(stringOffset);
+            stringOffset += bytes[index].length;
+        }
+        putLong(stringOffset);
+        for (byte[] allele : bytes) {
+            putBytes(allele);
+        }
+        align();
+        return dictionaryOffset;
+    }
+
+    private void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        putBytes(bytes);
+    }
+
+    private void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+        offset += 8;
+    }
+
+    private void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+        offset += 4;
+    }
+
+    private void putBytes(byte[] value) throws IOException {
+        int written = 0;
+        while (written < value.length) {
+            ensure(1);
+            int chunk = Math.min(buffer.remaining(), value.length - written);
+            buffer.put(value, written, chunk);
+            written += chunk;
+        }
+        offset += value.length;
+    }
+
+    private void align() throws IOException {
+        while ((offset & 7) != 0) {
+            ensure(1);
+            buffer.put((byte) 0);
+            offset++;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static final class ContigEntry {
+
+        private final String assemblyId;
+        private final String referenceName;
+        private int variantCount;
+        private int blockCount;
+        private long dataOffset;
+        private long blockDirectoryOffset;
+        private long intervalTreeOffset;
+        private long lastPosition = Long.MIN_VALUE;
+
+        private ContigEntry(String assemblyId, String referenceName) {
+            this.assemblyId = assemblyId;
+            this.referenceName = referenceName;
+        }
+    }
+}
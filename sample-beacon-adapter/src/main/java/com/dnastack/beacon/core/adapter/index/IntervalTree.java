@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Implicit augmented interval tree over the rows of a {@link ContigIndex}. Rows are already sorted by start, so the
+ * row array is read as the in-order layout of a binary tree: row {@code i} sits at the level given by the number of
+ * trailing one bits of {@code i}, and the only extra data is the largest end position within the subtree of every row.
+ * An overlap query visits O(log n + k) rows for k overlapping variants, regardless of how long the longest variant is.
+ *
+ * @version 1.0
+ */
+final class IntervalTree {
+
+    /**
+     * Subtrees of at most 2^(k+1) rows are scanned linearly instead of descending further.
+     */
+    private static final int SCAN_LEVEL = 3;
+
+    private IntervalTree() {
+    }
+
+    /**
+     * Computes the largest end position in the subtree of every row.
+     *
+     * @param ends end positions of the rows, in row order
+     * @param size number of rows
+     * @return subtree maximum ends, in row order
+     */
+    static long[] build(long[] ends, int size) {
+        long[] maxEnds = Arrays.copyOf(ends, size);
+        build(row -> maxEnds[row], (row, maxEnd) -> maxEnds[row] = maxEnd, size);
+        return maxEnds;
+    }
+
+    /**
+     * Replaces the end positions of the rows by the largest end position in the subtree of every row, in place.
+     *
+     * @param tree mapping holding a long per row
+     * @param size number of rows
+     */
+    static void build(MappedBuffer tree, int size) {
+        build(row -> tree.getLong(8L * row), (row, maxEnd) -> tree.putLong(8L * row, maxEnd), size);
+    }
+
+    /**
+     * Levels are computed bottom up, and every row is written only at its own level, after its children, so its own
+     * end position is still in place when it is read.
+     */
+    private static void build(IntToLongFunction get, Setter set, int size) {
+        if (size == 0) {
+            return;
+        }
+        // leaves are their own subtree, so only the last one is needed to start with
+        int lastRow = (size - 1) & ~1;
+        long last = get.applyAsLong(lastRow);
+        int level;
+        for (level = 1; 1L << level <= size; level++) {
+            long half = 1L << (level - 1);
+            long first = (half << 1) - 1;
+            long step = half << 2;
+            for (long row = first; row < size; row += step) {
+                long left = get.applyAsLong((int) (row - half));
+                long right = row + half < size ? get.applyAsLong((int) (row + half)) : last;
+                set.set((int) row, Math.max(get.applyAsLong((int) row), Math.max(left, right)));
+            }
+            lastRow = (lastRow >> level & 1) != 0 ? (int) (lastRow - half) : (int) (lastRow + half);
+            if (lastRow < size && get.applyAsLong(lastRow) > last) {
+                last = get.applyAsLong(lastRow);
+            }
+        }
+    }
+
+    private interface Setter {
+
+        void set(int row, long maxEnd);
+    }
+
+    /**
+     * Visits the rows overlapping a half-open interval, in no particular order.
+     *
+     * @param index   contig index with subtree maximum ends
+     * @param start   0-based start of the interval, inclusive
+     * @param end     0-based end of the interval, exclusive
+     * @param visitor called with every overlapping row, returns false to stop the query
+     * @return false if the visitor stopped the query
+     */
+    static boolean query(ContigIndex index, long start, long end, IntPredicate visitor) {
+        int size = index.size();
+        if (size == 0 || start >= end) {
+            return true;
+        }
+        int maxLevel = 31 - Integer.numberOfLeadingZeros(size);
+        // explicit stack of (level, row, left subtree done) entries; the tree is at most 32 levels deep
+        int[] levels = new int[64];
+        long[] rows = new long[64];
+        boolean[] leftDone = new boolean[64];
+        int top = 0;
+        levels[top] = maxLevel;
+        rows[top] = (1L << maxLevel) - 1;
+        leftDone[top++] = false;
+        while (top > 0) {
+            top--;
+            int level = levels[top];
+            long row = rows[top];
+            if (level <= SCAN_LEVEL) {
+                long first = row >> level << level;
+                long last = Math.min(first + (1L << (level + 1)) - 1, size);
+                for (int i = (int) first; i < last && index.getPosition(i) < end; i++) {
+                    if (start < index.getEnd(i) && !visitor.test(i)) {
+                        return false;
+                    }
+                }
+            } else if (!leftDone[top]) {
+                long left = row - (1L << (level - 1));
+                leftDone[top++] = true;
+                if (left >= size || index.getMaxEnd((int) left) > start) {
+                    levels[top] = level - 1;
+                    rows[top] = left;
+                    leftDone[top++] = false;
+                }
+            } else if (row < size && index.getPosition((int) row) < end) {
+                if (start < index.getEnd((int) row) && !visitor.test((int) row)) {
+                    return false;
+                }
+                levels[top] = level - 1;
+                rows[top] = row + (1L << (level - 1));
+                leftDone[top++] = false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link AlleleDictionary} reading from the dictionary section of a mapped index file. Packed alleles never touch the
+ * file; other lookups binary search the stored alleles sorted by their UTF-8 bytes, comparing against the mapped bytes
+ * without creating strings.
+ *
+ * @version 1.0
+ */
+final class MappedAlleleDictionary implements AlleleDictionary {
+
+    private final MappedBuffer buffer;
+    private final int size;
+    private final long sortedIdsOffset;
+    private final long stringOffsetsOffset;
+
+    MappedAlleleDictionary(MappedBuffer buffer, long offset) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(offset);
+        this.sortedIdsOffset = offset + 8;
+        this.stringOffsetsOffset = IndexFormat.align(sortedIdsOffset + 4L * size);
+    }
+
+    static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    @Override
+    public int lookup(String allele) {
+        if (allele == null) {
+            return NOT_FOUND;
+        }
+        int packed = PackedAlleles.pack(allele);
+        if (packed != PackedAlleles.NOT_PACKED) {
+            return packed;
+        }
+        byte[] key = allele.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = buffer.getInt(sortedIdsOffset + 4L * mid);
+            int c = compareStored(index, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return PackedAlleles.reference(index);
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public String get(int id) {
+        if (PackedAlleles.isPacked(id)) {
+            return PackedAlleles.unpack(id);
+        }
+        int index = PackedAlleles.index(id);
+        long start = buffer.getLong(stringOffsetsOffset + 8L * index);
+        int length = (int) (buffer.getLong(stringOffsetsOffset + 8L * (index + 1)) - start);
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int compareStored(int index, byte[] key) {
+        long start = buffer.getLong(stringOffsetsOffset + 8L * index);
+        int length = (int) (buffer.getLong(stringOffsetsOffset + 8L * (index + 1)) - start);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int c = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+}
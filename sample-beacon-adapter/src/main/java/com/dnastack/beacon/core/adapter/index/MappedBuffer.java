@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only memory mapping of a whole index file. Files larger than 2GB are mapped as several 1GB segments; since
+ * all primitives in the file are naturally aligned, no single read ever crosses a segment boundary. Data in the index
+ * layout that was built on the heap is read through a wrapped buffer in the same way, and the writer maps the section
+ * it fills in place for writing.
+ *
+ * @version 1.0
+ */
+final class MappedBuffer {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final long size;
+
+    private MappedBuffer(ByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    static MappedBuffer map(FileChannel channel) throws IOException {
+        return map(channel, FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    /**
+     * @param channel  index file
+     * @param mode     mapping mode
+     * @param position offset of the mapped section, a multiple of 8
+     * @param size     size of the mapped section
+     * @return mapping of the section, addressed relative to its start
+     */
+    static MappedBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(mode, position + start, Math.min(SEGMENT_MASK + 1, size - start))
+                                 .order(IndexFormat.BYTE_ORDER);
+        }
+        return new MappedBuffer(segments, size);
+    }
+
+    /**
+     * @param buffer heap buffer in the index byte order, smaller than one segment
+     */
+    static MappedBuffer wrap(ByteBuffer buffer) {
+        return new MappedBuffer(new ByteBuffer[]{buffer}, buffer.capacity());
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Unmaps the file, so its address space and page cache references are returned at once rather than when the
+     * buffer is collected. Wrapped heap buffers are left alone. The buffer must not be read afterwards.
+     */
+    void close() {
+        for (ByteBuffer segment : segments) {
+            DirectMemory.free(segment);
+        }
+    }
+
+    /**
+     * Writes the changes to a mapping made for writing to the file.
+     */
+    void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    long getLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & SEGMENT_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+    }
+
+    short getShort(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & SEGMENT_MASK));
+    }
+
+    byte get(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    void get(long offset, byte[] destination, int length) {
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & SEGMENT_MASK));
+            int chunk = Math.min(length - copied, segment.remaining());
+            segment.get(destination, copied, chunk);
+            copied += chunk;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+/**
+ * {@link ContigIndex} reading directly from the blocks of a mapped index file. The block directory (first position of
+ * every block) narrows a lookup down to one block, which is then binary searched in place.
+ *
+ * @version 1.0
+ */
+final class MappedContigIndex implements ContigIndex {
+
+    private final MappedBuffer buffer;
+    private final int size;
+    private final int blockCount;
+    private final long dataOffset;
+    private final long blockDirectoryOffset;
+    private final long intervalTreeOffset;
+    private final long carriersOffset;
+
+    MappedContigIndex(MappedBuffer buffer, int size, int blockCount, long dataOffset, long blockDirectoryOffset, long intervalTreeOffset, long carriersOffset) {
+        this.buffer = buffer;
+        this.size = size;
+        this.blockCount = blockCount;
+        this.dataOffset = dataOffset;
+        this.blockDirectoryOffset = blockDirectoryOffset;
+        this.intervalTreeOffset = intervalTreeOffset;
+        this.carriersOffset = carriersOffset;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getPosition(int row) {
+        return buffer.getLong(blockOffset(row) + 8L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+    }
+
+    @Override
+    public long getEnd(int row) {
+        int block = row >>> IndexFormat.BLOCK_SHIFT;
+        return buffer.getLong(blockOffset(row) + 8L * blockRows(block) + 8L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+    }
+
+    @Override
+    public long getMaxEnd(int row) {
+        return buffer.getLong(intervalTreeOffset + 8L * row);
+    }
+
+    @Override
+    public int getReferenceId(int row) {
+        int block = row >>> IndexFormat.BLOCK_SHIFT;
+        return buffer.getInt(blockOffset(row) + 24L * blockRows(block) + 4L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+    }
+
+    @Override
+    public int getAlternateId(int row) {
+        int block = row >>> IndexFormat.BLOCK_SHIFT;
+        return buffer.getInt(blockOffset(row) + 28L * blockRows(block) + 4L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+    }
+
+    @Override
+    public int getAlleleCount(int row) {
+        return getIntColumn(row, 32);
+    }
+
+    @Override
+    public int getAlleleNumber(int row) {
+        return getIntColumn(row, 36);
+    }
+
+    @Override
+    public int getSampleCount(int row) {
+        return getIntColumn(row, 40);
+    }
+
+    @Override
+    public SampleBitmap getCarriers(int row) {
+        int block = row >>> IndexFormat.BLOCK_SHIFT;
+        long offset = buffer.getLong(blockOffset(row) + 16L * blockRows(block) + 8L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+        return offset < 0 ? null : new SampleBitmap(buffer, carriersOffset + offset);
+    }
+
+    @Override
+    public int firstRow(long position) {
+        // first block starting at or after the position; the match may still be at the end of the block before it
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(blockDirectoryOffset + 8L * mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int block = Math.max(low - 1, 0);
+        if (block >= blockCount) {
+            return size;
+        }
+        long offset = dataOffset + (long) block * IndexFormat.BLOCK_SIZE * IndexFormat.ROW_BYTES;
+        int first = 0;
+        int last = blockRows(block);
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (buffer.getLong(offset + 8L * mid) < position) {
+                first = mid + 1;
+            } else {
+                last = mid;
+            }
+        }
+        return (block << IndexFormat.BLOCK_SHIFT) + first;
+    }
+
+    /**
+     * @param columnOffset bytes per row of all columns before the column
+     */
+    private int getIntColumn(int row, int columnOffset) {
+        int block = row >>> IndexFormat.BLOCK_SHIFT;
+        return buffer.getInt(blockOffset(row) + (long) columnOffset * blockRows(block) + 4L * (row & (IndexFormat.BLOCK_SIZE - 1)));
+    }
+
+    private long blockOffset(int row) {
+        return dataOffset + (long) (row >>> IndexFormat.BLOCK_SHIFT) * IndexFormat.BLOCK_SIZE * IndexFormat.ROW_BYTES;
+    }
+
+    private int blockRows(int block) {
+        return Math.min(IndexFormat.BLOCK_SIZE, size - (block << IndexFormat.BLOCK_SHIFT));
+    }
+}
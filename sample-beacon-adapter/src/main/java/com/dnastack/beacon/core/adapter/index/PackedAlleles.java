@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+/**
+ * Allele ids of the variant columns. Alleles of up to {@link #MAX_LENGTH} A, C, G and T bases are packed into the id
+ * itself, two bits per base below a leading marker bit, so they are encoded and compared without a dictionary. Any
+ * other allele, e.g. a longer one, one with IUPAC codes or a symbolic one, refers to an entry of the dataset's
+ * {@link AlleleDictionary} by a negative id.
+ * <pre>
+ * packed     0 | 0...0 | 1 | base[0] ... base[n - 1]     A = 00, C = 01, G = 10, T = 11
+ * reference  1 | dictionary index
+ * </pre>
+ *
+ * @version 1.0
+ */
+public final class PackedAlleles {
+
+    /**
+     * Longest allele packed into an id.
+     */
+    public static final int MAX_LENGTH = 15;
+
+    /**
+     * Returned by {@link #pack(String)} for alleles that do not fit into an id.
+     */
+    public static final int NOT_PACKED = -1;
+
+    /**
+     * Largest number of alleles a dictionary can hold, the two highest reference ids are taken by
+     * {@link AlleleDictionary#NOT_FOUND} and wildcards.
+     */
+    public static final int MAX_DICTIONARY_SIZE = Integer.MAX_VALUE - 1;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    private PackedAlleles() {
+    }
+
+    /**
+     * @param allele allele, may be null
+     * @return packed id of the allele, or NOT_PACKED if it is null, too long or has other bases than A, C, G and T
+     */
+    public static int pack(String allele) {
+        if (allele == null || allele.length() > MAX_LENGTH) {
+            return NOT_PACKED;
+        }
+        int id = 1;
+        for (int i = 0; i < allele.length(); i++) {
+            int base;
+            switch (allele.charAt(i)) {
+                case 'A':
+                    base = 0;
+                    break;
+                case 'C':
+                    base = 1;
+                    break;
+                case 'G':
+                    base = 2;
+                    break;
+                case 'T':
+                    base = 3;
+                    break;
+                default:
+                    return NOT_PACKED;
+            }
+            id = id << 2 | base;
+        }
+        return id;
+    }
+
+    /**
+     * @param id allele id
+     * @return true if the allele is packed into the id, false if the id refers to a dictionary entry
+     */
+    public static boolean isPacked(int id) {
+        return id > 0;
+    }
+
+    /**
+     * @param id packed allele id
+     * @return allele string
+     */
+    public static String unpack(int id) {
+        int length = (31 - Integer.numberOfLeadingZeros(id)) >> 1;
+        char[] bases = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            bases[i] = BASES[id & 3];
+            id >>>= 2;
+        }
+        return new String(bases);
+    }
+
+    /**
+     * @param index index of an allele in the dictionary
+     * @return id referring to the dictionary entry
+     */
+    public static int reference(int index) {
+        if (index < 0 || index >= MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Allele dictionary index out of range: " + index);
+        }
+        return Integer.MIN_VALUE | index;
+    }
+
+    /**
+     * @param id allele id referring to a dictionary entry
+     * @return index of the allele in the dictionary
+     */
+    public static int index(int id) {
+        return id & Integer.MAX_VALUE;
+    }
+}
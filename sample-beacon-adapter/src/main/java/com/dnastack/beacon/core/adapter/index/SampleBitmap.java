@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable set of sample indexes in a Roaring-style compressed layout. Samples are grouped into containers by the
+ * high 16 bits of their index; a container of up to 4096 samples stores their low 16 bits as a sorted array, a fuller
+ * one as a 65536-bit bitmap, so a set never takes more than about two bytes per sample or one bit per possible sample.
+ * The layout is the same on the heap and in an index file and is read in place:
+ * <pre>
+ * int container count, int cardinality
+ * per container: int key (high 16 bits of its samples), int cardinality
+ * per container, each on an 8-byte boundary: short[cardinality] sorted low bits padded to 8 bytes, or long[1024]
+ * </pre>
+ *
+ * @version 1.0
+ */
+public final class SampleBitmap {
+
+    public static final SampleBitmap EMPTY = of();
+
+    private static final int ARRAY_MAX_CARDINALITY = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private final MappedBuffer buffer;
+    private final long offset;
+
+    SampleBitmap(MappedBuffer buffer, long offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * @param samples sample indexes in any order, duplicates are ignored
+     * @return set of the samples
+     * @throws IllegalArgumentException if an index is negative
+     */
+    public static SampleBitmap of(int... samples) {
+        int[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] < 0) {
+                throw new IllegalArgumentException("Negative sample index " + sorted[i]);
+            }
+            if (count == 0 || sorted[i] != sorted[count - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        int containers = 0;
+        long size = 8;
+        for (int first = 0; first < count; ) {
+            int last = containerEnd(sorted, first, count);
+            containers++;
+            size += 8 + dataSize(last - first);
+            first = last;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) size).order(IndexFormat.BYTE_ORDER);
+        bytes.putInt(containers);
+        bytes.putInt(count);
+        for (int first = 0; first < count; ) {
+            int last = containerEnd(sorted, first, count);
+            bytes.putInt(sorted[first] >>> 16);
+            bytes.putInt(last - first);
+            first = last;
+        }
+        for (int first = 0; first < count; ) {
+            int last = containerEnd(sorted, first, count);
+            int start = bytes.position();
+            if (last - first <= ARRAY_MAX_CARDINALITY) {
+                for (int i = first; i < last; i++) {
+                    bytes.putShort((short) sorted[i]);
+                }
+            } else {
+                for (int i = first; i < last; i++) {
+                    int index = start + 8 * ((sorted[i] & 0xFFFF) >>> 6);
+                    bytes.putLong(index, bytes.getLong(index) | 1L << sorted[i]);
+                }
+            }
+            bytes.position(start + (int) dataSize(last - first));
+            first = last;
+        }
+        return new SampleBitmap(MappedBuffer.wrap(bytes), 0);
+    }
+
+    /**
+     * @param bytes serialized set, as returned by {@link #toBytes()}
+     * @return set reading from the bytes
+     */
+    public static SampleBitmap fromBytes(byte[] bytes) {
+        return new SampleBitmap(MappedBuffer.wrap(ByteBuffer.wrap(bytes).order(IndexFormat.BYTE_ORDER)), 0);
+    }
+
+    /**
+     * @return number of samples in the set
+     */
+    public int getCardinality() {
+        return buffer.getInt(offset + 4);
+    }
+
+    public boolean isEmpty() {
+        return getCardinality() == 0;
+    }
+
+    /**
+     * @param sample sample index
+     * @return true if the sample is in the set
+     */
+    public boolean contains(int sample) {
+        int containers = containerCount();
+        long data = dataOffset(containers);
+        for (int i = 0; i < containers; i++) {
+            int key = key(i);
+            int cardinality = cardinality(i);
+            if (key == sample >>> 16) {
+                int low = sample & 0xFFFF;
+                if (cardinality > ARRAY_MAX_CARDINALITY) {
+                    return (buffer.getLong(data + 8L * (low >>> 6)) & 1L << low) != 0;
+                }
+                int first = 0;
+                int last = cardinality - 1;
+                while (first <= last) {
+                    int mid = (first + last) >>> 1;
+                    int value = buffer.getShort(data + 2L * mid) & 0xFFFF;
+                    if (value < low) {
+                        first = mid + 1;
+                    } else if (value > low) {
+                        last = mid - 1;
+                    } else {
+                        return true;
+                    }
+                }
+                return false;
+            } else if (key > sample >>> 16) {
+                return false;
+            }
+            data += dataSize(cardinality);
+        }
+        return false;
+    }
+
+    /**
+     * Counts the samples in both sets without building their intersection.
+     *
+     * @param other set to intersect with
+     * @return number of samples in both sets
+     */
+    public int andCardinality(SampleBitmap other) {
+        int containers = containerCount();
+        int otherContainers = other.containerCount();
+        long data = dataOffset(containers);
+        long otherData = other.dataOffset(otherContainers);
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < containers && j < otherContainers) {
+            int key = key(i);
+            int otherKey = other.key(j);
+            if (key <= otherKey) {
+                if (key == otherKey) {
+                    total += andCardinality(data, cardinality(i), other, otherData, other.cardinality(j));
+                    otherData += dataSize(other.cardinality(j++));
+                }
+                data += dataSize(cardinality(i++));
+            } else {
+                otherData += dataSize(other.cardinality(j++));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the set in its serialized layout
+     */
+    public byte[] toBytes() {
+        int containers = containerCount();
+        long size = 8L + 8L * containers;
+        for (int i = 0; i < containers; i++) {
+            size += dataSize(cardinality(i));
+        }
+        byte[] bytes = new byte[(int) size];
+        buffer.get(offset, bytes, bytes.length);
+        return bytes;
+    }
+
+    private int andCardinality(long data, int cardinality, SampleBitmap other, long otherData, int otherCardinality) {
+        boolean bitmap = cardinality > ARRAY_MAX_CARDINALITY;
+        boolean otherBitmap = otherCardinality > ARRAY_MAX_CARDINALITY;
+        if (bitmap && otherBitmap) {
+            int total = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                total += Long.bitCount(buffer.getLong(data + 8L * word) & other.buffer.getLong(otherData + 8L * word));
+            }
+            return total;
+        } else if (bitmap || otherBitmap) {
+            MappedBuffer words = bitmap ? buffer : other.buffer;
+            long wordsOffset = bitmap ? data : otherData;
+            MappedBuffer values = bitmap ? other.buffer : buffer;
+            long valuesOffset = bitmap ? otherData : data;
+            int count = bitmap ? otherCardinality : cardinality;
+            int total = 0;
+            for (int k = 0; k < count; k++) {
+                int low = values.getShort(valuesOffset + 2L * k) & 0xFFFF;
+                if ((words.getLong(wordsOffset + 8L * (low >>> 6)) & 1L << low) != 0) {
+                    total++;
+                }
+            }
+            return total;
+        }
+        int total = 0;
+        int a = 0;
+        int b = 0;
+        while (a < cardinality && b < otherCardinality) {
+            int value = buffer.getShort(data + 2L * a) & 0xFFFF;
+            int otherValue = other.buffer.getShort(otherData + 2L * b) & 0xFFFF;
+            if (value <= otherValue) {
+                if (value == otherValue) {
+                    total++;
+                    b++;
+                }
+                a++;
+            } else {
+                b++;
+            }
+        }
+        return total;
+    }
+
+    private int containerCount() {
+        return buffer.getInt(offset);
+    }
+
+    private int key(int container) {
+        return buffer.getInt(offset + 8 + 8L * container);
+    }
+
+    private int cardinality(int container) {
+        return buffer.getInt(offset + 12 + 8L * container);
+    }
+
+    private long dataOffset(int containers) {
+        return offset + 8 + 8L * containers;
+    }
+
+    private static long dataSize(int cardinality) {
+        return cardinality > ARRAY_MAX_CARDINALITY ? 8L * BITMAP_WORDS : IndexFormat.align(2L * cardinality);
+    }
+
+    private static int containerEnd(int[] sorted, int first, int count) {
+        int key = sorted[first] >>> 16;
+        int last = first + 1;
+        while (last < count && sorted[last] >>> 16 == key) {
+            last++;
+        }
+        return last;
+    }
+}
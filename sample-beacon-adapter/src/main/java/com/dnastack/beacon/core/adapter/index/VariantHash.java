@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+/**
+ * 64-bit hash of a (contig, start, reference allele, alternate allele) key. The parts are hashed separately so that
+ * the hash of a contig name can be computed once and combined with the allele ids of every variant.
+ *
+ * @version 1.0
+ */
+public final class VariantHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private VariantHash() {
+    }
+
+    /**
+     * @param value contig name or allele, may be null
+     * @return hash of the string
+     */
+    public static long hash(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @param alleleId allele id, see {@link PackedAlleles}
+     * @return hash of the allele id
+     */
+    public static long hash(int alleleId) {
+        return mix(FNV_OFFSET ^ alleleId);
+    }
+
+    /**
+     * @param contigHash    hash of the contig name
+     * @param start         0-based start position
+     * @param referenceHash hash of the reference allele id
+     * @param alternateHash hash of the alternate allele id
+     * @return hash of the variant
+     */
+    public static long combine(long contigHash, long start, long referenceHash, long alternateHash) {
+        long hash = mix(contigHash ^ start * FNV_PRIME);
+        hash = mix(hash ^ referenceHash);
+        return mix(hash + Long.rotateLeft(alternateHash, 31));
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.liftover;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-memory interval index of a UCSC chain file, translating coordinates from one assembly to another. The aligned
+ * blocks of every source contig are kept in sorted primitive arrays, so a translation is a hash lookup of the contig
+ * and a binary search of its blocks, without allocation apart from the result.
+ * <p>
+ * Where chains overlap on the source assembly, the blocks of the chain with the higher score are kept. Contig names
+ * are matched with and without the {@code chr} prefix, so UCSC chain files apply to Ensembl style names too.
+ *
+ * @version 1.0
+ */
+public final class ChainIndex {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String sourceAssemblyId;
+    private final String targetAssemblyId;
+    private final Map<String, Contig> contigs;
+    private final int blockCount;
+
+    private ChainIndex(String sourceAssemblyId, String targetAssemblyId, Map<String, Contig> contigs) {
+        this.sourceAssemblyId = sourceAssemblyId;
+        this.targetAssemblyId = targetAssemblyId;
+        this.contigs = contigs;
+        int blocks = 0;
+        for (Contig contig : contigs.values()) {
+            blocks += contig.starts.length;
+        }
+        this.blockCount = blocks;
+    }
+
+    /**
+     * Reads a plain or gzip compressed chain file.
+     *
+     * @param sourceAssemblyId assembly of the chain file's reference (t) side
+     * @param targetAssemblyId assembly of the chain file's query (q) side
+     * @param path             chain file
+     * @return index of the chain file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static ChainIndex read(String sourceAssemblyId, String targetAssemblyId, Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            in.mark(2);
+            boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+            in.reset();
+            InputStream data = gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+            return parse(sourceAssemblyId,
+                         targetAssemblyId,
+                         new BufferedReader(new InputStreamReader(data, StandardCharsets.US_ASCII), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new IOException("Cannot read chain file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param sourceAssemblyId assembly of the chain file's reference (t) side
+     * @param targetAssemblyId assembly of the chain file's query (q) side
+     * @param reader           chain file text
+     * @return index of the chains
+     * @throws IOException if the text cannot be read or is malformed
+     */
+    public static ChainIndex parse(String sourceAssemblyId, String targetAssemblyId, BufferedReader reader) throws IOException {
+        Map<String, ContigBuilder> builders = new HashMap<>();
+        List<String> targets = new ArrayList<>();
+        List<Long> scores = new ArrayList<>();
+        List<Boolean> reversed = new ArrayList<>();
+
+        ContigBuilder contig = null;
+        int chain = -1;
+        long source = 0;
+        long target = 0;
+        long targetSize = 0;
+        boolean reverse = false;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("[ \t]+");
+            try {
+                if ("chain".equals(fields[0])) {
+                    if (fields.length < 12 || !"+".equals(fields[4])) {
+                        throw new IOException("Unsupported chain header at line " + lineNumber);
+                    }
+                    contig = builders.computeIfAbsent(fields[2], name -> new ContigBuilder());
+                    chain = targets.size();
+                    targets.add(fields[7]);
+                    scores.add(Long.parseLong(fields[1]));
+                    reverse = "-".equals(fields[9]);
+                    reversed.add(reverse);
+                    source = Long.parseLong(fields[5]);
+                    targetSize = Long.parseLong(fields[8]);
+                    target = Long.parseLong(fields[10]);
+                } else if (contig == null) {
+                    throw new IOException("Alignment data before the first chain header at line " + lineNumber);
+                } else {
+                    int size = Integer.parseInt(fields[0]);
+                    contig.add(source, size, reverse ? targetSize - target : target, chain);
+                    if (fields.length >= 3) {
+                        source += size + Long.parseLong(fields[1]);
+                        target += size + Long.parseLong(fields[2]);
+                    } else {
+                        contig = null;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed chain data at line " + lineNumber, e);
+            }
+        }
+
+        String[] targetNames = targets.toArray(new String[0]);
+        long[] chainScores = new long[scores.size()];
+        boolean[] chainReversed = new boolean[reversed.size()];
+        for (int i = 0; i < chainScores.length; i++) {
+            chainScores[i] = scores.get(i);
+            chainReversed[i] = reversed.get(i);
+        }
+        Map<String, Contig> contigs = new HashMap<>();
+        for (Map.Entry<String, ContigBuilder> entry : builders.entrySet()) {
+            contigs.put(entry.getKey(), entry.getValue().build(targetNames, chainScores, chainReversed));
+        }
+        return new ChainIndex(sourceAssemblyId, targetAssemblyId, contigs);
+    }
+
+    /**
+     * Translates an interval. The interval has to lie within a single aligned block, which holds for the bases of a
+     * variant unless they span a gap or the end of a chain.
+     *
+     * @param contig source contig name
+     * @param start  0-based start, inclusive
+     * @param end    0-based end, exclusive, greater than start
+     * @return interval on the target assembly, or null if the interval is not aligned in one piece
+     */
+    public LiftedInterval lift(String contig, long start, long end) {
+        Contig blocks = contigs.get(contig);
+        if (blocks == null) {
+            blocks = contigs.get(alternativeName(contig));
+            if (blocks == null) {
+                return null;
+            }
+        }
+        int block = floor(blocks.starts, start);
+        if (block < 0 || end > blocks.starts[block] + blocks.sizes[block]) {
+            return null;
+        }
+        long from = start - blocks.starts[block];
+        long to = end - blocks.starts[block];
+        long anchor = blocks.anchors[block];
+        if (blocks.reversed[block]) {
+            return new LiftedInterval(blocks.targets[block], anchor - to, anchor - from, true);
+        }
+        return new LiftedInterval(blocks.targets[block], anchor + from, anchor + to, false);
+    }
+
+    /**
+     * @param contig contig name
+     * @return the name with the {@code chr} prefix added or removed, {@code chrM} standing for {@code MT}
+     */
+    public static String alternativeName(String contig) {
+        if ("chrM".equals(contig)) {
+            return "MT";
+        } else if ("MT".equals(contig)) {
+            return "chrM";
+        }
+        return contig.startsWith("chr") ? contig.substring(3) : "chr" + contig;
+    }
+
+    public String getSourceAssemblyId() {
+        return sourceAssemblyId;
+    }
+
+    public String getTargetAssemblyId() {
+        return targetAssemblyId;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return index of the last element not greater than the key, -1 if there is none
+     */
+    private static int floor(long[] sorted, long key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Aligned blocks of one source contig, sorted and not overlapping. The anchor is the target start of a block, or
+     * for a chain on the reverse strand the forward strand coordinate of the block's end.
+     */
+    private static final class Contig {
+
+        private final long[] starts;
+        private final int[] sizes;
+        private final long[] anchors;
+        private final String[] targets;
+        private final boolean[] reversed;
+
+        private Contig(long[] starts, int[] sizes, long[] anchors, String[] targets, boolean[] reversed) {
+            this.starts = starts;
+            this.sizes = sizes;
+            this.anchors = anchors;
+            this.targets = targets;
+            this.reversed = reversed;
+        }
+    }
+
+    private static final class ContigBuilder {
+
+        private long[] starts = new long[16];
+        private int[] sizes = new int[16];
+        private long[] anchors = new long[16];
+        private int[] chains = new int[16];
+        private int count;
+
+        private void add(long start, int size, long anchor, int chain) {
+            if (size <= 0) {
+                return;
+            }
+            if (count == starts.length) {
+                int capacity = count * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                anchors = Arrays.copyOf(anchors, capacity);
+                chains = Arrays.copyOf(chains, capacity);
+            }
+            starts[count] = start;
+            sizes[count] = size;
+            anchors[count] = anchor;
+            chains[count] = chain;
+            count++;
+        }
+
+        /**
+         * Sorts the blocks by start and resolves overlaps between chains: a block overlapping blocks already kept
+         * replaces them if its chain scores higher than all of theirs and is dropped otherwise.
+         */
+        private Contig build(String[] targetNames, long[] chainScores, boolean[] chainReversed) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> starts[i]));
+
+            int[] kept = new int[count];
+            int keptCount = 0;
+            for (int block : order) {
+                int first = keptCount;
+                while (first > 0 && end(kept[first - 1]) > starts[block]) {
+                    first--;
+                }
+                boolean wins = true;
+                for (int i = first; i < keptCount && wins; i++) {
+                    wins = chainScores[chains[block]] > chainScores[chains[kept[i]]];
+                }
+                if (wins) {
+                    keptCount = first;
+                    kept[keptCount++] = block;
+                }
+            }
+
+            long[] sortedStarts = new long[keptCount];
+            int[] sortedSizes = new int[keptCount];
+            long[] sortedAnchors = new long[keptCount];
+            String[] targets = new String[keptCount];
+            boolean[] reversed = new boolean[keptCount];
+            for (int i = 0; i < keptCount; i++) {
+                int block = kept[i];
+                sortedStarts[i] = starts[block];
+                sortedSizes[i] = sizes[block];
+                sortedAnchors[i] = anchors[block];
+                targets[i] = targetNames[chains[block]];
+                reversed[i] = chainReversed[chains[block]];
+            }
+            return new Contig(sortedStarts, sortedSizes, sortedAnchors, targets, reversed);
+        }
+
+        private long end(int block) {
+            return starts[block] + sizes[block];
+        }
+    }
+}
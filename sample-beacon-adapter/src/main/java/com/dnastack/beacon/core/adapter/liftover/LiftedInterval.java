@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.liftover;
+
+/**
+ * Interval translated to another assembly by a {@link ChainIndex}.
+ *
+ * @version 1.0
+ */
+public final class LiftedInterval {
+
+    private final String contig;
+    private final long start;
+    private final long end;
+    private final boolean reverse;
+
+    LiftedInterval(String contig, long start, long end, boolean reverse) {
+        this.contig = contig;
+        this.start = start;
+        this.end = end;
+        this.reverse = reverse;
+    }
+
+    public String getContig() {
+        return contig;
+    }
+
+    /**
+     * @return 0-based start on the forward strand of the target assembly, inclusive
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return 0-based end on the forward strand of the target assembly, exclusive
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return true if the interval maps to the reverse strand, so bases have to be reverse complemented
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.liftover;
+
+import com.dnastack.beacon.service.api.VariantRange;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+
+/**
+ * Allele query translated to another assembly. Exact and wildcard queries are translated by the bases of their
+ * reference allele, range and bracket queries by each of their bounds, all of which have to map to the same contig
+ * and strand. Bases are reverse complemented where the chain maps to the reverse strand; bracket queries are not
+ * translated to the reverse strand, as their start and end bounds would swap roles. Neither are insertions and
+ * deletions: their anchor base would end up after the changed bases, and moving it back in front of them and
+ * normalizing the result to the left needs the target reference sequence, which the chains do not have.
+ *
+ * @version 1.0
+ */
+public final class LiftedQuery {
+
+    /**
+     * Result of a query that has a counterpart in the target assembly but cannot be translated to it.
+     */
+    public static final LiftedQuery NOT_LIFTABLE = new LiftedQuery(null, null);
+
+    private final BeaconAlleleRequest request;
+    private final VariantRange range;
+
+    private LiftedQuery(BeaconAlleleRequest request, VariantRange range) {
+        this.request = request;
+        this.range = range;
+    }
+
+    /**
+     * @param chain   chain from the assembly of the request to the assembly of a dataset
+     * @param request valid allele request
+     * @param range   range of the request
+     * @return translated query, null if its coordinates have no counterpart in the target assembly, or
+     * {@link #NOT_LIFTABLE} if it is an insertion or deletion mapping to the reverse strand
+     */
+    public static LiftedQuery lift(ChainIndex chain, BeaconAlleleRequest request, VariantRange range) {
+        String contig = request.getReferenceName();
+        Long start = request.getStart();
+        Long end = range.getEnd();
+        Long startMin = range.getStartMin();
+        Long startMax = range.getStartMax();
+        Long endMin = range.getEndMin();
+        Long endMax = range.getEndMax();
+
+        LiftedInterval lifted;
+        if (range.isBracket()) {
+            Long[] bounds = {startMin, startMax, endMin, endMax};
+            lifted = null;
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] == null) {
+                    continue;
+                }
+                LiftedInterval bound = chain.lift(contig, bounds[i], bounds[i] + 1);
+                if (bound == null || bound.isReverse() || lifted != null && !bound.getContig().equals(lifted.getContig())) {
+                    return null;
+                }
+                if (lifted == null) {
+                    lifted = bound;
+                }
+                bounds[i] = bound.getStart();
+            }
+            if (lifted == null) {
+                return null;
+            }
+            start = start != null ? lifted.getStart() : null;
+            startMin = bounds[0];
+            startMax = bounds[1];
+            endMin = bounds[2];
+            endMax = bounds[3];
+        } else if (end != null) {
+            lifted = chain.lift(contig, start, start + 1);
+            LiftedInterval last = chain.lift(contig, end - 1, end);
+            if (lifted == null || last == null || !last.getContig().equals(lifted.getContig())
+                    || last.isReverse() != lifted.isReverse()) {
+                return null;
+            }
+            start = Math.min(lifted.getStart(), last.getStart());
+            end = Math.max(lifted.getEnd(), last.getEnd());
+        } else {
+            String bases = request.getReferenceBases();
+            int length = bases == null || VariantRange.isWildcard(bases) ? 1 : bases.length();
+            lifted = chain.lift(contig, start, start + length);
+            if (lifted == null) {
+                return null;
+            }
+            start = lifted.getStart();
+        }
+
+        if (lifted.isReverse() && isIndel(request.getReferenceBases(), request.getAlternateBases())) {
+            return NOT_LIFTABLE;
+        }
+
+        BeaconAlleleRequest translated = new BeaconAlleleRequest();
+        translated.setAssemblyId(chain.getTargetAssemblyId());
+        translated.setReferenceName(lifted.getContig());
+        translated.setStart(start);
+        translated.setReferenceBases(orient(request.getReferenceBases(), lifted.isReverse()));
+        translated.setAlternateBases(orient(request.getAlternateBases(), lifted.isReverse()));
+        translated.setDatasetIds(request.getDatasetIds());
+        translated.setIncludeDatasetResponses(request.getIncludeDatasetResponses());
+        return new LiftedQuery(translated,
+                               new VariantRange(end,
+                                                startMin,
+                                                startMax,
+                                                endMin,
+                                                endMax,
+                                                range.getVariantType(),
+                                                range.getCohortId()));
+    }
+
+    /**
+     * @return the bases as they read on the forward strand of the target; wildcards and symbolic alleles are kept
+     */
+    static String orient(String bases, boolean reverse) {
+        if (!reverse || bases == null || VariantRange.isWildcard(bases) || bases.startsWith("<")) {
+            return bases;
+        }
+        char[] complement = new char[bases.length()];
+        for (int i = 0; i < complement.length; i++) {
+            complement[complement.length - 1 - i] = complement(bases.charAt(i));
+        }
+        return new String(complement);
+    }
+
+    /**
+     * @return true if both alleles are spelled out and differ in length
+     */
+    private static boolean isIndel(String referenceBases, String alternateBases) {
+        return isSpelledOut(referenceBases) && isSpelledOut(alternateBases) && referenceBases.length() != alternateBases.length();
+    }
+
+    private static boolean isSpelledOut(String bases) {
+        return bases != null && !VariantRange.isWildcard(bases) && !bases.startsWith("<");
+    }
+
+    private static char complement(char base) {
+        switch (base) {
+            case 'A':
+                return 'T';
+            case 'C':
+                return 'G';
+            case 'G':
+                return 'C';
+            case 'T':
+                return 'A';
+            case 'a':
+                return 't';
+            case 'c':
+                return 'g';
+            case 'g':
+                return 'c';
+            case 't':
+                return 'a';
+            default:
+                return base;
+        }
+    }
+
+    public BeaconAlleleRequest getRequest() {
+        return request;
+    }
+
+    public VariantRange getRange() {
+        return range;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.impl;
+
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that dataset lookups keep their order, stop early, never leave a query waiting on a lookup that does not run,
+ * and give up after the timeout.
+ */
+public class DatasetFanOutTest {
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private DatasetFanOut fanOut;
+
+    @After
+    public void tearDown() {
+        blocked.countDown();
+        fanOut.shutdown();
+    }
+
+    @Test
+    public void testLookupAllKeepsDatasetOrder() {
+        fanOut = new DatasetFanOut(4, 10000);
+        List<String> datasetIds = Arrays.asList("d0", "d1", "d2", "d3", "d4", "d5", "d6", "d7");
+
+        // later datasets answer first
+        List<BeaconDatasetAlleleResponse> responses = fanOut.lookupAll(datasetIds, datasetId -> {
+            sleep(5 * (datasetIds.size() - datasetIds.indexOf(datasetId)));
+            return response(datasetId, datasetId.equals("d3"));
+        });
+
+        List<String> answered = new ArrayList<>();
+        for (BeaconDatasetAlleleResponse response : responses) {
+            answered.add(response.getDatasetId());
+            assertThat(response.getExists()).isEqualTo(response.getDatasetId().equals("d3"));
+        }
+        assertThat(answered).isEqualTo(datasetIds);
+    }
+
+    @Test
+    public void testAnyExistsReturnsWithoutWaitingForOtherDatasets() {
+        fanOut = new DatasetFanOut(2, 10000);
+
+        Boolean exists = fanOut.anyExists(Arrays.asList("slow", "hit"), datasetId -> {
+            if (datasetId.equals("slow")) {
+                await(blocked);
+            }
+            return response(datasetId, datasetId.equals("hit"));
+        });
+
+        assertThat(exists).isTrue();
+        assertThat(blocked.getCount()).isEqualTo(1L);
+        assertThat(fanOut.anyExists(Arrays.asList("a", "b", "c"), datasetId -> response(datasetId, false))).isFalse();
+    }
+
+    @Test
+    public void testWaitsAreBoundedByTimeout() {
+        fanOut = new DatasetFanOut(2, 50);
+
+        List<BeaconDatasetAlleleResponse> responses = fanOut.lookupAll(Arrays.asList("slow", "fast"), datasetId -> {
+            if (datasetId.equals("slow")) {
+                await(blocked);
+            }
+            return response(datasetId, true);
+        });
+        assertThat(DatasetFanOut.isTimedOut(responses.get(0))).isTrue();
+        assertThat(responses.get(0).getDatasetId()).isEqualTo("slow");
+        assertThat(responses.get(1).getExists()).isTrue();
+
+        assertThat(fanOut.anyExists(Arrays.asList("slow", "miss"), datasetId -> {
+            if (datasetId.equals("slow")) {
+                await(blocked);
+            }
+            return response(datasetId, false);
+        })).isNull();
+    }
+
+    @Test
+    public void testRejectedLookupsRunOnCallingThread() {
+        fanOut = new DatasetFanOut(1, 10000);
+        Thread caller = Thread.currentThread();
+        List<String> datasetIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            datasetIds.add("d" + i);
+        }
+
+        // the first lookup occupies the only thread until the queue overflows and a lookup runs on the caller
+        List<BeaconDatasetAlleleResponse> responses = fanOut.lookupAll(datasetIds, datasetId -> {
+            if (datasetId.equals("d0")) {
+                await(blocked);
+            } else if (Thread.currentThread() == caller) {
+                blocked.countDown();
+            }
+            return response(datasetId, true);
+        });
+
+        assertThat(responses).hasSize(100);
+        for (BeaconDatasetAlleleResponse response : responses) {
+            assertThat(response.getExists()).isTrue();
+        }
+    }
+
+    @Test
+    public void testLookupsCompleteAfterShutdown() throws Exception {
+        fanOut = new DatasetFanOut(1, 10000);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<List<BeaconDatasetAlleleResponse>> query = CompletableFuture.supplyAsync(
+                () -> fanOut.lookupAll(Arrays.asList("d0", "d1", "d2"), datasetId -> {
+                    if (datasetId.equals("d0")) {
+                        started.countDown();
+                        await(blocked);
+                    }
+                    return response(datasetId, true);
+                }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // shutting down drains the lookups already submitted, later ones run on the query's thread
+        CompletableFuture<Void> shutdown = CompletableFuture.runAsync(fanOut::shutdown);
+        blocked.countDown();
+        shutdown.get(10, TimeUnit.SECONDS);
+
+        for (BeaconDatasetAlleleResponse response : query.get(10, TimeUnit.SECONDS)) {
+            assertThat(response.getExists()).isTrue();
+        }
+        assertThat(fanOut.lookupAll(Arrays.asList("d3", "d4"), datasetId -> response(datasetId, false))).hasSize(2);
+    }
+
+    private static BeaconDatasetAlleleResponse response(String datasetId, boolean exists) {
+        BeaconDatasetAlleleResponse response = new BeaconDatasetAlleleResponse();
+        response.setDatasetId(datasetId);
+        response.setExists(exists);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.impl;
+
+import com.dnastack.beacon.core.adapter.index.DatasetIndexBuilder;
+import com.dnastack.beacon.core.adapter.index.IndexFormat;
+import com.dnastack.beacon.core.adapter.index.IndexWriter;
+import com.dnastack.beacon.core.adapter.index.SampleBitmap;
+import com.dnastack.beacon.service.api.VariantRange;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.ga4gh.beacon.BeaconAlleleResponse;
+import org.ga4gh.beacon.BeaconDataset;
+import org.ga4gh.beacon.BeaconDatasetAlleleResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reloads the adapter while snapshots are held and checks that readers keep a consistent view.
+ */
+public class SampleBeaconAdapterImplTest {
+
+    private Path directory;
+    private SampleBeaconAdapterImpl adapter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("beacon");
+        writeIndex("first", 100);
+        System.setProperty(SampleBeaconAdapterImpl.INDEX_PATH_PROPERTY, directory.toString());
+        System.setProperty(SampleBeaconAdapterImpl.FAN_OUT_THREADS_PROPERTY, "2");
+        adapter = new SampleBeaconAdapterImpl();
+        adapter.init();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        adapter.destroy();
+        System.clearProperty(SampleBeaconAdapterImpl.INDEX_PATH_PROPERTY);
+        System.clearProperty(SampleBeaconAdapterImpl.FAN_OUT_THREADS_PROPERTY);
+        System.clearProperty(SampleBeaconAdapterImpl.LIFTOVER_PROPERTY);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testReloadPublishesNewDatasets() throws Exception {
+        long version = adapter.getDataVersion();
+        assertThat(query("second", 200).getExists()).isFalse();
+
+        writeIndex("second", 200);
+        long reloaded = adapter.reload().get();
+
+        assertThat(reloaded).isGreaterThan(version);
+        assertThat(adapter.getDataVersion()).isEqualTo(reloaded);
+        assertThat(query("second", 200).getExists()).isTrue();
+        assertThat(query("first", 100).getExists()).isTrue();
+        assertThat(adapter.getBeacon().getDatasets()).hasSize(2);
+        for (BeaconDataset dataset : adapter.getBeacon().getDatasets()) {
+            assertThat(Long.parseLong(dataset.getInfo().get("mappedBytes")))
+                    .isEqualTo(Files.size(directory.resolve(dataset.getId() + IndexFormat.FILE_EXTENSION)));
+        }
+    }
+
+    @Test
+    public void testDatasetResponsesFollowRequestedOrder() throws Exception {
+        List<String> datasetIds = Arrays.asList("e", "b", "first", "d", "c");
+        for (String datasetId : datasetIds) {
+            if (!datasetId.equals("first")) {
+                writeIndex(datasetId, 300);
+            }
+        }
+        adapter.reload().get();
+
+        BeaconAlleleRequest request = request("first", 100);
+        request.setDatasetIds(datasetIds);
+        request.setIncludeDatasetResponses(true);
+        List<String> answered = new ArrayList<>();
+        for (BeaconDatasetAlleleResponse response : adapter.getBeaconAlleleResponse(request).getDatasetAlleleResponses()) {
+            answered.add(response.getDatasetId());
+            assertThat(response.getExists()).isEqualTo(response.getDatasetId().equals("first"));
+        }
+        assertThat(answered).isEqualTo(datasetIds);
+
+        request.setIncludeDatasetResponses(false);
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isTrue();
+        request.setStart(200L);
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isFalse();
+    }
+
+    @Test
+    public void testRangeBracketAndWildcardQueries() throws Exception {
+        IndexWriter.write(new DatasetIndexBuilder("sv").add("GRCh37", "1", 5000, 25000, "N", "<DEL>")
+                                                       .add("GRCh37", "1", 30000, "G", "T")
+                                                       .build(), directory.resolve("sv" + IndexFormat.FILE_EXTENSION));
+        adapter.reload().get();
+
+        BeaconAlleleRequest request = request("sv", 20000);
+        request.setReferenceBases(null);
+        request.setAlternateBases(null);
+        assertThat(adapter.getBeaconAlleleResponse(request, new VariantRange(20100L, null, null, null, null, "DEL"))
+                          .getExists()).isTrue();
+        assertThat(adapter.getBeaconAlleleResponse(request, new VariantRange(20100L, null, null, null, null, "DUP"))
+                          .getExists()).isFalse();
+        assertThat(adapter.getBeaconAlleleResponse(request, new VariantRange(20100L, null, null, null, null, "CNV"))
+                          .getExists()).isTrue();
+        assertThat(adapter.getBeaconAlleleResponse(request, new VariantRange(null, 4000L, 6000L, 24000L, 26000L, "DEL"))
+                          .getExists()).isTrue();
+        assertThat(adapter.getBeaconAlleleResponse(request, new VariantRange(null, 4000L, 6000L, 26000L, 27000L, "DEL"))
+                          .getExists()).isFalse();
+
+        request = request("sv", 30000);
+        request.setReferenceBases("G");
+        request.setAlternateBases(VariantRange.ANY_BASES);
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isTrue();
+        request.setReferenceBases("A");
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isFalse();
+    }
+
+    @Test
+    public void testCohortQueries() throws Exception {
+        IndexWriter.write(new DatasetIndexBuilder("cohorts").add("GRCh37", "1", 100, 101, "A", "C", 3, 8, SampleBitmap.of(0, 2))
+                                                            .add("GRCh37", "1", 200, 201, "A", "C", 1, 8, SampleBitmap.of(3))
+                                                            .sampleCount(4)
+                                                            .cohort("EUR", SampleBitmap.of(0, 1))
+                                                            .cohort("AFR", SampleBitmap.of(2, 3))
+                                                            .build(), directory.resolve("cohorts" + IndexFormat.FILE_EXTENSION));
+        adapter.reload().get();
+
+        BeaconAlleleRequest request = request("cohorts", 100);
+        request.setIncludeDatasetResponses(true);
+        BeaconDatasetAlleleResponse all = adapter.getBeaconAlleleResponse(request).getDatasetAlleleResponses().get(0);
+        assertThat(all.getSampleCount()).isEqualTo(2L);
+        assertThat(all.getFrequency()).isEqualTo(3 / 8.0);
+
+        BeaconDatasetAlleleResponse european = cohortQuery(request, "EUR");
+        assertThat(european.getExists()).isTrue();
+        assertThat(european.getSampleCount()).isEqualTo(1L);
+        assertThat(european.getFrequency()).isNull();
+        request.setStart(200L);
+        assertThat(cohortQuery(request, "EUR").getExists()).isFalse();
+        assertThat(cohortQuery(request, "AFR").getSampleCount()).isEqualTo(1L);
+        assertThat(cohortQuery(request, "SAS").getError().getErrorCode()).isEqualTo(404);
+
+        // a range query matches only variants carried in the cohort
+        request.setStart(150L);
+        VariantRange range = new VariantRange(300L, null, null, null, null, null, "EUR");
+        assertThat(adapter.getBeaconAlleleResponse(request, range).getExists()).isFalse();
+        request.setStart(50L);
+        assertThat(adapter.getBeaconAlleleResponse(request, range).getExists()).isTrue();
+    }
+
+    @Test
+    public void testLiftoverQueries() throws Exception {
+        Path chain = directory.resolve("hg38ToHg19.over.chain");
+        Files.write(chain, "chain 1000 chr1 100000 + 0 1000 chr1 100000 + 50 1050 1\n1000\n".getBytes(StandardCharsets.US_ASCII));
+        System.setProperty(SampleBeaconAdapterImpl.LIFTOVER_PROPERTY, "GRCh38:GRCh37=" + chain);
+        adapter.initAdapter(null);
+
+        BeaconAlleleRequest request = request("first", 50);
+        request.setAssemblyId("GRCh38");
+        request.setIncludeDatasetResponses(true);
+        BeaconDatasetAlleleResponse lifted = adapter.getBeaconAlleleResponse(request).getDatasetAlleleResponses().get(0);
+        assertThat(lifted.getExists()).isTrue();
+        assertThat(lifted.getInfo().get("liftover")).isEqualTo("GRCh38>GRCh37");
+        request.setStart(100L);
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isFalse();
+        // positions outside the chain have no counterpart in the dataset's assembly
+        request.setStart(5000L);
+        assertThat(adapter.getBeaconAlleleResponse(request).getExists()).isFalse();
+        request.setAssemblyId("GRCh36");
+        assertThat(adapter.getBeaconAlleleResponse(request).getDatasetAlleleResponses().get(0).getError().getErrorCode())
+                .isEqualTo(404);
+    }
+
+    @Test
+    public void testSnapshotReleasedAfterReadersDrain() throws Exception {
+        DataSnapshot snapshot = new DataSnapshot(new SampleDataStore(), 1, "now");
+        assertThat(snapshot.acquire()).isTrue();
+
+        // the owner drops its reference while a reader still holds one
+        snapshot.release();
+        assertThat(snapshot.isReleased()).isFalse();
+        assertThat(snapshot.getDataStore()).isNotNull();
+
+        snapshot.release();
+        assertThat(snapshot.isReleased()).isTrue();
+        assertThat(snapshot.getDataStore()).isNull();
+        assertThat(snapshot.acquire()).isFalse();
+    }
+
+    private BeaconDatasetAlleleResponse cohortQuery(BeaconAlleleRequest request, String cohortId) throws Exception {
+        VariantRange range = new VariantRange(null, null, null, null, null, null, cohortId);
+        return adapter.getBeaconAlleleResponse(request, range).getDatasetAlleleResponses().get(0);
+    }
+
+    private BeaconAlleleResponse query(String datasetId, long start) throws Exception {
+        return adapter.getBeaconAlleleResponse(request(datasetId, start));
+    }
+
+    private static BeaconAlleleRequest request(String datasetId, long start) {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setAssemblyId("GRCh37");
+        request.setReferenceName("1");
+        request.setStart(start);
+        request.setReferenceBases("A");
+        request.setAlternateBases("C");
+        request.setDatasetIds(Collections.singletonList(datasetId));
+        request.setIncludeDatasetResponses(false);
+        return request;
+    }
+
+    private void writeIndex(String datasetId, long start) throws IOException {
+        IndexWriter.write(new DatasetIndexBuilder(datasetId).add("GRCh37", "1", start, "A", "C").build(),
+                          directory.resolve(datasetId + IndexFormat.FILE_EXTENSION));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the dataset Bloom filters never reject indexed variants and stay close to the configured rate.
+ */
+public class DatasetFilterTest {
+
+    private static final String[] ALLELES = {"A", "C", "G", "T", "AT", "CGT"};
+
+    @Test
+    public void testNoFalseNegativesAndBoundedFalsePositives() {
+        Random random = new Random(3);
+        DatasetIndexBuilder builder = new DatasetIndexBuilder("dataset");
+        for (int i = 0; i < 50000; i++) {
+            builder.add("GRCh37", String.valueOf(1 + random.nextInt(3)), random.nextInt(1000000), allele(random), allele(random));
+        }
+        DatasetIndex index = builder.build();
+        DatasetFilter filter = DatasetFilter.build(index, 0.01);
+
+        AlleleDictionary alleles = index.getAlleles();
+        for (String referenceName : index.getAssembly("GRCh37").keySet()) {
+            ContigIndex contig = index.getAssembly("GRCh37").get(referenceName);
+            for (int row = 0; row < contig.size(); row++) {
+                assertThat(filter.mightContain("GRCh37",
+                                               referenceName,
+                                               contig.getPosition(row),
+                                               contig.getReferenceId(row),
+                                               contig.getAlternateId(row))).isTrue();
+            }
+        }
+
+        int falsePositives = 0;
+        int queries = 100000;
+        for (int i = 0; i < queries; i++) {
+            // positions above the indexed range are never present
+            if (filter.mightContain("GRCh37", "1", 2000000 + i, alleles.lookup(allele(random)), alleles.lookup(allele(random)))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(queries * 2 / 100);
+        assertThat(filter.mightContain("GRCh38", "1", 1, alleles.lookup("A"), alleles.lookup("C"))).isTrue();
+        assertThat(filter.getFalsePositiveRate()).isEqualTo(0.01);
+        assertThat(filter.getMemoryBytes()).isGreaterThan(0L);
+    }
+
+    private static String allele(Random random) {
+        return ALLELES[random.nextInt(ALLELES.length)];
+    }
+}
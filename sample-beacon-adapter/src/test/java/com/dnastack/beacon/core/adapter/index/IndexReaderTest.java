@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round trips in-memory indexes through the binary index format and compares the lookups of both.
+ */
+public class IndexReaderTest {
+
+    private static final String[] ALLELES = {"A", "C", "G", "T", "AT", "CGT", "<DEL>"};
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("beacon", IndexFormat.FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testMappedIndexMatchesHeapIndex() throws IOException {
+        Random random = new Random(42);
+        DatasetIndexBuilder builder = new DatasetIndexBuilder("dataset");
+        // enough rows for several blocks, with many variants sharing a position across block boundaries
+        for (int i = 0; i < 3 * IndexFormat.BLOCK_SIZE + 17; i++) {
+            builder.add("GRCh37", "1", random.nextInt(2000), allele(random), allele(random));
+        }
+        // the odd-sized last block of contig 1 is followed by one with statistics
+        builder.add("GRCh37", "X", 5, 6, "A", "C", 3, 10, SampleBitmap.of(1, 70000));
+        builder.add("GRCh38", "1", 7, "G", "T");
+        DatasetIndex heap = builder.sampleCount(5).cohort("EUR", SampleBitmap.of(0, 1, 2)).build();
+
+        IndexWriter.write(heap, file);
+        DatasetIndex mapped = IndexReader.open(file);
+
+        assertThat(mapped.getId()).isEqualTo("dataset");
+        assertThat(mapped.getVariantCount()).isEqualTo(heap.getVariantCount());
+        assertThat(mapped.getCallCount()).isEqualTo(10L);
+        assertThat(mapped.getSampleCount()).isEqualTo(5);
+        assertThat(mapped.getAssemblies().keySet()).isEqualTo(heap.getAssemblies().keySet());
+        assertThat(mapped.getAssembly("GRCh37").keySet()).isEqualTo(heap.getAssembly("GRCh37").keySet());
+
+        for (int i = 0; i < 20000; i++) {
+            String assemblyId = i % 10 == 0 ? "GRCh38" : "GRCh37";
+            String referenceName = i % 7 == 0 ? "X" : "1";
+            long position = random.nextInt(2100);
+            String referenceBases = allele(random);
+            String alternateBases = allele(random);
+            assertThat(exists(mapped, assemblyId, referenceName, position, referenceBases, alternateBases))
+                    .isEqualTo(exists(heap, assemblyId, referenceName, position, referenceBases, alternateBases));
+        }
+        assertThat(exists(mapped, "GRCh37", "X", 5, "A", "C")).isTrue();
+        assertThat(exists(mapped, "GRCh38", "1", 7, "G", "T")).isTrue();
+        ContigIndex contig = mapped.getAssembly("GRCh37").get("X");
+        int row = contig.indexOf(5, mapped.getAlleles().lookup("A"), mapped.getAlleles().lookup("C"));
+        assertThat(contig.getAlleleCount(row)).isEqualTo(3);
+        assertThat(contig.getAlleleNumber(row)).isEqualTo(10);
+        assertThat(contig.getSampleCount(row)).isEqualTo(2);
+        assertThat(contig.getCarriers(row).contains(70000)).isTrue();
+        assertThat(contig.getCarriers(row).andCardinality(mapped.getCohort("EUR"))).isEqualTo(1);
+        assertThat(mapped.getCohort("AFR")).isNull();
+        contig = mapped.getAssembly("GRCh37").get("1");
+        assertThat(contig.getAlleleNumber(contig.size() - 1)).isEqualTo(ContigIndex.UNKNOWN);
+        assertThat(contig.getCarriers(contig.size() - 1)).isNull();
+        for (String allele : ALLELES) {
+            assertThat(mapped.getAlleles().get(mapped.getAlleles().lookup(allele))).isEqualTo(allele);
+        }
+        assertThat(mapped.getAlleles().lookup("NOPE")).isEqualTo(AlleleDictionary.NOT_FOUND);
+    }
+
+    @Test
+    public void testMappedMemoryIsAccountedAndReleased() throws IOException {
+        DatasetIndex heap = new DatasetIndexBuilder("dataset").add("GRCh37", "1", 100, "A", "C").build();
+        IndexWriter.write(heap, file);
+
+        DatasetIndex mapped = IndexReader.open(file);
+        assertThat(heap.getMappedBytes()).isEqualTo(0L);
+        assertThat(mapped.getMappedBytes()).isEqualTo(Files.size(file));
+        DatasetFilter filter = DatasetFilter.build(mapped, 0.01);
+        assertThat(filter.mightContain("GRCh37", "1", 100, mapped.getAlleles().lookup("A"), mapped.getAlleles().lookup("C")))
+                .isTrue();
+        filter.close();
+        mapped.close();
+
+        // the file can be mapped again once it is unmapped
+        assertThat(IndexReader.open(file).getVariantCount()).isEqualTo(1L);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws IOException {
+        Files.write(file, new byte[64]);
+        IndexReader.open(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriterRejectsUnsortedInput() throws IOException {
+        try (IndexWriter writer = new IndexWriter(file, "dataset")) {
+            writer.startContig("GRCh37", "1");
+            writer.add(10, "A", "C");
+            writer.add(9, "A", "C");
+        }
+    }
+
+    @Test
+    public void testWriterDropsDuplicatesAcrossBlocks() throws IOException {
+        try (IndexWriter writer = new IndexWriter(file, "dataset")) {
+            writer.startContig("GRCh37", "1");
+            for (int i = 0; i < IndexFormat.BLOCK_SIZE - 1; i++) {
+                writer.add(i, "A", "C");
+            }
+            // the block fills up between the first row at the position and its duplicate
+            writer.add(IndexFormat.BLOCK_SIZE, "A", "C");
+            writer.add(IndexFormat.BLOCK_SIZE, "A", "G");
+            writer.add(IndexFormat.BLOCK_SIZE, "A", "C");
+            writer.add(IndexFormat.BLOCK_SIZE, "A", "G");
+            writer.add(IndexFormat.BLOCK_SIZE + 1, "A", "C");
+        }
+
+        DatasetIndex mapped = IndexReader.open(file);
+
+        assertThat(mapped.getVariantCount()).isEqualTo(IndexFormat.BLOCK_SIZE + 2L);
+        assertThat(exists(mapped, "GRCh37", "1", IndexFormat.BLOCK_SIZE, "A", "G")).isTrue();
+        assertThat(exists(mapped, "GRCh37", "1", IndexFormat.BLOCK_SIZE + 1, "A", "C")).isTrue();
+        mapped.close();
+    }
+
+    private static String allele(Random random) {
+        return ALLELES[random.nextInt(ALLELES.length)];
+    }
+
+    private static boolean exists(DatasetIndex index, String assemblyId, String referenceName, long position, String referenceBases, String alternateBases) {
+        if (index.getAssembly(assemblyId) == null || index.getAssembly(assemblyId).get(referenceName) == null) {
+            return false;
+        }
+        ContigIndex contig = index.getAssembly(assemblyId).get(referenceName);
+        int referenceId = index.getAlleles().lookup(referenceBases);
+        int alternateId = index.getAlleles().lookup(alternateBases);
+        if (referenceId == AlleleDictionary.NOT_FOUND || alternateId == AlleleDictionary.NOT_FOUND) {
+            return false;
+        }
+        return contig.indexOf(position, referenceId, alternateId) != ContigIndex.NOT_FOUND;
+    }
+}
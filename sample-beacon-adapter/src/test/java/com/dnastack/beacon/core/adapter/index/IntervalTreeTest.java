@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares overlap queries of the interval tree, in memory and mapped, with a linear scan.
+ */
+public class IntervalTreeTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("beacon", IndexFormat.FILE_EXTENSION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testOverlapsMatchLinearScan() throws IOException {
+        Random random = new Random(7);
+        DatasetIndexBuilder builder = new DatasetIndexBuilder("dataset");
+        for (int i = 0; i < 2 * IndexFormat.BLOCK_SIZE + 123; i++) {
+            long start = random.nextInt(1_000_000);
+            // mostly short variants with a few long structural variants
+            long length = random.nextInt(50) == 0 ? random.nextInt(200_000) : 1 + random.nextInt(5);
+            builder.add("GRCh37", "1", start, start + length, "A", i % 3 == 0 ? "<DEL>" : "C");
+        }
+        DatasetIndex heap = builder.build();
+        IndexWriter.write(heap, file);
+        DatasetIndex mapped = IndexReader.open(file);
+
+        ContigIndex heapContig = heap.getAssembly("GRCh37").get("1");
+        ContigIndex mappedContig = mapped.getAssembly("GRCh37").get("1");
+        // the writer builds the tree in place in the file, the heap index on an array
+        for (int row = 0; row < heapContig.size(); row++) {
+            assertThat(mappedContig.getMaxEnd(row)).isEqualTo(heapContig.getMaxEnd(row));
+        }
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(1_100_000) - 50_000;
+            long end = start + 1 + (i % 10 == 0 ? random.nextInt(500_000) : random.nextInt(100));
+            List<Integer> expected = scan(heapContig, start, end);
+            assertThat(overlaps(heapContig, start, end)).isEqualTo(expected);
+            assertThat(overlaps(mappedContig, start, end)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testVisitorStopsQuery() {
+        DatasetIndexBuilder builder = new DatasetIndexBuilder("dataset");
+        for (int i = 0; i < 100; i++) {
+            builder.add("GRCh37", "1", i, i + 10, "A", "C");
+        }
+        ContigIndex contig = builder.build().getAssembly("GRCh37").get("1");
+        List<Integer> visited = new ArrayList<>();
+        assertThat(contig.forEachOverlap(0, 100, row -> !visited.add(row))).isFalse();
+        assertThat(visited).hasSize(1);
+        assertThat(contig.forEachOverlap(200, 300, row -> false)).isTrue();
+    }
+
+    private static List<Integer> overlaps(ContigIndex contig, long start, long end) {
+        List<Integer> rows = new ArrayList<>();
+        contig.forEachOverlap(start, end, rows::add);
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<Integer> scan(ContigIndex contig, long start, long end) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < contig.size(); row++) {
+            if (contig.getPosition(row) < end && start < contig.getEnd(row)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
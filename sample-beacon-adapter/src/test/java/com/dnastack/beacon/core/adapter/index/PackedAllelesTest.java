@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that short alleles are packed into distinct ids and all other alleles go through the dictionary.
+ */
+public class PackedAllelesTest {
+
+    @Test
+    public void testPackedAllelesRoundTrip() {
+        Random random = new Random(5);
+        Set<Integer> ids = new HashSet<>();
+        Set<String> alleles = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder allele = new StringBuilder();
+            int length = random.nextInt(PackedAlleles.MAX_LENGTH + 1);
+            for (int j = 0; j < length; j++) {
+                allele.append("ACGT".charAt(random.nextInt(4)));
+            }
+            int id = PackedAlleles.pack(allele.toString());
+            assertThat(PackedAlleles.isPacked(id)).isTrue();
+            assertThat(PackedAlleles.unpack(id)).isEqualTo(allele.toString());
+            if (alleles.add(allele.toString())) {
+                assertThat(ids.add(id)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testOtherAllelesAreInterned() {
+        String longAllele = "ACGTACGTACGTACGT";
+        HeapAlleleDictionary dictionary = new HeapAlleleDictionary();
+        assertThat(PackedAlleles.pack(longAllele)).isEqualTo(PackedAlleles.NOT_PACKED);
+        assertThat(PackedAlleles.pack("ACN")).isEqualTo(PackedAlleles.NOT_PACKED);
+        assertThat(PackedAlleles.pack("acgt")).isEqualTo(PackedAlleles.NOT_PACKED);
+        assertThat(PackedAlleles.pack(null)).isEqualTo(PackedAlleles.NOT_PACKED);
+
+        int packed = dictionary.intern("ACGT");
+        int stored = dictionary.intern(longAllele);
+        assertThat(dictionary.intern("<DEL>")).isNotEqualTo(stored);
+        assertThat(dictionary.intern(longAllele)).isEqualTo(stored);
+        assertThat(PackedAlleles.isPacked(stored)).isFalse();
+        assertThat(dictionary.size()).isEqualTo(2);
+        assertThat(dictionary.get(packed)).isEqualTo("ACGT");
+        assertThat(dictionary.get(stored)).isEqualTo(longAllele);
+        assertThat(dictionary.lookup("ACGTACGTACGTACGA")).isEqualTo(AlleleDictionary.NOT_FOUND);
+    }
+}
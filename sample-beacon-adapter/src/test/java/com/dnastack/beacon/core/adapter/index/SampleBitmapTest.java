@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.index;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares sample sets of array and bitmap containers with a {@link BitSet}.
+ */
+public class SampleBitmapTest {
+
+    private static final int SAMPLES = 200000;
+
+    @Test
+    public void testCardinalityAndIntersectionMatchBitSet() {
+        Random random = new Random(11);
+        // sparse, dense and mixed sets, spanning several containers
+        double[] densities = {0.0001, 0.01, 0.2, 0.9};
+        for (double density : densities) {
+            for (double otherDensity : densities) {
+                BitSet expected = randomSet(random, density);
+                BitSet other = randomSet(random, otherDensity);
+                SampleBitmap bitmap = SampleBitmap.fromBytes(of(expected).toBytes());
+                SampleBitmap otherBitmap = of(other);
+
+                assertThat(bitmap.getCardinality()).isEqualTo(expected.cardinality());
+                BitSet intersection = (BitSet) expected.clone();
+                intersection.and(other);
+                assertThat(bitmap.andCardinality(otherBitmap)).isEqualTo(intersection.cardinality());
+                assertThat(otherBitmap.andCardinality(bitmap)).isEqualTo(intersection.cardinality());
+                for (int i = 0; i < 1000; i++) {
+                    int sample = random.nextInt(SAMPLES + 1000);
+                    assertThat(bitmap.contains(sample)).isEqualTo(expected.get(sample));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicatesAndEmptySet() {
+        SampleBitmap bitmap = SampleBitmap.of(5, 3, 5, 70000);
+
+        assertThat(bitmap.getCardinality()).isEqualTo(3);
+        assertThat(bitmap.contains(3)).isTrue();
+        assertThat(bitmap.contains(4)).isFalse();
+        assertThat(SampleBitmap.EMPTY.isEmpty()).isTrue();
+        assertThat(bitmap.andCardinality(SampleBitmap.EMPTY)).isEqualTo(0);
+    }
+
+    private static BitSet randomSet(Random random, double density) {
+        BitSet set = new BitSet();
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            if (random.nextDouble() < density) {
+                set.set(sample);
+            }
+        }
+        return set;
+    }
+
+    private static SampleBitmap of(BitSet set) {
+        return SampleBitmap.of(set.stream().toArray());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ *  Copyright 2014 Miroslav Cupak (mirocupak@gmail.com).
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.dnastack.beacon.core.adapter.liftover;
+
+import com.dnastack.beacon.service.api.VariantRange;
+import org.ga4gh.beacon.BeaconAlleleRequest;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Translates positions through forward, reverse and overlapping chains.
+ */
+public class ChainIndexTest {
+
+    private static final String CHAINS = "chain 1000 chr1 1000 + 100 400 chr1 2000 + 500 810 1\n"
+            + "100 50 60\n"
+            + "150\n"
+            + "\n"
+            + "chain 500 chr1 1000 + 150 250 chr2 300 + 0 100 2\n"
+            + "100\n"
+            + "\n"
+            + "chain 900 chr2 1000 + 0 100 chr3 1000 - 10 110 3\n"
+            + "100\n";
+
+    @Test
+    public void testForwardChain() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+
+        assertThat(chain.getBlockCount()).isEqualTo(3);
+        LiftedInterval lifted = chain.lift("chr1", 120, 121);
+        assertThat(lifted.getContig()).isEqualTo("chr1");
+        assertThat(lifted.getStart()).isEqualTo(520L);
+        assertThat(lifted.isReverse()).isFalse();
+        assertThat(chain.lift("1", 120, 121).getStart()).isEqualTo(520L);
+        assertThat(chain.lift("chr1", 260, 263).getStart()).isEqualTo(670L);
+
+        // gaps, intervals spanning a gap and unaligned contigs do not translate
+        assertThat(chain.lift("chr1", 210, 211)).isNull();
+        assertThat(chain.lift("chr1", 195, 205)).isNull();
+        assertThat(chain.lift("chr1", 50, 51)).isNull();
+        assertThat(chain.lift("chrX", 120, 121)).isNull();
+    }
+
+    @Test
+    public void testHigherScoringChainWins() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+
+        assertThat(chain.lift("chr1", 160, 161).getContig()).isEqualTo("chr1");
+        assertThat(chain.lift("chr1", 160, 161).getStart()).isEqualTo(560L);
+        assertThat(chain.lift("chr1", 220, 221)).isNull();
+    }
+
+    @Test
+    public void testReverseChain() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+
+        LiftedInterval lifted = chain.lift("chr2", 5, 8);
+        assertThat(lifted.getContig()).isEqualTo("chr3");
+        assertThat(lifted.getStart()).isEqualTo(982L);
+        assertThat(lifted.getEnd()).isEqualTo(985L);
+        assertThat(lifted.isReverse()).isTrue();
+
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setAssemblyId("GRCh38");
+        request.setReferenceName("chr2");
+        request.setStart(5L);
+        request.setReferenceBases("ACG");
+        request.setAlternateBases("TCA");
+        LiftedQuery query = LiftedQuery.lift(chain, request, VariantRange.none());
+        assertThat(query.getRequest().getAssemblyId()).isEqualTo("GRCh37");
+        assertThat(query.getRequest().getReferenceName()).isEqualTo("chr3");
+        assertThat(query.getRequest().getStart()).isEqualTo(982L);
+        assertThat(query.getRequest().getReferenceBases()).isEqualTo("CGT");
+        assertThat(query.getRequest().getAlternateBases()).isEqualTo("TGA");
+
+        // a range has to translate in one piece
+        request.setStart(90L);
+        assertThat(LiftedQuery.lift(chain, request, new VariantRange(120L, null, null, null, null, null))).isNull();
+        request.setStart(10L);
+        query = LiftedQuery.lift(chain, request, new VariantRange(20L, null, null, null, null, null));
+        assertThat(query.getRequest().getStart()).isEqualTo(970L);
+        assertThat(query.getRange().getEnd()).isEqualTo(980L);
+    }
+
+    @Test
+    public void testReverseDeletionIsNotLiftable() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+        BeaconAlleleRequest request = request("chr2", 5, "ACG", "A");
+
+        assertThat(LiftedQuery.lift(chain, request, VariantRange.none())).isSameAs(LiftedQuery.NOT_LIFTABLE);
+        assertThat(LiftedQuery.lift(chain, request, new VariantRange(20L, null, null, null, null, null)))
+                .isSameAs(LiftedQuery.NOT_LIFTABLE);
+    }
+
+    @Test
+    public void testReverseInsertionIsNotLiftable() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+
+        assertThat(LiftedQuery.lift(chain, request("chr2", 5, "A", "AGT"), VariantRange.none()))
+                .isSameAs(LiftedQuery.NOT_LIFTABLE);
+        // symbolic and wildcard alleles carry no anchor base
+        assertThat(LiftedQuery.lift(chain, request("chr2", 5, "A", "<INS>"), VariantRange.none()).getRequest().getReferenceBases())
+                .isEqualTo("T");
+    }
+
+    @Test
+    public void testForwardIndelsKeepTheirAnchor() throws IOException {
+        ChainIndex chain = parse(CHAINS);
+
+        LiftedQuery deletion = LiftedQuery.lift(chain, request("chr1", 120, "ACG", "A"), VariantRange.none());
+        assertThat(deletion.getRequest().getStart()).isEqualTo(520L);
+        assertThat(deletion.getRequest().getReferenceBases()).isEqualTo("ACG");
+        assertThat(deletion.getRequest().getAlternateBases()).isEqualTo("A");
+        LiftedQuery insertion = LiftedQuery.lift(chain, request("chr1", 120, "A", "AGT"), VariantRange.none());
+        assertThat(insertion.getRequest().getAlternateBases()).isEqualTo("AGT");
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedChain() throws IOException {
+        parse("chain 1000 chr1 1000 + 100 400 chr1 2000 + 500 810 1\n100 x 60\n");
+    }
+
+    private static BeaconAlleleRequest request(String referenceName, long start, String referenceBases, String alternateBases) {
+        BeaconAlleleRequest request = new BeaconAlleleRequest();
+        request.setAssemblyId("GRCh38");
+        request.setReferenceName(referenceName);
+        request.setStart(start);
+        request.setReferenceBases(referenceBases);
+        request.setAlternateBases(alternateBases);
+        return request;
+    }
+
+    private static ChainIndex parse(String chains) throws IOException {
+        return ChainIndex.parse("GRCh38", "GRCh37", new BufferedReader(new StringReader(chains)));
+    }
+}